@@ -0,0 +1,78 @@
+package biblioteca.benchmarks;
+
+import biblioteca.Biblioteca;
+import biblioteca.CatalogoEnMemoria;
+import biblioteca.IndiceTexto;
+import biblioteca.Libro;
+import biblioteca.ReceptorEventosNulo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Búsqueda de libros por título y autor con el índice invertido, comparada
+ * con recorrer el catálogo normalizando y comparando cada texto.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class BusquedaBenchmark {
+    private static final int LIMITE = 20;
+
+    @Param({"100000", "1000000"})
+    public int libros;
+
+    @Param({"diseño análisis", "garcía", "compil arqu"})
+    public String consulta;
+
+    private Biblioteca biblioteca;
+    private CatalogoEnMemoria catalogo;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        catalogo = new CatalogoEnMemoria();
+        biblioteca = new Biblioteca(new ReceptorEventosNulo(), catalogo);
+        new GeneradorDatos(42).poblar(biblioteca, libros, 1, null);
+    }
+
+    @Benchmark
+    public List<Libro> indicePorPrefijo() {
+        return biblioteca.buscarLibrosPorPrefijo(consulta, IndiceTexto.Campo.CUALQUIERA, LIMITE);
+    }
+
+    @Benchmark
+    public List<Libro> recorridoLineal() {
+        String[] palabras = IndiceTexto.normalizar(consulta).split(" ");
+        List<Libro> resultados = new ArrayList<>();
+        for (Libro libro : catalogo) {
+            String texto = IndiceTexto.normalizar(libro.getTitulo() + " " + libro.getAutor());
+            boolean coincide = true;
+            for (String palabra : palabras) {
+                coincide &= texto.contains(palabra);
+            }
+            if (coincide) {
+                resultados.add(libro);
+                if (resultados.size() == LIMITE) {
+                    break;
+                }
+            }
+        }
+        return resultados;
+    }
+}
@@ -0,0 +1,99 @@
+package biblioteca.benchmarks;
+
+import biblioteca.Biblioteca;
+import biblioteca.HistogramaLatencia;
+import biblioteca.Prestamo;
+import biblioteca.ReceptorEventosNulo;
+import biblioteca.ResultadoOperacion;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Compara dos formas de conseguir un libro muy solicitado: reintentar el
+ * préstamo hasta que haya una copia, como hacen los clientes en semana de
+ * exámenes, o reservarlo y esperar la copia devuelta. Muchos usuarios, cada
+ * uno en un hilo virtual, piden el mismo libro con pocas copias, lo tienen
+ * prestado un momento y lo devuelven.
+ *
+ * <p>
+ * Para cada estrategia muestra cuántas solicitudes recibió la biblioteca
+ * por préstamo conseguido y cuánto esperó cada usuario por su copia.
+ *
+ * <p>
+ * Uso: {@code ContencionReservas [usuarios] [prestamosPorUsuario] [copias]}.
+ */
+public final class ContencionReservas {
+    private static final long USO_NANOS = 200_000; // Tiempo con el libro prestado
+
+    public static void main(String[] args) throws InterruptedException {
+        int usuarios = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+        int prestamos = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        String copias = args.length > 2 ? args[2] : "2";
+
+        for (boolean reservando : new boolean[] { false, true }) {
+            Biblioteca biblioteca = new Biblioteca(new ReceptorEventosNulo());
+            new GeneradorDatos(42).poblar(biblioteca, 1, usuarios, copias);
+            String isbn = GeneradorDatos.isbn(0);
+            HistogramaLatencia espera = new HistogramaLatencia();
+            LongAdder solicitudes = new LongAdder();
+
+            long inicio = System.nanoTime();
+            List<Thread> hilos = new ArrayList<>(usuarios);
+            for (int u = 0; u < usuarios; u++) {
+                String clave = GeneradorDatos.claveUsuario(u);
+                hilos.add(Thread.ofVirtual().start(() -> {
+                    for (int i = 0; i < prestamos; i++) {
+                        long desde = System.nanoTime();
+                        Prestamo prestamo = reservando
+                                ? reservar(biblioteca, clave, isbn, solicitudes)
+                                : reintentar(biblioteca, clave, isbn, solicitudes);
+                        espera.registrar(System.nanoTime() - desde);
+                        usar();
+                        biblioteca.intentarDevolucion(prestamo.getId());
+                        solicitudes.increment();
+                    }
+                }));
+            }
+            for (Thread hilo : hilos) {
+                hilo.join();
+            }
+            double segundos = (System.nanoTime() - inicio) / 1e9;
+            biblioteca.cerrar();
+
+            long conseguidos = (long) usuarios * prestamos;
+            HistogramaLatencia.Instantanea instantanea = espera.instantanea();
+            System.out.printf(Locale.ROOT, "%-10s préstamos: %d en %.2f s, solicitudes: %d (%.1f por préstamo)%n",
+                    reservando ? "reserva" : "reintento", conseguidos, segundos, solicitudes.sum(),
+                    solicitudes.sum() / (double) conseguidos);
+            System.out.printf(Locale.ROOT, "%-10s espera p50: %.2f ms, p99: %.2f ms, máx: %.2f ms%n", "",
+                    instantanea.percentil(50) / 1e6, instantanea.percentil(99) / 1e6,
+                    instantanea.getMaximo() / 1e6);
+        }
+    }
+
+    private static Prestamo reintentar(Biblioteca biblioteca, String clave, String isbn, LongAdder solicitudes) {
+        while (true) {
+            ResultadoOperacion resultado = biblioteca.intentarPrestamo(clave, isbn, GeneradorDatos.FECHA);
+            solicitudes.increment();
+            if (resultado.esExitoso()) {
+                return resultado.getPrestamo();
+            }
+            Thread.yield();
+        }
+    }
+
+    private static Prestamo reservar(Biblioteca biblioteca, String clave, String isbn, LongAdder solicitudes) {
+        solicitudes.increment();
+        return biblioteca.reservar(clave, isbn).join();
+    }
+
+    private static void usar() {
+        long hasta = System.nanoTime() + USO_NANOS;
+        while (System.nanoTime() < hasta) {
+            Thread.yield();
+        }
+    }
+}
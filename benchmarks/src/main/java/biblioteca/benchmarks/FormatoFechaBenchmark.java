@@ -0,0 +1,66 @@
+package biblioteca.benchmarks;
+
+import biblioteca.FormatoFecha;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * El codificador de fechas de la biblioteca frente a {@code java.time}, para
+ * fechas válidas e inválidas.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FormatoFechaBenchmark {
+    private String valida = "17/10/2024";
+    private String invalida = "31-12-2025";
+    private long diaEpoca = LocalDate.of(2024, 10, 17).toEpochDay();
+
+    @Benchmark
+    public long parsearFormatoFecha() {
+        return FormatoFecha.parsearDiaEpoca(valida);
+    }
+
+    @Benchmark
+    public long parsearJavaTime() {
+        return LocalDate.parse(valida, FormatoFecha.FORMATEADOR).toEpochDay();
+    }
+
+    @Benchmark
+    public long parsearInvalidaFormatoFecha() {
+        return FormatoFecha.parsearDiaEpoca(invalida);
+    }
+
+    @Benchmark
+    public long parsearInvalidaJavaTime() {
+        try {
+            return LocalDate.parse(invalida, FormatoFecha.FORMATEADOR).toEpochDay();
+        } catch (DateTimeParseException e) {
+            return FormatoFecha.INVALIDA;
+        }
+    }
+
+    @Benchmark
+    public String formatearFormatoFecha() {
+        return FormatoFecha.formatear(diaEpoca);
+    }
+
+    @Benchmark
+    public String formatearJavaTime() {
+        return FormatoFecha.FORMATEADOR.format(LocalDate.ofEpochDay(diaEpoca));
+    }
+}
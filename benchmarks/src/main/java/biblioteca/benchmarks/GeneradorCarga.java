@@ -0,0 +1,284 @@
+package biblioteca.benchmarks;
+
+import biblioteca.Biblioteca;
+import biblioteca.HistogramaLatencia;
+import biblioteca.ReceptorEventosNulo;
+import biblioteca.ServidorBiblioteca;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Generador de carga para {@link ServidorBiblioteca}: abre muchas conexiones
+ * concurrentes, cada una en un hilo virtual, y en cada una repite un préstamo
+ * y su devolución lo más rápido que el servidor responde. Al terminar muestra
+ * las solicitudes por segundo y los percentiles de latencia medidos desde el
+ * cliente.
+ *
+ * <p>
+ * Uso: {@code GeneradorCarga [conexiones] [segundos] [host:puerto]}. Sin
+ * destino inicia un servidor local en un puerto libre. Antes de medir
+ * registra los libros y usuarios de {@link GeneradorDatos} por el mismo
+ * protocolo, así que también sirve contra un servidor vacío, y descarta los
+ * primeros segundos como calentamiento.
+ */
+public final class GeneradorCarga {
+    private static final int LIBROS = 10_000;
+    private static final int CALENTAMIENTO_SEGUNDOS = 5;
+
+    private final InetSocketAddress destino;
+    private final int conexiones;
+    private final HistogramaLatencia latencias = new HistogramaLatencia();
+    private final LongAdder respuestas = new LongAdder();
+    private final LongAdder errores = new LongAdder();
+    private final LongAdder ocupado = new LongAdder();
+    private volatile boolean midiendo;
+    private volatile boolean terminado;
+
+    private GeneradorCarga(InetSocketAddress destino, int conexiones) {
+        this.destino = destino;
+        this.conexiones = conexiones;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int conexiones = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int segundos = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+        Biblioteca biblioteca = null;
+        ServidorBiblioteca servidor = null;
+        InetSocketAddress destino;
+        if (args.length > 2) {
+            String[] partes = args[2].split(":");
+            destino = new InetSocketAddress(partes[0], Integer.parseInt(partes[1]));
+        } else {
+            biblioteca = new Biblioteca(new ReceptorEventosNulo());
+            servidor = new ServidorBiblioteca(biblioteca, 0, conexiones + 1,
+                    ServidorBiblioteca.MAX_EN_VUELO_PREDETERMINADO, ServidorBiblioteca.ESPERA_PREDETERMINADA_MILIS);
+            servidor.iniciar();
+            destino = new InetSocketAddress("localhost", servidor.getPuerto());
+        }
+
+        try {
+            GeneradorCarga generador = new GeneradorCarga(destino, conexiones);
+            generador.poblar();
+            generador.ejecutar(segundos);
+        } finally {
+            if (servidor != null) {
+                servidor.close();
+                biblioteca.cerrar();
+            }
+        }
+    }
+
+    /**
+     * Registra libros y usuarios por una sola conexión, enviando todas las
+     * solicitudes antes de leer las respuestas.
+     */
+    private void poblar() throws IOException {
+        GeneradorDatos datos = new GeneradorDatos(42);
+        try (Conexion conexion = new Conexion(conectar())) {
+            int enviadas = 0;
+            StringBuilder lote = new StringBuilder();
+            for (int n = 0; n < LIBROS; n++) {
+                lote.append("LIBRO\t").append(GeneradorDatos.isbn(n)).append('\t').append(datos.titulo(n))
+                        .append('\t').append(datos.autor(n)).append('\t').append(datos.copias(n)).append('\n');
+                enviadas++;
+            }
+            for (int n = 0; n < conexiones; n++) {
+                lote.append("USUARIO\t").append(GeneradorDatos.claveUsuario(n)).append("\tUsuario ").append(n)
+                        .append("\tIngeniería de Software\t1\n");
+                enviadas++;
+            }
+            // Se envía desde otro hilo para que el servidor nunca se bloquee
+            // escribiendo respuestas que nadie lee
+            Thread envio = Thread.ofVirtual().start(() -> {
+                try {
+                    conexion.enviar(lote.toString().getBytes(StandardCharsets.UTF_8));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            for (int i = 0; i < enviadas; i++) {
+                conexion.leerLinea();
+            }
+            envio.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void ejecutar(int segundos) throws InterruptedException {
+        CountDownLatch conectadas = new CountDownLatch(conexiones);
+        CountDownLatch inicio = new CountDownLatch(1);
+        List<Thread> hilos = new ArrayList<>(conexiones);
+        for (int i = 0; i < conexiones; i++) {
+            String clave = GeneradorDatos.claveUsuario(i);
+            hilos.add(Thread.ofVirtual().start(() -> cliente(clave, conectadas, inicio)));
+        }
+        conectadas.await();
+        System.out.printf(Locale.ROOT, "%d conexiones abiertas; calentamiento de %d s%n", conexiones,
+                CALENTAMIENTO_SEGUNDOS);
+        inicio.countDown();
+        Thread.sleep(CALENTAMIENTO_SEGUNDOS * 1000L);
+
+        midiendo = true;
+        long desde = System.nanoTime();
+        Thread.sleep(segundos * 1000L);
+        midiendo = false;
+        double transcurrido = (System.nanoTime() - desde) / 1e9;
+        terminado = true;
+        for (Thread hilo : hilos) {
+            hilo.join();
+        }
+
+        HistogramaLatencia.Instantanea instantanea = latencias.instantanea();
+        System.out.printf(Locale.ROOT, "Solicitudes: %d en %.1f s (%.0f req/s); errores: %d, rechazadas por carga: %d%n",
+                respuestas.sum(), transcurrido, respuestas.sum() / transcurrido, errores.sum(), ocupado.sum());
+        System.out.printf(Locale.ROOT, "Latencia p50: %.3f ms, p99: %.3f ms, p99.9: %.3f ms, máx: %.3f ms%n",
+                instantanea.percentil(50) / 1e6, instantanea.percentil(99) / 1e6,
+                instantanea.percentil(99.9) / 1e6, instantanea.getMaximo() / 1e6);
+    }
+
+    private void cliente(String clave, CountDownLatch conectadas, CountDownLatch inicio) {
+        Conexion conexion = null;
+        try {
+            conexion = new Conexion(conectar());
+            conectadas.countDown();
+            inicio.await();
+            ThreadLocalRandom aleatorio = ThreadLocalRandom.current();
+            while (!terminado) {
+                String isbn = GeneradorDatos.isbn(aleatorio.nextInt(LIBROS));
+                String respuesta = solicitar(conexion,
+                        "PRESTAMO\t" + clave + "\t" + isbn + "\t" + GeneradorDatos.FECHA + "\n");
+                if (respuesta.startsWith("OK\t")) {
+                    solicitar(conexion, "DEVOLUCION\t" + respuesta.substring(3) + "\n");
+                }
+            }
+        } catch (IOException e) {
+            if (!terminado) {
+                System.err.println("Conexión perdida: " + e.getMessage());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (conexion == null) {
+                conectadas.countDown();
+            } else {
+                conexion.close();
+            }
+        }
+    }
+
+    private String solicitar(Conexion conexion, String solicitud) throws IOException {
+        long inicio = System.nanoTime();
+        conexion.enviar(solicitud.getBytes(StandardCharsets.UTF_8));
+        String respuesta = conexion.leerLinea();
+        if (midiendo) {
+            latencias.registrar(System.nanoTime() - inicio);
+            respuestas.increment();
+            if (respuesta.startsWith("ERROR\tOCUPADO")) {
+                ocupado.increment();
+            } else if (respuesta.startsWith("ERROR")
+                    && !respuesta.startsWith("ERROR\tLIBRO_NO_DISPONIBLE")) { // Agotado es un rechazo esperado
+                errores.increment();
+            }
+        }
+        return respuesta;
+    }
+
+    /** Conecta reintentando mientras la cola de conexiones del servidor está llena. */
+    private Socket conectar() throws IOException {
+        for (int intento = 0;; intento++) {
+            Socket socket = new Socket();
+            try {
+                socket.setTcpNoDelay(true);
+                socket.connect(destino, 30_000);
+                return socket;
+            } catch (ConnectException e) {
+                socket.close();
+                if (intento == 50) {
+                    throw e;
+                }
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException interrumpido) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Conexión de cliente con un búfer de lectura propio y pequeño; las
+     * respuestas medidas son de una línea ASCII.
+     */
+    private static final class Conexion implements AutoCloseable {
+        private final Socket socket;
+        private final InputStream entrada;
+        private final OutputStream salida;
+        private final byte[] bufer = new byte[512];
+        private int posicion;
+        private int limite;
+
+        Conexion(Socket socket) throws IOException {
+            this.socket = socket;
+            this.entrada = socket.getInputStream();
+            this.salida = socket.getOutputStream();
+        }
+
+        void enviar(byte[] datos) throws IOException {
+            salida.write(datos);
+        }
+
+        String leerLinea() throws IOException {
+            ByteArrayOutputStream linea = null; // Sólo si la línea no cabe en el búfer
+            while (true) {
+                for (int i = posicion; i < limite; i++) {
+                    if (bufer[i] == '\n') {
+                        int inicio = posicion;
+                        posicion = i + 1;
+                        if (linea == null) {
+                            return new String(bufer, inicio, i - inicio, StandardCharsets.UTF_8);
+                        }
+                        linea.write(bufer, inicio, i - inicio);
+                        return linea.toString(StandardCharsets.UTF_8);
+                    }
+                }
+                if (posicion < limite) {
+                    if (linea == null) {
+                        linea = new ByteArrayOutputStream();
+                    }
+                    linea.write(bufer, posicion, limite - posicion);
+                }
+                posicion = 0;
+                limite = entrada.read(bufer);
+                if (limite < 0) {
+                    throw new IOException("El servidor cerró la conexión.");
+                }
+            }
+        }
+
+        @Override
+        public void close() {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // Ya no hay nada que liberar
+            }
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package biblioteca.benchmarks;
+
+import biblioteca.Biblioteca;
+import biblioteca.SolicitudPrestamo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generador de datos sintéticos para los benchmarks, modelado sobre los
+ * escenarios de {@code Main}: libros con ISBN-13 con guiones y entre una y
+ * cinco copias, títulos y autores con acentos, usuarios con claves "U" más
+ * dígitos, y solicitudes de préstamo que mezclan préstamos válidos con los
+ * rechazos de la demostración (ISBN o usuario inexistente, fecha con formato
+ * incorrecto, campos vacíos).
+ *
+ * <p>
+ * Los datos dependen sólo de la semilla y de la posición, así que dos
+ * ejecuciones con la misma semilla producen exactamente lo mismo y los
+ * resultados se pueden comparar contra una línea base.
+ */
+public final class GeneradorDatos {
+    /** Fecha de préstamo válida usada por todas las solicitudes. */
+    public static final String FECHA = "01/01/2024";
+
+    private static final String[] PALABRAS = {
+        "Diseño", "Algoritmos", "Programación", "Estructuras", "Datos", "Análisis", "Cálculo", "Física",
+        "Química", "Ingeniería", "Software", "Redes", "Sistemas", "Operativos", "Compiladores", "Teoría",
+        "Computación", "Lógica", "Matemáticas", "Discretas", "Bases", "Gráfico", "Java", "Efectivo",
+        "Limpio", "Código", "Arquitectura", "Patrones", "Concurrencia", "Práctica"
+    };
+    private static final String[] NOMBRES = {
+        "Ana", "Pedro", "María", "Juan", "Laura", "José", "Sofía", "Luis", "Lucía", "Jorge"
+    };
+    private static final String[] APELLIDOS = {
+        "García", "Martínez", "López", "Pérez", "Díaz", "Núñez", "Hernández", "Gómez", "Ruiz", "Sánchez"
+    };
+    private static final String[] LICENCIATURAS = {
+        "Ingeniería de Software", "Ciencias de la Computación", "Diseño Gráfico", "Física", "Química",
+        "Matemáticas"
+    };
+
+    private final long semilla;
+
+    /**
+     * Constructor de la clase GeneradorDatos.
+     * @param semilla La semilla de los datos.
+     */
+    public GeneradorDatos(long semilla) {
+        this.semilla = semilla;
+    }
+
+    /**
+     * @param n La posición del libro.
+     * @return Un ISBN-13 válido con guiones, p. ej. "978-0000000123".
+     */
+    public static String isbn(int n) {
+        long cuerpo = 978_000_000_000L + n;
+        int suma = 0;
+        long resto = cuerpo;
+        for (int i = 0; i < 12; i++) {
+            suma += (i % 2 == 0 ? 3 : 1) * (int) (resto % 10);
+            resto /= 10;
+        }
+        String digitos = Long.toString(cuerpo * 10 + (10 - suma % 10) % 10);
+        return digitos.substring(0, 3) + "-" + digitos.substring(3);
+    }
+
+    /**
+     * @param n La posición del usuario.
+     * @return Una clave de usuario, p. ej. "U000123".
+     */
+    public static String claveUsuario(int n) {
+        String digitos = Integer.toString(n);
+        return "U" + "000000".substring(Math.min(6, digitos.length())) + digitos;
+    }
+
+    /**
+     * @param n La posición del libro.
+     * @return El título del libro: tres palabras y un número de volumen.
+     */
+    public String titulo(int n) {
+        Random aleatorio = aleatorio(n);
+        return PALABRAS[aleatorio.nextInt(PALABRAS.length)] + " de " + PALABRAS[aleatorio.nextInt(PALABRAS.length)]
+                + " " + PALABRAS[aleatorio.nextInt(PALABRAS.length)] + " " + (n + 1);
+    }
+
+    /**
+     * @param n La posición del libro.
+     * @return El autor del libro.
+     */
+    public String autor(int n) {
+        Random aleatorio = aleatorio(~n);
+        return NOMBRES[aleatorio.nextInt(NOMBRES.length)] + " " + APELLIDOS[aleatorio.nextInt(APELLIDOS.length)];
+    }
+
+    /**
+     * @param n La posición del libro.
+     * @return El número de copias, de 1 a 5 como los libros de la demostración.
+     */
+    public String copias(int n) {
+        return Integer.toString(1 + aleatorio(n).nextInt(5));
+    }
+
+    /**
+     * Registra libros y usuarios generados en la biblioteca.
+     * @param biblioteca La biblioteca, vacía.
+     * @param libros El número de libros.
+     * @param usuarios El número de usuarios.
+     * @param copias El número de copias de cada libro, o null para usar
+     *               {@link #copias(int)}.
+     */
+    public void poblar(Biblioteca biblioteca, int libros, int usuarios, String copias) {
+        for (int n = 0; n < libros; n++) {
+            biblioteca.intentarRegistrarLibro(isbn(n), titulo(n), autor(n), copias == null ? copias(n) : copias);
+        }
+        for (int n = 0; n < usuarios; n++) {
+            Random aleatorio = aleatorio(n);
+            biblioteca.intentarRegistrarUsuario(claveUsuario(n),
+                    NOMBRES[aleatorio.nextInt(NOMBRES.length)] + " " + APELLIDOS[aleatorio.nextInt(APELLIDOS.length)],
+                    LICENCIATURAS[aleatorio.nextInt(LICENCIATURAS.length)], Integer.toString(1 + aleatorio.nextInt(10)));
+        }
+    }
+
+    /**
+     * Genera solicitudes de préstamo con la mezcla de la demostración: la
+     * mayoría válidas y una de cada diez con alguno de sus rechazos.
+     * @param cantidad El número de solicitudes.
+     * @param libros El número de libros registrados.
+     * @param usuarios El número de usuarios registrados.
+     * @return Las solicitudes.
+     */
+    public List<SolicitudPrestamo> solicitudes(int cantidad, int libros, int usuarios) {
+        Random aleatorio = new Random(semilla);
+        List<SolicitudPrestamo> solicitudes = new ArrayList<>(cantidad);
+        for (int i = 0; i < cantidad; i++) {
+            String clave = claveUsuario(aleatorio.nextInt(usuarios));
+            String isbn = isbn(aleatorio.nextInt(libros));
+            String fecha = FECHA;
+            if (aleatorio.nextInt(10) == 0) {
+                switch (aleatorio.nextInt(5)) {
+                    case 0:
+                        isbn = "999-9999999999";
+                        break;
+                    case 1:
+                        clave = "U999999";
+                        break;
+                    case 2:
+                        fecha = "31-12-2025";
+                        break;
+                    case 3:
+                        fecha = "not-a-date";
+                        break;
+                    default:
+                        clave = null;
+                        break;
+                }
+            }
+            solicitudes.add(new SolicitudPrestamo(clave, isbn, fecha));
+        }
+        return solicitudes;
+    }
+
+    private Random aleatorio(int n) {
+        return new Random(semilla * 31 + n);
+    }
+}
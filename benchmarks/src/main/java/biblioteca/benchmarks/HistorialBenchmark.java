@@ -0,0 +1,103 @@
+package biblioteca.benchmarks;
+
+import biblioteca.Biblioteca;
+import biblioteca.HistorialPrestamos;
+import biblioteca.Prestamo;
+import biblioteca.ReceptorEventosNulo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Consultas sobre el historial de préstamos después de 1 y 10 millones de
+ * préstamos devueltos de inmediato (2 y 20 millones de eventos), con fechas
+ * al azar en dos años: los 10 libros más prestados, los préstamos por
+ * licenciatura y los préstamos por día de un trimestre.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class HistorialBenchmark {
+    private static final int LIBROS = 100_000;
+    private static final int USUARIOS = 10_000;
+    private static final LocalDate INICIO = LocalDate.of(2023, 1, 1);
+    private static final int DIAS = 730;
+    private static final String[] LICENCIATURAS = {
+        "Ingeniería de Software", "Ingeniería Civil", "Matemáticas", "Física", "Actuaría", "Economía"
+    };
+
+    @Param({"1000000", "10000000"})
+    public int prestamos;
+
+    private Biblioteca biblioteca;
+    private HistorialPrestamos historial;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        biblioteca = new Biblioteca(new ReceptorEventosNulo());
+        GeneradorDatos generador = new GeneradorDatos(42);
+        for (int n = 0; n < LIBROS; n++) {
+            biblioteca.intentarRegistrarLibro(GeneradorDatos.isbn(n), generador.titulo(n), generador.autor(n), "100");
+        }
+        for (int n = 0; n < USUARIOS; n++) {
+            biblioteca.intentarRegistrarUsuario(GeneradorDatos.claveUsuario(n), "Usuario " + n,
+                    LICENCIATURAS[n % LICENCIATURAS.length], Integer.toString(1 + n % 10));
+        }
+
+        DateTimeFormatter formato = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+        String[] fechas = new String[DIAS];
+        for (int i = 0; i < DIAS; i++) {
+            fechas[i] = INICIO.plusDays(i).format(formato);
+        }
+        SplittableRandom aleatorio = new SplittableRandom(7);
+        for (int i = 0; i < prestamos; i++) {
+            // Los libros de números bajos se prestan más
+            int libro = (int) (LIBROS * Math.pow(aleatorio.nextDouble(), 3));
+            Prestamo prestamo = biblioteca.intentarPrestamo(GeneradorDatos.claveUsuario(aleatorio.nextInt(USUARIOS)),
+                    GeneradorDatos.isbn(libro), fechas[aleatorio.nextInt(DIAS)]).getPrestamo();
+            if (prestamo != null) {
+                biblioteca.intentarDevolucion(prestamo.getId());
+            }
+        }
+        historial = biblioteca.getHistorial();
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() {
+        biblioteca.cerrar();
+    }
+
+    @Benchmark
+    public Map<?, Long> librosMasPrestados() {
+        return historial.librosMasPrestados(10, LocalDate.MIN, LocalDate.MAX);
+    }
+
+    @Benchmark
+    public Map<?, Long> prestamosPorLicenciatura() {
+        return historial.prestamosPorLicenciatura(LocalDate.MIN, LocalDate.MAX);
+    }
+
+    @Benchmark
+    public Map<?, Long> prestamosPorDiaDeUnTrimestre() {
+        return historial.prestamosPorDia(INICIO.plusMonths(6), INICIO.plusMonths(9));
+    }
+}
@@ -0,0 +1,165 @@
+package biblioteca.benchmarks;
+
+import biblioteca.Biblioteca;
+import biblioteca.ReceptorEventosNulo;
+import biblioteca.ResultadoImportacion;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Importación de un archivo CSV de libros: la importación masiva contra leer
+ * el archivo línea por línea y registrar cada libro. Cada invocación importa
+ * el archivo completo en una biblioteca nueva, en memoria o persistente
+ * ({@link ConDiario}).
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+@State(Scope.Benchmark)
+public class ImportacionBenchmark {
+    private static final int FILAS = 1_000_000;
+    // Registrar por fila sincroniza el diario con disco una vez por libro
+    private static final int FILAS_DIARIO = 20_000;
+
+    private Path directorio;
+    private Path archivo;
+    private Path rechazos;
+    private Biblioteca biblioteca;
+
+    /**
+     * Una biblioteca persistente nueva en cada invocación, con su propio
+     * archivo de {@link #FILAS_DIARIO} libros.
+     */
+    @State(Scope.Benchmark)
+    public static class ConDiario {
+        private Path directorio;
+        private Path archivo;
+        private Path rechazos;
+        private Path datos;
+        private Biblioteca biblioteca;
+
+        @Setup(Level.Trial)
+        public void generar() throws IOException {
+            directorio = Files.createTempDirectory("importacion-diario");
+            archivo = directorio.resolve("libros.csv");
+            rechazos = directorio.resolve("rechazos.csv");
+            escribirLibros(archivo, FILAS_DIARIO);
+        }
+
+        @Setup(Level.Invocation)
+        public void abrir() throws IOException {
+            datos = Files.createTempDirectory(directorio, "biblioteca");
+            biblioteca = Biblioteca.abrir(datos, new ReceptorEventosNulo());
+        }
+
+        @TearDown(Level.Invocation)
+        public void cerrar() throws IOException {
+            biblioteca.cerrar();
+            borrarDirectorio(datos);
+        }
+
+        @TearDown(Level.Trial)
+        public void borrar() throws IOException {
+            borrarDirectorio(directorio);
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void generar() throws IOException {
+        directorio = Files.createTempDirectory("importacion");
+        archivo = directorio.resolve("libros.csv");
+        rechazos = directorio.resolve("rechazos.csv");
+        escribirLibros(archivo, FILAS);
+    }
+
+    @Setup(Level.Invocation)
+    public void vaciar() {
+        biblioteca = new Biblioteca(new ReceptorEventosNulo());
+    }
+
+    @TearDown(Level.Invocation)
+    public void cerrar() {
+        biblioteca.cerrar();
+    }
+
+    @TearDown(Level.Trial)
+    public void borrar() throws IOException {
+        borrarDirectorio(directorio);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FILAS)
+    public ResultadoImportacion importarLibros() throws IOException {
+        return biblioteca.importarLibros(archivo, rechazos);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FILAS)
+    public Biblioteca registrarPorFila() throws IOException {
+        return registrarPorFila(biblioteca, archivo);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FILAS_DIARIO)
+    public ResultadoImportacion importarLibrosConDiario(ConDiario estado) throws IOException {
+        return estado.biblioteca.importarLibros(estado.archivo, estado.rechazos);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FILAS_DIARIO)
+    public Biblioteca registrarPorFilaConDiario(ConDiario estado) throws IOException {
+        return registrarPorFila(estado.biblioteca, estado.archivo);
+    }
+
+    private static Biblioteca registrarPorFila(Biblioteca biblioteca, Path archivo) throws IOException {
+        try (BufferedReader lector = Files.newBufferedReader(archivo, StandardCharsets.UTF_8)) {
+            lector.readLine();
+            String linea;
+            while ((linea = lector.readLine()) != null) {
+                String[] campos = linea.split(",");
+                biblioteca.intentarRegistrarLibro(campos[0], campos[1], campos[2], campos[3]);
+            }
+        }
+        return biblioteca;
+    }
+
+    private static void escribirLibros(Path archivo, int filas) throws IOException {
+        GeneradorDatos generador = new GeneradorDatos(42);
+        try (BufferedWriter escritor = Files.newBufferedWriter(archivo, StandardCharsets.UTF_8)) {
+            escritor.write("isbn,titulo,autor,copias\n");
+            for (int n = 0; n < filas; n++) {
+                escritor.write(GeneradorDatos.isbn(n) + "," + generador.titulo(n) + "," + generador.autor(n) + ","
+                        + generador.copias(n) + "\n");
+            }
+        }
+    }
+
+    private static void borrarDirectorio(Path directorio) throws IOException {
+        try (Stream<Path> archivos = Files.walk(directorio)) {
+            archivos.sorted(Comparator.reverseOrder()).forEach(archivo -> archivo.toFile().delete());
+        }
+    }
+}
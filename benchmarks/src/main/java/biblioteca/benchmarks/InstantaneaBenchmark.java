@@ -0,0 +1,105 @@
+package biblioteca.benchmarks;
+
+import biblioteca.Biblioteca;
+import biblioteca.InstantaneaCatalogo;
+import biblioteca.Prestamo;
+import biblioteca.ReceptorEventosNulo;
+import biblioteca.ReporteBiblioteca;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Instantáneas del catálogo con un millón de libros: el costo de publicar
+ * una versión después de un número de préstamos y devoluciones, la consulta
+ * de disponibilidad sobre la instantánea vigente y una página del reporte a
+ * mitad del catálogo.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class InstantaneaBenchmark {
+    private static final int LIBROS = 1_000_000;
+    private static final int USUARIOS = 1_000;
+
+    private Biblioteca biblioteca;
+    private Writer descarte;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        biblioteca = new Biblioteca(new ReceptorEventosNulo());
+        new GeneradorDatos(42).poblar(biblioteca, LIBROS, USUARIOS, null);
+        biblioteca.getInstantanea();
+        descarte = Writer.nullWriter();
+    }
+
+    /**
+     * Préstamos y devoluciones de libros al azar antes de cada publicación:
+     * cada invocación devuelve la mitad de los préstamos activos y presta
+     * hasta completar los cambios.
+     */
+    @State(Scope.Benchmark)
+    public static class Cambios {
+        @Param({"100", "10000"})
+        public int cantidad;
+
+        private final ArrayDeque<Long> activos = new ArrayDeque<>();
+
+        @Setup(Level.Invocation)
+        public void cambiar(InstantaneaBenchmark estado) {
+            ThreadLocalRandom aleatorio = ThreadLocalRandom.current();
+            int devoluciones = activos.size() / 2;
+            for (int i = 0; i < devoluciones; i++) {
+                estado.biblioteca.intentarDevolucion(activos.poll());
+            }
+            for (int i = devoluciones; i < cantidad; i++) {
+                Prestamo prestamo = estado.biblioteca.intentarPrestamo(
+                        GeneradorDatos.claveUsuario(aleatorio.nextInt(USUARIOS)),
+                        GeneradorDatos.isbn(aleatorio.nextInt(LIBROS)), GeneradorDatos.FECHA).getPrestamo();
+                if (prestamo != null) {
+                    activos.add(prestamo.getId());
+                }
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() {
+        biblioteca.cerrar();
+    }
+
+    @Benchmark
+    public InstantaneaCatalogo publicar(Cambios cambios) {
+        return biblioteca.publicarInstantanea();
+    }
+
+    @Benchmark
+    public int disponibilidad() {
+        return biblioteca.getInstantanea()
+                .getCopiasDisponibles(GeneradorDatos.isbn(ThreadLocalRandom.current().nextInt(LIBROS)));
+    }
+
+    @Benchmark
+    public int paginaIntermedia() throws IOException {
+        return biblioteca.escribirPaginaLibros(descarte, ReporteBiblioteca.Formato.CSV, LIBROS / 2, 100);
+    }
+}
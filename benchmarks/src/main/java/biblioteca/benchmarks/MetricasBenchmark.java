@@ -0,0 +1,72 @@
+package biblioteca.benchmarks;
+
+import biblioteca.Biblioteca;
+import biblioteca.CatalogoEnMemoria;
+import biblioteca.MetricasBiblioteca;
+import biblioteca.ReceptorEventosNulo;
+import biblioteca.ResultadoOperacion;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Costo de las métricas en el camino rápido: un rechazo por ISBN inexistente
+ * con las métricas desactivadas, con la latencia de cada operación medida y
+ * con la latencia muestreada.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MetricasBenchmark {
+    private static final int LIBROS = 10_000;
+
+    @Param({"desactivadas", "todas", "muestreo16"})
+    private String metricas;
+
+    private Biblioteca biblioteca;
+    private String usuario;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        MetricasBiblioteca elegidas;
+        switch (metricas) {
+            case "desactivadas":
+                elegidas = MetricasBiblioteca.desactivadas();
+                break;
+            case "muestreo16":
+                elegidas = new MetricasBiblioteca(16);
+                break;
+            default:
+                elegidas = new MetricasBiblioteca();
+                break;
+        }
+        biblioteca = new Biblioteca(new ReceptorEventosNulo(), new CatalogoEnMemoria(), elegidas);
+        new GeneradorDatos(42).poblar(biblioteca, LIBROS, 100, null);
+        usuario = GeneradorDatos.claveUsuario(0);
+    }
+
+    @Benchmark
+    public ResultadoOperacion isbnDesconocido() {
+        return biblioteca.intentarPrestamo(usuario, "999-9999999999", GeneradorDatos.FECHA);
+    }
+
+    @Benchmark
+    public ResultadoOperacion prestamoYDevolucion() {
+        ResultadoOperacion resultado = biblioteca.intentarPrestamo(usuario, GeneradorDatos.isbn(0), GeneradorDatos.FECHA);
+        return biblioteca.intentarDevolucion(resultado.getPrestamo().getId());
+    }
+}
@@ -0,0 +1,148 @@
+package biblioteca.benchmarks;
+
+import biblioteca.Biblioteca;
+import biblioteca.BibliotecaParticionada;
+import biblioteca.NodoBiblioteca;
+import biblioteca.ReceptorEventosNulo;
+import biblioteca.ServidorBiblioteca;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Préstamos y devoluciones con 8 hilos sobre una biblioteca repartida en 1,
+ * 2, 4 y 8 nodos, en el mismo proceso o detrás de servidores en localhost.
+ * Cada operación presta un libro al azar y devuelve el préstamo: a un
+ * usuario al azar, así que la mayoría de los préstamos cruzan nodos; a un
+ * usuario del nodo del libro, sin cruzar nodos; o a un usuario de otro nodo,
+ * cruzando siempre que haya más de uno.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class ParticionBenchmark {
+    private static final int LIBROS = 100_000;
+    private static final int USUARIOS = 10_000;
+    private static final String CLAVE_NODOS = "clave-benchmark";
+
+    @Param({"1", "2", "4", "8"})
+    public int particiones;
+
+    @Param({"local", "remoto"})
+    public String modo;
+
+    private BibliotecaParticionada biblioteca;
+    private final List<ServidorBiblioteca> servidores = new ArrayList<>();
+    private int[] particionDeLibro;
+    private String[][] usuariosDeParticion;
+
+    @Setup(Level.Trial)
+    public void preparar() throws IOException {
+        if (modo.equals("remoto")) {
+            List<NodoBiblioteca> nodos = new ArrayList<>();
+            for (int i = 0; i < particiones; i++) {
+                ServidorBiblioteca servidor = new ServidorBiblioteca(new Biblioteca(new ReceptorEventosNulo()), 0);
+                servidor.setClaveNodos(CLAVE_NODOS);
+                servidor.iniciar();
+                servidores.add(servidor);
+                nodos.add(NodoBiblioteca.remoto(new InetSocketAddress("localhost", servidor.getPuerto()), 8,
+                        CLAVE_NODOS));
+            }
+            biblioteca = new BibliotecaParticionada(nodos);
+        } else {
+            biblioteca = BibliotecaParticionada.enMemoria(particiones);
+        }
+        GeneradorDatos generador = new GeneradorDatos(42);
+        for (int n = 0; n < LIBROS; n++) {
+            biblioteca.intentarRegistrarLibro(GeneradorDatos.isbn(n), generador.titulo(n), generador.autor(n),
+                    generador.copias(n));
+        }
+        for (int n = 0; n < USUARIOS; n++) {
+            biblioteca.intentarRegistrarUsuario(GeneradorDatos.claveUsuario(n), "Usuario " + n,
+                    "Ingeniería de Software", "3");
+        }
+
+        particionDeLibro = new int[LIBROS];
+        for (int n = 0; n < LIBROS; n++) {
+            particionDeLibro[n] = biblioteca.particionDeLibro(GeneradorDatos.isbn(n));
+        }
+        List<List<String>> porParticion = new ArrayList<>();
+        for (int i = 0; i < particiones; i++) {
+            porParticion.add(new ArrayList<>());
+        }
+        for (int n = 0; n < USUARIOS; n++) {
+            String clave = GeneradorDatos.claveUsuario(n);
+            porParticion.get(biblioteca.particionDeUsuario(clave)).add(clave);
+        }
+        usuariosDeParticion = new String[particiones][];
+        for (int i = 0; i < particiones; i++) {
+            usuariosDeParticion[i] = porParticion.get(i).toArray(new String[0]);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() {
+        biblioteca.cerrar();
+        for (ServidorBiblioteca servidor : servidores) {
+            servidor.close();
+        }
+    }
+
+    @Benchmark
+    public long prestarYDevolver() {
+        ThreadLocalRandom aleatorio = ThreadLocalRandom.current();
+        return prestarYDevolver(GeneradorDatos.claveUsuario(aleatorio.nextInt(USUARIOS)),
+                aleatorio.nextInt(LIBROS));
+    }
+
+    @Benchmark
+    public long prestarEnElMismoNodo() {
+        return prestarDesdeParticion(0);
+    }
+
+    @Benchmark
+    public long prestarEntreNodos() {
+        return prestarDesdeParticion(1);
+    }
+
+    /**
+     * Presta un libro al azar a un usuario de la partición que está a
+     * {@code distancia} de la del libro.
+     */
+    private long prestarDesdeParticion(int distancia) {
+        ThreadLocalRandom aleatorio = ThreadLocalRandom.current();
+        int libro = aleatorio.nextInt(LIBROS);
+        String[] usuarios = usuariosDeParticion[(particionDeLibro[libro] + distancia) % particiones];
+        return prestarYDevolver(usuarios[aleatorio.nextInt(usuarios.length)], libro);
+    }
+
+    private long prestarYDevolver(String claveUsuario, int libro) {
+        long id = biblioteca.intentarPrestamo(claveUsuario, GeneradorDatos.isbn(libro), GeneradorDatos.FECHA);
+        if (id >= 0) {
+            biblioteca.intentarDevolucion(id);
+        }
+        return id;
+    }
+}
@@ -0,0 +1,111 @@
+package biblioteca.benchmarks;
+
+import biblioteca.Biblioteca;
+import biblioteca.Prestamo;
+import biblioteca.ReceptorEventosNulo;
+import biblioteca.ResultadoOperacion;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Costo de un préstamo con un solo hilo y con varios hilos a la vez.
+ * Cada operación presta un libro y lo devuelve, para que el número de
+ * préstamos activos y las copias disponibles se mantengan estables durante
+ * la medición. Los eventos se descartan, así que se mide sólo la lógica de
+ * préstamos.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PrestamoBenchmark {
+
+    @Param({"10000"})
+    public int libros;
+
+    @Param({"1000"})
+    public int usuarios;
+
+    private Biblioteca biblioteca;
+    private String[] isbns;
+    private String[] claves;
+
+    /**
+     * Posición de cada hilo en los datos, para que los hilos no presten
+     * siempre el mismo libro.
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        int siguiente;
+
+        @Setup(Level.Trial)
+        public void iniciar() {
+            siguiente = ThreadLocalRandom.current().nextInt(1 << 20);
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        biblioteca = new Biblioteca(new ReceptorEventosNulo());
+        // Copias de sobra: los préstamos concurrentes de un mismo libro no se agotan
+        new GeneradorDatos(42).poblar(biblioteca, libros, usuarios, "1000000");
+        isbns = new String[libros];
+        for (int n = 0; n < libros; n++) {
+            isbns[n] = GeneradorDatos.isbn(n);
+        }
+        claves = new String[usuarios];
+        for (int n = 0; n < usuarios; n++) {
+            claves[n] = GeneradorDatos.claveUsuario(n);
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public ResultadoOperacion prestarYDevolver(Cursor cursor) {
+        return prestarYDevolver(cursor.siguiente++);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public ResultadoOperacion prestarYDevolverConcurrente(Cursor cursor) {
+        return prestarYDevolver(cursor.siguiente++);
+    }
+
+    /**
+     * El mismo préstamo con la API que lanza y captura excepciones.
+     */
+    @Benchmark
+    @Threads(1)
+    public int realizarPrestamoYDevolver(Cursor cursor) {
+        int n = cursor.siguiente++;
+        String clave = claves[Math.floorMod(n, usuarios)];
+        biblioteca.realizarPrestamo(clave, isbns[Math.floorMod(n, libros)], GeneradorDatos.FECHA);
+        for (Prestamo prestamo : biblioteca.obtenerPrestamosUsuario(clave)) {
+            biblioteca.devolverPrestamo(prestamo.getId());
+        }
+        return n;
+    }
+
+    private ResultadoOperacion prestarYDevolver(int n) {
+        ResultadoOperacion resultado = biblioteca.intentarPrestamo(claves[Math.floorMod(n, usuarios)],
+                isbns[Math.floorMod(n, libros)], GeneradorDatos.FECHA);
+        biblioteca.devolverPrestamo(resultado.getPrestamo().getId());
+        return resultado;
+    }
+}
@@ -0,0 +1,73 @@
+package biblioteca.benchmarks;
+
+import biblioteca.Biblioteca;
+import biblioteca.ReceptorEventosNulo;
+import biblioteca.ResultadoOperacion;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Costo de los préstamos rechazados: libro agotado, ISBN inexistente y
+ * fecha inválida, tanto con la API de resultados como con la API que lanza
+ * y captura excepciones.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RechazoBenchmark {
+    private static final int LIBROS = 10_000;
+
+    private Biblioteca biblioteca;
+    private String usuario;
+    private String agotado;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        biblioteca = new Biblioteca(new ReceptorEventosNulo());
+        new GeneradorDatos(42).poblar(biblioteca, LIBROS, 100, "1");
+        usuario = GeneradorDatos.claveUsuario(0);
+        agotado = GeneradorDatos.isbn(0);
+        biblioteca.intentarPrestamo(usuario, agotado, GeneradorDatos.FECHA);
+    }
+
+    @Benchmark
+    public ResultadoOperacion libroAgotado() {
+        return biblioteca.intentarPrestamo(usuario, agotado, GeneradorDatos.FECHA);
+    }
+
+    @Benchmark
+    public ResultadoOperacion isbnDesconocido() {
+        return biblioteca.intentarPrestamo(usuario, "999-9999999999", GeneradorDatos.FECHA);
+    }
+
+    @Benchmark
+    public ResultadoOperacion fechaInvalida() {
+        return biblioteca.intentarPrestamo(usuario, agotado, "31-12-2025");
+    }
+
+    @Benchmark
+    public Biblioteca libroAgotadoConExcepcion() {
+        biblioteca.realizarPrestamo(usuario, agotado, GeneradorDatos.FECHA);
+        return biblioteca;
+    }
+
+    @Benchmark
+    public Biblioteca isbnDesconocidoConExcepcion() {
+        biblioteca.realizarPrestamo(usuario, "999-9999999999", GeneradorDatos.FECHA);
+        return biblioteca;
+    }
+}
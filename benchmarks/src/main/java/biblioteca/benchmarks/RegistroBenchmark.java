@@ -0,0 +1,80 @@
+package biblioteca.benchmarks;
+
+import biblioteca.Biblioteca;
+import biblioteca.ReceptorEventosNulo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rendimiento del registro de libros y usuarios. Cada invocación registra
+ * un lote completo en una biblioteca nueva, así que se mide el crecimiento
+ * real de los índices y no sólo el rechazo de duplicados.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RegistroBenchmark {
+    private static final int LOTE = 100_000;
+
+    private String[] isbns;
+    private String[] titulos;
+    private String[] autores;
+    private String[] copias;
+    private String[] claves;
+    private Biblioteca biblioteca;
+
+    @Setup(Level.Trial)
+    public void generar() {
+        GeneradorDatos generador = new GeneradorDatos(42);
+        isbns = new String[LOTE];
+        titulos = new String[LOTE];
+        autores = new String[LOTE];
+        copias = new String[LOTE];
+        claves = new String[LOTE];
+        for (int n = 0; n < LOTE; n++) {
+            isbns[n] = GeneradorDatos.isbn(n);
+            titulos[n] = generador.titulo(n);
+            autores[n] = generador.autor(n);
+            copias[n] = generador.copias(n);
+            claves[n] = GeneradorDatos.claveUsuario(n);
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void vaciar() {
+        biblioteca = new Biblioteca(new ReceptorEventosNulo());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOTE)
+    public Biblioteca registrarLibros() {
+        for (int n = 0; n < LOTE; n++) {
+            biblioteca.intentarRegistrarLibro(isbns[n], titulos[n], autores[n], copias[n]);
+        }
+        return biblioteca;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOTE)
+    public Biblioteca registrarUsuarios() {
+        for (int n = 0; n < LOTE; n++) {
+            biblioteca.intentarRegistrarUsuario(claves[n], autores[n], "Ingeniería de Software", copias[n]);
+        }
+        return biblioteca;
+    }
+}
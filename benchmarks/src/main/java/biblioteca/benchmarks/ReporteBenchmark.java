@@ -0,0 +1,110 @@
+package biblioteca.benchmarks;
+
+import biblioteca.Biblioteca;
+import biblioteca.CatalogoEnMemoria;
+import biblioteca.CatalogoMapeado;
+import biblioteca.ReceptorEventosNulo;
+import biblioteca.ReporteBiblioteca;
+import biblioteca.ResumenDisponibilidad;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Generación del reporte con 10 mil, un millón y diez millones de libros,
+ * con una décima parte de los libros prestados. La salida se descarta para
+ * medir sólo la generación. Con diez millones de libros conviene el
+ * catálogo mapeado y un heap grande ({@code -jvmArgs -Xmx8g}).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class ReporteBenchmark {
+
+    @Param({"10000", "1000000", "10000000"})
+    public int libros;
+
+    @Param({"memoria", "mapeado"})
+    public String catalogo;
+
+    private Biblioteca biblioteca;
+    private Path directorio;
+    private Writer descarte;
+
+    @Setup(Level.Trial)
+    public void preparar() throws IOException {
+        if (catalogo.equals("mapeado")) {
+            directorio = Files.createTempDirectory("catalogo-benchmark");
+            biblioteca = new Biblioteca(new ReceptorEventosNulo(), CatalogoMapeado.crear(directorio, libros));
+        } else {
+            biblioteca = new Biblioteca(new ReceptorEventosNulo(), new CatalogoEnMemoria());
+        }
+        int usuarios = Math.max(1, libros / 100);
+        new GeneradorDatos(42).poblar(biblioteca, libros, usuarios, null);
+        for (int n = 0; n < libros; n += 10) {
+            biblioteca.intentarPrestamo(GeneradorDatos.claveUsuario(n % usuarios), GeneradorDatos.isbn(n),
+                    GeneradorDatos.FECHA);
+        }
+        descarte = Writer.nullWriter();
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() throws IOException {
+        biblioteca.cerrar();
+        if (directorio != null) {
+            try (Stream<Path> archivos = Files.walk(directorio)) {
+                archivos.sorted(Comparator.reverseOrder()).forEach(archivo -> archivo.toFile().delete());
+            }
+        }
+    }
+
+    @Benchmark
+    public Writer reporteTexto() throws IOException {
+        biblioteca.generarReporte(descarte, ReporteBiblioteca.Formato.TEXTO);
+        return descarte;
+    }
+
+    @Benchmark
+    public Writer reporteCsv() throws IOException {
+        biblioteca.generarReporte(descarte, ReporteBiblioteca.Formato.CSV);
+        return descarte;
+    }
+
+    @Benchmark
+    public Writer reporteJsonl() throws IOException {
+        biblioteca.generarReporte(descarte, ReporteBiblioteca.Formato.JSONL);
+        return descarte;
+    }
+
+    @Benchmark
+    public int primeraPagina() throws IOException {
+        return biblioteca.escribirPaginaLibros(descarte, ReporteBiblioteca.Formato.CSV, 0, 100);
+    }
+
+    @Benchmark
+    public long resumen() {
+        ResumenDisponibilidad resumen = biblioteca.getResumen();
+        return resumen.getCopiasDisponibles() + resumen.getLibros();
+    }
+}
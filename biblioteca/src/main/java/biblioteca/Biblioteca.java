@@ -0,0 +1,1599 @@
+package biblioteca;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Clase principal que gestiona la lógica de la biblioteca universitaria.
+ * Incluye funcionalidades para registrar libros, usuarios, realizar préstamos
+ * y generar reportes. Maneja diversas excepciones predefinidas y
+ * personalizadas.
+ *
+ * <p>
+ * La clase es segura para uso concurrente: no existe un candado global, las
+ * colecciones son concurrentes y la reserva de copias se resuelve por libro
+ * mediante una operación atómica en {@link Libro#prestarCopia()}, de modo que
+ * los préstamos de distintos ISBN no compiten entre sí.
+ *
+ * <p>
+ * Los mensajes de cada operación se entregan a un {@link ReceptorEventos}; la
+ * lógica de préstamos nunca escribe directamente en consola.
+ *
+ * <p>
+ * Una biblioteca creada con {@link #abrir(Path, ReceptorEventos)} es
+ * persistente: cada operación se anota en un diario en disco antes de
+ * confirmarse, y el estado se recupera al volver a abrir el directorio.
+ *
+ * <p>
+ * Un libro agotado se puede {@linkplain #reservar(String, String) reservar}:
+ * las reservas esperan en una cola FIFO por ISBN y cada copia devuelta pasa
+ * directamente a la primera reserva, sin volver a quedar libre.
+ *
+ * <p>
+ * Cada préstamo vence según la {@link PoliticaVencimiento} vigente al
+ * crearlo. Los préstamos activos están agrupados por día de vencimiento, así
+ * que los que vencen un día y los vencidos se obtienen sin recorrer el resto.
+ * Los préstamos activos de cada usuario se limitan con un
+ * {@link LimitePrestamos}, comprobado contra un contador atómico del usuario.
+ *
+ * <p>
+ * Las consultas de disponibilidad y los reportes pueden leer una
+ * {@link InstantaneaCatalogo}: una versión inmutable del catálogo que se
+ * publica copiando sólo lo que cambió desde la anterior.
+ *
+ * <p>
+ * Cada operación se cuenta por resultado y se mide en
+ * {@link MetricasBiblioteca}, salvo que la biblioteca se cree con métricas
+ * desactivadas.
+ */
+public class Biblioteca {
+  private Catalogo libros; // ISBN -> Libro
+  private IndiceClaves<Usuario> usuarios; // ClaveUsuario -> Usuario
+  private IndicePrestamos prestamosActivos;
+  private ResumenDisponibilidad resumen;
+  private PublicadorInstantaneas instantaneas;
+  private HistorialPrestamos historial;
+  private IndiceTexto indiceTexto; // Título y autor -> Libros
+  private ColaReservas reservas; // ISBN -> Reservas en espera
+  private AtomicLong siguienteIdPrestamo;
+  private ReceptorEventos eventos;
+  private MetricasBiblioteca metricas;
+  private PersistenciaBiblioteca persistencia; // null si sólo vive en memoria
+  private volatile PoliticaVencimiento politicaVencimiento;
+  private volatile LimitePrestamos limitePrestamos;
+  private AtomicLong vencimientosAvisadosHasta; // Día; los vencidos antes ya se avisaron
+  private ScheduledExecutorService avisosVencimiento; // null si no se programaron
+  private ScheduledExecutorService publicacionInstantaneas; // null si no se programó
+
+  /**
+   * Constructor de la clase Biblioteca.
+   * Inicializa las colecciones para almacenar libros, usuarios y préstamos.
+   * Los eventos se muestran en consola desde un hilo en segundo plano.
+   */
+  public Biblioteca() {
+    this(new ReceptorEventosAsincrono(new ReceptorEventosConsola()));
+  }
+
+  /**
+   * Constructor de la clase Biblioteca con un receptor de eventos propio.
+   * 
+   * @param eventos El receptor de los eventos de la biblioteca.
+   */
+  public Biblioteca(ReceptorEventos eventos) {
+    this(eventos, new CatalogoEnMemoria());
+  }
+
+  /**
+   * Constructor de la clase Biblioteca con un receptor de eventos y un
+   * almacenamiento de catálogo propios. Las latencias de las métricas se
+   * muestrean ({@link MetricasBiblioteca#MUESTREO_PREDETERMINADO}); los
+   * conteos son exactos.
+   * 
+   * @param eventos  El receptor de los eventos de la biblioteca.
+   * @param catalogo El almacenamiento del catálogo de libros, vacío.
+   */
+  public Biblioteca(ReceptorEventos eventos, Catalogo catalogo) {
+    this(eventos, catalogo, new MetricasBiblioteca(MetricasBiblioteca.MUESTREO_PREDETERMINADO));
+  }
+
+  /**
+   * Constructor de la clase Biblioteca con un receptor de eventos, un
+   * almacenamiento de catálogo y unas métricas propios.
+   * 
+   * @param eventos  El receptor de los eventos de la biblioteca.
+   * @param catalogo El almacenamiento del catálogo de libros, vacío.
+   * @param metricas Las métricas de las operaciones; pueden estar
+   *                 {@linkplain MetricasBiblioteca#desactivadas() desactivadas}.
+   */
+  public Biblioteca(ReceptorEventos eventos, Catalogo catalogo, MetricasBiblioteca metricas) {
+    assert eventos != null : "El receptor de eventos no puede ser nulo.";
+    assert catalogo != null && catalogo.estaVacio() : "El catálogo debe existir y estar vacío.";
+    assert metricas != null : "Las métricas no pueden ser nulas.";
+
+    this.eventos = eventos;
+    this.metricas = metricas;
+    this.libros = catalogo;
+    this.usuarios = IndiceClaves.porClaveUsuario();
+    this.prestamosActivos = new IndicePrestamos();
+    this.resumen = new ResumenDisponibilidad();
+    this.instantaneas = new PublicadorInstantaneas(catalogo);
+    this.historial = new HistorialPrestamos(catalogo);
+    this.indiceTexto = new IndiceTexto(catalogo);
+    this.reservas = new ColaReservas();
+    this.siguienteIdPrestamo = new AtomicLong(1);
+    this.politicaVencimiento = PoliticaVencimiento.fija(PoliticaVencimiento.DIAS_PREDETERMINADOS);
+    this.vencimientosAvisadosHasta = new AtomicLong(Long.MIN_VALUE);
+    this.limitePrestamos = LimitePrestamos.sinLimite();
+
+    metricas.registrarIndicador("biblioteca_prestamos_activos", "Préstamos activos.", prestamosActivos::tamano);
+    metricas.registrarIndicador("biblioteca_copias_prestadas", "Copias prestadas.", resumen::getCopiasPrestadas);
+    metricas.registrarIndicador("biblioteca_copias_disponibles", "Copias disponibles.",
+        resumen::getCopiasDisponibles);
+    metricas.registrarIndicador("biblioteca_reservas_en_espera", "Reservas esperando una copia.",
+        reservas::getEnEspera);
+  }
+
+  /**
+   * Abre una biblioteca persistente en un directorio, recuperando el estado
+   * guardado (último punto de control más la cola del diario).
+   * 
+   * @param directorio El directorio de datos; se crea si no existe.
+   * @param eventos    El receptor de los eventos de la biblioteca.
+   * @return La biblioteca con el estado recuperado.
+   * @throws IOException Si el estado guardado no se puede leer.
+   */
+  public static Biblioteca abrir(Path directorio, ReceptorEventos eventos) throws IOException {
+    return abrir(directorio, eventos, new CatalogoEnMemoria());
+  }
+
+  /**
+   * Abre una biblioteca persistente con un almacenamiento de catálogo propio.
+   * 
+   * @param directorio El directorio de datos; se crea si no existe.
+   * @param eventos    El receptor de los eventos de la biblioteca.
+   * @param catalogo   El almacenamiento del catálogo de libros, vacío.
+   * @return La biblioteca con el estado recuperado.
+   * @throws IOException Si el estado guardado no se puede leer.
+   */
+  public static Biblioteca abrir(Path directorio, ReceptorEventos eventos, Catalogo catalogo) throws IOException {
+    return abrir(directorio, eventos, catalogo, new MetricasBiblioteca(MetricasBiblioteca.MUESTREO_PREDETERMINADO));
+  }
+
+  /**
+   * Abre una biblioteca persistente con un almacenamiento de catálogo y unas
+   * métricas propios. La restauración del estado no se cuenta en las métricas.
+   * 
+   * @param directorio El directorio de datos; se crea si no existe.
+   * @param eventos    El receptor de los eventos de la biblioteca.
+   * @param catalogo   El almacenamiento del catálogo de libros, vacío.
+   * @param metricas   Las métricas de las operaciones.
+   * @return La biblioteca con el estado recuperado.
+   * @throws IOException Si el estado guardado no se puede leer.
+   */
+  public static Biblioteca abrir(Path directorio, ReceptorEventos eventos, Catalogo catalogo,
+      MetricasBiblioteca metricas) throws IOException {
+    Biblioteca biblioteca = new Biblioteca(eventos, catalogo, metricas);
+    biblioteca.persistencia = PersistenciaBiblioteca.abrir(directorio, biblioteca);
+    return biblioteca;
+  }
+
+  /**
+   * Registra un nuevo libro en el sistema de la biblioteca.
+   * 
+   * @param isbn        El ISBN único del libro.
+   * @param titulo      El título del libro.
+   * @param autor       El autor del libro.
+   * @param totalCopias El número total de copias de este libro.
+   * @throws IllegalArgumentException Si alguno de los datos proporcionados es
+   *                                  inválido (nulo, vacío, o copias no
+   *                                  positivas).
+   */
+  public void registrarLibro(String isbn, String titulo, String autor, String totalCopiasStr) {
+    try {
+      intentarRegistrarLibro(isbn, titulo, autor, totalCopiasStr).lanzarSiFallo(isbn);
+    } catch (IllegalArgumentException | LibroNoEncontradoException | LibroNoDisponibleException e) {
+      eventos.operacionFallida("registrar libro", e.getMessage());
+    }
+  }
+
+  /**
+   * Registra un nuevo libro sin lanzar excepciones.
+   * Los rechazos devuelven un resultado compartido, no reservan memoria y no
+   * emiten eventos; el registro exitoso emite {@link ReceptorEventos#libroRegistrado}.
+   * 
+   * @param isbn           El ISBN único del libro.
+   * @param titulo         El título del libro.
+   * @param autor          El autor del libro.
+   * @param totalCopiasStr El número total de copias como String.
+   * @return El resultado de la operación.
+   */
+  public ResultadoOperacion intentarRegistrarLibro(String isbn, String titulo, String autor, String totalCopiasStr) {
+    long inicio = metricas.iniciar();
+    ResultadoOperacion resultado = registrarLibroSinMedir(isbn, titulo, autor, totalCopiasStr);
+    metricas.registrar(MetricasBiblioteca.Operacion.REGISTRAR_LIBRO, resultado.getCodigo(), inicio);
+    return resultado;
+  }
+
+  private ResultadoOperacion registrarLibroSinMedir(String isbn, String titulo, String autor, String totalCopiasStr) {
+    ResultadoOperacion.Codigo invalido = validarCamposLibro(isbn, titulo, autor, totalCopiasStr);
+    if (invalido != null) {
+      return ResultadoOperacion.de(invalido);
+    }
+    int totalCopias = (int) parsearEntero(totalCopiasStr); // Ya validado
+
+    // Se consulta antes de crear el libro para no reservar memoria en el
+    // rechazo; el catálogo resuelve la carrera entre registros concurrentes
+    if (libros.contiene(isbn)) {
+      return ResultadoOperacion.de(ResultadoOperacion.Codigo.LIBRO_DUPLICADO);
+    }
+    Libro nuevoLibro;
+    long posicion = 0;
+    iniciarEscritura();
+    try {
+      nuevoLibro = libros.registrar(isbn, titulo, autor, totalCopias);
+      if (nuevoLibro == null) {
+        return ResultadoOperacion.de(ResultadoOperacion.Codigo.LIBRO_DUPLICADO);
+      }
+      resumen.libroRegistrado(totalCopias);
+      instantaneas.libroRegistrado(nuevoLibro);
+      if (persistencia != null) {
+        posicion = persistencia.getDiario().anotarLibro(nuevoLibro);
+      }
+    } finally {
+      terminarEscritura();
+    }
+    indiceTexto.agregar(nuevoLibro);
+    confirmar(posicion);
+    eventos.libroRegistrado(nuevoLibro);
+    return ResultadoOperacion.exito();
+  }
+
+  /**
+   * Registra un nuevo usuario en el sistema de la biblioteca.
+   * 
+   * @param claveUsuario La clave única del usuario.
+   * @param nombre       El nombre completo del usuario.
+   * @param licenciatura La licenciatura que cursa el usuario.
+   * @param semestreStr  El semestre que cursa el usuario como String.
+   * @throws IllegalArgumentException Verifica Si alguno de los datos
+   *                                  proporcionados es inválido.
+   */
+  public void registrarUsuario(String claveUsuario, String nombre, String licenciatura, String semestreStr) {
+    try {
+      intentarRegistrarUsuario(claveUsuario, nombre, licenciatura, semestreStr).lanzarSiFallo(claveUsuario);
+    } catch (IllegalArgumentException | LibroNoEncontradoException | LibroNoDisponibleException e) {
+      eventos.operacionFallida("registrar usuario", e.getMessage());
+    }
+  }
+
+  /**
+   * Registra un nuevo usuario sin lanzar excepciones.
+   * Los rechazos devuelven un resultado compartido, no reservan memoria y no
+   * emiten eventos; el registro exitoso emite {@link ReceptorEventos#usuarioRegistrado}.
+   * 
+   * @param claveUsuario La clave única del usuario.
+   * @param nombre       El nombre completo del usuario.
+   * @param licenciatura La licenciatura que cursa el usuario.
+   * @param semestreStr  El semestre que cursa el usuario como String.
+   * @return El resultado de la operación.
+   */
+  public ResultadoOperacion intentarRegistrarUsuario(String claveUsuario, String nombre, String licenciatura,
+      String semestreStr) {
+    long inicio = metricas.iniciar();
+    ResultadoOperacion resultado = registrarUsuarioSinMedir(claveUsuario, nombre, licenciatura, semestreStr);
+    metricas.registrar(MetricasBiblioteca.Operacion.REGISTRAR_USUARIO, resultado.getCodigo(), inicio);
+    return resultado;
+  }
+
+  private ResultadoOperacion registrarUsuarioSinMedir(String claveUsuario, String nombre, String licenciatura,
+      String semestreStr) {
+    ResultadoOperacion.Codigo invalido = validarCamposUsuario(claveUsuario, nombre, licenciatura, semestreStr);
+    if (invalido != null) {
+      return ResultadoOperacion.de(invalido);
+    }
+    int semestre = (int) parsearEntero(semestreStr); // Ya validado
+
+    if (usuarios.contiene(claveUsuario)) {
+      return ResultadoOperacion.de(ResultadoOperacion.Codigo.USUARIO_DUPLICADO);
+    }
+    Usuario nuevoUsuario = new Usuario(claveUsuario, nombre, licenciatura, semestre);
+    long posicion = 0;
+    iniciarEscritura();
+    try {
+      if (usuarios.agregarSiAusente(claveUsuario, nuevoUsuario) != null) {
+        return ResultadoOperacion.de(ResultadoOperacion.Codigo.USUARIO_DUPLICADO);
+      }
+      if (persistencia != null) {
+        posicion = persistencia.getDiario().anotarUsuario(nuevoUsuario);
+      }
+    } finally {
+      terminarEscritura();
+    }
+    confirmar(posicion);
+    eventos.usuarioRegistrado(nuevoUsuario);
+    return ResultadoOperacion.exito();
+  }
+
+  /**
+   * Importa libros desde un archivo CSV con las columnas
+   * {@code isbn,titulo,autor,copias} y un encabezado opcional. Las filas se
+   * validan en paralelo con las mismas reglas que
+   * {@link #intentarRegistrarLibro(String, String, String, String)} y se
+   * insertan en bloque en el orden del archivo; el diario, si la biblioteca
+   * es persistente, se confirma una vez por bloque. No se emiten eventos por
+   * fila.
+   * 
+   * @param archivo  El archivo CSV, en UTF-8.
+   * @param rechazos El archivo CSV donde se escriben las filas rechazadas con
+   *                 su línea y su motivo; se reemplaza si existe.
+   * @return Los conteos de la importación.
+   * @throws IOException Si falla la lectura o la escritura de los rechazos.
+   */
+  public ResultadoImportacion importarLibros(Path archivo, Path rechazos) throws IOException {
+    ResultadoImportacion resultado = ImportadorCsv.libros().importar(archivo, rechazos, libros::reservar,
+        this::insertarLibros);
+    contarImportacion(MetricasBiblioteca.Operacion.REGISTRAR_LIBRO, resultado);
+    return resultado;
+  }
+
+  /**
+   * Importa usuarios desde un archivo CSV con las columnas
+   * {@code claveUsuario,nombre,licenciatura,semestre} y un encabezado
+   * opcional, igual que {@link #importarLibros(Path, Path)}.
+   * 
+   * @param archivo  El archivo CSV, en UTF-8.
+   * @param rechazos El archivo CSV donde se escriben las filas rechazadas con
+   *                 su línea y su motivo; se reemplaza si existe.
+   * @return Los conteos de la importación.
+   * @throws IOException Si falla la lectura o la escritura de los rechazos.
+   */
+  public ResultadoImportacion importarUsuarios(Path archivo, Path rechazos) throws IOException {
+    ResultadoImportacion resultado = ImportadorCsv.usuarios().importar(archivo, rechazos, usuarios::reservar,
+        this::insertarUsuarios);
+    contarImportacion(MetricasBiblioteca.Operacion.REGISTRAR_USUARIO, resultado);
+    return resultado;
+  }
+
+  private void insertarLibros(List<ImportadorCsv.FilaLibro> filas, ResultadoOperacion.Codigo[] resultados) {
+    int total = filas.size();
+    Libro[] nuevos = new Libro[total];
+    for (int i = 0; i < total; i++) {
+      nuevos[i] = filas.get(i).libro;
+    }
+    String[][] terminosTitulo = new String[total][];
+    String[][] terminosAutor = new String[total][];
+    int insertados = 0;
+    long copias = 0;
+    long posicion = 0;
+    iniciarEscritura();
+    try {
+      // Una sola alta en el catálogo, el resumen, la instantánea y el diario por trozo
+      libros.registrarTodos(nuevos, total);
+      for (int i = 0; i < total; i++) {
+        Libro libro = nuevos[i];
+        if (libro == null) {
+          resultados[i] = ResultadoOperacion.Codigo.LIBRO_DUPLICADO;
+          continue;
+        }
+        ImportadorCsv.FilaLibro fila = filas.get(i);
+        copias += libro.getTotalCopias();
+        nuevos[insertados] = libro;
+        terminosTitulo[insertados] = fila.terminosTitulo;
+        terminosAutor[insertados] = fila.terminosAutor;
+        insertados++;
+      }
+      resumen.librosRegistrados(insertados, copias);
+      instantaneas.librosRegistrados(nuevos, insertados);
+      if (persistencia != null && insertados > 0) {
+        posicion = persistencia.getDiario().anotarLibros(nuevos, insertados);
+      }
+    } finally {
+      terminarEscritura();
+    }
+    indiceTexto.agregarTodos(nuevos, terminosTitulo, terminosAutor, insertados);
+    confirmar(posicion);
+  }
+
+  private void insertarUsuarios(List<Usuario> filas, ResultadoOperacion.Codigo[] resultados) {
+    int total = filas.size();
+    Usuario[] nuevos = filas.toArray(new Usuario[total]);
+    String[] claves = new String[total];
+    for (int i = 0; i < total; i++) {
+      claves[i] = nuevos[i].getClaveUsuario();
+    }
+    int insertados = 0;
+    long posicion = 0;
+    iniciarEscritura();
+    try {
+      usuarios.agregarTodos(claves, nuevos, total);
+      for (int i = 0; i < total; i++) {
+        if (nuevos[i] == null) {
+          resultados[i] = ResultadoOperacion.Codigo.USUARIO_DUPLICADO;
+        } else {
+          nuevos[insertados++] = nuevos[i];
+        }
+      }
+      if (persistencia != null && insertados > 0) {
+        posicion = persistencia.getDiario().anotarUsuarios(nuevos, insertados);
+      }
+    } finally {
+      terminarEscritura();
+    }
+    confirmar(posicion);
+  }
+
+  private void contarImportacion(MetricasBiblioteca.Operacion operacion, ResultadoImportacion resultado) {
+    for (ResultadoOperacion.Codigo codigo : ResultadoOperacion.Codigo.values()) {
+      metricas.contar(operacion, codigo, resultado.getFilas(codigo));
+    }
+  }
+
+  /**
+   * Permite a un usuario realizar el préstamo de un libro.
+   * 
+   * @param claveUsuario     La clave del usuario que solicita el préstamo.
+   * @param isbnLibro        El ISBN del libro a prestar.
+   * @param fechaPrestamoStr La fecha del préstamo en formato "dd/MM/yyyy".
+   * @throws NullPointerException       Si el usuario, libro o fecha de préstamo
+   *                                    son nulos.
+   * @throws LibroNoEncontradoException Si el libro no existe en el sistema.
+   * @throws LibroNoDisponibleException Si no hay copias disponibles del libro.
+   * @throws IllegalArgumentException   Si la clave de usuario o ISBN son
+   *                                    inválidos, o la fecha tiene formato
+   *                                    incorrecto.
+   * @throws IllegalStateException      Si el usuario alcanzó su límite de
+   *                                    préstamos activos.
+   */
+  public void realizarPrestamo(String claveUsuario, String isbnLibro, String fechaPrestamoStr) {
+    try {
+      ResultadoOperacion resultado = intentarPrestamo(claveUsuario, isbnLibro, fechaPrestamoStr);
+      resultado.lanzarSiFallo(resultado.getCodigo().esDelUsuario() ? claveUsuario : isbnLibro);
+    } catch (IllegalArgumentException | IllegalStateException | LibroNoEncontradoException
+        | LibroNoDisponibleException | NullPointerException e) {
+      eventos.operacionFallida("realizar préstamo", e.getMessage());
+    } finally {
+      eventos.intentoPrestamoProcesado(claveUsuario, isbnLibro);
+    }
+  }
+
+  /**
+   * Realiza el préstamo de un libro sin lanzar excepciones.
+   * Los rechazos (libro agotado, ISBN o usuario desconocidos, fecha inválida,
+   * límite de préstamos del usuario)
+   * devuelven un resultado compartido, no reservan memoria y no emiten eventos.
+   * 
+   * @param claveUsuario     La clave del usuario que solicita el préstamo.
+   * @param isbnLibro        El ISBN del libro a prestar.
+   * @param fechaPrestamoStr La fecha del préstamo en formato "dd/MM/yyyy".
+   * @return El resultado de la operación; si es exitoso, lleva el préstamo.
+   */
+  public ResultadoOperacion intentarPrestamo(String claveUsuario, String isbnLibro, String fechaPrestamoStr) {
+    long inicio = metricas.iniciar();
+    ResultadoOperacion resultado = prestarSinMedir(claveUsuario, isbnLibro, fechaPrestamoStr);
+    metricas.registrar(MetricasBiblioteca.Operacion.PRESTAMO, resultado.getCodigo(), inicio);
+    return resultado;
+  }
+
+  private ResultadoOperacion prestarSinMedir(String claveUsuario, String isbnLibro, String fechaPrestamoStr) {
+    ResultadoOperacion.Codigo invalido = validarCamposPrestamo(claveUsuario, isbnLibro, fechaPrestamoStr);
+    if (invalido != null) {
+      return ResultadoOperacion.de(invalido);
+    }
+
+    Usuario usuario = usuarios.buscar(claveUsuario);
+    if (usuario == null) {
+      return ResultadoOperacion.de(ResultadoOperacion.Codigo.USUARIO_NO_ENCONTRADO);
+    }
+
+    Libro libro = libros.buscar(isbnLibro);
+    if (libro == null) {
+      return ResultadoOperacion.de(ResultadoOperacion.Codigo.LIBRO_NO_ENCONTRADO);
+    }
+
+    long diaPrestamo = FormatoFecha.parsearDiaEpoca(fechaPrestamoStr);
+    if (diaPrestamo == FormatoFecha.INVALIDA) {
+      return ResultadoOperacion.de(ResultadoOperacion.Codigo.FECHA_INVALIDA);
+    }
+
+    // Assertion: Verificar que la fecha de préstamo no es una fecha futura
+    assert diaPrestamo <= LocalDate.now().toEpochDay() : "Assertion Falló: La fecha de préstamo no puede ser futura.";
+
+    if (!usuario.intentarTomarPrestamo(limitePrestamos.maximoPrestamos(usuario))) { // Atómico por usuario
+      return ResultadoOperacion.de(ResultadoOperacion.Codigo.LIMITE_PRESTAMOS);
+    }
+    // Las reservas en espera tienen prioridad sobre los préstamos directos
+    if (reservas.hayEnEspera(libro) || !libro.intentarPrestarCopia()) { // Atómico por ISBN
+      usuario.liberarPrestamo();
+      return ResultadoOperacion.de(ResultadoOperacion.Codigo.LIBRO_NO_DISPONIBLE);
+    }
+    try {
+      return ResultadoOperacion.exito(crearPrestamo(usuario, libro, diaPrestamo));
+    } catch (RuntimeException e) {
+      usuario.liberarPrestamo();
+      throw e;
+    }
+  }
+
+  /**
+   * Reserva un libro. Si hay una copia libre y nadie espera antes, el
+   * préstamo se realiza de inmediato; si no, el usuario queda al final de la
+   * lista de espera del libro y el préstamo se realiza, con la fecha de ese
+   * día, en cuanto se le entrega una copia devuelta. Así los clientes no
+   * necesitan reintentar un préstamo rechazado.
+   * 
+   * <p>
+   * Las reservas viven sólo en memoria: no se anotan en el diario y se
+   * pierden al cerrar la biblioteca.
+   * 
+   * <p>
+   * Una reserva en espera ya cuenta para el límite de préstamos del usuario.
+   * 
+   * @param claveUsuario La clave del usuario que reserva.
+   * @param isbnLibro    El ISBN del libro.
+   * @return El préstamo, cuando se realice. Si el usuario o el libro no
+   *         existen, o el usuario alcanzó su límite, se completa con la
+   *         excepción de {@link ResultadoOperacion#lanzarSiFallo(String)}.
+   *         Cancelarla retira la reserva de la lista de espera; si ya se le
+   *         entregó una copia, la cancelación no tiene efecto y el préstamo
+   *         se realiza.
+   */
+  public CompletableFuture<Prestamo> reservar(String claveUsuario, String isbnLibro) {
+    long inicio = metricas.iniciar();
+    ResultadoOperacion.Codigo invalido = null;
+    Usuario usuario = null;
+    Libro libro = null;
+    if (esVacio(claveUsuario)) {
+      invalido = ResultadoOperacion.Codigo.CLAVE_VACIA;
+    } else if (esVacio(isbnLibro)) {
+      invalido = ResultadoOperacion.Codigo.ISBN_PRESTAMO_VACIO;
+    } else if ((usuario = usuarios.buscar(claveUsuario)) == null) {
+      invalido = ResultadoOperacion.Codigo.USUARIO_NO_ENCONTRADO;
+    } else if ((libro = libros.buscar(isbnLibro)) == null) {
+      invalido = ResultadoOperacion.Codigo.LIBRO_NO_ENCONTRADO;
+    } else if (!usuario.intentarTomarPrestamo(limitePrestamos.maximoPrestamos(usuario))) {
+      invalido = ResultadoOperacion.Codigo.LIMITE_PRESTAMOS;
+    }
+    if (invalido != null) {
+      metricas.registrar(MetricasBiblioteca.Operacion.RESERVA, invalido, inicio);
+      return ColaReservas.Promesa.rechazada(invalido, ResultadoOperacion.de(invalido).crearExcepcion(
+          invalido.esDelUsuario() ? claveUsuario : isbnLibro));
+    }
+
+    ColaReservas.Espera espera = new ColaReservas.Espera(usuario);
+    // El préstamo realizado conserva el cupo de la reserva; una reserva
+    // cancelada lo libera
+    Usuario reservante = usuario;
+    espera.prestamo.whenComplete((prestamo, error) -> {
+      if (error != null) {
+        reservante.liberarPrestamo();
+      }
+    });
+    if (reservas.reservarOEsperar(libro, espera)) {
+      try {
+        espera.prestamo.complete(crearPrestamo(usuario, libro, LocalDate.now().toEpochDay()));
+      } catch (RuntimeException e) {
+        espera.prestamo.completeExceptionally(e); // Libera el cupo
+      }
+    }
+    metricas.registrar(MetricasBiblioteca.Operacion.RESERVA, ResultadoOperacion.Codigo.EXITO, inicio);
+    return espera.prestamo;
+  }
+
+  /**
+   * Crea y publica el préstamo de una copia ya reservada en el contador del
+   * libro. Si el diario falla, el préstamo se retira del índice y la copia
+   * vuelve al libro antes de lanzar la excepción; el cupo del usuario lo
+   * libera quien llama. Un fallo al confirmar puede dejar el préstamo escrito
+   * en disco: el diario queda inutilizable y el estado se decide al reabrir.
+   * 
+   * @throws UncheckedIOException Si falla el diario.
+   */
+  private Prestamo crearPrestamo(Usuario usuario, Libro libro, long diaPrestamo) {
+    resumen.copiasPrestadas(1);
+    instantaneas.disponibilidadCambiada(libro);
+    Prestamo nuevoPrestamo = new Prestamo(siguienteIdPrestamo.getAndIncrement(), usuario, libro, diaPrestamo,
+        calcularVencimiento(usuario, diaPrestamo));
+    try {
+      long posicion;
+      iniciarEscritura();
+      try {
+        posicion = publicarPrestamo(nuevoPrestamo);
+      } finally {
+        terminarEscritura();
+      }
+      confirmar(posicion);
+    } catch (RuntimeException e) {
+      prestamosActivos.remover(nuevoPrestamo.getId());
+      libro.devolverCopia();
+      resumen.copiaDevuelta();
+      instantaneas.disponibilidadCambiada(libro);
+      throw e;
+    }
+    historial.anotarPrestamo(nuevoPrestamo);
+    eventos.prestamoRealizado(nuevoPrestamo);
+    return nuevoPrestamo;
+  }
+
+  /**
+   * Entrega las copias libres de un libro a sus reservas en espera.
+   */
+  private void atenderReservas(Libro libro) {
+    for (ColaReservas.Espera espera : reservas.atender(libro)) {
+      // La reserva ya está reclamada: una cancelación no puede ganarle
+      try {
+        espera.prestamo.complete(crearPrestamo(espera.usuario, libro, LocalDate.now().toEpochDay()));
+      } catch (RuntimeException e) {
+        espera.prestamo.completeExceptionally(e); // Libera el cupo
+      }
+    }
+  }
+
+  /**
+   * Realiza un lote de préstamos en una sola pasada.
+   * Primero valida y resuelve todas las solicitudes, luego las agrupa por libro
+   * para reservar las copias con una sola operación atómica por ISBN, y por
+   * último crea los préstamos. Las solicitudes de un mismo libro se atienden en
+   * el orden del lote. Sólo se emiten eventos de los préstamos realizados.
+   * Si el diario falla, el lote completo se deshace antes de lanzar la
+   * excepción.
+   * 
+   * @param solicitudes Las solicitudes de préstamo.
+   * @return Un resultado por solicitud, en el mismo orden que el lote.
+   * @throws UncheckedIOException Si falla el diario.
+   */
+  public ResultadoOperacion[] realizarPrestamosLote(List<SolicitudPrestamo> solicitudes) {
+    long inicio = metricas.iniciar();
+    int total = solicitudes.size();
+    ResultadoOperacion[] resultados = new ResultadoOperacion[total];
+    Usuario[] usuariosLote = new Usuario[total];
+    Libro[] librosLote = new Libro[total];
+    long[] dias = new long[total];
+    // Libro -> {copias pedidas, copias reservadas}
+    Map<Libro, int[]> porLibro = new HashMap<>();
+
+    // 1. Validación y resolución de todas las solicitudes
+    for (int i = 0; i < total; i++) {
+      SolicitudPrestamo solicitud = solicitudes.get(i);
+      ResultadoOperacion.Codigo invalido = validarCamposPrestamo(solicitud.getClaveUsuario(),
+          solicitud.getIsbnLibro(), solicitud.getFechaPrestamo());
+      if (invalido == null) {
+        usuariosLote[i] = usuarios.buscar(solicitud.getClaveUsuario());
+        librosLote[i] = libros.buscar(solicitud.getIsbnLibro());
+        dias[i] = FormatoFecha.parsearDiaEpoca(solicitud.getFechaPrestamo());
+        if (usuariosLote[i] == null) {
+          invalido = ResultadoOperacion.Codigo.USUARIO_NO_ENCONTRADO;
+        } else if (librosLote[i] == null) {
+          invalido = ResultadoOperacion.Codigo.LIBRO_NO_ENCONTRADO;
+        } else if (dias[i] == FormatoFecha.INVALIDA) {
+          invalido = ResultadoOperacion.Codigo.FECHA_INVALIDA;
+        } else if (!usuariosLote[i].intentarTomarPrestamo(limitePrestamos.maximoPrestamos(usuariosLote[i]))) {
+          invalido = ResultadoOperacion.Codigo.LIMITE_PRESTAMOS;
+        }
+      }
+      if (invalido != null) {
+        resultados[i] = ResultadoOperacion.de(invalido);
+        librosLote[i] = null;
+      } else {
+        porLibro.computeIfAbsent(librosLote[i], libro -> new int[2])[0]++;
+      }
+    }
+
+    // 2. Una reserva atómica por libro, salvo los que tienen reservas en espera
+    int reservadas = 0;
+    for (Map.Entry<Libro, int[]> entrada : porLibro.entrySet()) {
+      int[] copias = entrada.getValue();
+      copias[1] = reservas.hayEnEspera(entrada.getKey()) ? 0 : entrada.getKey().reservarCopias(copias[0]);
+      if (copias[1] > 0) {
+        instantaneas.disponibilidadCambiada(entrada.getKey());
+      }
+      reservadas += copias[1];
+    }
+    resumen.copiasPrestadas(reservadas);
+
+    // 3. Creación de los préstamos con un bloque de ids contiguo; el diario se
+    // confirma una sola vez para todo el lote
+    long siguienteId = siguienteIdPrestamo.getAndAdd(reservadas);
+    long posicion = 0;
+    try {
+      iniciarEscritura();
+      try {
+        for (int i = 0; i < total; i++) {
+          Libro libro = librosLote[i];
+          if (libro == null) {
+            continue;
+          }
+          int[] copias = porLibro.get(libro);
+          if (copias[1] == 0) {
+            usuariosLote[i].liberarPrestamo();
+            resultados[i] = ResultadoOperacion.de(ResultadoOperacion.Codigo.LIBRO_NO_DISPONIBLE);
+            continue;
+          }
+          Prestamo nuevoPrestamo = new Prestamo(siguienteId++, usuariosLote[i], libro, dias[i],
+              calcularVencimiento(usuariosLote[i], dias[i]));
+          posicion = publicarPrestamo(nuevoPrestamo);
+          copias[1]--;
+          resultados[i] = ResultadoOperacion.exito(nuevoPrestamo);
+        }
+      } finally {
+        terminarEscritura();
+      }
+      confirmar(posicion);
+    } catch (RuntimeException e) {
+      deshacerLote(resultados, usuariosLote, librosLote, porLibro);
+      throw e;
+    }
+    for (ResultadoOperacion resultado : resultados) {
+      if (resultado.getPrestamo() != null) {
+        historial.anotarPrestamo(resultado.getPrestamo());
+        eventos.prestamoRealizado(resultado.getPrestamo());
+      }
+      metricas.contar(MetricasBiblioteca.Operacion.PRESTAMO, resultado.getCodigo());
+    }
+    metricas.registrar(MetricasBiblioteca.Operacion.PRESTAMO_LOTE, ResultadoOperacion.Codigo.EXITO, inicio);
+    return resultados;
+  }
+
+  /**
+   * Deshace un lote cuyo diario falló, como {@link #crearPrestamo}: retira
+   * del índice los préstamos publicados y devuelve las copias reservadas y
+   * los cupos de los usuarios.
+   * 
+   * @param porLibro Libro -> {copias pedidas, copias reservadas sin préstamo}.
+   */
+  private void deshacerLote(ResultadoOperacion[] resultados, Usuario[] usuariosLote, Libro[] librosLote,
+      Map<Libro, int[]> porLibro) {
+    for (int i = 0; i < resultados.length; i++) {
+      if (librosLote[i] == null) {
+        continue; // Rechazada al validar, sin cupo tomado
+      }
+      if (resultados[i] == null) {
+        usuariosLote[i].liberarPrestamo(); // No se llegó a publicar
+      } else if (resultados[i].getPrestamo() != null) {
+        prestamosActivos.remover(resultados[i].getPrestamo().getId());
+        usuariosLote[i].liberarPrestamo();
+        porLibro.get(librosLote[i])[1]++;
+      }
+    }
+    for (Map.Entry<Libro, int[]> entrada : porLibro.entrySet()) {
+      int copias = entrada.getValue()[1];
+      for (int i = 0; i < copias; i++) {
+        entrada.getKey().devolverCopia();
+        resumen.copiaDevuelta();
+      }
+      if (copias > 0) {
+        instantaneas.disponibilidadCambiada(entrada.getKey());
+      }
+    }
+  }
+
+  /**
+   * Registra la devolución de un préstamo activo y libera la copia del libro.
+   * La búsqueda se hace por id en el índice de préstamos, sin recorrer los
+   * préstamos activos.
+   * 
+   * @param idPrestamo El id del préstamo a devolver.
+   * @throws IllegalArgumentException Si no existe un préstamo activo con ese id.
+   */
+  public void devolverPrestamo(long idPrestamo) {
+    try {
+      intentarDevolucion(idPrestamo).lanzarSiFallo(String.valueOf(idPrestamo));
+    } catch (IllegalArgumentException | LibroNoEncontradoException | LibroNoDisponibleException e) {
+      eventos.operacionFallida("devolver préstamo", e.getMessage());
+    }
+  }
+
+  /**
+   * Registra la devolución de un préstamo activo sin lanzar excepciones.
+   * Si no hay un préstamo activo con ese id devuelve un resultado compartido
+   * y no emite eventos.
+   * 
+   * @param idPrestamo El id del préstamo a devolver.
+   * @return El resultado de la operación; si es exitoso, lleva el préstamo
+   *         devuelto.
+   */
+  public ResultadoOperacion intentarDevolucion(long idPrestamo) {
+    long inicio = metricas.iniciar();
+    ResultadoOperacion resultado = devolverSinMedir(idPrestamo);
+    metricas.registrar(MetricasBiblioteca.Operacion.DEVOLUCION, resultado.getCodigo(), inicio);
+    return resultado;
+  }
+
+  private ResultadoOperacion devolverSinMedir(long idPrestamo) {
+    // Sólo un hilo puede quitar el préstamo del índice, así que la copia
+    // se libera una única vez aunque la devolución se repita
+    Prestamo prestamo;
+    long posicion = 0;
+    iniciarEscritura();
+    try {
+      prestamo = prestamosActivos.remover(idPrestamo);
+      if (prestamo != null && persistencia != null) {
+        posicion = persistencia.getDiario().anotarDevolucion(idPrestamo);
+      }
+    } finally {
+      terminarEscritura();
+    }
+    if (prestamo == null) {
+      return ResultadoOperacion.de(ResultadoOperacion.Codigo.PRESTAMO_NO_ENCONTRADO);
+    }
+
+    prestamo.getLibro().devolverCopia();
+    prestamo.getUsuario().liberarPrestamo();
+    resumen.copiaDevuelta();
+    instantaneas.disponibilidadCambiada(prestamo.getLibro());
+    confirmar(posicion);
+    historial.anotarDevolucion(prestamo, LocalDate.now().toEpochDay());
+    eventos.prestamoDevuelto(prestamo);
+    atenderReservas(prestamo.getLibro());
+    return ResultadoOperacion.exito(prestamo);
+  }
+
+  /**
+   * Busca un préstamo activo por su id.
+   * 
+   * @param idPrestamo El id del préstamo.
+   * @return El préstamo, o null si no hay un préstamo activo con ese id.
+   */
+  public Prestamo buscarPrestamo(long idPrestamo) {
+    return prestamosActivos.buscar(idPrestamo);
+  }
+
+  /**
+   * @param claveUsuario La clave del usuario.
+   * @return Los préstamos activos del usuario (vista de sólo lectura).
+   */
+  public Collection<Prestamo> obtenerPrestamosUsuario(String claveUsuario) {
+    return prestamosActivos.deUsuario(claveUsuario);
+  }
+
+  /**
+   * @param isbn El ISBN del libro, en cualquiera de sus formas escritas.
+   * @return Los préstamos activos del libro (vista de sólo lectura).
+   */
+  public Collection<Prestamo> obtenerPrestamosLibro(String isbn) {
+    // El índice usa el ISBN tal como se registró el libro
+    Libro libro = libros.buscar(isbn);
+    return prestamosActivos.deLibro(libro == null ? isbn : libro.getIsbn());
+  }
+
+  /**
+   * @param dia El día de vencimiento.
+   * @return Los préstamos activos que vencen ese día (vista de sólo lectura).
+   */
+  public Collection<Prestamo> obtenerPrestamosQueVencen(LocalDate dia) {
+    return prestamosActivos.vencenEn(dia.toEpochDay());
+  }
+
+  /**
+   * Obtiene los préstamos activos cuyo día de vencimiento ya pasó. El costo
+   * es proporcional al número de préstamos vencidos, no al de activos.
+   * 
+   * @param hoy El día actual.
+   * @return Los préstamos vencidos, del más antiguo al más reciente.
+   */
+  public List<Prestamo> obtenerPrestamosVencidos(LocalDate hoy) {
+    return prestamosActivos.vencenEntre(Long.MIN_VALUE, hoy.toEpochDay());
+  }
+
+  /**
+   * Emite {@link ReceptorEventos#prestamoVencido(Prestamo)} por cada préstamo
+   * que venció desde la revisión anterior. Cada día de vencimiento se revisa
+   * una sola vez, aunque se llame varias veces o desde varios hilos; un
+   * préstamo creado con un vencimiento ya revisado no se avisa, pero sí
+   * aparece en {@link #obtenerPrestamosVencidos(LocalDate)}.
+   * 
+   * @param hoy El día actual.
+   * @return El número de préstamos avisados.
+   */
+  public int avisarVencimientos(LocalDate hoy) {
+    long dia = hoy.toEpochDay();
+    long desde = vencimientosAvisadosHasta.getAndAccumulate(dia, Math::max);
+    List<Prestamo> vencidos = prestamosActivos.vencenEntre(desde, dia);
+    for (Prestamo prestamo : vencidos) {
+      eventos.prestamoVencido(prestamo);
+    }
+    return vencidos.size();
+  }
+
+  /**
+   * Programa la revisión periódica de vencimientos en segundo plano con la
+   * fecha del sistema; la primera revisión es inmediata.
+   * 
+   * @param periodo El tiempo entre revisiones.
+   * @param unidad  La unidad del periodo.
+   * @see #avisarVencimientos(LocalDate)
+   */
+  public synchronized void programarAvisosVencimiento(long periodo, TimeUnit unidad) {
+    assert periodo > 0 : "El periodo debe ser mayor que cero.";
+    if (avisosVencimiento == null) {
+      avisosVencimiento = Executors.newSingleThreadScheduledExecutor(tarea -> {
+        Thread hilo = new Thread(tarea, "biblioteca-vencimientos");
+        hilo.setDaemon(true);
+        return hilo;
+      });
+    }
+    avisosVencimiento.scheduleWithFixedDelay(() -> avisarVencimientos(LocalDate.now()), 0, periodo, unidad);
+  }
+
+  /**
+   * Cambia la política de vencimiento de los préstamos que se creen a partir
+   * de ahora; los préstamos activos conservan su vencimiento.
+   * 
+   * @param politica La nueva política.
+   */
+  public void setPoliticaVencimiento(PoliticaVencimiento politica) {
+    assert politica != null : "La política de vencimiento no puede ser nula.";
+    this.politicaVencimiento = politica;
+  }
+
+  /**
+   * Cambia el límite de préstamos activos por usuario. Se aplica desde el
+   * siguiente préstamo; los préstamos activos no se modifican.
+   * 
+   * @param limite El nuevo límite.
+   */
+  public void setLimitePrestamos(LimitePrestamos limite) {
+    assert limite != null : "El límite de préstamos no puede ser nulo.";
+    this.limitePrestamos = limite;
+  }
+
+  /**
+   * Busca libros por palabras completas del título o del autor, sin
+   * distinguir mayúsculas ni acentos.
+   * 
+   * @param consulta Las palabras que deben aparecer todas.
+   * @param campo    El campo donde se buscan.
+   * @param limite   El número máximo de resultados.
+   * @return Los libros encontrados, en orden de registro.
+   */
+  public List<Libro> buscarLibros(String consulta, IndiceTexto.Campo campo, int limite) {
+    return indiceTexto.buscar(consulta, campo, limite);
+  }
+
+  /**
+   * Busca libros por el comienzo de las palabras del título o del autor,
+   * sin distinguir mayúsculas ni acentos (p. ej. "dis alg").
+   * 
+   * @param consulta Los prefijos que deben aparecer todos.
+   * @param campo    El campo donde se buscan.
+   * @param limite   El número máximo de resultados.
+   * @return Los libros encontrados, en orden de registro.
+   */
+  public List<Libro> buscarLibrosPorPrefijo(String consulta, IndiceTexto.Campo campo, int limite) {
+    return indiceTexto.buscarPorPrefijo(consulta, campo, limite);
+  }
+
+  /**
+   * @param claveUsuario La clave del usuario.
+   * @return El número de préstamos activos del usuario.
+   */
+  public int contarPrestamosUsuario(String claveUsuario) {
+    return prestamosActivos.contarDeUsuario(claveUsuario);
+  }
+
+  /**
+   * @return El número total de préstamos activos.
+   */
+  public int contarPrestamosActivos() {
+    return prestamosActivos.tamano();
+  }
+
+  /**
+   * Guarda un punto de control de una biblioteca persistente, para que al
+   * abrirla sólo haya que reproducir las operaciones posteriores.
+   * 
+   * @throws IOException           Si falla la escritura.
+   * @throws IllegalStateException Si la biblioteca no es persistente.
+   */
+  public void guardarPuntoControl() throws IOException {
+    if (persistencia == null) {
+      throw new IllegalStateException("La biblioteca no es persistente.");
+    }
+    persistencia.guardarPuntoControl(this);
+  }
+
+  /**
+   * Programa puntos de control periódicos en segundo plano.
+   * 
+   * @param periodo El tiempo entre puntos de control.
+   * @param unidad  La unidad del periodo.
+   * @throws IllegalStateException Si la biblioteca no es persistente.
+   */
+  public void programarPuntosControl(long periodo, TimeUnit unidad) {
+    if (persistencia == null) {
+      throw new IllegalStateException("La biblioteca no es persistente.");
+    }
+    persistencia.programarPuntosControl(this, periodo, unidad);
+  }
+
+  /**
+   * Cierra la biblioteca: escribe lo pendiente del diario, si es persistente,
+   * y cierra el receptor de eventos entregando antes los eventos pendientes.
+   */
+  public void cerrar() {
+    synchronized (this) {
+      if (avisosVencimiento != null) {
+        avisosVencimiento.shutdownNow();
+      }
+      if (publicacionInstantaneas != null) {
+        publicacionInstantaneas.shutdownNow();
+      }
+    }
+    try {
+      if (persistencia != null) {
+        persistencia.close();
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("No se pudo cerrar el diario de la biblioteca.", e);
+    } finally {
+      libros.cerrar();
+      eventos.cerrar();
+    }
+  }
+
+  /**
+   * Muestra un resumen en pantalla de los libros disponibles y los libros
+   * prestados. Las filas se envían a la consola a medida que se recorren,
+   * con un búfer, sin armar el reporte completo en memoria. Los libros salen
+   * de una {@linkplain #publicarInstantanea() instantánea} recién publicada.
+   */
+  public void mostrarReporte() {
+    Writer consola = new BufferedWriter(new OutputStreamWriter(System.out, System.out.charset()), 1 << 16);
+    ReporteBiblioteca reporte = new ReporteBiblioteca(consola, ReporteBiblioteca.Formato.TEXTO);
+    try {
+      reporte.escribirEncabezado();
+      reporte.escribirLibros(instantaneas.publicar(), 0, Integer.MAX_VALUE);
+      reporte.escribirPrestamos(prestamosActivos.todos().iterator(), 0, Integer.MAX_VALUE);
+      reporte.escribirPie();
+      consola.flush();
+    } catch (IOException e) {
+      throw new UncheckedIOException("No se pudo mostrar el reporte.", e);
+    }
+  }
+
+  /**
+   * Escribe el reporte completo (resumen, libros y préstamos activos) en el
+   * destino, fila por fila. El resumen y los libros salen de la misma
+   * {@linkplain #publicarInstantanea() instantánea}, recién publicada, así que
+   * los totales coinciden con las filas aunque haya préstamos concurrentes.
+   * El destino no se cierra.
+   * 
+   * @param destino El destino del reporte.
+   * @param formato El formato de salida.
+   * @throws IOException Si falla la escritura.
+   */
+  public void generarReporte(Writer destino, ReporteBiblioteca.Formato formato) throws IOException {
+    ReporteBiblioteca reporte = new ReporteBiblioteca(destino, formato);
+    InstantaneaCatalogo instantanea = instantaneas.publicar();
+    reporte.escribirEncabezado();
+    reporte.escribirResumen(instantanea.getResumen(), usuarios.tamano(), prestamosActivos.tamano());
+    reporte.escribirLibros(instantanea, 0, Integer.MAX_VALUE);
+    reporte.escribirPrestamos(prestamosActivos.todos().iterator(), 0, Integer.MAX_VALUE);
+    reporte.escribirPie();
+  }
+
+  /**
+   * Escribe el reporte completo en UTF-8. El flujo no se cierra.
+   * 
+   * @param destino El flujo de salida.
+   * @param formato El formato de salida.
+   * @throws IOException Si falla la escritura.
+   */
+  public void generarReporte(OutputStream destino, ReporteBiblioteca.Formato formato) throws IOException {
+    Writer escritor = new BufferedWriter(new OutputStreamWriter(destino, StandardCharsets.UTF_8), 1 << 16);
+    generarReporte(escritor, formato);
+    escritor.flush();
+  }
+
+  /**
+   * Escribe una página de la sección de libros del reporte desde una
+   * {@linkplain #publicarInstantanea() instantánea} recién publicada. Los
+   * libros siguen el orden de publicación, que sólo agrega libros al final,
+   * así que las páginas no se desplazan entre solicitudes.
+   * 
+   * @param destino  El destino del reporte.
+   * @param formato  El formato de salida.
+   * @param desde    La posición del primer libro de la página.
+   * @param cantidad El tamaño de la página.
+   * @return El número de libros escritos; menos que la cantidad si es la última página.
+   * @throws IOException Si falla la escritura.
+   */
+  public int escribirPaginaLibros(Writer destino, ReporteBiblioteca.Formato formato, int desde, int cantidad)
+      throws IOException {
+    return new ReporteBiblioteca(destino, formato).escribirLibros(instantaneas.publicar(), desde, cantidad);
+  }
+
+  /**
+   * Escribe una página de la sección de préstamos activos del reporte, por id
+   * de préstamo. La página siguiente se pide con el id del último préstamo
+   * escrito: empieza en él sin recorrer las anteriores, y los préstamos que
+   * se realizan o devuelven entre páginas no desplazan a los demás.
+   * 
+   * @param destino   El destino del reporte.
+   * @param formato   El formato de salida.
+   * @param despuesDe El id del último préstamo de la página anterior, o 0
+   *                  para la primera página.
+   * @param cantidad  El tamaño de la página.
+   * @return El número de préstamos escritos; menos que la cantidad si es la última página.
+   * @throws IOException Si falla la escritura.
+   */
+  public int escribirPaginaPrestamos(Writer destino, ReporteBiblioteca.Formato formato, long despuesDe,
+      int cantidad) throws IOException {
+    return new ReporteBiblioteca(destino, formato).escribirPrestamos(
+        prestamosActivos.despuesDe(despuesDe).iterator(), despuesDe, cantidad);
+  }
+
+  /**
+   * @return Los totales de disponibilidad, mantenidos de forma incremental.
+   */
+  public ResumenDisponibilidad getResumen() {
+    return resumen;
+  }
+
+  /**
+   * Devuelve la última instantánea publicada del catálogo: una vista
+   * inmutable de los libros y sus copias disponibles que se lee sin candados
+   * y no cambia con los préstamos y devoluciones posteriores. Puede estar
+   * atrasada respecto a la biblioteca hasta la siguiente publicación; la
+   * primera llamada publica la primera versión.
+   * 
+   * @return La instantánea vigente.
+   * @see #publicarInstantanea()
+   * @see #programarInstantaneas(long, TimeUnit)
+   */
+  public InstantaneaCatalogo getInstantanea() {
+    return instantaneas.actual();
+  }
+
+  /**
+   * El historial de préstamos y devoluciones desde que se creó o abrió la
+   * biblioteca, para consultas de circulación como los libros más prestados
+   * o los préstamos por licenciatura.
+   * 
+   * @return El historial de la biblioteca.
+   */
+  public HistorialPrestamos getHistorial() {
+    return historial;
+  }
+
+  /**
+   * Publica una instantánea con los cambios desde la anterior. El costo es
+   * proporcional a los libros registrados o con préstamos y devoluciones
+   * desde la publicación anterior, no al tamaño del catálogo.
+   * 
+   * @return La instantánea publicada, o la vigente si no hubo cambios.
+   */
+  public InstantaneaCatalogo publicarInstantanea() {
+    return instantaneas.publicar();
+  }
+
+  /**
+   * Programa la publicación periódica de instantáneas en segundo plano; la
+   * primera es inmediata.
+   * 
+   * @param periodo El tiempo entre publicaciones, p. ej. unos milisegundos.
+   * @param unidad  La unidad del periodo.
+   * @see #publicarInstantanea()
+   */
+  public synchronized void programarInstantaneas(long periodo, TimeUnit unidad) {
+    assert periodo > 0 : "El periodo debe ser mayor que cero.";
+    if (publicacionInstantaneas == null) {
+      publicacionInstantaneas = Executors.newSingleThreadScheduledExecutor(tarea -> {
+        Thread hilo = new Thread(tarea, "biblioteca-instantaneas");
+        hilo.setDaemon(true);
+        return hilo;
+      });
+    }
+    publicacionInstantaneas.scheduleWithFixedDelay(instantaneas::publicar, 0, periodo, unidad);
+  }
+
+  /**
+   * @return Las métricas de las operaciones.
+   */
+  public MetricasBiblioteca getMetricas() {
+    return metricas;
+  }
+
+  /**
+   * Exporta las métricas en el formato de texto de Prometheus. El destino no
+   * se cierra.
+   * 
+   * @param destino  El destino de la exportación.
+   * @param porLibro true para incluir la disponibilidad de cada libro, una
+   *                 línea por libro del catálogo.
+   * @throws IOException Si falla la escritura.
+   */
+  public void exportarMetricas(Writer destino, boolean porLibro) throws IOException {
+    metricas.escribirPrometheus(destino, porLibro ? libros : null);
+  }
+
+  ReceptorEventos getEventos() {
+    return eventos;
+  }
+
+  // --- Operaciones de nodo de una BibliotecaParticionada ---
+
+  /**
+   * Descuenta un préstamo del cupo del usuario sin realizarlo: el préstamo
+   * se hace en la partición dueña del libro, y esta biblioteca es la dueña
+   * del usuario. El cupo se anota en el diario, así que sigue tomado al
+   * reabrir la biblioteca.
+   */
+  ResultadoOperacion.Codigo tomarCupo(String claveUsuario) {
+    if (esVacio(claveUsuario)) {
+      return ResultadoOperacion.Codigo.CLAVE_VACIA;
+    }
+    Usuario usuario = usuarios.buscar(claveUsuario);
+    if (usuario == null) {
+      return ResultadoOperacion.Codigo.USUARIO_NO_ENCONTRADO;
+    }
+    long posicion = 0;
+    iniciarEscritura();
+    try {
+      if (!usuario.intentarTomarCupoRemoto(limitePrestamos.maximoPrestamos(usuario))) {
+        return ResultadoOperacion.Codigo.LIMITE_PRESTAMOS;
+      }
+      if (persistencia != null) {
+        try {
+          posicion = persistencia.getDiario().anotarCupo(usuario);
+        } catch (RuntimeException e) {
+          usuario.intentarLiberarCupoRemoto();
+          throw e;
+        }
+      }
+    } finally {
+      terminarEscritura();
+    }
+    confirmar(posicion);
+    return ResultadoOperacion.Codigo.EXITO;
+  }
+
+  /**
+   * Devuelve al usuario un cupo de {@link #tomarCupo(String)}. Sólo descuenta
+   * cupos tomados para otros nodos y nunca baja de cero.
+   * 
+   * @return {@link ResultadoOperacion.Codigo#EXITO}, o
+   *         {@link ResultadoOperacion.Codigo#CUPO_NO_TOMADO} si el usuario no
+   *         tiene cupos que liberar.
+   */
+  ResultadoOperacion.Codigo liberarCupo(String claveUsuario) {
+    if (esVacio(claveUsuario)) {
+      return ResultadoOperacion.Codigo.CLAVE_VACIA;
+    }
+    Usuario usuario = usuarios.buscar(claveUsuario);
+    if (usuario == null) {
+      return ResultadoOperacion.Codigo.USUARIO_NO_ENCONTRADO;
+    }
+    long posicion = 0;
+    iniciarEscritura();
+    try {
+      if (!usuario.intentarLiberarCupoRemoto()) {
+        return ResultadoOperacion.Codigo.CUPO_NO_TOMADO;
+      }
+      if (persistencia != null) {
+        posicion = persistencia.getDiario().anotarLiberacionCupo(usuario);
+      }
+    } finally {
+      terminarEscritura();
+    }
+    confirmar(posicion);
+    return ResultadoOperacion.Codigo.EXITO;
+  }
+
+  /**
+   * @return Las copias disponibles del libro, o -1 si no está registrado.
+   */
+  int copiasDisponibles(String isbn) {
+    Libro libro = esVacio(isbn) ? null : libros.buscar(isbn);
+    return libro == null ? -1 : libro.getCopiasDisponibles();
+  }
+
+  /**
+   * Anota el préstamo en el diario y lo publica en el índice, en ese orden, de
+   * modo que su devolución siempre quede anotada después. Se llama entre
+   * {@link #iniciarEscritura()} y {@link #terminarEscritura()}.
+   * 
+   * @return La posición del diario a confirmar, o 0 si no es persistente.
+   */
+  private long publicarPrestamo(Prestamo prestamo) {
+    long posicion = persistencia == null ? 0 : persistencia.getDiario().anotarPrestamo(prestamo);
+    prestamosActivos.agregar(prestamo);
+    return posicion;
+  }
+
+  private long calcularVencimiento(Usuario usuario, long diaPrestamo) {
+    int dias = politicaVencimiento.diasPrestamo(usuario);
+    assert dias > 0 : "Assertion Falló: La política de vencimiento dio un préstamo sin días.";
+    return diaPrestamo + dias;
+  }
+
+  private void iniciarEscritura() {
+    if (persistencia != null) {
+      persistencia.iniciarEscritura();
+    }
+  }
+
+  private void terminarEscritura() {
+    if (persistencia != null) {
+      persistencia.terminarEscritura();
+    }
+  }
+
+  /** Espera a que la operación anotada en el diario sea durable. */
+  private void confirmar(long posicion) {
+    if (persistencia != null) {
+      persistencia.confirmar(posicion);
+    }
+  }
+
+  // --- Restauración desde disco (sin eventos ni diario) ---
+
+  void restaurarLibro(String isbn, String titulo, String autor, int totalCopias) {
+    Libro libro = libros.registrar(isbn, titulo, autor, totalCopias);
+    if (libro != null) {
+      resumen.libroRegistrado(totalCopias);
+      instantaneas.libroRegistrado(libro);
+      indiceTexto.agregar(libro);
+    }
+  }
+
+  void restaurarUsuario(String claveUsuario, String nombre, String licenciatura, int semestre) {
+    usuarios.agregarSiAusente(claveUsuario, new Usuario(claveUsuario, nombre, licenciatura, semestre));
+  }
+
+  /**
+   * @param diaVencimiento El día de vencimiento, o {@link FormatoFecha#INVALIDA}
+   *                       si los datos son anteriores a los vencimientos y
+   *                       hay que calcularlo con la política vigente.
+   */
+  void restaurarPrestamo(long id, String claveUsuario, String isbn, long diaPrestamo, long diaVencimiento) {
+    Usuario usuario = usuarios.buscar(claveUsuario);
+    Libro libro = libros.buscar(isbn);
+    if (usuario == null || libro == null || prestamosActivos.buscar(id) != null) {
+      return;
+    }
+    boolean reservada = libro.intentarPrestarCopia();
+    assert reservada : "Assertion Falló: El diario presta más copias de las que existen.";
+    resumen.copiasPrestadas(1);
+    instantaneas.disponibilidadCambiada(libro);
+    usuario.intentarTomarPrestamo(LimitePrestamos.SIN_LIMITE); // El diario manda sobre el límite actual
+    if (diaVencimiento == FormatoFecha.INVALIDA) {
+      diaVencimiento = calcularVencimiento(usuario, diaPrestamo);
+    }
+    prestamosActivos.agregar(new Prestamo(id, usuario, libro, diaPrestamo, diaVencimiento));
+    restaurarSiguienteIdPrestamo(id + 1);
+  }
+
+  void restaurarDevolucion(long id) {
+    Prestamo prestamo = prestamosActivos.remover(id);
+    if (prestamo != null) {
+      prestamo.getLibro().devolverCopia();
+      prestamo.getUsuario().liberarPrestamo();
+      resumen.copiaDevuelta();
+      instantaneas.disponibilidadCambiada(prestamo.getLibro());
+    }
+  }
+
+  void restaurarCupo(String claveUsuario) {
+    Usuario usuario = usuarios.buscar(claveUsuario);
+    if (usuario != null) {
+      usuario.intentarTomarCupoRemoto(LimitePrestamos.SIN_LIMITE); // El diario manda sobre el límite actual
+    }
+  }
+
+  void restaurarLiberacionCupo(String claveUsuario) {
+    Usuario usuario = usuarios.buscar(claveUsuario);
+    if (usuario != null) {
+      usuario.intentarLiberarCupoRemoto();
+    }
+  }
+
+  void restaurarSiguienteIdPrestamo(long siguienteId) {
+    siguienteIdPrestamo.accumulateAndGet(siguienteId, Math::max);
+  }
+
+  /**
+   * Copia las referencias del estado actual. Se llama con el candado
+   * exclusivo de la persistencia tomado, así que el estado no cambia mientras
+   * tanto.
+   */
+  PuntoControl capturarPuntoControl(int segmentoDiario) {
+    List<Libro> copiaLibros = new ArrayList<>(libros.tamano());
+    libros.paraCada(copiaLibros::add);
+    List<Usuario> copiaUsuarios = new ArrayList<>(usuarios.tamano());
+    usuarios.paraCada(copiaUsuarios::add);
+    int[] cuposRemotos = new int[copiaUsuarios.size()];
+    for (int i = 0; i < cuposRemotos.length; i++) {
+      cuposRemotos[i] = copiaUsuarios.get(i).getCuposRemotos();
+    }
+    return new PuntoControl(segmentoDiario, siguienteIdPrestamo.get(), copiaLibros.toArray(new Libro[0]),
+        copiaUsuarios.toArray(new Usuario[0]), cuposRemotos, prestamosActivos.todos().toArray(new Prestamo[0]));
+  }
+
+  /**
+   * Comprueba los datos de un libro nuevo, sin consultar el catálogo.
+   * 
+   * @return El código del primer dato inválido, o null si todos son válidos.
+   */
+  static ResultadoOperacion.Codigo validarCamposLibro(String isbn, String titulo, String autor,
+      String totalCopiasStr) {
+    if (esVacio(isbn)) {
+      return ResultadoOperacion.Codigo.ISBN_VACIO;
+    }
+    if (esVacio(titulo)) {
+      return ResultadoOperacion.Codigo.TITULO_VACIO;
+    }
+    if (esVacio(autor)) {
+      return ResultadoOperacion.Codigo.AUTOR_VACIO;
+    }
+    if (esVacio(totalCopiasStr)) {
+      return ResultadoOperacion.Codigo.COPIAS_VACIAS;
+    }
+    long totalCopias = parsearEntero(totalCopiasStr);
+    if (totalCopias == NO_NUMERICO) {
+      return ResultadoOperacion.Codigo.COPIAS_NO_NUMERICAS;
+    }
+    if (totalCopias <= 0) {
+      return ResultadoOperacion.Codigo.COPIAS_NO_POSITIVAS;
+    }
+    if (excedeLongitudUtf8(isbn) || excedeLongitudUtf8(titulo) || excedeLongitudUtf8(autor)) {
+      return ResultadoOperacion.Codigo.TEXTO_DEMASIADO_LARGO;
+    }
+    return null;
+  }
+
+  /**
+   * Comprueba los datos de un usuario nuevo, sin consultar los usuarios
+   * registrados.
+   * 
+   * @return El código del primer dato inválido, o null si todos son válidos.
+   */
+  static ResultadoOperacion.Codigo validarCamposUsuario(String claveUsuario, String nombre, String licenciatura,
+      String semestreStr) {
+    if (esVacio(claveUsuario)) {
+      return ResultadoOperacion.Codigo.CLAVE_VACIA;
+    }
+    if (esVacio(nombre)) {
+      return ResultadoOperacion.Codigo.NOMBRE_VACIO;
+    }
+    if (esVacio(licenciatura)) {
+      return ResultadoOperacion.Codigo.LICENCIATURA_VACIA;
+    }
+    if (esVacio(semestreStr)) {
+      return ResultadoOperacion.Codigo.SEMESTRE_VACIO;
+    }
+    long semestre = parsearEntero(semestreStr);
+    if (semestre == NO_NUMERICO) {
+      return ResultadoOperacion.Codigo.SEMESTRE_NO_NUMERICO;
+    }
+    if (semestre <= 0) {
+      return ResultadoOperacion.Codigo.SEMESTRE_NO_POSITIVO;
+    }
+    return null;
+  }
+
+  /**
+   * Comprueba que los datos de un préstamo no sean nulos ni vacíos.
+   * 
+   * @return El código del primer dato inválido, o null si todos son válidos.
+   */
+  static ResultadoOperacion.Codigo validarCamposPrestamo(String claveUsuario, String isbnLibro,
+      String fechaPrestamoStr) {
+    if (esVacio(claveUsuario)) {
+      return ResultadoOperacion.Codigo.CLAVE_VACIA;
+    }
+    if (esVacio(isbnLibro)) {
+      return ResultadoOperacion.Codigo.ISBN_PRESTAMO_VACIO;
+    }
+    if (esVacio(fechaPrestamoStr)) {
+      return ResultadoOperacion.Codigo.FECHA_VACIA;
+    }
+    return null;
+  }
+
+  /**
+   * Valor que devuelve parsearEntero cuando el texto no es un entero; queda
+   * fuera del rango de int, así que no se confunde con ningún resultado.
+   */
+  private static final long NO_NUMERICO = Long.MIN_VALUE;
+
+  /**
+   * Número máximo de bytes en UTF-8 del ISBN, el título y el autor de un
+   * libro; es lo que admiten las filas de {@link CatalogoMapeado}.
+   */
+  private static final int LONGITUD_MAXIMA_TEXTO = 0xFFFF;
+
+  /**
+   * Calcula la longitud en UTF-8 sin codificar el texto, y se detiene en
+   * cuanto pasa del máximo.
+   */
+  private static boolean excedeLongitudUtf8(String s) {
+    if (s.length() <= LONGITUD_MAXIMA_TEXTO / 3) {
+      return false; // Ningún carácter ocupa más de tres bytes por unidad UTF-16
+    }
+    long bytes = 0;
+    for (int i = 0; i < s.length() && bytes <= LONGITUD_MAXIMA_TEXTO; i++) {
+      char c = s.charAt(i);
+      if (c < 0x80) {
+        bytes++;
+      } else if (c < 0x800) {
+        bytes += 2;
+      } else if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+        bytes += 4;
+        i++;
+      } else {
+        bytes += 3;
+      }
+    }
+    return bytes > LONGITUD_MAXIMA_TEXTO;
+  }
+
+  /**
+   * Equivalente a {@code s == null || s.trim().isEmpty()} sin crear un String
+   * intermedio.
+   */
+  private static boolean esVacio(String s) {
+    if (s == null) {
+      return true;
+    }
+    for (int i = 0; i < s.length(); i++) {
+      if (s.charAt(i) > ' ') {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Convierte un texto a entero con las mismas reglas que
+   * {@link Integer#parseInt(String)}, pero sin lanzar excepciones.
+   * 
+   * @return El entero, o {@link #NO_NUMERICO} si el texto no es un entero
+   *         válido de 32 bits.
+   */
+  static long parsearEntero(String s) {
+    int longitud = s.length();
+    int i = 0;
+    boolean negativo = false;
+    char primero = s.charAt(0);
+    if (primero == '-' || primero == '+') {
+      negativo = primero == '-';
+      i++;
+      if (longitud == 1) {
+        return NO_NUMERICO;
+      }
+    }
+    // Se acumula en negativo, como Integer.parseInt, para admitir MIN_VALUE
+    long acumulado = 0;
+    for (; i < longitud; i++) {
+      int digito = s.charAt(i) - '0';
+      if (digito < 0 || digito > 9) {
+        return NO_NUMERICO;
+      }
+      acumulado = acumulado * 10 - digito;
+      if (acumulado < Integer.MIN_VALUE) {
+        return NO_NUMERICO;
+      }
+    }
+    if (!negativo && acumulado == Integer.MIN_VALUE) {
+      return NO_NUMERICO;
+    }
+    return negativo ? acumulado : -acumulado;
+  }
+}
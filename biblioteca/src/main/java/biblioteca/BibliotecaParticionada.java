@@ -0,0 +1,242 @@
+package biblioteca;
+
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Biblioteca repartida en varios nodos, p. ej. uno por plantel. Cada libro
+ * pertenece al nodo que resulta de su ISBN normalizado, y sólo ese nodo
+ * guarda su contador de copias; cada usuario pertenece al nodo que resulta
+ * de su clave, que lleva la cuenta de sus préstamos activos para el
+ * {@link LimitePrestamos}. Los nodos pueden estar en el mismo proceso o ser
+ * servidores en otras máquinas ({@link NodoBiblioteca}).
+ *
+ * <p>
+ * Un usuario se registra primero en su nodo, que decide si la clave está
+ * duplicada, y después se copia en los demás para que cualquier nodo pueda
+ * prestarle sus libros. El registro no es atómico entre nodos: si la copia
+ * falla en alguno, repetir el registro la completa. Un préstamo descuenta el
+ * cupo del usuario en su nodo y después toma la copia en el nodo del libro;
+ * si el nodo del libro rechaza el préstamo, el cupo se devuelve. Si la red
+ * falla mientras el nodo del libro presta, no se sabe si el préstamo se hizo
+ * y el cupo queda tomado: devolverlo con un préstamo hecho dejaría al
+ * usuario por encima de su límite. Cuando usuario y libro están en el mismo nodo el
+ * préstamo es una sola operación local. Todos los nodos deben usar el mismo
+ * {@link LimitePrestamos}: el nodo del libro vuelve a comprobarlo con los
+ * préstamos que el usuario tiene en ese nodo, que nunca son más que los de
+ * su cuenta completa.
+ *
+ * <p>
+ * Los ids de préstamo de la biblioteca combinan el id local y el nodo del
+ * préstamo, así que una devolución va directamente a su nodo. El cupo que un
+ * nodo descuenta por préstamos de otros nodos se anota en su diario, así que
+ * un nodo persistente lo conserva al reabrirse.
+ */
+public class BibliotecaParticionada {
+    private final NodoBiblioteca[] nodos;
+
+    /**
+     * Constructor de la clase BibliotecaParticionada.
+     * @param nodos Los nodos, en el mismo orden en todos los clientes: el
+     *              orden decide a qué nodo pertenece cada libro y usuario.
+     */
+    public BibliotecaParticionada(List<? extends NodoBiblioteca> nodos) {
+        assert nodos != null && !nodos.isEmpty() : "Debe haber al menos un nodo.";
+        this.nodos = nodos.toArray(new NodoBiblioteca[0]);
+    }
+
+    /**
+     * @param particiones El número de nodos.
+     * @return Una biblioteca con nodos en memoria en este proceso, sin eventos.
+     */
+    public static BibliotecaParticionada enMemoria(int particiones) {
+        assert particiones > 0 : "Debe haber al menos una partición.";
+        List<NodoBiblioteca> nodos = new ArrayList<>(particiones);
+        for (int i = 0; i < particiones; i++) {
+            nodos.add(NodoBiblioteca.local(new Biblioteca(new ReceptorEventosNulo())));
+        }
+        return new BibliotecaParticionada(nodos);
+    }
+
+    /**
+     * @return El número de nodos.
+     */
+    public int getParticiones() {
+        return nodos.length;
+    }
+
+    /**
+     * @param isbn El ISBN del libro.
+     * @return El nodo dueño del libro; las formas equivalentes de un ISBN
+     *         van al mismo nodo.
+     */
+    public int particionDeLibro(String isbn) {
+        if (isbn == null) {
+            return 0;
+        }
+        long clave = Isbn.clave(isbn);
+        return particion(clave != Isbn.SIN_CLAVE ? mezclar(clave) : isbn.hashCode());
+    }
+
+    /**
+     * @param claveUsuario La clave del usuario.
+     * @return El nodo dueño del usuario.
+     */
+    public int particionDeUsuario(String claveUsuario) {
+        if (claveUsuario == null) {
+            return 0;
+        }
+        long codigo = IndiceClaves.codificarClaveUsuario(claveUsuario);
+        return particion(codigo != IndiceClaves.SIN_CODIGO ? mezclar(codigo) : claveUsuario.hashCode());
+    }
+
+    /**
+     * Registra un libro en su nodo.
+     * @see Biblioteca#intentarRegistrarLibro(String, String, String, String)
+     */
+    public ResultadoOperacion.Codigo intentarRegistrarLibro(String isbn, String titulo, String autor,
+            String totalCopiasStr) {
+        return nodos[particionDeLibro(isbn)].registrarLibro(isbn, titulo, autor, totalCopiasStr);
+    }
+
+    /**
+     * Registra un usuario en su nodo y lo copia en los demás nodos. La copia
+     * también se hace si el nodo del usuario ya lo tenía registrado, de modo
+     * que repetir un registro cuya copia falló en algún nodo (p. ej. por un
+     * error de red) la completa con los mismos datos; los nodos que ya tienen
+     * la copia la conservan.
+     * @return El resultado del registro en el nodo del usuario.
+     * @throws UncheckedIOException Si falla la red hacia algún nodo; el
+     *                              registro se puede repetir.
+     * @see Biblioteca#intentarRegistrarUsuario(String, String, String, String)
+     */
+    public ResultadoOperacion.Codigo intentarRegistrarUsuario(String claveUsuario, String nombre,
+            String licenciatura, String semestreStr) {
+        int dueno = particionDeUsuario(claveUsuario);
+        ResultadoOperacion.Codigo codigo = nodos[dueno].registrarUsuario(claveUsuario, nombre, licenciatura,
+                semestreStr);
+        if (codigo == ResultadoOperacion.Codigo.EXITO || codigo == ResultadoOperacion.Codigo.USUARIO_DUPLICADO) {
+            for (int i = 0; i < nodos.length; i++) {
+                if (i != dueno) {
+                    // Una copia que ya existe viene de este registro o de un intento anterior
+                    nodos[i].registrarUsuario(claveUsuario, nombre, licenciatura, semestreStr);
+                }
+            }
+        }
+        return codigo;
+    }
+
+    /**
+     * Realiza un préstamo en el nodo del libro, con el cupo del usuario en su
+     * propio nodo. Los rechazos no emiten eventos ni lanzan excepciones.
+     * @param claveUsuario     La clave del usuario que solicita el préstamo.
+     * @param isbnLibro        El ISBN del libro a prestar.
+     * @param fechaPrestamoStr La fecha del préstamo en formato "dd/MM/yyyy".
+     * @return El id del préstamo en la biblioteca, o un valor negativo con el
+     *         motivo del rechazo ({@link NodoBiblioteca#codigo(long)}).
+     * @throws UncheckedIOException Si falla la red; el préstamo pudo hacerse,
+     *                              así que el cupo del usuario sigue tomado.
+     */
+    public long intentarPrestamo(String claveUsuario, String isbnLibro, String fechaPrestamoStr) {
+        ResultadoOperacion.Codigo invalido = Biblioteca.validarCamposPrestamo(claveUsuario, isbnLibro,
+                fechaPrestamoStr);
+        if (invalido != null) {
+            return NodoBiblioteca.rechazo(invalido);
+        }
+        int nodoUsuario = particionDeUsuario(claveUsuario);
+        int nodoLibro = particionDeLibro(isbnLibro);
+        if (nodoUsuario != nodoLibro) {
+            ResultadoOperacion.Codigo cupo = nodos[nodoUsuario].tomarCupo(claveUsuario);
+            if (cupo != ResultadoOperacion.Codigo.EXITO) {
+                return NodoBiblioteca.rechazo(cupo);
+            }
+        }
+        long id;
+        try {
+            id = nodos[nodoLibro].prestar(claveUsuario, isbnLibro, fechaPrestamoStr);
+        } catch (UncheckedIOException e) {
+            throw e; // Resultado desconocido: el cupo no se devuelve
+        } catch (RuntimeException e) {
+            if (nodoUsuario != nodoLibro) {
+                nodos[nodoUsuario].liberarCupo(claveUsuario);
+            }
+            throw e;
+        }
+        if (id < 0) {
+            if (nodoUsuario != nodoLibro) {
+                nodos[nodoUsuario].liberarCupo(claveUsuario);
+            }
+            return id;
+        }
+        return id * nodos.length + nodoLibro;
+    }
+
+    /**
+     * Variante de {@link #intentarPrestamo(String, String, String)} que lanza
+     * la excepción correspondiente a cada rechazo.
+     * @return El id del préstamo en la biblioteca.
+     * @throws LibroNoEncontradoException Si el libro no existe.
+     * @throws LibroNoDisponibleException Si no hay copias disponibles.
+     * @throws IllegalStateException      Si el usuario alcanzó su límite de préstamos.
+     * @throws IllegalArgumentException   Para el resto de datos inválidos.
+     */
+    public long realizarPrestamo(String claveUsuario, String isbnLibro, String fechaPrestamoStr)
+            throws LibroNoEncontradoException, LibroNoDisponibleException {
+        long id = intentarPrestamo(claveUsuario, isbnLibro, fechaPrestamoStr);
+        if (id < 0) {
+            ResultadoOperacion.Codigo codigo = NodoBiblioteca.codigo(id);
+            ResultadoOperacion.de(codigo).lanzarSiFallo(codigo.esDelUsuario() ? claveUsuario : isbnLibro);
+        }
+        return id;
+    }
+
+    /**
+     * Devuelve un préstamo en su nodo y el cupo del usuario en el suyo.
+     * @param idPrestamo El id del préstamo en la biblioteca.
+     * @return {@link ResultadoOperacion.Codigo#EXITO}, o
+     *         {@link ResultadoOperacion.Codigo#PRESTAMO_NO_ENCONTRADO}.
+     */
+    public ResultadoOperacion.Codigo intentarDevolucion(long idPrestamo) {
+        if (idPrestamo < 0) {
+            return ResultadoOperacion.Codigo.PRESTAMO_NO_ENCONTRADO;
+        }
+        int nodoLibro = (int) (idPrestamo % nodos.length);
+        String claveUsuario = nodos[nodoLibro].devolver(idPrestamo / nodos.length);
+        if (claveUsuario == null) {
+            return ResultadoOperacion.Codigo.PRESTAMO_NO_ENCONTRADO;
+        }
+        int nodoUsuario = particionDeUsuario(claveUsuario);
+        if (nodoUsuario != nodoLibro) {
+            nodos[nodoUsuario].liberarCupo(claveUsuario);
+        }
+        return ResultadoOperacion.Codigo.EXITO;
+    }
+
+    /**
+     * @param isbn El ISBN del libro.
+     * @return Las copias disponibles del libro en su nodo, o -1 si no está
+     *         registrado.
+     */
+    public int getCopiasDisponibles(String isbn) {
+        return nodos[particionDeLibro(isbn)].copiasDisponibles(isbn);
+    }
+
+    /**
+     * Cierra todos los nodos.
+     */
+    public void cerrar() {
+        for (NodoBiblioteca nodo : nodos) {
+            nodo.cerrar();
+        }
+    }
+
+    private int particion(int hash) {
+        return Math.floorMod(hash, nodos.length);
+    }
+
+    private static int mezclar(long clave) {
+        long h = clave * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
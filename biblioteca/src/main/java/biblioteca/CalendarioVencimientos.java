@@ -0,0 +1,80 @@
+package biblioteca;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Préstamos activos agrupados por día de vencimiento.
+ * Los días con préstamos están ordenados en un mapa concurrente, así que los
+ * préstamos que vencen un día o antes de un día se obtienen en tiempo
+ * proporcional al resultado, sin recorrer los demás préstamos. Los días sin
+ * préstamos se retiran del mapa al quedar vacíos.
+ *
+ * <p>
+ * Cada día tiene su propio candado para las altas y bajas; las consultas no
+ * toman candados. Un día retirado no se vuelve a usar, de modo que un alta
+ * que llega tarde lo crea de nuevo en lugar de perderse en el retirado.
+ */
+class CalendarioVencimientos {
+    private static final class Dia {
+        private final Set<Prestamo> prestamos = ConcurrentHashMap.newKeySet();
+        private boolean retirado;
+    }
+
+    private final ConcurrentSkipListMap<Long, Dia> dias = new ConcurrentSkipListMap<>();
+
+    void agregar(Prestamo prestamo) {
+        while (true) {
+            Dia dia = dias.computeIfAbsent(prestamo.getDiaVencimiento(), d -> new Dia());
+            synchronized (dia) {
+                if (!dia.retirado) {
+                    dia.prestamos.add(prestamo);
+                    return;
+                }
+            }
+        }
+    }
+
+    void quitar(Prestamo prestamo) {
+        Long clave = prestamo.getDiaVencimiento();
+        Dia dia = dias.get(clave);
+        if (dia == null) {
+            return;
+        }
+        synchronized (dia) {
+            if (dia.prestamos.remove(prestamo) && dia.prestamos.isEmpty()) {
+                dia.retirado = true;
+                dias.remove(clave, dia);
+            }
+        }
+    }
+
+    /**
+     * @param dia El día, como días desde 01/01/1970.
+     * @return Vista de sólo lectura de los préstamos que vencen ese día.
+     */
+    Collection<Prestamo> vencenEn(long dia) {
+        Dia encontrado = dias.get(dia);
+        return encontrado == null ? Collections.emptySet() : Collections.unmodifiableSet(encontrado.prestamos);
+    }
+
+    /**
+     * @param desde El primer día, incluido.
+     * @param hasta El último día, excluido.
+     * @return Los préstamos que vencen en el intervalo, por día de vencimiento.
+     */
+    List<Prestamo> vencenEntre(long desde, long hasta) {
+        List<Prestamo> encontrados = new ArrayList<>();
+        if (desde < hasta) {
+            for (Dia dia : dias.subMap(desde, hasta).values()) {
+                encontrados.addAll(dia.prestamos);
+            }
+        }
+        return encontrados;
+    }
+}
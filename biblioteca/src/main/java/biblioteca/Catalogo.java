@@ -0,0 +1,94 @@
+package biblioteca;
+
+import java.util.Iterator;
+import java.util.function.Consumer;
+
+/**
+ * Almacenamiento del catálogo de libros de la biblioteca, indexado por ISBN.
+ * Permite elegir cómo se guardan los libros sin cambiar la API de
+ * {@link Biblioteca}: en objetos del heap ({@link CatalogoEnMemoria}) o en
+ * archivos columnares mapeados en memoria ({@link CatalogoMapeado}).
+ * Los ISBN se comparan normalizados con {@link Isbn#clave(CharSequence)}:
+ * "978-0321765723", "9780321765723" y el ISBN-10 equivalente identifican el
+ * mismo libro. Las implementaciones deben ser seguras para uso concurrente.
+ */
+public interface Catalogo extends Iterable<Libro> {
+
+    /**
+     * @param isbn El ISBN del libro.
+     * @return El libro, o null si no está registrado.
+     */
+    Libro buscar(String isbn);
+
+    /**
+     * @param isbn El ISBN del libro.
+     * @return true si hay un libro registrado con ese ISBN.
+     */
+    boolean contiene(String isbn);
+
+    /**
+     * Registra un libro nuevo. Si dos hilos registran el mismo ISBN a la vez,
+     * sólo uno de ellos lo consigue.
+     * @param isbn El ISBN único del libro.
+     * @param titulo El título del libro.
+     * @param autor El autor del libro.
+     * @param totalCopias El número total de copias.
+     * @return El libro registrado, o null si ya existía un libro con ese ISBN.
+     */
+    Libro registrar(String isbn, String titulo, String autor, int totalCopias);
+
+    /**
+     * Registra varios libros nuevos, p. ej. un trozo de una importación
+     * masiva. Por omisión los registra uno a uno con
+     * {@link #registrar(String, String, String, int)}.
+     * @param libros   Los libros a registrar, en orden; cada uno se reemplaza
+     *                 por el libro registrado, que puede ser otro objeto, o
+     *                 por null si su ISBN ya estaba registrado o se repite
+     *                 antes en el arreglo.
+     * @param cantidad El número de libros del arreglo.
+     */
+    default void registrarTodos(Libro[] libros, int cantidad) {
+        for (int i = 0; i < cantidad; i++) {
+            Libro libro = libros[i];
+            libros[i] = registrar(libro.getIsbn(), libro.getTitulo(), libro.getAutor(), libro.getTotalCopias());
+        }
+    }
+
+    /**
+     * Prepara el almacenamiento para muchos registros seguidos, p. ej. antes
+     * de una importación masiva. Por omisión no hace nada.
+     * @param adicionales El número de libros que se espera registrar.
+     */
+    default void reservar(int adicionales) {
+    }
+
+    /**
+     * @return El número de libros registrados.
+     */
+    int tamano();
+
+    default boolean estaVacio() {
+        return tamano() == 0;
+    }
+
+    /**
+     * Recorre todos los libros registrados.
+     * @param accion La acción a aplicar a cada libro.
+     */
+    void paraCada(Consumer<? super Libro> accion);
+
+    /**
+     * Recorre los libros registrados en el mismo orden que
+     * {@link #paraCada(Consumer)}; permite detener el recorrido, por ejemplo
+     * para paginar. El orden se mantiene mientras no se registren libros.
+     * @return Un iterador de sólo lectura.
+     */
+    @Override
+    Iterator<Libro> iterator();
+
+    /**
+     * Libera los recursos del catálogo.
+     */
+    default void cerrar() {
+    }
+}
@@ -0,0 +1,73 @@
+package biblioteca;
+
+import java.util.Iterator;
+import java.util.function.Consumer;
+
+/**
+ * Catálogo que guarda cada libro como un objeto {@link Libro} en un índice
+ * concurrente por ISBN normalizado ({@link IndiceClaves#porIsbn()}). Es el
+ * almacenamiento predeterminado de la biblioteca.
+ */
+public class CatalogoEnMemoria implements Catalogo {
+    private final IndiceClaves<Libro> libros; // ISBN -> Libro
+
+    /**
+     * Constructor de la clase CatalogoEnMemoria.
+     */
+    public CatalogoEnMemoria() {
+        this.libros = IndiceClaves.porIsbn();
+    }
+
+    @Override
+    public Libro buscar(String isbn) {
+        return libros.buscar(isbn);
+    }
+
+    @Override
+    public boolean contiene(String isbn) {
+        return libros.contiene(isbn);
+    }
+
+    @Override
+    public Libro registrar(String isbn, String titulo, String autor, int totalCopias) {
+        Libro nuevoLibro = new Libro(isbn, titulo, autor, totalCopias);
+        return libros.agregarSiAusente(isbn, nuevoLibro) == null ? nuevoLibro : null;
+    }
+
+    /**
+     * Agrega los libros recibidos tal cual, con una sola alta en el índice.
+     */
+    @Override
+    public void registrarTodos(Libro[] libros, int cantidad) {
+        String[] isbns = new String[cantidad];
+        for (int i = 0; i < cantidad; i++) {
+            isbns[i] = libros[i].getIsbn();
+        }
+        this.libros.agregarTodos(isbns, libros, cantidad);
+    }
+
+    @Override
+    public void reservar(int adicionales) {
+        libros.reservar(adicionales);
+    }
+
+    @Override
+    public int tamano() {
+        return libros.tamano();
+    }
+
+    @Override
+    public boolean estaVacio() {
+        return libros.estaVacio();
+    }
+
+    @Override
+    public void paraCada(Consumer<? super Libro> accion) {
+        libros.paraCada(accion);
+    }
+
+    @Override
+    public Iterator<Libro> iterator() {
+        return libros.iterator();
+    }
+}
@@ -0,0 +1,486 @@
+package biblioteca;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+/**
+ * Catálogo columnar guardado en archivos mapeados en memoria, pensado para
+ * catálogos de decenas de millones de títulos.
+ *
+ * <p>
+ * Cada libro ocupa una fila y cada atributo una columna en su propio archivo:
+ * el texto (ISBN, título y autor en UTF-8, contiguos) en {@code texto.dat}, y
+ * el inicio del texto, las longitudes, el total de copias y las copias
+ * disponibles en archivos {@code .col} de ancho fijo, junto con la clave
+ * numérica del ISBN ({@link Isbn#clave(CharSequence)}). Las copias
+ * disponibles se actualizan con operaciones atómicas directamente sobre el
+ * archivo mapeado. En el heap sólo queda la tabla hash ISBN -> fila, un
+ * {@code int[]} con direccionamiento abierto, y quien llama recibe vistas
+ * ligeras de {@link Libro} que leen la fila bajo demanda; los índices de la
+ * biblioteca guardan el número de fila ({@link #fila(Libro)}) en lugar de
+ * la vista. Los ISBN con clave se comparan por la columna de claves, sin
+ * leer el texto.
+ *
+ * <p>
+ * Los archivos son almacenamiento de trabajo y se recrean al abrir el
+ * catálogo; la durabilidad de las operaciones es responsabilidad del diario
+ * de la biblioteca ({@link PersistenciaBiblioteca}).
+ *
+ * <p>
+ * Los registros se serializan con un candado; las búsquedas no toman
+ * candados: la fila se escribe completa antes de publicarse en la tabla con
+ * una escritura de liberación.
+ */
+public class CatalogoMapeado implements CatalogoPorFilas {
+    private static final int FILAS_POR_BLOQUE = 1 << 20;
+    private static final int BYTES_TEXTO_POR_BLOQUE = 64 << 20;
+    private static final int LONGITUD_MAXIMA = 0xFFFF;
+
+    private static final VarHandle ENTERO_MAPEADO =
+            MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.nativeOrder());
+    private static final VarHandle CASILLA = MethodHandles.arrayElementVarHandle(int[].class);
+
+    private final Area texto;
+    private final Area claves; // long: clave del ISBN, o Isbn.SIN_CLAVE
+    private final Area inicios; // long: inicio del texto de la fila
+    private final Area longitudes; // 3 x short sin signo: ISBN, título y autor
+    private final Area totales; // int
+    private final Area disponibles; // int, actualizado con CAS
+    private final Object candadoRegistro;
+    private volatile int[] tabla; // fila + 1, 0 si la casilla está vacía
+    private volatile int filas;
+    private long finTexto;
+
+    private CatalogoMapeado(Path directorio, int capacidadInicial) throws IOException {
+        Files.createDirectories(directorio);
+        this.texto = new Area(directorio.resolve("texto.dat"), BYTES_TEXTO_POR_BLOQUE);
+        this.claves = new Area(directorio.resolve("claves.col"), FILAS_POR_BLOQUE * 8);
+        this.inicios = new Area(directorio.resolve("inicios.col"), FILAS_POR_BLOQUE * 8);
+        this.longitudes = new Area(directorio.resolve("longitudes.col"), FILAS_POR_BLOQUE * 6);
+        this.totales = new Area(directorio.resolve("totales.col"), FILAS_POR_BLOQUE * 4);
+        this.disponibles = new Area(directorio.resolve("disponibles.col"), FILAS_POR_BLOQUE * 4);
+        this.candadoRegistro = new Object();
+        this.tabla = new int[Math.max(16, Integer.highestOneBit(Math.max(1, capacidadInicial) * 2 - 1) * 2)];
+    }
+
+    /**
+     * Crea un catálogo vacío en el directorio, reemplazando los archivos de
+     * un catálogo anterior.
+     * @param directorio El directorio de los archivos del catálogo.
+     * @param capacidadInicial El número de libros esperado, para dimensionar
+     *                         la tabla hash.
+     * @return El catálogo.
+     * @throws IOException Si no se pueden crear los archivos.
+     */
+    public static CatalogoMapeado crear(Path directorio, int capacidadInicial) throws IOException {
+        assert capacidadInicial >= 0 : "La capacidad no puede ser negativa.";
+        return new CatalogoMapeado(directorio, capacidadInicial);
+    }
+
+    @Override
+    public Libro buscar(String isbn) {
+        int fila = filaDe(isbn, Isbn.clave(isbn));
+        return fila < 0 ? null : new Vista(fila);
+    }
+
+    @Override
+    public boolean contiene(String isbn) {
+        return filaDe(isbn, Isbn.clave(isbn)) >= 0;
+    }
+
+    /**
+     * @throws IllegalArgumentException Si algún texto ocupa más de 65535 bytes;
+     *         {@link Biblioteca} lo rechaza antes con
+     *         {@link ResultadoOperacion.Codigo#TEXTO_DEMASIADO_LARGO}.
+     */
+    @Override
+    public Libro registrar(String isbn, String titulo, String autor, int totalCopias) {
+        byte[] bytesIsbn = isbn.getBytes(StandardCharsets.UTF_8);
+        byte[] bytesTitulo = titulo.getBytes(StandardCharsets.UTF_8);
+        byte[] bytesAutor = autor.getBytes(StandardCharsets.UTF_8);
+        if (bytesIsbn.length > LONGITUD_MAXIMA || bytesTitulo.length > LONGITUD_MAXIMA
+                || bytesAutor.length > LONGITUD_MAXIMA) {
+            throw new IllegalArgumentException("El texto del libro es demasiado largo para el catálogo.");
+        }
+        int longitudTexto = bytesIsbn.length + bytesTitulo.length + bytesAutor.length;
+        long clave = Isbn.clave(isbn);
+
+        synchronized (candadoRegistro) {
+            if (filaDe(isbn, clave) >= 0) {
+                return null;
+            }
+            int fila = filas;
+            if (fila == Integer.MAX_VALUE - 1) {
+                throw new IllegalStateException("El catálogo está lleno.");
+            }
+
+            // El texto de una fila nunca cruza el límite de un bloque mapeado
+            long inicio = finTexto;
+            if (inicio % BYTES_TEXTO_POR_BLOQUE + longitudTexto > BYTES_TEXTO_POR_BLOQUE) {
+                inicio = (inicio / BYTES_TEXTO_POR_BLOQUE + 1) * BYTES_TEXTO_POR_BLOQUE;
+            }
+            MappedByteBuffer bloqueTexto = texto.bloqueParaEscribir(inicio);
+            int posicion = texto.desplazamiento(inicio);
+            bloqueTexto.put(posicion, bytesIsbn);
+            bloqueTexto.put(posicion + bytesIsbn.length, bytesTitulo);
+            bloqueTexto.put(posicion + bytesIsbn.length + bytesTitulo.length, bytesAutor);
+            finTexto = inicio + longitudTexto;
+
+            claves.bloqueParaEscribir(fila * 8L).putLong(claves.desplazamiento(fila * 8L), clave);
+            inicios.bloqueParaEscribir(fila * 8L).putLong(inicios.desplazamiento(fila * 8L), inicio);
+            MappedByteBuffer bloqueLongitudes = longitudes.bloqueParaEscribir(fila * 6L);
+            int base = longitudes.desplazamiento(fila * 6L);
+            bloqueLongitudes.putShort(base, (short) bytesIsbn.length);
+            bloqueLongitudes.putShort(base + 2, (short) bytesTitulo.length);
+            bloqueLongitudes.putShort(base + 4, (short) bytesAutor.length);
+            totales.bloqueParaEscribir(fila * 4L).putInt(totales.desplazamiento(fila * 4L), totalCopias);
+            ENTERO_MAPEADO.setVolatile(disponibles.bloqueParaEscribir(fila * 4L),
+                    disponibles.desplazamiento(fila * 4L), totalCopias);
+
+            publicar(fila, hash(isbn, clave));
+            filas = fila + 1;
+            return new Vista(fila);
+        }
+    }
+
+    @Override
+    public int tamano() {
+        return filas;
+    }
+
+    @Override
+    public void paraCada(Consumer<? super Libro> accion) {
+        int total = filas;
+        for (int fila = 0; fila < total; fila++) {
+            accion.accept(new Vista(fila));
+        }
+    }
+
+    @Override
+    public Iterator<Libro> iterator() {
+        int total = filas;
+        return new Iterator<Libro>() {
+            private int fila;
+
+            @Override
+            public boolean hasNext() {
+                return fila < total;
+            }
+
+            @Override
+            public Libro next() {
+                if (fila >= total) {
+                    throw new NoSuchElementException();
+                }
+                return new Vista(fila++);
+            }
+        };
+    }
+
+    @Override
+    public int fila(Libro libro) {
+        assert libro instanceof Vista && ((Vista) libro).catalogo() == this : "El libro no es de este catálogo.";
+        return ((Vista) libro).fila;
+    }
+
+    @Override
+    public Libro libroEnFila(int fila) {
+        assert fila >= 0 && fila < filas : "Fila fuera del catálogo: " + fila;
+        return new Vista(fila);
+    }
+
+    /**
+     * Cierra los archivos del catálogo. Las vistas entregadas dejan de ser
+     * válidas.
+     */
+    @Override
+    public void cerrar() {
+        try {
+            texto.cerrar();
+            claves.cerrar();
+            inicios.cerrar();
+            longitudes.cerrar();
+            totales.cerrar();
+            disponibles.cerrar();
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo cerrar el catálogo.", e);
+        }
+    }
+
+    /**
+     * Busca la fila de un ISBN sin tomar candados.
+     * @param clave La clave del ISBN, o {@link Isbn#SIN_CLAVE}.
+     * @return La fila, o -1 si el ISBN no está registrado.
+     */
+    private int filaDe(String isbn, long clave) {
+        int[] actual = tabla;
+        int mascara = actual.length - 1;
+        for (int i = mezclar(hash(isbn, clave)) & mascara;; i = (i + 1) & mascara) {
+            int valor = (int) CASILLA.getAcquire(actual, i);
+            if (valor == 0) {
+                return -1;
+            }
+            int fila = valor - 1;
+            long claveFila = claveDe(fila);
+            if (clave != Isbn.SIN_CLAVE ? claveFila == clave
+                    : claveFila == Isbn.SIN_CLAVE && isbnIgual(fila, isbn)) {
+                return fila;
+            }
+        }
+    }
+
+    private long claveDe(int fila) {
+        return claves.bloque(fila * 8L).getLong(claves.desplazamiento(fila * 8L));
+    }
+
+    /**
+     * Los ISBN con clave se dispersan por la clave, para que sus distintas
+     * formas escritas caigan en la misma casilla; el resto, por su texto.
+     */
+    private static int hash(String isbn, long clave) {
+        return clave != Isbn.SIN_CLAVE ? Long.hashCode(clave) : isbn.hashCode();
+    }
+
+    /**
+     * Inserta la fila en la tabla hash, agrandándola si supera la mitad de
+     * ocupación. Se llama con el candado de registro tomado.
+     */
+    private void publicar(int fila, int hash) {
+        int[] actual = tabla;
+        if ((filas + 1) * 2L > actual.length) {
+            int[] nueva = new int[actual.length * 2];
+            for (int existente = 0; existente < filas; existente++) {
+                long clave = claveDe(existente);
+                insertar(nueva, existente,
+                        clave != Isbn.SIN_CLAVE ? Long.hashCode(clave) : leerTexto(existente, 0).hashCode(), false);
+            }
+            tabla = nueva;
+            actual = nueva;
+        }
+        insertar(actual, fila, hash, true);
+    }
+
+    private static void insertar(int[] destino, int fila, int hash, boolean liberar) {
+        int mascara = destino.length - 1;
+        int i = mezclar(hash) & mascara;
+        while (destino[i] != 0) {
+            i = (i + 1) & mascara;
+        }
+        if (liberar) {
+            CASILLA.setRelease(destino, i, fila + 1);
+        } else {
+            destino[i] = fila + 1;
+        }
+    }
+
+    private static int mezclar(int hash) {
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private boolean isbnIgual(int fila, String isbn) {
+        long inicio = inicios.bloque(fila * 8L).getLong(inicios.desplazamiento(fila * 8L));
+        int longitud = Short.toUnsignedInt(longitudes.bloque(fila * 6L).getShort(longitudes.desplazamiento(fila * 6L)));
+        MappedByteBuffer bloque = texto.bloque(inicio);
+        int posicion = texto.desplazamiento(inicio);
+        // Camino rápido para ISBN ASCII: se compara carácter a byte sin codificar
+        if (longitud == isbn.length()) {
+            boolean ascii = true;
+            for (int i = 0; i < longitud && ascii; i++) {
+                char c = isbn.charAt(i);
+                if (c >= 0x80) {
+                    ascii = false;
+                } else if (bloque.get(posicion + i) != c) {
+                    return false;
+                }
+            }
+            if (ascii) {
+                return true;
+            }
+        }
+        byte[] bytes = isbn.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length != longitud) {
+            return false;
+        }
+        for (int i = 0; i < longitud; i++) {
+            if (bloque.get(posicion + i) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Lee uno de los textos de la fila.
+     * @param campo 0 para el ISBN, 1 para el título y 2 para el autor.
+     */
+    private String leerTexto(int fila, int campo) {
+        long inicio = inicios.bloque(fila * 8L).getLong(inicios.desplazamiento(fila * 8L));
+        MappedByteBuffer bloqueLongitudes = longitudes.bloque(fila * 6L);
+        int base = longitudes.desplazamiento(fila * 6L);
+        int desde = 0;
+        for (int i = 0; i < campo; i++) {
+            desde += Short.toUnsignedInt(bloqueLongitudes.getShort(base + 2 * i));
+        }
+        int longitud = Short.toUnsignedInt(bloqueLongitudes.getShort(base + 2 * campo));
+        byte[] bytes = new byte[longitud];
+        texto.bloque(inicio).get(texto.desplazamiento(inicio) + desde, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Vista ligera de una fila del catálogo. Sólo guarda el número de fila;
+     * todos los datos se leen de los archivos mapeados.
+     */
+    private final class Vista extends Libro {
+        private final int fila;
+
+        private Vista(int fila) {
+            this.fila = fila;
+        }
+
+        @Override
+        public String getIsbn() {
+            return leerTexto(fila, 0);
+        }
+
+        @Override
+        public String getTitulo() {
+            return leerTexto(fila, 1);
+        }
+
+        @Override
+        public String getAutor() {
+            return leerTexto(fila, 2);
+        }
+
+        @Override
+        public int getTotalCopias() {
+            return totales.bloque(fila * 4L).getInt(totales.desplazamiento(fila * 4L));
+        }
+
+        @Override
+        public int getCopiasDisponibles() {
+            return (int) ENTERO_MAPEADO.getVolatile(disponibles.bloque(fila * 4L),
+                    disponibles.desplazamiento(fila * 4L));
+        }
+
+        @Override
+        public boolean intentarPrestarCopia() {
+            return reservarCopias(1) == 1;
+        }
+
+        @Override
+        public int reservarCopias(int cantidad) {
+            assert cantidad >= 0 : "La cantidad de copias no puede ser negativa.";
+            MappedByteBuffer bloque = disponibles.bloque(fila * 4L);
+            int posicion = disponibles.desplazamiento(fila * 4L);
+            int actuales;
+            int reservadas;
+            do {
+                actuales = (int) ENTERO_MAPEADO.getVolatile(bloque, posicion);
+                reservadas = Math.min(actuales, cantidad);
+                if (reservadas <= 0) {
+                    return 0;
+                }
+            } while (!ENTERO_MAPEADO.compareAndSet(bloque, posicion, actuales, actuales - reservadas));
+            return reservadas;
+        }
+
+        @Override
+        public void devolverCopia() {
+            MappedByteBuffer bloque = disponibles.bloque(fila * 4L);
+            int posicion = disponibles.desplazamiento(fila * 4L);
+            int total = getTotalCopias();
+            int actuales;
+            do {
+                actuales = (int) ENTERO_MAPEADO.getVolatile(bloque, posicion);
+                if (actuales >= total) {
+                    return;
+                }
+            } while (!ENTERO_MAPEADO.compareAndSet(bloque, posicion, actuales, actuales + 1));
+        }
+
+        @Override
+        public boolean equals(Object otro) {
+            return otro instanceof Vista && ((Vista) otro).fila == fila && ((Vista) otro).catalogo() == catalogo();
+        }
+
+        @Override
+        public int hashCode() {
+            return fila;
+        }
+
+        private CatalogoMapeado catalogo() {
+            return CatalogoMapeado.this;
+        }
+    }
+
+    /**
+     * Archivo mapeado en memoria por bloques de tamaño fijo. Los bloques se
+     * mapean bajo demanda al escribir; la lectura de un bloque ya mapeado no
+     * toma candados.
+     */
+    private static final class Area {
+        private final FileChannel canal;
+        private final int bytesPorBloque;
+        private volatile MappedByteBuffer[] bloques;
+
+        private Area(Path archivo, int bytesPorBloque) throws IOException {
+            this.canal = FileChannel.open(archivo, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            this.bytesPorBloque = bytesPorBloque;
+            this.bloques = new MappedByteBuffer[0];
+        }
+
+        /** @return El bloque que contiene la posición, que ya debe estar mapeado. */
+        private MappedByteBuffer bloque(long posicion) {
+            return bloques[(int) (posicion / bytesPorBloque)];
+        }
+
+        /** @return La posición dentro de su bloque. */
+        private int desplazamiento(long posicion) {
+            return (int) (posicion % bytesPorBloque);
+        }
+
+        /**
+         * Devuelve el bloque de la posición, mapeándolo si hace falta. Se
+         * llama con el candado de registro del catálogo tomado.
+         */
+        private MappedByteBuffer bloqueParaEscribir(long posicion) {
+            int indice = (int) (posicion / bytesPorBloque);
+            MappedByteBuffer[] actuales = bloques;
+            if (indice < actuales.length) {
+                return actuales[indice];
+            }
+            MappedByteBuffer[] nuevos = Arrays.copyOf(actuales, indice + 1);
+            try {
+                for (int i = actuales.length; i <= indice; i++) {
+                    nuevos[i] = canal.map(FileChannel.MapMode.READ_WRITE, (long) i * bytesPorBloque, bytesPorBloque);
+                    nuevos[i].order(ByteOrder.nativeOrder());
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("No se pudo ampliar el catálogo mapeado.", e);
+            }
+            bloques = nuevos;
+            return nuevos[indice];
+        }
+
+        private void cerrar() throws IOException {
+            canal.close();
+        }
+    }
+}
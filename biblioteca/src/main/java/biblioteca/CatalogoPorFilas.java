@@ -0,0 +1,22 @@
+package biblioteca;
+
+/**
+ * Catálogo que guarda los libros en filas numeradas desde cero, de modo que
+ * un índice puede guardar el número de fila en lugar del libro, p. ej.
+ * {@link CatalogoMapeado}, cuyas búsquedas devuelven una vista nueva cada
+ * vez. La fila de un libro no cambia mientras el catálogo esté abierto.
+ */
+public interface CatalogoPorFilas extends Catalogo {
+
+    /**
+     * @param libro Un libro devuelto por este catálogo.
+     * @return El número de fila del libro.
+     */
+    int fila(Libro libro);
+
+    /**
+     * @param fila Un número de fila devuelto por {@link #fila(Libro)}.
+     * @return El libro de esa fila.
+     */
+    Libro libroEnFila(int fila);
+}
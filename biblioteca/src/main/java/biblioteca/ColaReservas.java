@@ -0,0 +1,193 @@
+package biblioteca;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Listas de espera por ISBN para los libros agotados. Cada libro con
+ * reservas tiene su propia cola FIFO protegida por su propio candado, así que
+ * las reservas de libros distintos no compiten entre sí y los libros sin
+ * reservas no pagan más que una búsqueda en un mapa al devolverse.
+ *
+ * <p>
+ * La cola se coordina con el contador atómico de copias del libro sin
+ * candados extra en el camino de la devolución: quien reserva publica la
+ * cola en el mapa antes de consultar el contador, y quien devuelve incrementa
+ * el contador antes de buscar la cola. Con ambas operaciones atómicas, al
+ * menos uno de los dos ve al otro, de modo que una copia devuelta nunca queda
+ * libre mientras alguien espera.
+ *
+ * <p>
+ * Una reserva se reclama con una operación atómica antes de crear su
+ * préstamo, y la cancelación también tiene que reclamarla: una reserva
+ * cancelada no recibe copia y una que ya recibió copia no se cancela, así
+ * que nunca se crea un préstamo que haya que deshacer.
+ *
+ * <p>
+ * Las colas de los libros que alguna vez tuvieron reservas se conservan; sólo
+ * ocupan un objeto pequeño por libro.
+ */
+class ColaReservas {
+    /**
+     * Una reserva en espera: el usuario y la promesa del préstamo.
+     */
+    static final class Espera {
+        final Usuario usuario;
+        final Promesa prestamo;
+
+        Espera(Usuario usuario) {
+            this.usuario = usuario;
+            this.prestamo = new Promesa();
+        }
+    }
+
+    /**
+     * Promesa del préstamo de una reserva. Cancelarla sólo tiene efecto
+     * mientras la reserva no se haya {@linkplain #reclamar() reclamado} para
+     * entregarle una copia. Una reserva rechazada al pedirse lleva el código
+     * del rechazo.
+     */
+    static final class Promesa extends CompletableFuture<Prestamo> {
+        private final AtomicBoolean reclamada = new AtomicBoolean();
+        private volatile ResultadoOperacion.Codigo rechazo;
+
+        /**
+         * @param codigo    El motivo del rechazo.
+         * @param excepcion La excepción con la que se completa.
+         * @return Una promesa ya completada con el rechazo.
+         */
+        static Promesa rechazada(ResultadoOperacion.Codigo codigo, Throwable excepcion) {
+            Promesa promesa = new Promesa();
+            promesa.rechazo = codigo;
+            promesa.reclamada.set(true);
+            promesa.completeExceptionally(excepcion);
+            return promesa;
+        }
+
+        /**
+         * Reclama la reserva para entregarle una copia o para cancelarla; sólo
+         * uno de los dos lo consigue.
+         * @return true si la reserva no estaba reclamada.
+         */
+        boolean reclamar() {
+            return reclamada.compareAndSet(false, true);
+        }
+
+        /**
+         * @return El motivo por el que se rechazó la reserva al pedirse, o null.
+         */
+        ResultadoOperacion.Codigo getRechazo() {
+            return rechazo;
+        }
+
+        /**
+         * Cancela la reserva si todavía espera una copia. Si ya la recibió, su
+         * préstamo se realiza de todos modos y la cancelación no tiene efecto.
+         */
+        @Override
+        public boolean cancel(boolean interrumpir) {
+            if (!reclamar()) {
+                return isCancelled();
+            }
+            return super.cancel(interrumpir);
+        }
+    }
+
+    private static final class Cola {
+        private final ArrayDeque<Espera> esperas = new ArrayDeque<>();
+        private volatile int tamano; // Lectura sin candado para hayEnEspera
+    }
+
+    private final ConcurrentHashMap<String, Cola> colas = new ConcurrentHashMap<>();
+    private final AtomicInteger enEspera = new AtomicInteger();
+
+    /**
+     * Reserva una copia si hay una libre y nadie espera antes; si no, deja la
+     * reserva al final de la cola del libro.
+     * @param libro  El libro.
+     * @param espera La reserva.
+     * @return true si se reservó una copia, false si la reserva quedó en espera.
+     */
+    boolean reservarOEsperar(Libro libro, Espera espera) {
+        Cola cola = colas.computeIfAbsent(libro.getIsbn(), isbn -> new Cola());
+        synchronized (cola) {
+            if (cola.tamano == 0 && libro.intentarPrestarCopia()) {
+                boolean reclamada = espera.prestamo.reclamar(); // Nadie más la conoce todavía
+                assert reclamada : "Una reserva nueva no puede estar reclamada.";
+                return true;
+            }
+            cola.esperas.addLast(espera);
+            cola.tamano++;
+            enEspera.incrementAndGet();
+            return false;
+        }
+    }
+
+    /**
+     * Entrega las copias libres del libro a las reservas en espera, en orden.
+     * Se llama después de devolver una copia al contador del libro.
+     * @param libro El libro.
+     * @return Las reservas que obtuvieron una copia, ya reclamadas; su
+     *         préstamo falta crearlo.
+     */
+    List<Espera> atender(Libro libro) {
+        Cola cola = colas.get(libro.getIsbn());
+        if (cola == null) {
+            return Collections.emptyList();
+        }
+        List<Espera> atendidas = null;
+        synchronized (cola) {
+            Espera primera;
+            while ((primera = cola.esperas.peekFirst()) != null) {
+                // Las reservas canceladas se descartan sin tomar copia; si se
+                // cancela después de tomarla, la copia vuelve al libro
+                boolean cancelada = primera.prestamo.isDone();
+                if (!cancelada) {
+                    if (!libro.intentarPrestarCopia()) {
+                        break;
+                    }
+                    if (!primera.prestamo.reclamar()) {
+                        libro.devolverCopia();
+                        cancelada = true;
+                    }
+                }
+                cola.esperas.pollFirst();
+                cola.tamano--;
+                enEspera.decrementAndGet();
+                if (!cancelada) {
+                    if (atendidas == null) {
+                        atendidas = new ArrayList<>(1);
+                    }
+                    atendidas.add(primera);
+                }
+            }
+        }
+        return atendidas == null ? Collections.emptyList() : atendidas;
+    }
+
+    /**
+     * @return true si hay reservas esperando el libro; un préstamo directo no
+     *         debe adelantárseles.
+     */
+    boolean hayEnEspera(Libro libro) {
+        if (enEspera.get() == 0) {
+            return false;
+        }
+        Cola cola = colas.get(libro.getIsbn());
+        return cola != null && cola.tamano > 0;
+    }
+
+    /**
+     * @return El número de reservas en espera, incluidas las canceladas que
+     *         aún no se descartaron.
+     */
+    int getEnEspera() {
+        return enEspera.get();
+    }
+}
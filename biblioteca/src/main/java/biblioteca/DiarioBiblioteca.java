@@ -0,0 +1,678 @@
+package biblioteca;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Diario binario de sólo escritura al final (write-ahead log) con las
+ * operaciones que modifican la biblioteca: registros de libros y usuarios,
+ * préstamos, devoluciones y los cupos que se toman y liberan para préstamos
+ * de otros nodos de una {@link BibliotecaParticionada}.
+ *
+ * <p>
+ * El diario se divide en segmentos {@code diario-NNNNNN.bin}; se pasa al
+ * siguiente segmento en cada punto de control, de modo que los segmentos
+ * anteriores se pueden borrar. Cada registro tiene la forma
+ * {@code [int longitud][byte tipo][datos][int crc32]}, lo que permite detectar
+ * un registro incompleto al final del archivo tras una caída. Un registro
+ * dañado seguido de registros válidos no viene de una caída sino de un
+ * archivo dañado, y la recuperación se detiene en lugar de descartarlos.
+ *
+ * <p>
+ * Las escrituras usan confirmación en grupo: los hilos agregan sus registros
+ * a un búfer en memoria y el primero que pide confirmar escribe y sincroniza
+ * con disco todo lo acumulado, confirmando a la vez a los demás hilos.
+ */
+public class DiarioBiblioteca implements Closeable {
+    static final byte LIBRO = 1;
+    static final byte USUARIO = 2;
+    static final byte PRESTAMO = 3;
+    static final byte DEVOLUCION = 4;
+    static final byte CUPO = 5;
+    static final byte LIBERACION_CUPO = 6;
+
+    private static final int MAGICO = 0x42494244; // "BIBD"
+    private static final int VERSION = 1;
+    // magico, version y posición lógica del primer registro del segmento
+    static final int TAMANO_CABECERA = 4 + 4 + 8;
+    // longitud, tipo y crc
+    private static final int TAMANO_ENVOLTURA = 4 + 1 + 4;
+    private static final int CAPACIDAD_INICIAL = 64 * 1024;
+
+    /**
+     * Recibe los registros leídos al reproducir el diario.
+     */
+    interface Lector {
+        void libro(String isbn, String titulo, String autor, int totalCopias);
+
+        void usuario(String claveUsuario, String nombre, String licenciatura, int semestre);
+
+        /**
+         * @param diaVencimiento El día de vencimiento, o {@link FormatoFecha#INVALIDA}
+         *                       en los registros anteriores a los vencimientos.
+         */
+        void prestamo(long id, String claveUsuario, String isbn, long diaPrestamo, long diaVencimiento);
+
+        void devolucion(long id);
+
+        void cupo(String claveUsuario);
+
+        void liberacionCupo(String claveUsuario);
+    }
+
+    private final Path directorio;
+    private final ReentrantLock candado;
+    private final Condition confirmado;
+    private FileChannel canal;
+    private int segmento;
+    private ByteBuffer pendiente; // registros aún no escritos
+    private ByteBuffer reserva; // búfer libre para el siguiente intercambio
+    private int inicioRegistro; // inicio en el búfer del registro en curso
+    private final CRC32 crc;
+    private long posicion; // posición lógica tras el último registro agregado
+    private long posicionDurable; // posición lógica ya sincronizada con disco
+    private boolean escribiendo;
+    private IOException fallo;
+
+    private DiarioBiblioteca(Path directorio, int segmento, FileChannel canal, long posicion) {
+        this.directorio = directorio;
+        this.candado = new ReentrantLock();
+        this.confirmado = candado.newCondition();
+        this.segmento = segmento;
+        this.canal = canal;
+        this.pendiente = ByteBuffer.allocate(CAPACIDAD_INICIAL);
+        this.reserva = ByteBuffer.allocate(CAPACIDAD_INICIAL);
+        this.crc = new CRC32();
+        this.posicion = posicion;
+        this.posicionDurable = posicion;
+    }
+
+    /**
+     * Abre un segmento para seguir escribiendo al final. Si no existe, se crea
+     * con su cabecera.
+     * @param directorio El directorio del diario.
+     * @param segmento El número de segmento.
+     * @param inicioLogico La posición lógica del primer registro si el
+     *                     segmento es nuevo.
+     * @return El diario listo para escribir.
+     * @throws IOException Si no se puede abrir o crear el segmento.
+     */
+    static DiarioBiblioteca abrir(Path directorio, int segmento, long inicioLogico) throws IOException {
+        FileChannel canal = abrirSegmento(directorio, segmento, inicioLogico);
+        long inicio = leerInicioLogico(canal);
+        long posicion = inicio + canal.size() - TAMANO_CABECERA;
+        canal.position(canal.size());
+        return new DiarioBiblioteca(directorio, segmento, canal, posicion);
+    }
+
+    /**
+     * @param directorio El directorio del diario.
+     * @param segmento El número de segmento.
+     * @return La ruta del archivo del segmento.
+     */
+    static Path rutaSegmento(Path directorio, int segmento) {
+        return directorio.resolve(String.format("diario-%06d.bin", segmento));
+    }
+
+    /**
+     * @param directorio El directorio del diario.
+     * @return Los números de segmento existentes, en orden ascendente.
+     * @throws IOException Si no se puede listar el directorio.
+     */
+    static List<Integer> segmentos(Path directorio) throws IOException {
+        List<Integer> numeros = new ArrayList<>();
+        try (Stream<Path> archivos = Files.list(directorio)) {
+            archivos.forEach(archivo -> {
+                String nombre = archivo.getFileName().toString();
+                if (nombre.matches("diario-\\d{6}\\.bin")) {
+                    numeros.add(Integer.parseInt(nombre.substring(7, 13)));
+                }
+            });
+        }
+        numeros.sort(null);
+        return numeros;
+    }
+
+    public int getSegmento() {
+        candado.lock();
+        try {
+            return segmento;
+        } finally {
+            candado.unlock();
+        }
+    }
+
+    /**
+     * @return La posición lógica tras el último registro agregado.
+     */
+    public long getPosicion() {
+        candado.lock();
+        try {
+            return posicion;
+        } finally {
+            candado.unlock();
+        }
+    }
+
+    /**
+     * Agrega el registro de un libro nuevo.
+     * @param libro El libro registrado.
+     * @return La posición que hay que confirmar con {@link #confirmar(long)}.
+     */
+    public long anotarLibro(Libro libro) {
+        byte[] isbn = utf8(libro.getIsbn());
+        byte[] titulo = utf8(libro.getTitulo());
+        byte[] autor = utf8(libro.getAutor());
+        candado.lock();
+        try {
+            return escribirRegistro(LIBRO, isbn, titulo, autor, libro.getTotalCopias());
+        } finally {
+            candado.unlock();
+        }
+    }
+
+    /**
+     * Agrega los registros de varios libros nuevos tomando el candado una
+     * sola vez, p. ej. para un trozo de una importación.
+     * @param libros   Los libros registrados, en orden.
+     * @param cantidad El número de libros del arreglo.
+     * @return La posición que hay que confirmar con {@link #confirmar(long)}.
+     */
+    public long anotarLibros(Libro[] libros, int cantidad) {
+        byte[][] textos = new byte[cantidad * 3][];
+        int[] copias = new int[cantidad];
+        for (int i = 0; i < cantidad; i++) {
+            textos[i * 3] = utf8(libros[i].getIsbn());
+            textos[i * 3 + 1] = utf8(libros[i].getTitulo());
+            textos[i * 3 + 2] = utf8(libros[i].getAutor());
+            copias[i] = libros[i].getTotalCopias();
+        }
+        return anotarVarios(LIBRO, textos, copias);
+    }
+
+    /**
+     * Agrega el registro de un usuario nuevo.
+     * @param usuario El usuario registrado.
+     * @return La posición que hay que confirmar con {@link #confirmar(long)}.
+     */
+    public long anotarUsuario(Usuario usuario) {
+        byte[] clave = utf8(usuario.getClaveUsuario());
+        byte[] nombre = utf8(usuario.getNombre());
+        byte[] licenciatura = utf8(usuario.getLicenciatura());
+        candado.lock();
+        try {
+            return escribirRegistro(USUARIO, clave, nombre, licenciatura, usuario.getSemestre());
+        } finally {
+            candado.unlock();
+        }
+    }
+
+    /**
+     * Agrega los registros de varios usuarios nuevos tomando el candado una
+     * sola vez, igual que {@link #anotarLibros(Libro[], int)}.
+     * @param usuarios Los usuarios registrados, en orden.
+     * @param cantidad El número de usuarios del arreglo.
+     * @return La posición que hay que confirmar con {@link #confirmar(long)}.
+     */
+    public long anotarUsuarios(Usuario[] usuarios, int cantidad) {
+        byte[][] textos = new byte[cantidad * 3][];
+        int[] semestres = new int[cantidad];
+        for (int i = 0; i < cantidad; i++) {
+            textos[i * 3] = utf8(usuarios[i].getClaveUsuario());
+            textos[i * 3 + 1] = utf8(usuarios[i].getNombre());
+            textos[i * 3 + 2] = utf8(usuarios[i].getLicenciatura());
+            semestres[i] = usuarios[i].getSemestre();
+        }
+        return anotarVarios(USUARIO, textos, semestres);
+    }
+
+    /**
+     * Agrega el registro de un préstamo.
+     * @param prestamo El préstamo realizado.
+     * @return La posición que hay que confirmar con {@link #confirmar(long)}.
+     */
+    public long anotarPrestamo(Prestamo prestamo) {
+        byte[] clave = utf8(prestamo.getUsuario().getClaveUsuario());
+        byte[] isbn = utf8(prestamo.getLibro().getIsbn());
+        candado.lock();
+        try {
+            ByteBuffer destino = iniciar(PRESTAMO, 8 + 8 + clave.length + isbn.length + 8 + 8);
+            destino.putLong(prestamo.getId());
+            escribirTexto(destino, clave);
+            escribirTexto(destino, isbn);
+            destino.putLong(prestamo.getDiaPrestamo());
+            destino.putLong(prestamo.getDiaVencimiento());
+            return terminar(destino);
+        } finally {
+            candado.unlock();
+        }
+    }
+
+    /**
+     * Agrega el registro de una devolución.
+     * @param idPrestamo El id del préstamo devuelto.
+     * @return La posición que hay que confirmar con {@link #confirmar(long)}.
+     */
+    public long anotarDevolucion(long idPrestamo) {
+        candado.lock();
+        try {
+            ByteBuffer destino = iniciar(DEVOLUCION, 8);
+            destino.putLong(idPrestamo);
+            return terminar(destino);
+        } finally {
+            candado.unlock();
+        }
+    }
+
+    /**
+     * Agrega el registro de un cupo tomado para un préstamo de otro nodo.
+     * @param usuario El usuario que tomó el cupo.
+     * @return La posición que hay que confirmar con {@link #confirmar(long)}.
+     */
+    public long anotarCupo(Usuario usuario) {
+        return anotarClave(CUPO, usuario);
+    }
+
+    /**
+     * Agrega el registro de un cupo liberado de un préstamo de otro nodo.
+     * @param usuario El usuario que liberó el cupo.
+     * @return La posición que hay que confirmar con {@link #confirmar(long)}.
+     */
+    public long anotarLiberacionCupo(Usuario usuario) {
+        return anotarClave(LIBERACION_CUPO, usuario);
+    }
+
+    /**
+     * Agrega registros de tres textos y un entero, como los de libro o de
+     * usuario, agrandando el búfer pendiente a lo sumo una vez.
+     */
+    private long anotarVarios(byte tipo, byte[][] textos, int[] enteros) {
+        int total = 0;
+        for (int i = 0; i < enteros.length; i++) {
+            total += TAMANO_ENVOLTURA + 12 + textos[i * 3].length + textos[i * 3 + 1].length
+                    + textos[i * 3 + 2].length + 4;
+        }
+        candado.lock();
+        try {
+            verificarFallo();
+            if (pendiente.remaining() < total) {
+                pendiente = agrandar(pendiente, pendiente.position() + total);
+            }
+            long hasta = posicion;
+            for (int i = 0; i < enteros.length; i++) {
+                hasta = escribirRegistro(tipo, textos[i * 3], textos[i * 3 + 1], textos[i * 3 + 2], enteros[i]);
+            }
+            return hasta;
+        } finally {
+            candado.unlock();
+        }
+    }
+
+    /**
+     * Escribe un registro de tres textos y un entero. Se llama con el candado
+     * tomado.
+     */
+    private long escribirRegistro(byte tipo, byte[] primero, byte[] segundo, byte[] tercero, int entero) {
+        ByteBuffer destino = iniciar(tipo, 12 + primero.length + segundo.length + tercero.length + 4);
+        escribirTexto(destino, primero);
+        escribirTexto(destino, segundo);
+        escribirTexto(destino, tercero);
+        destino.putInt(entero);
+        return terminar(destino);
+    }
+
+    private long anotarClave(byte tipo, Usuario usuario) {
+        byte[] clave = utf8(usuario.getClaveUsuario());
+        candado.lock();
+        try {
+            ByteBuffer destino = iniciar(tipo, 4 + clave.length);
+            escribirTexto(destino, clave);
+            return terminar(destino);
+        } finally {
+            candado.unlock();
+        }
+    }
+
+    /**
+     * Espera a que todo lo agregado hasta {@code hasta} esté sincronizado con
+     * disco. Si ningún otro hilo está escribiendo, este hilo escribe el lote
+     * pendiente completo (incluidos los registros de otros hilos).
+     * @param hasta La posición devuelta por un método {@code anotar}.
+     * @throws UncheckedIOException Si falla la escritura del diario.
+     */
+    public void confirmar(long hasta) {
+        candado.lock();
+        try {
+            while (posicionDurable < hasta) {
+                verificarFallo();
+                if (escribiendo) {
+                    confirmado.awaitUninterruptibly();
+                } else {
+                    escribirLote();
+                }
+            }
+        } finally {
+            candado.unlock();
+        }
+    }
+
+    /**
+     * Escribe lo pendiente, cierra el segmento actual y empieza uno nuevo.
+     * Quien llama debe garantizar que no se agreguen registros mientras tanto.
+     * @return El número del nuevo segmento.
+     * @throws IOException Si falla la escritura o la creación del segmento.
+     */
+    int rotar() throws IOException {
+        candado.lock();
+        try {
+            confirmar(posicion);
+            canal.close();
+            segmento++;
+            canal = abrirSegmento(directorio, segmento, posicion);
+            canal.position(canal.size());
+            return segmento;
+        } finally {
+            candado.unlock();
+        }
+    }
+
+    /**
+     * Escribe lo pendiente y cierra el segmento actual.
+     * @throws IOException Si falla la escritura.
+     */
+    @Override
+    public void close() throws IOException {
+        candado.lock();
+        try {
+            if (fallo == null) {
+                confirmar(posicion);
+            }
+            canal.close();
+        } finally {
+            candado.unlock();
+        }
+    }
+
+    /**
+     * Reproduce los registros de un segmento.
+     * Si el segmento termina con un registro incompleto o dañado (escritura
+     * interrumpida por una caída) y {@code truncar} es verdadero, el archivo
+     * se recorta hasta el último registro válido; si es falso, se lanza una
+     * excepción. Si después del registro dañado hay algún registro válido, el
+     * daño está en medio del segmento y siempre se lanza una excepción: esos
+     * registros pudieron estar confirmados.
+     * @param archivo El segmento a reproducir.
+     * @param lector Quien recibe los registros.
+     * @param truncar Si se permite recortar una cola dañada.
+     * @throws IOException Si no se puede leer o el segmento está dañado.
+     */
+    static void reproducir(Path archivo, Lector lector, boolean truncar) throws IOException {
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            leerInicioLogico(canal);
+            long tamano = canal.size();
+            ByteBuffer entrada = ByteBuffer.allocate(1024 * 1024);
+            CRC32 crc = new CRC32();
+            long valido = TAMANO_CABECERA;
+            boolean finArchivo = false;
+            boolean danado = false;
+            canal.position(TAMANO_CABECERA);
+            while (!danado) {
+                if (canal.read(entrada) < 0) {
+                    finArchivo = true;
+                }
+                entrada.flip();
+                int necesario = 0;
+                while (entrada.remaining() >= 4) {
+                    int inicio = entrada.position();
+                    int longitud = entrada.getInt(inicio);
+                    if (longitud < 0 || longitud > tamano) {
+                        danado = true;
+                        break;
+                    }
+                    int total = TAMANO_ENVOLTURA + longitud;
+                    if (entrada.remaining() < total) {
+                        necesario = total;
+                        break;
+                    }
+                    crc.reset();
+                    crc.update(entrada.array(), inicio + 4, 1 + longitud);
+                    if ((int) crc.getValue() != entrada.getInt(inicio + 5 + longitud)) {
+                        danado = true;
+                        break;
+                    }
+                    entrada.position(inicio + 5);
+                    aplicar(entrada.get(inicio + 4), entrada, inicio + 5 + longitud, lector);
+                    entrada.position(inicio + total);
+                    valido += total;
+                }
+                if (finArchivo) {
+                    break;
+                }
+                entrada.compact();
+                if (necesario > entrada.capacity()) {
+                    entrada = agrandar(entrada, necesario);
+                }
+            }
+            if (valido < tamano) {
+                long siguiente = buscarRegistroValido(canal, valido + 1, tamano);
+                if (siguiente >= 0) {
+                    throw new IOException("Segmento del diario dañado: " + archivo + " en la posición " + valido
+                            + ", con registros válidos desde la posición " + siguiente);
+                }
+                if (!truncar) {
+                    throw new IOException("Segmento del diario dañado: " + archivo + " en la posición " + valido);
+                }
+                canal.truncate(valido);
+                canal.force(true);
+            }
+        }
+    }
+
+    /**
+     * Busca el primer registro íntegro que empiece en {@code [desde, tamano)}.
+     * Sólo se llama al encontrar un registro dañado, para distinguir una cola
+     * cortada por una caída (nada válido después) de un daño en medio del
+     * segmento. Se revisan como mucho los primeros 2 GiB tras el daño.
+     * @return La posición del registro, o -1 si no hay ninguno.
+     */
+    private static long buscarRegistroValido(FileChannel canal, long desde, long tamano) throws IOException {
+        long largo = Math.min(tamano - desde, Integer.MAX_VALUE);
+        if (largo < TAMANO_ENVOLTURA) {
+            return -1;
+        }
+        ByteBuffer resto = canal.map(FileChannel.MapMode.READ_ONLY, desde, largo);
+        CRC32 crc = new CRC32();
+        for (int inicio = 0; inicio + TAMANO_ENVOLTURA <= resto.limit(); inicio++) {
+            int longitud = resto.getInt(inicio);
+            byte tipo = resto.get(inicio + 4);
+            // Todos los registros llevan al menos un long o una clave no vacía
+            if (tipo < LIBRO || tipo > LIBERACION_CUPO || longitud < 5
+                    || longitud > resto.limit() - inicio - TAMANO_ENVOLTURA) {
+                continue;
+            }
+            crc.reset();
+            crc.update(resto.duplicate().position(inicio + 4).limit(inicio + 5 + longitud));
+            if ((int) crc.getValue() == resto.getInt(inicio + 5 + longitud)) {
+                return desde + inicio;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Entrega un registro al lector. Los campos nuevos se agregan al final de
+     * los registros, así que un registro que termina antes de ellos es de una
+     * versión anterior.
+     * @param fin La posición del final de los datos del registro.
+     */
+    private static void aplicar(byte tipo, ByteBuffer entrada, int fin, Lector lector) throws IOException {
+        switch (tipo) {
+            case LIBRO:
+                lector.libro(leerTexto(entrada), leerTexto(entrada), leerTexto(entrada), entrada.getInt());
+                break;
+            case USUARIO:
+                lector.usuario(leerTexto(entrada), leerTexto(entrada), leerTexto(entrada), entrada.getInt());
+                break;
+            case PRESTAMO:
+                long id = entrada.getLong();
+                String clave = leerTexto(entrada);
+                String isbn = leerTexto(entrada);
+                long diaPrestamo = entrada.getLong();
+                long diaVencimiento = entrada.position() < fin ? entrada.getLong() : FormatoFecha.INVALIDA;
+                lector.prestamo(id, clave, isbn, diaPrestamo, diaVencimiento);
+                break;
+            case DEVOLUCION:
+                lector.devolucion(entrada.getLong());
+                break;
+            case CUPO:
+                lector.cupo(leerTexto(entrada));
+                break;
+            case LIBERACION_CUPO:
+                lector.liberacionCupo(leerTexto(entrada));
+                break;
+            default:
+                throw new IOException("Tipo de registro desconocido en el diario: " + tipo);
+        }
+    }
+
+    /**
+     * Reserva espacio en el búfer pendiente y escribe el inicio del registro.
+     * Se llama con el candado tomado.
+     */
+    private ByteBuffer iniciar(byte tipo, int longitud) {
+        verificarFallo();
+        int total = TAMANO_ENVOLTURA + longitud;
+        if (pendiente.remaining() < total) {
+            pendiente = agrandar(pendiente, pendiente.position() + total);
+        }
+        inicioRegistro = pendiente.position();
+        pendiente.putInt(longitud);
+        pendiente.put(tipo);
+        return pendiente;
+    }
+
+    /**
+     * Cierra el registro con su crc. Se llama con el candado tomado.
+     */
+    private long terminar(ByteBuffer destino) {
+        int longitud = destino.position() - inicioRegistro - 5;
+        assert longitud == destino.getInt(inicioRegistro) : "La longitud del registro no coincide con lo escrito.";
+        crc.reset();
+        crc.update(destino.array(), inicioRegistro + 4, 1 + longitud);
+        destino.putInt((int) crc.getValue());
+        posicion += TAMANO_ENVOLTURA + longitud;
+        return posicion;
+    }
+
+    /**
+     * Escribe y sincroniza el lote pendiente. Se llama con el candado tomado;
+     * lo suelta durante la escritura para que otros hilos sigan agregando
+     * registros al otro búfer.
+     */
+    private void escribirLote() {
+        escribiendo = true;
+        ByteBuffer lote = pendiente;
+        long hasta = posicion;
+        pendiente = reserva;
+        reserva = null;
+        candado.unlock();
+        IOException error = null;
+        try {
+            lote.flip();
+            while (lote.hasRemaining()) {
+                canal.write(lote);
+            }
+            canal.force(false);
+        } catch (IOException e) {
+            error = e;
+        } finally {
+            candado.lock();
+        }
+        lote.clear();
+        reserva = lote;
+        escribiendo = false;
+        if (error != null) {
+            fallo = error;
+        } else {
+            posicionDurable = hasta;
+        }
+        confirmado.signalAll();
+    }
+
+    private void verificarFallo() {
+        if (fallo != null) {
+            throw new UncheckedIOException("El diario de la biblioteca no está disponible.", fallo);
+        }
+    }
+
+    private static FileChannel abrirSegmento(Path directorio, int segmento, long inicioLogico) throws IOException {
+        Path archivo = rutaSegmento(directorio, segmento);
+        FileChannel canal = FileChannel.open(archivo, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        if (canal.size() == 0) {
+            ByteBuffer cabecera = ByteBuffer.allocate(TAMANO_CABECERA);
+            cabecera.putInt(MAGICO).putInt(VERSION).putLong(inicioLogico).flip();
+            while (cabecera.hasRemaining()) {
+                canal.write(cabecera);
+            }
+            canal.force(true);
+        }
+        return canal;
+    }
+
+    private static long leerInicioLogico(FileChannel canal) throws IOException {
+        ByteBuffer cabecera = ByteBuffer.allocate(TAMANO_CABECERA);
+        while (cabecera.hasRemaining() && canal.read(cabecera, cabecera.position()) > 0) {
+            // read(ByteBuffer, long) no avanza la posición del canal
+        }
+        cabecera.flip();
+        if (cabecera.remaining() < TAMANO_CABECERA || cabecera.getInt() != MAGICO) {
+            throw new IOException("El archivo no es un segmento del diario de la biblioteca.");
+        }
+        int version = cabecera.getInt();
+        if (version != VERSION) {
+            throw new IOException("Versión del diario no soportada: " + version);
+        }
+        return cabecera.getLong();
+    }
+
+    /**
+     * Copia un búfer en modo escritura a otro más grande, también en modo
+     * escritura.
+     */
+    private static ByteBuffer agrandar(ByteBuffer bufer, int minimo) {
+        ByteBuffer nuevo = ByteBuffer.allocate(Math.max(minimo, bufer.capacity() * 2));
+        bufer.flip();
+        nuevo.put(bufer);
+        return nuevo;
+    }
+
+    private static byte[] utf8(String texto) {
+        return texto.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void escribirTexto(ByteBuffer destino, byte[] texto) {
+        destino.putInt(texto.length);
+        destino.put(texto);
+    }
+
+    private static String leerTexto(ByteBuffer entrada) {
+        int longitud = entrada.getInt();
+        String texto = new String(entrada.array(), entrada.position(), longitud, StandardCharsets.UTF_8);
+        entrada.position(entrada.position() + longitud);
+        return texto;
+    }
+}
@@ -0,0 +1,191 @@
+package biblioteca;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Codificador compartido de fechas en formato "dd/MM/yyyy".
+ * Las fechas se representan como día época (días desde 01/01/1970), que es
+ * la forma compacta que guardan los préstamos. La conversión se hace a mano
+ * sobre los caracteres, sin crear un formateador ni estado de análisis en
+ * cada llamada, y las fechas inválidas se indican con {@link #INVALIDA} en
+ * lugar de una excepción.
+ */
+public final class FormatoFecha {
+    /** Patrón de fecha usado en toda la biblioteca. */
+    public static final String PATRON = "dd/MM/yyyy";
+
+    /** Formateador equivalente, para quien necesite la API de java.time. */
+    public static final DateTimeFormatter FORMATEADOR = DateTimeFormatter.ofPattern(PATRON);
+
+    /** Valor devuelto por {@link #parsearDiaEpoca(CharSequence)} si el texto no es válido. */
+    public static final long INVALIDA = Long.MIN_VALUE;
+
+    // Último año de LocalDate
+    private static final int ANIO_MAXIMO = 999_999_999;
+
+    // Días entre el 01/01/0000 y el 01/01/1970 en el calendario proléptico
+    private static final long DIAS_0000_A_1970 = 719528L;
+
+    private FormatoFecha() {
+    }
+
+    /**
+     * Interpreta una fecha "dd/MM/yyyy". Sigue las reglas de
+     * {@link #FORMATEADOR} con resolución SMART: un día inexistente del mes
+     * (p. ej. 31/04) se ajusta al último día válido. Como en el formateador,
+     * un año de más de cuatro dígitos lleva el signo '+' (p. ej.
+     * "01/01/+12345"), hasta el año 999999999.
+     * @param texto La fecha como texto.
+     * @return El día época, o {@link #INVALIDA} si el texto no tiene el formato esperado.
+     */
+    public static long parsearDiaEpoca(CharSequence texto) {
+        if (texto == null || texto.length() < 10 || texto.charAt(2) != '/' || texto.charAt(5) != '/') {
+            return INVALIDA;
+        }
+        int dia = digitos(texto, 0, 2);
+        int mes = digitos(texto, 3, 5);
+        int anio;
+        if (texto.length() == 10) {
+            anio = digitos(texto, 6, 10);
+        } else if (texto.charAt(6) == '+' && texto.length() >= 12 && texto.length() <= 26) {
+            anio = anioExtendido(texto, 7, texto.length());
+        } else {
+            return INVALIDA;
+        }
+        if (dia < 1 || dia > 31 || mes < 1 || mes > 12 || anio < 1) {
+            return INVALIDA;
+        }
+        return diaEpoca(anio, mes, Math.min(dia, diasDelMes(anio, mes)));
+    }
+
+    /**
+     * @param texto La fecha como texto "dd/MM/yyyy".
+     * @return La fecha, o null si el texto no tiene el formato esperado.
+     */
+    public static LocalDate parsear(CharSequence texto) {
+        long diaEpoca = parsearDiaEpoca(texto);
+        return diaEpoca == INVALIDA ? null : LocalDate.ofEpochDay(diaEpoca);
+    }
+
+    /**
+     * Calcula el día época de una fecha ya validada (año mayor que cero).
+     * @param anio El año.
+     * @param mes El mes, de 1 a 12.
+     * @param dia El día del mes.
+     * @return Los días transcurridos desde el 01/01/1970.
+     */
+    public static long diaEpoca(int anio, int mes, int dia) {
+        long total = 365L * anio + (anio + 3) / 4 - (anio + 99) / 100 + (anio + 399) / 400;
+        total += (367 * mes - 362) / 12;
+        total += dia - 1;
+        if (mes > 2) {
+            total--;
+            if (!esBisiesto(anio)) {
+                total--;
+            }
+        }
+        return total - DIAS_0000_A_1970;
+    }
+
+    /**
+     * @param diaEpoca Los días transcurridos desde el 01/01/1970.
+     * @return La fecha en formato "dd/MM/yyyy".
+     */
+    public static String formatear(long diaEpoca) {
+        StringBuilder destino = new StringBuilder(10);
+        formatear(diaEpoca, destino);
+        return destino.toString();
+    }
+
+    /**
+     * @param fecha La fecha a formatear.
+     * @return La fecha en formato "dd/MM/yyyy".
+     */
+    public static String formatear(LocalDate fecha) {
+        return formatear(fecha.toEpochDay());
+    }
+
+    /**
+     * Escribe la fecha en un StringBuilder existente, sin objetos intermedios.
+     * @param diaEpoca Los días transcurridos desde el 01/01/1970.
+     * @param destino Donde se agrega la fecha en formato "dd/MM/yyyy".
+     */
+    public static void formatear(long diaEpoca, StringBuilder destino) {
+        // Conversión de día época a fecha civil sobre eras de 400 años
+        long z = diaEpoca + 719468;
+        long era = Math.floorDiv(z, 146097);
+        long diaDeEra = z - era * 146097;
+        long anioDeEra = (diaDeEra - diaDeEra / 1460 + diaDeEra / 36524 - diaDeEra / 146096) / 365;
+        long diaDelAnio = diaDeEra - (365 * anioDeEra + anioDeEra / 4 - anioDeEra / 100);
+        long mesDesdeMarzo = (5 * diaDelAnio + 2) / 153;
+        int dia = (int) (diaDelAnio - (153 * mesDesdeMarzo + 2) / 5 + 1);
+        int mes = (int) (mesDesdeMarzo < 10 ? mesDesdeMarzo + 3 : mesDesdeMarzo - 9);
+        long anio = anioDeEra + era * 400 + (mes <= 2 ? 1 : 0);
+
+        dosDigitos(dia, destino);
+        destino.append('/');
+        dosDigitos(mes, destino);
+        destino.append('/');
+        if (anio >= 0 && anio < 1000) {
+            destino.append(anio < 10 ? "000" : anio < 100 ? "00" : "0");
+        } else if (anio > 9999) {
+            destino.append('+');
+        }
+        destino.append(anio);
+    }
+
+    private static boolean esBisiesto(int anio) {
+        return (anio & 3) == 0 && (anio % 100 != 0 || anio % 400 == 0);
+    }
+
+    private static int diasDelMes(int anio, int mes) {
+        switch (mes) {
+            case 2:
+                return esBisiesto(anio) ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    private static void dosDigitos(int valor, StringBuilder destino) {
+        destino.append((char) ('0' + valor / 10)).append((char) ('0' + valor % 10));
+    }
+
+    /**
+     * @return El año de los dígitos en [desde, hasta), de 5 a 19 con ceros a
+     *         la izquierda, o -1 si hay otro carácter o pasa de 999999999.
+     */
+    private static int anioExtendido(CharSequence texto, int desde, int hasta) {
+        long valor = 0;
+        for (int i = desde; i < hasta; i++) {
+            int digito = texto.charAt(i) - '0';
+            if (digito < 0 || digito > 9) {
+                return -1;
+            }
+            valor = valor * 10 + digito;
+            if (valor > ANIO_MAXIMO) {
+                return -1;
+            }
+        }
+        return (int) valor;
+    }
+
+    /** @return El valor de los dígitos en [desde, hasta), o -1 si hay otro carácter. */
+    private static int digitos(CharSequence texto, int desde, int hasta) {
+        int valor = 0;
+        for (int i = desde; i < hasta; i++) {
+            int digito = texto.charAt(i) - '0';
+            if (digito < 0 || digito > 9) {
+                return -1;
+            }
+            valor = valor * 10 + digito;
+        }
+        return valor;
+    }
+}
@@ -0,0 +1,149 @@
+package biblioteca;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histograma de latencias en nanosegundos con cubetas log-lineales, al
+ * estilo de HdrHistogram: cada potencia de dos se divide en 32 cubetas
+ * iguales, así que cualquier valor se guarda con un error relativo menor al
+ * 3 % y el histograma ocupa un tamaño fijo sin importar cuántos valores
+ * reciba. Se cubren valores de hasta unas cinco horas; los mayores se
+ * cuentan en la última cubeta.
+ *
+ * <p>
+ * Registrar un valor es un incremento atómico sin candados. Las cubetas se
+ * reparten en franjas por hilo para que los hilos que registran latencias
+ * parecidas no compitan por la misma posición de memoria.
+ */
+public class HistogramaLatencia {
+    private static final int BITS_SUBCUBETA = 5;
+    private static final int SUBCUBETAS = 1 << BITS_SUBCUBETA; // 32
+    private static final int LINEALES = SUBCUBETAS * 2; // valores 0..63 exactos
+    private static final int DESPLAZAMIENTO_MAXIMO = 38; // ~2^44 ns
+    private static final int CUBETAS = LINEALES + DESPLAZAMIENTO_MAXIMO * SUBCUBETAS;
+
+    private final int mascaraFranjas;
+    private final AtomicLongArray cubetas; // franja * CUBETAS + cubeta
+    private final LongAdder suma;
+
+    /**
+     * Constructor de la clase HistogramaLatencia, con una franja por
+     * procesador.
+     */
+    public HistogramaLatencia() {
+        int franjas = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors()) * 2 - 1);
+        this.mascaraFranjas = franjas - 1;
+        this.cubetas = new AtomicLongArray(franjas * CUBETAS);
+        this.suma = new LongAdder();
+    }
+
+    /**
+     * Registra una latencia.
+     * @param nanos La latencia en nanosegundos; los valores negativos cuentan como 0.
+     */
+    public void registrar(long nanos) {
+        long valor = Math.max(0, nanos);
+        int franja = (int) Thread.currentThread().threadId() & mascaraFranjas;
+        cubetas.getAndIncrement(franja * CUBETAS + cubeta(valor));
+        suma.add(valor);
+    }
+
+    /**
+     * Copia el estado actual. La copia no es atómica respecto de los
+     * registros concurrentes, pero cada cubeta es exacta.
+     * @return La copia del histograma.
+     */
+    public Instantanea instantanea() {
+        long[] conteos = new long[CUBETAS];
+        for (int i = 0; i < cubetas.length(); i++) {
+            conteos[i % CUBETAS] += cubetas.get(i);
+        }
+        return new Instantanea(conteos, suma.sum());
+    }
+
+    static int cubeta(long valor) {
+        if (valor < LINEALES) {
+            return (int) valor;
+        }
+        // desplazamiento tal que valor >>> desplazamiento queda en [32, 64)
+        int desplazamiento = 64 - Long.numberOfLeadingZeros(valor) - (BITS_SUBCUBETA + 1);
+        if (desplazamiento > DESPLAZAMIENTO_MAXIMO) {
+            return CUBETAS - 1;
+        }
+        return LINEALES + (desplazamiento - 1) * SUBCUBETAS + (int) (valor >>> desplazamiento) - SUBCUBETAS;
+    }
+
+    /**
+     * @return El mayor valor que cae en la cubeta.
+     */
+    static long limiteSuperior(int cubeta) {
+        if (cubeta < LINEALES) {
+            return cubeta;
+        }
+        int desplazamiento = (cubeta - LINEALES) / SUBCUBETAS + 1;
+        long mantisa = (cubeta - LINEALES) % SUBCUBETAS + SUBCUBETAS;
+        return ((mantisa + 1) << desplazamiento) - 1;
+    }
+
+    /**
+     * Copia inmutable de un histograma.
+     */
+    public static final class Instantanea {
+        private final long[] conteos;
+        private final long total;
+        private final long suma;
+
+        private Instantanea(long[] conteos, long suma) {
+            long total = 0;
+            for (long conteo : conteos) {
+                total += conteo;
+            }
+            this.conteos = conteos;
+            this.total = total;
+            this.suma = suma;
+        }
+
+        /**
+         * @return El número de valores registrados.
+         */
+        public long getConteo() {
+            return total;
+        }
+
+        /**
+         * @return La suma de los valores registrados, en nanosegundos.
+         */
+        public long getSuma() {
+            return suma;
+        }
+
+        /**
+         * @param percentil El percentil, de 0 a 100 (p. ej. 99.9).
+         * @return El valor del percentil en nanosegundos (límite superior de
+         *         su cubeta), o 0 si el histograma está vacío.
+         */
+        public long percentil(double percentil) {
+            assert percentil >= 0 && percentil <= 100 : "El percentil debe estar entre 0 y 100.";
+            if (total == 0) {
+                return 0;
+            }
+            long objetivo = Math.max(1, (long) Math.ceil(total * percentil / 100.0));
+            long acumulado = 0;
+            for (int i = 0; i < conteos.length; i++) {
+                acumulado += conteos[i];
+                if (acumulado >= objetivo) {
+                    return limiteSuperior(i);
+                }
+            }
+            return limiteSuperior(conteos.length - 1);
+        }
+
+        /**
+         * @return El mayor valor registrado (límite superior de su cubeta).
+         */
+        public long getMaximo() {
+            return percentil(100);
+        }
+    }
+}
@@ -0,0 +1,489 @@
+package biblioteca;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
+
+/**
+ * Historial de los préstamos y devoluciones de la biblioteca para consultas
+ * de circulación: libros más prestados, préstamos por licenciatura o por
+ * semestre y préstamos por día.
+ *
+ * <p>
+ * Cada evento es una fila de columnas primitivas (tipo, libro, usuario y
+ * día), 13 bytes por evento, en segmentos de tamaño fijo que sólo crecen.
+ * Los libros y los usuarios se guardan una vez en diccionarios y las filas
+ * llevan su número, así que las consultas no crean objetos por evento. Las
+ * consultas reparten los segmentos entre los hilos del
+ * {@link java.util.concurrent.ForkJoinPool} común.
+ *
+ * <p>
+ * Las anotaciones toman filas por bloques desde una franja elegida por el
+ * hilo, de modo que los préstamos concurrentes casi nunca compiten por la
+ * misma variable. El tipo de una fila se escribe al final con una escritura
+ * de liberación; las filas sin tipo todavía no están completas y las
+ * consultas las omiten. Una consulta ve los eventos anotados antes de
+ * empezar y quizá algunos posteriores.
+ *
+ * <p>
+ * El historial vive en memoria y empieza al crear o abrir la biblioteca: los
+ * préstamos restaurados desde disco no se anotan.
+ */
+public class HistorialPrestamos {
+    private static final byte PRESTAMO = 1;
+    private static final byte DEVOLUCION = 2;
+
+    private static final int BITS_SEGMENTO = 16;
+    private static final int TAMANO_SEGMENTO = 1 << BITS_SEGMENTO;
+    private static final int MASCARA_SEGMENTO = TAMANO_SEGMENTO - 1;
+    private static final int TAMANO_BLOQUE = 256; // Divide al segmento: un bloque no cruza segmentos
+    private static final VarHandle TIPO = MethodHandles.arrayElementVarHandle(byte[].class);
+
+    /**
+     * Cómo se agrupan los préstamos en una consulta.
+     */
+    private enum Agrupacion {
+        LIBRO, LICENCIATURA, SEMESTRE, DIA
+    }
+
+    private static final class Segmento {
+        private final byte[] tipos = new byte[TAMANO_SEGMENTO]; // 0 mientras la fila no está completa
+        private final int[] libros = new int[TAMANO_SEGMENTO];
+        private final int[] usuarios = new int[TAMANO_SEGMENTO];
+        private final int[] dias = new int[TAMANO_SEGMENTO];
+    }
+
+    /**
+     * Bloque de filas que anota un grupo de hilos.
+     */
+    private static final class Franja {
+        private long siguiente;
+        private long fin;
+    }
+
+    private final AtomicLong reservadas; // Filas entregadas a las franjas
+    private final Franja[] franjas;
+    private volatile Segmento[] segmentos;
+    private final LongAdder prestamos;
+    private final LongAdder devoluciones;
+    private final AtomicInteger diaMinimo;
+    private final AtomicInteger diaMaximo;
+
+    // Diccionarios; las altas se hacen con el candado, las lecturas no lo toman
+    private final Object candadoAlta;
+    private final IndiceClaves<Integer> idsLibro; // ISBN -> Id
+    private final IndiceClaves<Integer> idsUsuario; // ClaveUsuario -> Id
+    private final CatalogoPorFilas catalogo; // Null si el catálogo no es por filas
+    private volatile int[] idPorFila; // Fila del catálogo -> Id + 1, 0 mientras no se conoce
+    private volatile Libro[] librosPorId;
+    private volatile int[] licenciaturaDe; // Id de usuario -> Id de licenciatura
+    private volatile int[] semestreDe; // Id de usuario -> Id de semestre
+    private final Categorias<String> licenciaturas;
+    private final Categorias<Integer> semestres;
+    private int totalLibros;
+    private int totalUsuarios;
+
+    /**
+     * Constructor de la clase HistorialPrestamos.
+     * @param catalogo El catálogo de donde vienen los libros de los
+     *                 préstamos; si es un {@link CatalogoPorFilas}, el
+     *                 número de cada libro se recuerda por fila.
+     */
+    HistorialPrestamos(Catalogo catalogo) {
+        this.reservadas = new AtomicLong();
+        int totalFranjas = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 2 - 1)) * 2;
+        this.franjas = new Franja[totalFranjas];
+        for (int i = 0; i < franjas.length; i++) {
+            franjas[i] = new Franja();
+        }
+        this.segmentos = new Segmento[0];
+        this.prestamos = new LongAdder();
+        this.devoluciones = new LongAdder();
+        this.diaMinimo = new AtomicInteger(Integer.MAX_VALUE);
+        this.diaMaximo = new AtomicInteger(Integer.MIN_VALUE);
+        this.candadoAlta = new Object();
+        this.idsLibro = IndiceClaves.porIsbn();
+        this.idsUsuario = IndiceClaves.porClaveUsuario();
+        this.catalogo = catalogo instanceof CatalogoPorFilas porFilas ? porFilas : null;
+        this.idPorFila = new int[this.catalogo == null ? 0 : 16];
+        this.librosPorId = new Libro[16];
+        this.licenciaturaDe = new int[16];
+        this.semestreDe = new int[16];
+        this.licenciaturas = new Categorias<>();
+        this.semestres = new Categorias<>();
+    }
+
+    void anotarPrestamo(Prestamo prestamo) {
+        anotar(PRESTAMO, prestamo, prestamo.getDiaPrestamo());
+        prestamos.increment();
+    }
+
+    /**
+     * @param dia El día de la devolución, como días desde 01/01/1970.
+     */
+    void anotarDevolucion(Prestamo prestamo, long dia) {
+        anotar(DEVOLUCION, prestamo, dia);
+        devoluciones.increment();
+    }
+
+    private void anotar(byte tipo, Prestamo prestamo, long diaEpoca) {
+        int libro = idLibro(prestamo.getLibro());
+        int usuario = idUsuario(prestamo.getUsuario());
+        int dia = (int) diaEpoca; // Las fechas de dd/MM/yyyy caben en un int
+        if (dia < diaMinimo.get()) {
+            diaMinimo.accumulateAndGet(dia, Math::min);
+        }
+        if (dia > diaMaximo.get()) {
+            diaMaximo.accumulateAndGet(dia, Math::max);
+        }
+
+        long fila;
+        Franja franja = franjas[(int) Thread.currentThread().threadId() & (franjas.length - 1)];
+        synchronized (franja) {
+            if (franja.siguiente == franja.fin) {
+                long inicio = reservadas.getAndAdd(TAMANO_BLOQUE);
+                asegurarSegmento((int) (inicio >>> BITS_SEGMENTO));
+                franja.siguiente = inicio;
+                franja.fin = inicio + TAMANO_BLOQUE;
+            }
+            fila = franja.siguiente++;
+        }
+        Segmento segmento = segmentos[(int) (fila >>> BITS_SEGMENTO)];
+        int casilla = (int) (fila & MASCARA_SEGMENTO);
+        segmento.libros[casilla] = libro;
+        segmento.usuarios[casilla] = usuario;
+        segmento.dias[casilla] = dia;
+        TIPO.setRelease(segmento.tipos, casilla, tipo);
+    }
+
+    private void asegurarSegmento(int indice) {
+        if (indice < segmentos.length && segmentos[indice] != null) {
+            return;
+        }
+        synchronized (candadoAlta) {
+            Segmento[] actuales = segmentos;
+            if (indice >= actuales.length) {
+                actuales = Arrays.copyOf(actuales, Math.max(indice + 1, actuales.length * 2));
+            }
+            if (actuales[indice] == null) {
+                actuales[indice] = new Segmento();
+            }
+            segmentos = actuales;
+        }
+    }
+
+    /**
+     * Con un catálogo por filas el número se recuerda por fila, porque cada
+     * búsqueda en él devuelve un objeto nuevo para la misma fila y así no se
+     * normaliza el ISBN en cada evento. Si no, se busca en el diccionario,
+     * que no crea objetos para los ISBN con clave numérica.
+     */
+    private int idLibro(Libro libro) {
+        int fila = -1;
+        if (catalogo != null) {
+            fila = catalogo.fila(libro);
+            int[] ids = idPorFila;
+            if (fila < ids.length && ids[fila] != 0) {
+                return ids[fila] - 1;
+            }
+        }
+        Integer id = idsLibro.buscar(libro.getIsbn());
+        if (id != null) {
+            recordar(fila, id);
+            return id;
+        }
+        synchronized (candadoAlta) {
+            id = idsLibro.buscar(libro.getIsbn());
+            if (id != null) {
+                recordar(fila, id);
+                return id;
+            }
+            int nuevo = totalLibros++;
+            Libro[] actuales = librosPorId;
+            if (nuevo == actuales.length) {
+                actuales = Arrays.copyOf(actuales, actuales.length * 2);
+            }
+            actuales[nuevo] = libro;
+            librosPorId = actuales;
+            idsLibro.agregarSiAusente(libro.getIsbn(), nuevo);
+            recordar(fila, nuevo);
+            return nuevo;
+        }
+    }
+
+    /**
+     * @param fila La fila del libro en el catálogo, o -1 si no tiene filas.
+     */
+    private void recordar(int fila, int id) {
+        if (fila < 0) {
+            return;
+        }
+        synchronized (candadoAlta) {
+            int[] ids = idPorFila;
+            if (fila >= ids.length) {
+                ids = Arrays.copyOf(ids, Math.max(fila + 1, ids.length * 2));
+            }
+            ids[fila] = id + 1;
+            idPorFila = ids;
+        }
+    }
+
+    /**
+     * Las claves de usuario de hasta doce dígitos y mayúsculas se codifican
+     * en base 37, así que la búsqueda no crea objetos.
+     */
+    private int idUsuario(Usuario usuario) {
+        Integer id = idsUsuario.buscar(usuario.getClaveUsuario());
+        if (id != null) {
+            return id;
+        }
+        synchronized (candadoAlta) {
+            id = idsUsuario.buscar(usuario.getClaveUsuario());
+            if (id != null) {
+                return id;
+            }
+            int nuevo = totalUsuarios++;
+            int[] licenciatura = licenciaturaDe;
+            int[] semestre = semestreDe;
+            if (nuevo == licenciatura.length) {
+                licenciatura = Arrays.copyOf(licenciatura, licenciatura.length * 2);
+                semestre = Arrays.copyOf(semestre, semestre.length * 2);
+            }
+            licenciatura[nuevo] = licenciaturas.id(usuario.getLicenciatura());
+            semestre[nuevo] = semestres.id(usuario.getSemestre());
+            licenciaturaDe = licenciatura;
+            semestreDe = semestre;
+            idsUsuario.agregarSiAusente(usuario.getClaveUsuario(), nuevo);
+            return nuevo;
+        }
+    }
+
+    /**
+     * @return El número de préstamos anotados.
+     */
+    public long getPrestamos() {
+        return prestamos.sum();
+    }
+
+    /**
+     * @return El número de devoluciones anotadas.
+     */
+    public long getDevoluciones() {
+        return devoluciones.sum();
+    }
+
+    /**
+     * @param cantidad El número máximo de libros.
+     * @param desde    El primer día, incluido.
+     * @param hasta    El último día, excluido.
+     * @return Los libros más prestados en el intervalo con su número de
+     *         préstamos, del más prestado al menos; los empates, por orden
+     *         del primer préstamo.
+     */
+    public LinkedHashMap<Libro, Long> librosMasPrestados(int cantidad, LocalDate desde, LocalDate hasta) {
+        assert cantidad >= 0 : "La cantidad no puede ser negativa.";
+        Libro[] libros = librosPorId;
+        long[] conteos = contar(Agrupacion.LIBRO, dia(desde), dia(hasta), libros.length);
+
+        // Los mejores en un montículo de mínimos del tamaño pedido
+        PriorityQueue<Integer> mejores = new PriorityQueue<>(Math.max(1, cantidad),
+                (a, b) -> conteos[a] != conteos[b] ? Long.compare(conteos[a], conteos[b]) : Integer.compare(b, a));
+        for (int id = 0; id < conteos.length && cantidad > 0; id++) {
+            if (conteos[id] == 0) {
+                continue;
+            }
+            if (mejores.size() < cantidad) {
+                mejores.add(id);
+            } else if (mejores.comparator().compare(id, mejores.peek()) > 0) {
+                mejores.poll();
+                mejores.add(id);
+            }
+        }
+        Integer[] orden = mejores.toArray(new Integer[0]);
+        Arrays.sort(orden, mejores.comparator().reversed());
+        LinkedHashMap<Libro, Long> resultado = new LinkedHashMap<>();
+        for (int id : orden) {
+            resultado.put(libros[id], conteos[id]);
+        }
+        return resultado;
+    }
+
+    /**
+     * @param desde El primer día, incluido.
+     * @param hasta El último día, excluido.
+     * @return El número de préstamos de cada licenciatura en el intervalo,
+     *         según la licenciatura de cada usuario.
+     */
+    public NavigableMap<String, Long> prestamosPorLicenciatura(LocalDate desde, LocalDate hasta) {
+        return agrupar(Agrupacion.LICENCIATURA, licenciaturas, desde, hasta);
+    }
+
+    /**
+     * @param desde El primer día, incluido.
+     * @param hasta El último día, excluido.
+     * @return El número de préstamos de cada semestre en el intervalo, según
+     *         el semestre de cada usuario.
+     */
+    public NavigableMap<Integer, Long> prestamosPorSemestre(LocalDate desde, LocalDate hasta) {
+        return agrupar(Agrupacion.SEMESTRE, semestres, desde, hasta);
+    }
+
+    /**
+     * @param desde El primer día, incluido.
+     * @param hasta El último día, excluido.
+     * @return El número de préstamos de cada día del intervalo que tuvo
+     *         préstamos, por fecha de préstamo.
+     */
+    public NavigableMap<LocalDate, Long> prestamosPorDia(LocalDate desde, LocalDate hasta) {
+        NavigableMap<LocalDate, Long> porDia = new TreeMap<>();
+        // El intervalo se recorta a los días con eventos, así que su tamaño
+        // está acotado aunque se pidan fechas extremas
+        int primero = Math.max(dia(desde), diaMinimo.get());
+        int ultimo = Math.min(dia(hasta), diaMaximo.get() + 1);
+        if (primero >= ultimo) {
+            return porDia;
+        }
+        long[] conteos = contar(Agrupacion.DIA, primero, ultimo, ultimo - primero);
+        for (int i = 0; i < conteos.length; i++) {
+            if (conteos[i] > 0) {
+                porDia.put(LocalDate.ofEpochDay(primero + (long) i), conteos[i]);
+            }
+        }
+        return porDia;
+    }
+
+    private <T extends Comparable<T>> NavigableMap<T, Long> agrupar(Agrupacion agrupacion, Categorias<T> categorias,
+            LocalDate desde, LocalDate hasta) {
+        Object[] valores = categorias.valores;
+        long[] conteos = contar(agrupacion, dia(desde), dia(hasta), valores.length);
+        NavigableMap<T, Long> resultado = new TreeMap<>();
+        for (int id = 0; id < conteos.length; id++) {
+            if (conteos[id] > 0) {
+                @SuppressWarnings("unchecked")
+                T valor = (T) valores[id];
+                resultado.put(valor, conteos[id]);
+            }
+        }
+        return resultado;
+    }
+
+    /**
+     * Cuenta los préstamos del intervalo por grupo, un segmento por tarea.
+     * Cada hilo acumula en su propio arreglo y los arreglos se suman al
+     * final; los grupos fuera del arreglo (altas posteriores al inicio de la
+     * consulta) se omiten.
+     */
+    private long[] contar(Agrupacion agrupacion, int desde, int hasta, int grupos) {
+        Segmento[] todos = segmentos;
+        int total = (int) Math.min(todos.length, (reservadas.get() + MASCARA_SEGMENTO) >>> BITS_SEGMENTO);
+        int[] usuarioAGrupo = agrupacion == Agrupacion.LICENCIATURA ? licenciaturaDe
+                : agrupacion == Agrupacion.SEMESTRE ? semestreDe : null;
+        if (desde >= hasta) {
+            return new long[grupos];
+        }
+        return IntStream.range(0, total).parallel().collect(() -> new long[grupos],
+                (conteos, indice) -> contarSegmento(todos[indice], agrupacion, desde, hasta, usuarioAGrupo, conteos),
+                HistorialPrestamos::sumar);
+    }
+
+    private static void contarSegmento(Segmento segmento, Agrupacion agrupacion, int desde, int hasta,
+            int[] usuarioAGrupo, long[] conteos) {
+        if (segmento == null) {
+            return;
+        }
+        byte[] tipos = segmento.tipos;
+        int[] dias = segmento.dias;
+        // Un ciclo por agrupación, para que cada uno se compile sin ramas
+        // por fila más allá del filtro. El tipo se lee primero, con
+        // adquisición: sólo después de verlo publicado son válidas las
+        // demás columnas de la fila
+        switch (agrupacion) {
+            case LIBRO: {
+                int[] libros = segmento.libros;
+                for (int i = 0; i < TAMANO_SEGMENTO; i++) {
+                    if ((byte) TIPO.getAcquire(tipos, i) != PRESTAMO) {
+                        continue;
+                    }
+                    int dia = dias[i];
+                    int libro = libros[i];
+                    if (dia >= desde && dia < hasta && libro < conteos.length) {
+                        conteos[libro]++;
+                    }
+                }
+                break;
+            }
+            case DIA: {
+                for (int i = 0; i < TAMANO_SEGMENTO; i++) {
+                    if ((byte) TIPO.getAcquire(tipos, i) != PRESTAMO) {
+                        continue;
+                    }
+                    int dia = dias[i];
+                    if (dia >= desde && dia < hasta) {
+                        conteos[dia - desde]++;
+                    }
+                }
+                break;
+            }
+            default: {
+                int[] usuarios = segmento.usuarios;
+                for (int i = 0; i < TAMANO_SEGMENTO; i++) {
+                    if ((byte) TIPO.getAcquire(tipos, i) != PRESTAMO) {
+                        continue;
+                    }
+                    int dia = dias[i];
+                    int usuario = usuarios[i];
+                    if (dia >= desde && dia < hasta && usuario < usuarioAGrupo.length) {
+                        int grupo = usuarioAGrupo[usuario];
+                        if (grupo < conteos.length) {
+                            conteos[grupo]++;
+                        }
+                    }
+                }
+                break;
+            }
+        }
+    }
+
+    private static void sumar(long[] destino, long[] origen) {
+        for (int i = 0; i < destino.length; i++) {
+            destino[i] += origen[i];
+        }
+    }
+
+    private static int dia(LocalDate fecha) {
+        long dia = fecha.toEpochDay();
+        return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, dia));
+    }
+
+    /**
+     * Diccionario de valores de un atributo del usuario; las altas se hacen
+     * con el candado del historial.
+     */
+    private static final class Categorias<T> {
+        private final Map<T, Integer> ids = new HashMap<>();
+        private volatile Object[] valores = new Object[0];
+
+        private int id(T valor) {
+            Integer id = ids.get(valor);
+            if (id == null) {
+                id = ids.size();
+                ids.put(valor, id);
+                Object[] nuevos = Arrays.copyOf(valores, id + 1);
+                nuevos[id] = valor;
+                valores = nuevos;
+            }
+            return id;
+        }
+    }
+}
@@ -0,0 +1,480 @@
+package biblioteca;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntConsumer;
+
+/**
+ * Importación masiva de libros o usuarios desde un archivo CSV de cuatro
+ * columnas, con un encabezado opcional. Los campos pueden ir entre comillas
+ * dobles, con {@code ""} para una comilla, pero no pueden contener saltos de
+ * línea.
+ *
+ * <p>
+ * El archivo se divide en trozos de bytes que se leen, separan y validan en
+ * paralelo, uno por hilo, cada hilo con su propio búfer reutilizable y
+ * lecturas posicionales del canal, sin decodificar más que los campos. Cada
+ * trozo empieza en la primera línea que comienza dentro de él. Los trozos
+ * validados se insertan en orden, de a uno y en un solo hilo, así que entre
+ * filas repetidas gana la primera del archivo; mientras se inserta un trozo
+ * los siguientes se siguen leyendo.
+ *
+ * <p>
+ * Las filas rechazadas se escriben en un archivo CSV aparte con su número
+ * de línea, el código del motivo, el mensaje y el texto original.
+ *
+ * @param <T> La fila validada y preparada para insertarse.
+ */
+final class ImportadorCsv<T> {
+    static final int TAMANO_TROZO = 8 << 20;
+    private static final int TAMANO_BUFER = 1 << 20;
+    private static final int CAMPOS = 4;
+    static final String ENCABEZADO_RECHAZOS = "linea,codigo,motivo,registro";
+    /** Código de rechazo de una línea que no tiene cuatro campos CSV. */
+    static final String CAMPOS_INVALIDOS = "CAMPOS_INVALIDOS";
+
+    private static final ThreadLocal<byte[]> BUFER = ThreadLocal.withInitial(() -> new byte[TAMANO_BUFER]);
+
+    /**
+     * Valida y prepara las filas de un tipo de registro. Se llama desde varios
+     * hilos a la vez.
+     */
+    interface Formato<T> {
+        /** @return El nombre de la primera columna del encabezado. */
+        String encabezado();
+
+        /** @return El código del primer campo inválido, o null. */
+        ResultadoOperacion.Codigo validar(String[] campos);
+
+        /** Crea la fila a partir de campos ya validados. */
+        T preparar(String[] campos);
+
+        /** @return La clave de la fila para los mensajes de rechazo. */
+        String clave(T fila);
+
+        /** @return Los campos de la fila, para el archivo de rechazos. */
+        String[] campos(T fila);
+    }
+
+    /**
+     * Inserta un trozo de filas validadas, en orden.
+     */
+    interface Destino<T> {
+        /**
+         * @param filas      Las filas del trozo.
+         * @param resultados Recibe el código de cada fila rechazada; las
+         *                   importadas quedan en null.
+         */
+        void insertar(List<T> filas, ResultadoOperacion.Codigo[] resultados);
+    }
+
+    /**
+     * Fila de libro con el libro ya creado y sus términos de búsqueda ya
+     * calculados, fuera de la inserción, que es secuencial.
+     */
+    static final class FilaLibro {
+        final Libro libro;
+        final String[] terminosTitulo;
+        final String[] terminosAutor;
+
+        FilaLibro(String isbn, String titulo, String autor, int totalCopias) {
+            this.libro = new Libro(isbn, titulo, autor, totalCopias);
+            this.terminosTitulo = IndiceTexto.terminos(titulo);
+            this.terminosAutor = IndiceTexto.terminos(autor);
+            // El hash de un String se guarda al calcularlo: hacerlo aquí, en
+            // paralelo, lo quita de la inserción
+            isbn.hashCode();
+            calcularHashes(terminosTitulo);
+            calcularHashes(terminosAutor);
+        }
+
+        private static void calcularHashes(String[] terminos) {
+            for (String termino : terminos) {
+                termino.hashCode();
+            }
+        }
+    }
+
+    /**
+     * @return Un importador de libros con las columnas {@code isbn,titulo,autor,copias}.
+     */
+    static ImportadorCsv<FilaLibro> libros() {
+        return new ImportadorCsv<>(new Formato<FilaLibro>() {
+            @Override
+            public String encabezado() {
+                return "isbn";
+            }
+
+            @Override
+            public ResultadoOperacion.Codigo validar(String[] campos) {
+                return Biblioteca.validarCamposLibro(campos[0], campos[1], campos[2], campos[3]);
+            }
+
+            @Override
+            public FilaLibro preparar(String[] campos) {
+                return new FilaLibro(campos[0], campos[1], campos[2], (int) Biblioteca.parsearEntero(campos[3]));
+            }
+
+            @Override
+            public String clave(FilaLibro fila) {
+                return fila.libro.getIsbn();
+            }
+
+            @Override
+            public String[] campos(FilaLibro fila) {
+                Libro libro = fila.libro;
+                return new String[] { libro.getIsbn(), libro.getTitulo(), libro.getAutor(),
+                        Integer.toString(libro.getTotalCopias()) };
+            }
+        });
+    }
+
+    /**
+     * @return Un importador de usuarios con las columnas
+     *         {@code claveUsuario,nombre,licenciatura,semestre}.
+     */
+    static ImportadorCsv<Usuario> usuarios() {
+        return new ImportadorCsv<>(new Formato<Usuario>() {
+            @Override
+            public String encabezado() {
+                return "claveUsuario";
+            }
+
+            @Override
+            public ResultadoOperacion.Codigo validar(String[] campos) {
+                return Biblioteca.validarCamposUsuario(campos[0], campos[1], campos[2], campos[3]);
+            }
+
+            @Override
+            public Usuario preparar(String[] campos) {
+                return new Usuario(campos[0], campos[1], campos[2], (int) Biblioteca.parsearEntero(campos[3]));
+            }
+
+            @Override
+            public String clave(Usuario fila) {
+                return fila.getClaveUsuario();
+            }
+
+            @Override
+            public String[] campos(Usuario fila) {
+                return new String[] { fila.getClaveUsuario(), fila.getNombre(), fila.getLicenciatura(),
+                        Integer.toString(fila.getSemestre()) };
+            }
+        });
+    }
+
+    private final Formato<T> formato;
+
+    private ImportadorCsv(Formato<T> formato) {
+        this.formato = formato;
+    }
+
+    /**
+     * Importa el archivo.
+     * @param archivo   El archivo CSV.
+     * @param rechazos  El archivo donde se escriben las filas rechazadas; se
+     *                  reemplaza si existe.
+     * @param reservar  Recibe, antes de la primera inserción, una estimación
+     *                  del número de filas del archivo.
+     * @param destino   Inserta las filas validadas.
+     * @return Los conteos de la importación.
+     * @throws IOException Si falla la lectura del archivo o la escritura de
+     *                     los rechazos.
+     */
+    ResultadoImportacion importar(Path archivo, Path rechazos, IntConsumer reservar, Destino<T> destino)
+            throws IOException {
+        long[] porCodigo = new long[ResultadoOperacion.Codigo.values().length];
+        long malformadas = 0;
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ);
+                Writer salida = Files.newBufferedWriter(rechazos, StandardCharsets.UTF_8)) {
+            long tamano = canal.size();
+            int trozos = (int) Math.max(1, (tamano + TAMANO_TROZO - 1) / TAMANO_TROZO);
+            int hilos = Math.min(trozos, Runtime.getRuntime().availableProcessors());
+            ExecutorService ejecutor = Executors.newFixedThreadPool(hilos, tarea -> {
+                Thread hilo = new Thread(tarea, "biblioteca-importacion");
+                hilo.setDaemon(true);
+                return hilo;
+            });
+            try {
+                salida.write(ENCABEZADO_RECHAZOS);
+                salida.write('\n');
+                StringBuilder linea = new StringBuilder();
+                ArrayDeque<Future<Trozo<T>>> pendientes = new ArrayDeque<>();
+                int siguiente = 0;
+                long primeraLinea = 1;
+                for (int i = 0; i < trozos; i++) {
+                    // Se leen por adelantado unos pocos trozos para acotar la memoria
+                    while (siguiente < trozos && pendientes.size() < hilos * 2) {
+                        long inicio = (long) siguiente * TAMANO_TROZO;
+                        long fin = Math.min(tamano, inicio + TAMANO_TROZO);
+                        pendientes.add(ejecutor.submit(() -> leer(canal, inicio, fin)));
+                        siguiente++;
+                    }
+                    Trozo<T> trozo = pendientes.poll().get();
+                    if (i == 0) {
+                        reservar.accept((int) Math.min(Integer.MAX_VALUE, (long) trozo.filas.size() * trozos));
+                    }
+
+                    ResultadoOperacion.Codigo[] resultados = new ResultadoOperacion.Codigo[trozo.filas.size()];
+                    destino.insertar(trozo.filas, resultados);
+
+                    // Rechazos de la validación y de la inserción, en orden de línea
+                    int r = 0;
+                    for (int f = 0; f < resultados.length; f++) {
+                        while (r < trozo.rechazos.size() && trozo.rechazos.get(r).linea < trozo.lineaDeFila[f]) {
+                            escribirRechazo(trozo.rechazos.get(r++), primeraLinea, linea, salida);
+                        }
+                        ResultadoOperacion.Codigo codigo = resultados[f];
+                        if (codigo == null) {
+                            porCodigo[ResultadoOperacion.Codigo.EXITO.ordinal()]++;
+                        } else {
+                            porCodigo[codigo.ordinal()]++;
+                            T fila = trozo.filas.get(f);
+                            escribirRechazo(new Rechazo(trozo.lineaDeFila[f], codigo.name(),
+                                    ResultadoOperacion.de(codigo).getMensaje(formato.clave(fila)), registro(formato.campos(fila))), primeraLinea,
+                                    linea, salida);
+                        }
+                    }
+                    while (r < trozo.rechazos.size()) {
+                        escribirRechazo(trozo.rechazos.get(r++), primeraLinea, linea, salida);
+                    }
+                    for (Rechazo rechazo : trozo.rechazos) {
+                        if (rechazo.validacion == null) {
+                            malformadas++;
+                        } else {
+                            porCodigo[rechazo.validacion.ordinal()]++;
+                        }
+                    }
+                    primeraLinea += trozo.lineas;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Importación interrumpida: " + archivo);
+            } catch (ExecutionException e) {
+                Throwable causa = e.getCause();
+                if (causa instanceof UncheckedIOException entradaSalida) {
+                    throw entradaSalida.getCause();
+                }
+                if (causa instanceof RuntimeException enEjecucion) {
+                    throw enEjecucion;
+                }
+                throw (Error) causa;
+            } finally {
+                ejecutor.shutdownNow();
+            }
+        }
+        return new ResultadoImportacion(porCodigo, malformadas);
+    }
+
+    private static String registro(String[] campos) {
+        StringBuilder texto = new StringBuilder();
+        for (int i = 0; i < campos.length; i++) {
+            if (i > 0) {
+                texto.append(',');
+            }
+            ReporteBiblioteca.agregarCsv(texto, campos[i]);
+        }
+        return texto.toString();
+    }
+
+    private static void escribirRechazo(Rechazo rechazo, long primeraLinea, StringBuilder linea, Writer salida)
+            throws IOException {
+        linea.setLength(0);
+        linea.append(primeraLinea + rechazo.linea).append(',').append(rechazo.codigo).append(',');
+        ReporteBiblioteca.agregarCsv(linea, rechazo.motivo);
+        linea.append(',');
+        ReporteBiblioteca.agregarCsv(linea, rechazo.texto);
+        linea.append('\n');
+        salida.append(linea);
+    }
+
+    /**
+     * Lee, separa y valida las líneas que comienzan en {@code [inicio, fin)}.
+     * La última puede terminar después de {@code fin}.
+     */
+    private Trozo<T> leer(FileChannel canal, long inicio, long fin) {
+        Trozo<T> trozo = new Trozo<>();
+        String[] campos = new String[CAMPOS];
+        byte[] datos = BUFER.get();
+        // Desde el byte anterior, para saber si el trozo empieza en una línea
+        long base = inicio == 0 ? 0 : inicio - 1;
+        boolean saltando = inicio > 0;
+        int posicion = 0;
+        int limite = 0;
+        boolean finArchivo = false;
+        try {
+            while (true) {
+                int salto = posicion;
+                while (salto < limite && datos[salto] != '\n') {
+                    salto++;
+                }
+                if (salto == limite && !finArchivo) {
+                    // Línea incompleta: se mueve al inicio del búfer y se sigue leyendo
+                    if (posicion > 0) {
+                        System.arraycopy(datos, posicion, datos, 0, limite - posicion);
+                        base += posicion;
+                        limite -= posicion;
+                        posicion = 0;
+                    }
+                    if (limite == datos.length) {
+                        datos = Arrays.copyOf(datos, datos.length * 2);
+                        BUFER.set(datos);
+                    }
+                    int leidos = canal.read(ByteBuffer.wrap(datos, limite, datos.length - limite), base + limite);
+                    if (leidos < 0) {
+                        finArchivo = true;
+                    } else {
+                        limite += leidos;
+                    }
+                    continue;
+                }
+                if (salto == limite && posicion == limite) {
+                    break; // Fin del archivo tras el último salto de línea
+                }
+                if (saltando) {
+                    saltando = false;
+                } else if (base + posicion < fin) {
+                    procesar(datos, posicion, salto, campos, trozo, inicio == 0 && trozo.lineas == 0);
+                    trozo.lineas++;
+                } else {
+                    break;
+                }
+                if (salto == limite) {
+                    break; // Fin del archivo
+                }
+                posicion = salto + 1;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return trozo;
+    }
+
+    private void procesar(byte[] datos, int desde, int hasta, String[] campos, Trozo<T> trozo, boolean primera) {
+        if (hasta > desde && datos[hasta - 1] == '\r') {
+            hasta--;
+        }
+        if (hasta == desde) {
+            return; // Las líneas vacías se ignoran
+        }
+        if (!separar(datos, desde, hasta, campos)) {
+            trozo.rechazos.add(new Rechazo(trozo.lineas, CAMPOS_INVALIDOS,
+                    "El registro debe tener " + CAMPOS + " campos separados por comas.",
+                    new String(datos, desde, hasta - desde, StandardCharsets.UTF_8)));
+            return;
+        }
+        if (primera && campos[0].equalsIgnoreCase(formato.encabezado())) {
+            return;
+        }
+        ResultadoOperacion.Codigo invalido = formato.validar(campos);
+        if (invalido != null) {
+            Rechazo rechazo = new Rechazo(trozo.lineas, invalido.name(), ResultadoOperacion.de(invalido).getMensaje(campos[0]),
+                    new String(datos, desde, hasta - desde, StandardCharsets.UTF_8));
+            rechazo.validacion = invalido;
+            trozo.rechazos.add(rechazo);
+            return;
+        }
+        trozo.agregar(formato.preparar(campos), trozo.lineas);
+    }
+
+    /**
+     * Separa una línea en exactamente {@link #CAMPOS} campos.
+     * @return false si la línea no tiene ese número de campos o tiene
+     *         comillas mal cerradas.
+     */
+    private static boolean separar(byte[] datos, int desde, int hasta, String[] campos) {
+        int n = 0;
+        int i = desde;
+        while (true) {
+            if (n == CAMPOS) {
+                return false;
+            }
+            if (i < hasta && datos[i] == '"') {
+                int j = i + 1;
+                boolean dobles = false;
+                while (true) {
+                    if (j >= hasta) {
+                        return false;
+                    }
+                    if (datos[j] == '"') {
+                        if (j + 1 < hasta && datos[j + 1] == '"') {
+                            dobles = true;
+                            j += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    j++;
+                }
+                String campo = new String(datos, i + 1, j - i - 1, StandardCharsets.UTF_8);
+                campos[n++] = dobles ? campo.replace("\"\"", "\"") : campo;
+                i = j + 1;
+                if (i < hasta && datos[i] != ',') {
+                    return false;
+                }
+            } else {
+                int j = i;
+                while (j < hasta && datos[j] != ',') {
+                    j++;
+                }
+                campos[n++] = new String(datos, i, j - i, StandardCharsets.UTF_8);
+                i = j;
+            }
+            if (i >= hasta) {
+                return n == CAMPOS;
+            }
+            i++; // La coma
+        }
+    }
+
+    /**
+     * Filas validadas y rechazos de un trozo; las líneas se numeran desde 0
+     * dentro del trozo.
+     */
+    private static final class Trozo<T> {
+        private final List<T> filas = new ArrayList<>();
+        private int[] lineaDeFila = new int[64];
+        private final List<Rechazo> rechazos = new ArrayList<>();
+        private int lineas;
+
+        private void agregar(T fila, int linea) {
+            int indice = filas.size();
+            if (indice == lineaDeFila.length) {
+                lineaDeFila = Arrays.copyOf(lineaDeFila, indice * 2);
+            }
+            filas.add(fila);
+            lineaDeFila[indice] = linea;
+        }
+    }
+
+    private static final class Rechazo {
+        private final int linea;
+        private final String codigo;
+        private final String motivo;
+        private final String texto;
+        private ResultadoOperacion.Codigo validacion; // null si la línea está malformada
+
+        private Rechazo(int linea, String codigo, String motivo, String texto) {
+            this.linea = linea;
+            this.codigo = codigo;
+            this.motivo = motivo;
+            this.texto = texto;
+        }
+    }
+}
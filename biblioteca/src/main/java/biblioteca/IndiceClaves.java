@@ -0,0 +1,361 @@
+package biblioteca;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
+
+/**
+ * Índice concurrente de valores por clave de texto que guarda las claves
+ * como números. Cada clave de texto se codifica en un {@code long} no
+ * negativo y se guarda en una tabla hash de direccionamiento abierto sobre
+ * arreglos primitivos, sin objetos por entrada; buscar no crea objetos ni
+ * compara cadenas. Las claves que no se pueden codificar se guardan aparte
+ * en un mapa concurrente por su texto.
+ *
+ * <p>
+ * Las entradas nunca se eliminan. Las altas se serializan con un candado y
+ * las búsquedas no toman candados: el valor se escribe antes de publicar la
+ * clave en su casilla con una escritura de liberación, y al crecer la tabla
+ * se construye una nueva que se publica completa.
+ *
+ * @param <V> El tipo de los valores.
+ */
+public class IndiceClaves<V> implements Iterable<V> {
+    /** Valor que debe devolver el codificador si la clave no se puede codificar. */
+    public static final long SIN_CODIGO = -1L;
+
+    // Alfabeto de las claves de usuario codificables: dígitos y mayúsculas
+    private static final int BASE_CLAVE_USUARIO = 37;
+    private static final int LONGITUD_MAXIMA_CLAVE_USUARIO = 12;
+
+    private static final VarHandle CASILLA = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private final ToLongFunction<CharSequence> codificador;
+    private final Map<String, V> sinCodigo;
+    private final Object candadoAlta;
+    private volatile Tabla tabla;
+    private volatile int codificadas;
+
+    /**
+     * Constructor de la clase IndiceClaves.
+     * @param codificador Convierte una clave en un número no negativo, o en
+     *                    {@link #SIN_CODIGO}. Claves distintas deben dar
+     *                    números distintos.
+     */
+    public IndiceClaves(ToLongFunction<CharSequence> codificador) {
+        assert codificador != null : "El codificador no puede ser nulo.";
+
+        this.codificador = codificador;
+        this.sinCodigo = new ConcurrentHashMap<>();
+        this.candadoAlta = new Object();
+        this.tabla = new Tabla(16);
+    }
+
+    /**
+     * @param <V> El tipo de los valores.
+     * @return Un índice por ISBN normalizado con {@link Isbn#clave(CharSequence)}.
+     */
+    public static <V> IndiceClaves<V> porIsbn() {
+        return new IndiceClaves<>(Isbn::clave);
+    }
+
+    /**
+     * @param <V> El tipo de los valores.
+     * @return Un índice por clave de usuario.
+     */
+    public static <V> IndiceClaves<V> porClaveUsuario() {
+        return new IndiceClaves<>(IndiceClaves::codificarClaveUsuario);
+    }
+
+    /**
+     * Codifica una clave de usuario de hasta doce dígitos o letras
+     * mayúsculas (p. ej. "U001") como un número en base 37, donde el 0 se
+     * reserva para "sin carácter" para que "U01" y "U001" no coincidan.
+     * @param clave La clave de usuario.
+     * @return El código, o {@link #SIN_CODIGO} si la clave no sigue ese patrón.
+     */
+    static long codificarClaveUsuario(CharSequence clave) {
+        if (clave == null || clave.length() == 0 || clave.length() > LONGITUD_MAXIMA_CLAVE_USUARIO) {
+            return SIN_CODIGO;
+        }
+        long codigo = 0;
+        for (int i = 0; i < clave.length(); i++) {
+            char c = clave.charAt(i);
+            int digito;
+            if (c >= '0' && c <= '9') {
+                digito = c - '0' + 1;
+            } else if (c >= 'A' && c <= 'Z') {
+                digito = c - 'A' + 11;
+            } else {
+                return SIN_CODIGO;
+            }
+            codigo = codigo * BASE_CLAVE_USUARIO + digito;
+        }
+        return codigo;
+    }
+
+    /**
+     * @param clave La clave.
+     * @return El valor de la clave, o null si no está en el índice.
+     */
+    public V buscar(String clave) {
+        long codigo = codificador.applyAsLong(clave);
+        if (codigo == SIN_CODIGO) {
+            return sinCodigo.get(clave);
+        }
+        return tabla.buscar(codigo);
+    }
+
+    /**
+     * @param clave La clave.
+     * @return true si la clave está en el índice.
+     */
+    public boolean contiene(String clave) {
+        return buscar(clave) != null;
+    }
+
+    /**
+     * Agrega el valor si la clave no estaba en el índice. Si dos hilos
+     * agregan la misma clave a la vez, sólo uno de ellos lo consigue.
+     * @param clave La clave.
+     * @param valor El valor.
+     * @return El valor que ya tenía la clave, o null si se agregó.
+     */
+    public V agregarSiAusente(String clave, V valor) {
+        assert valor != null : "El valor no puede ser nulo.";
+        long codigo = codificador.applyAsLong(clave);
+        if (codigo == SIN_CODIGO) {
+            return sinCodigo.putIfAbsent(clave, valor);
+        }
+        synchronized (candadoAlta) {
+            Tabla actual = tabla;
+            V existente = actual.buscar(codigo);
+            if (existente != null) {
+                return existente;
+            }
+            if ((codificadas + 1) * 2L > actual.capacidad()) {
+                actual = actual.ampliada(actual.capacidad() * 2);
+                tabla = actual;
+            }
+            actual.insertar(codigo, valor, true);
+            codificadas++;
+            return null;
+        }
+    }
+
+    /**
+     * Agrega varios valores tomando el candado de alta una sola vez y
+     * ampliando la tabla a lo sumo una vez, p. ej. para un trozo de una
+     * importación masiva. Entre claves repetidas gana la primera.
+     * @param claves   Las claves.
+     * @param valores  Los valores; cada uno se reemplaza por null si su clave
+     *                 ya estaba en el índice o se repite antes en el arreglo.
+     * @param cantidad El número de claves de los arreglos.
+     * @return El número de valores agregados.
+     */
+    public int agregarTodos(String[] claves, V[] valores, int cantidad) {
+        long[] codigos = new long[cantidad];
+        int agregados = 0;
+        for (int i = 0; i < cantidad; i++) {
+            assert valores[i] != null : "El valor no puede ser nulo.";
+            codigos[i] = codificador.applyAsLong(claves[i]);
+            if (codigos[i] == SIN_CODIGO) {
+                if (sinCodigo.putIfAbsent(claves[i], valores[i]) != null) {
+                    valores[i] = null;
+                } else {
+                    agregados++;
+                }
+            }
+        }
+        synchronized (candadoAlta) {
+            ampliarPara(cantidad);
+            Tabla actual = tabla;
+            int nuevas = 0;
+            for (int i = 0; i < cantidad; i++) {
+                if (codigos[i] == SIN_CODIGO) {
+                    continue;
+                }
+                if (actual.buscar(codigos[i]) != null) {
+                    valores[i] = null;
+                } else {
+                    actual.insertar(codigos[i], valores[i], true);
+                    nuevas++;
+                }
+            }
+            codificadas += nuevas;
+            return agregados + nuevas;
+        }
+    }
+
+    /**
+     * Amplía la tabla de una vez para que quepan las claves nuevas sin volver
+     * a crecer, p. ej. antes de una importación masiva.
+     * @param adicionales El número de claves que se espera agregar.
+     */
+    public void reservar(int adicionales) {
+        assert adicionales >= 0 : "El número de claves no puede ser negativo.";
+        synchronized (candadoAlta) {
+            ampliarPara(adicionales);
+        }
+    }
+
+    /**
+     * Amplía la tabla si no caben las claves nuevas. Se llama con el candado
+     * de alta tomado.
+     */
+    private void ampliarPara(int adicionales) {
+        Tabla actual = tabla;
+        long necesaria = (codificadas + (long) adicionales) * 2;
+        if (necesaria > actual.capacidad()) {
+            int capacidad = (int) Math.min(1 << 30, Long.highestOneBit(necesaria - 1) << 1);
+            tabla = actual.ampliada(capacidad);
+        }
+    }
+
+    /**
+     * @return El número de claves en el índice.
+     */
+    public int tamano() {
+        return codificadas + sinCodigo.size();
+    }
+
+    public boolean estaVacio() {
+        return tamano() == 0;
+    }
+
+    /**
+     * Recorre todos los valores del índice, sin un orden definido.
+     * @param accion La acción a aplicar a cada valor.
+     */
+    public void paraCada(Consumer<? super V> accion) {
+        tabla.paraCada(accion);
+        sinCodigo.values().forEach(accion);
+    }
+
+    /**
+     * Recorre los valores en el mismo orden que {@link #paraCada(Consumer)}.
+     * @return Un iterador de sólo lectura.
+     */
+    @Override
+    public Iterator<V> iterator() {
+        Tabla actual = tabla;
+        Iterator<V> resto = sinCodigo.values().iterator();
+        return new Iterator<V>() {
+            private int casilla = actual.siguienteOcupada(0);
+
+            @Override
+            public boolean hasNext() {
+                return casilla < actual.capacidad() || resto.hasNext();
+            }
+
+            @Override
+            public V next() {
+                if (casilla < actual.capacidad()) {
+                    V valor = actual.valor(casilla);
+                    casilla = actual.siguienteOcupada(casilla + 1);
+                    return valor;
+                }
+                if (!resto.hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return resto.next();
+            }
+        };
+    }
+
+    /**
+     * Tabla de direccionamiento abierto con sondeo lineal. Cada casilla
+     * guarda el código más uno, de modo que 0 indica una casilla vacía.
+     */
+    private final class Tabla {
+        private final long[] codigos;
+        private final Object[] valores;
+
+        private Tabla(int capacidad) {
+            this.codigos = new long[capacidad];
+            this.valores = new Object[capacidad];
+        }
+
+        private int capacidad() {
+            return codigos.length;
+        }
+
+        @SuppressWarnings("unchecked")
+        private V buscar(long codigo) {
+            int mascara = codigos.length - 1;
+            for (int i = mezclar(codigo) & mascara;; i = (i + 1) & mascara) {
+                long guardado = (long) CASILLA.getAcquire(codigos, i);
+                if (guardado == 0) {
+                    return null;
+                }
+                if (guardado == codigo + 1) {
+                    return (V) valores[i];
+                }
+            }
+        }
+
+        private void insertar(long codigo, Object valor, boolean liberar) {
+            int mascara = codigos.length - 1;
+            int i = mezclar(codigo) & mascara;
+            while (codigos[i] != 0) {
+                i = (i + 1) & mascara;
+            }
+            valores[i] = valor;
+            if (liberar) {
+                CASILLA.setRelease(codigos, i, codigo + 1);
+            } else {
+                codigos[i] = codigo + 1;
+            }
+        }
+
+        /**
+         * @return Una tabla con la capacidad indicada, potencia de dos, y las
+         *         mismas entradas. Se llama con el candado de alta tomado.
+         */
+        private Tabla ampliada(int capacidad) {
+            Tabla nueva = new Tabla(capacidad);
+            for (int i = 0; i < codigos.length; i++) {
+                if (codigos[i] != 0) {
+                    nueva.insertar(codigos[i] - 1, valores[i], false);
+                }
+            }
+            return nueva;
+        }
+
+        /**
+         * @return La primera casilla ocupada desde la indicada, o la
+         *         capacidad si no queda ninguna.
+         */
+        private int siguienteOcupada(int desde) {
+            int i = desde;
+            while (i < codigos.length && (long) CASILLA.getAcquire(codigos, i) == 0) {
+                i++;
+            }
+            return i;
+        }
+
+        @SuppressWarnings("unchecked")
+        private V valor(int casilla) {
+            return (V) valores[casilla];
+        }
+
+        @SuppressWarnings("unchecked")
+        private void paraCada(Consumer<? super V> accion) {
+            for (int i = 0; i < codigos.length; i++) {
+                if ((long) CASILLA.getAcquire(codigos, i) != 0) {
+                    accion.accept((V) valores[i]);
+                }
+            }
+        }
+    }
+
+    private static int mezclar(long codigo) {
+        long h = codigo * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,165 @@
+package biblioteca;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Índice de los préstamos activos de la biblioteca.
+ * Mantiene cuatro vistas sobre los mismos préstamos: por id, por clave de
+ * usuario, por ISBN y por día de vencimiento, de modo que la devolución y las
+ * consultas por usuario, por libro o por vencimiento no necesitan recorrer
+ * todos los préstamos activos. La vista por id está ordenada, así que los
+ * préstamos se recorren por id y una página empieza después del último id de
+ * la anterior sin recorrer las previas.
+ * Es seguro para uso concurrente.
+ */
+public class IndicePrestamos {
+    private final ConcurrentNavigableMap<Long, Prestamo> porId; // Id -> Prestamo
+    private final Map<String, Set<Prestamo>> porUsuario; // ClaveUsuario -> Prestamos
+    private final Map<String, Set<Prestamo>> porIsbn; // ISBN -> Prestamos
+    private final CalendarioVencimientos porVencimiento; // Día -> Prestamos
+
+    /**
+     * Constructor de la clase IndicePrestamos.
+     */
+    public IndicePrestamos() {
+        this.porId = new ConcurrentSkipListMap<>();
+        this.porUsuario = new ConcurrentHashMap<>();
+        this.porIsbn = new ConcurrentHashMap<>();
+        this.porVencimiento = new CalendarioVencimientos();
+    }
+
+    /**
+     * Agrega un préstamo al índice.
+     * @param prestamo El préstamo a agregar.
+     */
+    public void agregar(Prestamo prestamo) {
+        assert prestamo != null : "El préstamo no puede ser nulo.";
+
+        porId.put(prestamo.getId(), prestamo);
+        agregarA(porUsuario, prestamo.getUsuario().getClaveUsuario(), prestamo);
+        agregarA(porIsbn, prestamo.getLibro().getIsbn(), prestamo);
+        porVencimiento.agregar(prestamo);
+    }
+
+    /**
+     * Quita un préstamo del índice. Si dos hilos intentan quitar el mismo
+     * préstamo, sólo uno de ellos lo obtiene.
+     * @param idPrestamo El id del préstamo a quitar.
+     * @return El préstamo quitado, o null si no había un préstamo activo con ese id.
+     */
+    public Prestamo remover(long idPrestamo) {
+        Prestamo prestamo = porId.remove(idPrestamo);
+        if (prestamo != null) {
+            quitarDe(porUsuario, prestamo.getUsuario().getClaveUsuario(), prestamo);
+            quitarDe(porIsbn, prestamo.getLibro().getIsbn(), prestamo);
+            porVencimiento.quitar(prestamo);
+        }
+        return prestamo;
+    }
+
+    /**
+     * Busca un préstamo activo por su id.
+     * @param idPrestamo El id del préstamo.
+     * @return El préstamo, o null si no existe.
+     */
+    public Prestamo buscar(long idPrestamo) {
+        return porId.get(idPrestamo);
+    }
+
+    /**
+     * @param claveUsuario La clave del usuario.
+     * @return Vista de sólo lectura de los préstamos activos del usuario.
+     */
+    public Collection<Prestamo> deUsuario(String claveUsuario) {
+        return vista(porUsuario.get(claveUsuario));
+    }
+
+    /**
+     * @param isbn El ISBN del libro.
+     * @return Vista de sólo lectura de los préstamos activos del libro.
+     */
+    public Collection<Prestamo> deLibro(String isbn) {
+        return vista(porIsbn.get(isbn));
+    }
+
+    /**
+     * @param dia El día, como días desde 01/01/1970.
+     * @return Vista de sólo lectura de los préstamos activos que vencen ese día.
+     */
+    public Collection<Prestamo> vencenEn(long dia) {
+        return porVencimiento.vencenEn(dia);
+    }
+
+    /**
+     * @param desde El primer día de vencimiento, incluido.
+     * @param hasta El último día de vencimiento, excluido.
+     * @return Los préstamos activos que vencen en el intervalo, ordenados por
+     *         día de vencimiento.
+     */
+    public List<Prestamo> vencenEntre(long desde, long hasta) {
+        return porVencimiento.vencenEntre(desde, hasta);
+    }
+
+    /**
+     * @param claveUsuario La clave del usuario.
+     * @return El número de préstamos activos del usuario.
+     */
+    public int contarDeUsuario(String claveUsuario) {
+        Set<Prestamo> prestamos = porUsuario.get(claveUsuario);
+        return prestamos == null ? 0 : prestamos.size();
+    }
+
+    /**
+     * @return Vista de sólo lectura de todos los préstamos activos, por id.
+     */
+    public Collection<Prestamo> todos() {
+        return Collections.unmodifiableCollection(porId.values());
+    }
+
+    /**
+     * @param idPrestamo El id a partir del cual se recorre, excluido.
+     * @return Vista de sólo lectura de los préstamos activos con un id mayor,
+     *         por id.
+     */
+    public Collection<Prestamo> despuesDe(long idPrestamo) {
+        return Collections.unmodifiableCollection(porId.tailMap(idPrestamo, false).values());
+    }
+
+    public int tamano() {
+        return porId.size();
+    }
+
+    public boolean estaVacio() {
+        return porId.isEmpty();
+    }
+
+    private static void agregarA(Map<String, Set<Prestamo>> mapa, String clave, Prestamo prestamo) {
+        // compute bloquea sólo la entrada de la clave, así que el alta no
+        // compite con un quitarDe() que esté eliminando el conjunto vacío
+        mapa.compute(clave, (k, prestamos) -> {
+            if (prestamos == null) {
+                prestamos = ConcurrentHashMap.newKeySet();
+            }
+            prestamos.add(prestamo);
+            return prestamos;
+        });
+    }
+
+    private static void quitarDe(Map<String, Set<Prestamo>> mapa, String clave, Prestamo prestamo) {
+        mapa.computeIfPresent(clave, (k, prestamos) -> {
+            prestamos.remove(prestamo);
+            return prestamos.isEmpty() ? null : prestamos;
+        });
+    }
+
+    private static Collection<Prestamo> vista(Set<Prestamo> prestamos) {
+        return prestamos == null ? Collections.emptySet() : Collections.unmodifiableSet(prestamos);
+    }
+}
@@ -0,0 +1,449 @@
+package biblioteca;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Índice invertido de los títulos y autores del catálogo para buscar libros
+ * por palabras sin recorrer todos los libros.
+ *
+ * <p>
+ * Cada texto se normaliza antes de partirlo en términos: se pasa a
+ * minúsculas y se quitan los acentos y diacríticos, de modo que "Diseño",
+ * "diseno" y "DISEÑO" son el mismo término. Cada libro recibe un número de
+ * documento al indexarse y cada término guarda la lista ordenada de los
+ * documentos que lo contienen. Los términos están además en un mapa
+ * ordenado, así que una búsqueda por prefijo es un recorrido de rango.
+ *
+ * <p>
+ * Una consulta exige todos sus términos. Se parte del término con menos
+ * documentos y se comprueba cada candidato contra los demás, deteniéndose
+ * al llegar al límite de resultados.
+ *
+ * <p>
+ * Con un catálogo por filas ({@link CatalogoPorFilas}, p. ej.
+ * {@link CatalogoMapeado}) cada documento guarda sólo el número de fila y el
+ * libro se pide al catálogo al devolver resultados, así que el índice no
+ * retiene una vista por libro.
+ *
+ * <p>
+ * Los libros se indexan con un candado y las búsquedas no toman candados:
+ * las listas sólo crecen y publican su nuevo tamaño después de escribir el
+ * documento.
+ */
+public class IndiceTexto {
+
+    /**
+     * Campo del libro donde se buscan los términos.
+     */
+    public enum Campo {
+        TITULO, AUTOR, CUALQUIERA
+    }
+
+    // Un grupo con más listas que esto se comprueba contra el texto del libro
+    private static final int LISTAS_MAXIMAS_POR_COMPROBACION = 8;
+
+    // Latín básico, Latin-1 y Latín extendido A y B: carácter -> carácter
+    // en minúsculas y sin diacríticos, calculado una vez con Normalizer
+    private static final char[] PLEGADO = new char[0x250];
+
+    static {
+        for (char c = 0; c < PLEGADO.length; c++) {
+            String plegado = normalizarCompleto(String.valueOf(c));
+            PLEGADO[c] = plegado.length() == 1 ? plegado.charAt(0) : Character.toLowerCase(c);
+        }
+    }
+
+    private final Map<String, Publicaciones> porTitulo;
+    private final Map<String, Publicaciones> porAutor;
+    private final NavigableMap<String, Publicaciones> ordenTitulo; // Para prefijos
+    private final NavigableMap<String, Publicaciones> ordenAutor;
+    private final Object candadoAlta;
+    private final CatalogoPorFilas catalogo; // Null si se guardan los libros
+    private volatile Libro[] documentos; // Documento -> libro, sin catálogo
+    private volatile int[] filas; // Documento -> fila del catálogo
+    private volatile int totalDocumentos;
+
+    /**
+     * Constructor de la clase IndiceTexto, que guarda los libros indexados.
+     */
+    public IndiceTexto() {
+        this(null);
+    }
+
+    /**
+     * Constructor de la clase IndiceTexto para los libros de un catálogo.
+     * @param catalogo El catálogo de los libros que se indexarán; si es un
+     *                 {@link CatalogoPorFilas}, el índice guarda el número
+     *                 de fila en lugar del libro.
+     */
+    public IndiceTexto(Catalogo catalogo) {
+        this.porTitulo = new ConcurrentHashMap<>();
+        this.porAutor = new ConcurrentHashMap<>();
+        this.ordenTitulo = new ConcurrentSkipListMap<>();
+        this.ordenAutor = new ConcurrentSkipListMap<>();
+        this.candadoAlta = new Object();
+        if (catalogo instanceof CatalogoPorFilas porFilas) {
+            this.catalogo = porFilas;
+            this.filas = new int[16];
+        } else {
+            this.catalogo = null;
+            this.documentos = new Libro[16];
+        }
+    }
+
+    /**
+     * Agrega un libro al índice.
+     * @param libro El libro recién registrado.
+     */
+    public void agregar(Libro libro) {
+        String[] terminosTitulo = terminos(libro.getTitulo());
+        String[] terminosAutor = terminos(libro.getAutor());
+        synchronized (candadoAlta) {
+            reservar(1);
+            indexar(libro, terminosTitulo, terminosAutor);
+        }
+    }
+
+    /**
+     * Agrega varios libros con los términos ya calculados, p. ej. en paralelo
+     * durante una importación, tomando el candado una sola vez.
+     * @param libros         Los libros recién registrados.
+     * @param terminosTitulo Los {@linkplain #terminos(String) términos} del título de cada libro.
+     * @param terminosAutor  Los términos del autor de cada libro.
+     * @param cantidad       El número de libros de los arreglos.
+     */
+    void agregarTodos(Libro[] libros, String[][] terminosTitulo, String[][] terminosAutor, int cantidad) {
+        synchronized (candadoAlta) {
+            reservar(cantidad);
+            for (int i = 0; i < cantidad; i++) {
+                indexar(libros[i], terminosTitulo[i], terminosAutor[i]);
+            }
+        }
+    }
+
+    /**
+     * Amplía el arreglo de documentos para que quepan los nuevos. Se llama con
+     * el candado de alta tomado.
+     */
+    private void reservar(int nuevos) {
+        int necesarios = totalDocumentos + nuevos;
+        if (catalogo != null) {
+            int[] actuales = filas;
+            if (necesarios > actuales.length) {
+                filas = Arrays.copyOf(actuales, Math.max(necesarios, actuales.length * 2));
+            }
+            return;
+        }
+        Libro[] actuales = documentos;
+        if (necesarios > actuales.length) {
+            documentos = Arrays.copyOf(actuales, Math.max(necesarios, actuales.length * 2));
+        }
+    }
+
+    /**
+     * Publica un documento después de escribir sus listas. Se llama con el
+     * candado de alta tomado y espacio reservado.
+     */
+    private void indexar(Libro libro, String[] terminosTitulo, String[] terminosAutor) {
+        int documento = totalDocumentos;
+        if (catalogo != null) {
+            filas[documento] = catalogo.fila(libro);
+        } else {
+            documentos[documento] = libro;
+        }
+        for (String termino : terminosTitulo) {
+            publicacionesDe(porTitulo, ordenTitulo, termino).agregar(documento);
+        }
+        for (String termino : terminosAutor) {
+            publicacionesDe(porAutor, ordenAutor, termino).agregar(documento);
+        }
+        totalDocumentos = documento + 1;
+    }
+
+    /**
+     * Las listas se buscan en el mapa hash; el mapa ordenado, más caro de
+     * actualizar, sólo recibe los términos nuevos. Se llama con el candado de
+     * alta tomado.
+     */
+    private static Publicaciones publicacionesDe(Map<String, Publicaciones> mapa,
+            NavigableMap<String, Publicaciones> orden, String termino) {
+        Publicaciones publicaciones = mapa.get(termino);
+        if (publicaciones == null) {
+            publicaciones = new Publicaciones();
+            mapa.put(termino, publicaciones);
+            orden.put(termino, publicaciones);
+        }
+        return publicaciones;
+    }
+
+    /**
+     * @return El número de libros indexados.
+     */
+    public int tamano() {
+        return totalDocumentos;
+    }
+
+    /**
+     * Busca los libros que contienen todas las palabras de la consulta.
+     * @param consulta Las palabras a buscar; se normalizan como los textos indexados.
+     * @param campo El campo donde se buscan.
+     * @param limite El número máximo de resultados.
+     * @return Los libros encontrados, en orden de registro.
+     */
+    public List<Libro> buscar(String consulta, Campo campo, int limite) {
+        return buscar(consulta, campo, false, limite);
+    }
+
+    /**
+     * Busca los libros que tienen, para cada palabra de la consulta, algún
+     * término que empieza por ella (p. ej. "dis alg" encuentra "Diseño de
+     * algoritmos").
+     * @param consulta Los prefijos a buscar; se normalizan como los textos indexados.
+     * @param campo El campo donde se buscan.
+     * @param limite El número máximo de resultados.
+     * @return Los libros encontrados, en orden de registro.
+     */
+    public List<Libro> buscarPorPrefijo(String consulta, Campo campo, int limite) {
+        return buscar(consulta, campo, true, limite);
+    }
+
+    private List<Libro> buscar(String consulta, Campo campo, boolean prefijo, int limite) {
+        assert consulta != null : "La consulta no puede ser nula.";
+        assert campo != null : "El campo no puede ser nulo.";
+        assert limite >= 0 : "El límite no puede ser negativo.";
+
+        String[] palabras = terminos(consulta);
+        List<Libro> resultados = new ArrayList<>();
+        if (palabras.length == 0 || limite == 0) {
+            return resultados;
+        }
+
+        // Las listas de cada palabra: una si es un término exacto de un
+        // campo, varias si es un prefijo o se busca en ambos campos
+        List<List<Publicaciones>> grupos = new ArrayList<>(palabras.length);
+        int conductor = 0;
+        long menor = Long.MAX_VALUE;
+        for (int i = 0; i < palabras.length; i++) {
+            List<Publicaciones> grupo = new ArrayList<>();
+            if (campo != Campo.AUTOR) {
+                agregarListas(porTitulo, ordenTitulo, palabras[i], prefijo, grupo);
+            }
+            if (campo != Campo.TITULO) {
+                agregarListas(porAutor, ordenAutor, palabras[i], prefijo, grupo);
+            }
+            long tamano = 0;
+            for (Publicaciones publicaciones : grupo) {
+                tamano += publicaciones.tamano();
+            }
+            if (tamano == 0) {
+                return resultados;
+            }
+            if (tamano < menor) {
+                menor = tamano;
+                conductor = i;
+            }
+            grupos.add(grupo);
+        }
+
+        // La lista del conductor se lee antes que los documentos, así que
+        // todo documento de la lista ya está en el arreglo
+        List<Publicaciones> grupoConductor = grupos.get(conductor);
+        int[] lista;
+        int total;
+        if (grupoConductor.size() == 1) {
+            Publicaciones publicaciones = grupoConductor.get(0);
+            total = publicaciones.tamano();
+            lista = publicaciones.documentos;
+        } else {
+            lista = unir(grupoConductor);
+            total = lista.length;
+        }
+        Libro[] libros = documentos;
+        int[] filasDocumentos = filas;
+        for (int k = 0; k < total; k++) {
+            int documento = lista[k];
+            Libro libro = catalogo != null ? catalogo.libroEnFila(filasDocumentos[documento]) : libros[documento];
+            boolean coincide = true;
+            for (int i = 0; i < palabras.length && coincide; i++) {
+                if (i != conductor) {
+                    coincide = contiene(grupos.get(i), documento, libro, palabras[i], campo, prefijo);
+                }
+            }
+            if (coincide) {
+                resultados.add(libro);
+                if (resultados.size() == limite) {
+                    break;
+                }
+            }
+        }
+        return resultados;
+    }
+
+    private static void agregarListas(Map<String, Publicaciones> mapa, NavigableMap<String, Publicaciones> orden,
+            String palabra, boolean prefijo, List<Publicaciones> grupo) {
+        if (!prefijo) {
+            Publicaciones publicaciones = mapa.get(palabra);
+            if (publicaciones != null) {
+                grupo.add(publicaciones);
+            }
+            return;
+        }
+        Collection<Publicaciones> rango = orden.subMap(palabra, true, palabra + Character.MAX_VALUE, false).values();
+        grupo.addAll(rango);
+    }
+
+    /**
+     * @return Los documentos de las listas, ordenados y sin repetir.
+     */
+    private static int[] unir(List<Publicaciones> grupo) {
+        int total = 0;
+        int[][] copias = new int[grupo.size()][];
+        for (int i = 0; i < copias.length; i++) {
+            copias[i] = grupo.get(i).copia();
+            total += copias[i].length;
+        }
+        int[] todos = new int[total];
+        int posicion = 0;
+        for (int[] copia : copias) {
+            System.arraycopy(copia, 0, todos, posicion, copia.length);
+            posicion += copia.length;
+        }
+        Arrays.sort(todos);
+        int unicos = 0;
+        for (int i = 0; i < todos.length; i++) {
+            if (unicos == 0 || todos[unicos - 1] != todos[i]) {
+                todos[unicos++] = todos[i];
+            }
+        }
+        return Arrays.copyOf(todos, unicos);
+    }
+
+    /**
+     * Comprueba si el documento está en alguna de las listas del grupo. Si
+     * el grupo es grande (un prefijo corto) es más barato revisar el texto
+     * del propio libro.
+     */
+    private static boolean contiene(List<Publicaciones> grupo, int documento, Libro libro, String palabra,
+            Campo campo, boolean prefijo) {
+        if (grupo.size() <= LISTAS_MAXIMAS_POR_COMPROBACION) {
+            for (Publicaciones publicaciones : grupo) {
+                if (publicaciones.contiene(documento)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        return (campo != Campo.AUTOR && textoContiene(libro.getTitulo(), palabra, prefijo))
+                || (campo != Campo.TITULO && textoContiene(libro.getAutor(), palabra, prefijo));
+    }
+
+    private static boolean textoContiene(String texto, String palabra, boolean prefijo) {
+        for (String termino : terminos(texto)) {
+            if (prefijo ? termino.startsWith(palabra) : termino.equals(palabra)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Normaliza un texto: minúsculas y sin acentos ni diacríticos.
+     * @param texto El texto.
+     * @return El texto normalizado.
+     */
+    public static String normalizar(String texto) {
+        // Camino rápido: los alfabetos latinos se pliegan con la tabla
+        StringBuilder normalizado = new StringBuilder(texto.length());
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            if (c >= PLEGADO.length) {
+                return normalizarCompleto(texto);
+            }
+            normalizado.append(PLEGADO[c]);
+        }
+        return normalizado.toString();
+    }
+
+    private static String normalizarCompleto(String texto) {
+        String descompuesto = Normalizer.normalize(texto, Normalizer.Form.NFD);
+        StringBuilder normalizado = new StringBuilder(descompuesto.length());
+        for (int i = 0; i < descompuesto.length(); i++) {
+            char c = descompuesto.charAt(i);
+            if (Character.getType(c) != Character.NON_SPACING_MARK) {
+                normalizado.append(c);
+            }
+        }
+        return normalizado.toString().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Parte un texto normalizado en términos: secuencias de letras y dígitos.
+     * @param texto El texto, sin normalizar.
+     * @return Los términos, sin repetir.
+     */
+    static String[] terminos(String texto) {
+        String normalizado = normalizar(texto);
+        List<String> terminos = new ArrayList<>();
+        int inicio = -1;
+        for (int i = 0; i <= normalizado.length(); i++) {
+            boolean letra = i < normalizado.length() && Character.isLetterOrDigit(normalizado.charAt(i));
+            if (letra && inicio < 0) {
+                inicio = i;
+            } else if (!letra && inicio >= 0) {
+                String termino = normalizado.substring(inicio, i);
+                if (!terminos.contains(termino)) {
+                    terminos.add(termino);
+                }
+                inicio = -1;
+            }
+        }
+        return terminos.toArray(new String[0]);
+    }
+
+    /**
+     * Lista ordenada de los documentos que contienen un término. Sólo crece;
+     * se escribe con el candado de alta del índice y se lee sin candados.
+     */
+    private static final class Publicaciones {
+        private volatile int[] documentos;
+        private volatile int tamano;
+
+        private Publicaciones() {
+            this.documentos = new int[2];
+        }
+
+        private void agregar(int documento) {
+            int actual = tamano;
+            int[] lista = documentos;
+            if (actual == lista.length) {
+                lista = Arrays.copyOf(lista, lista.length * 2);
+                documentos = lista;
+            }
+            lista[actual] = documento;
+            tamano = actual + 1;
+        }
+
+        private int tamano() {
+            return tamano;
+        }
+
+        private int[] copia() {
+            int total = tamano;
+            return Arrays.copyOf(documentos, total);
+        }
+
+        private boolean contiene(int documento) {
+            int total = tamano;
+            return Arrays.binarySearch(documentos, 0, total, documento) >= 0;
+        }
+    }
+}
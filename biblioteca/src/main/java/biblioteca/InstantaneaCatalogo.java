@@ -0,0 +1,210 @@
+package biblioteca;
+
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Vista inmutable del catálogo y de la disponibilidad de sus libros en un
+ * momento dado. Una instantánea no cambia después de publicarse: los
+ * préstamos y devoluciones posteriores aparecen en la siguiente versión, así
+ * que un reporte o una paginación sobre la misma instantánea siempre ve los
+ * mismos libros con las mismas copias, y el resumen coincide con la suma de
+ * los libros. Leerla no toma candados ni bloquea a las operaciones.
+ *
+ * <p>
+ * Los libros se guardan por posición en páginas de tamaño fijo. Cada
+ * publicación copia sólo las páginas con libros que cambiaron y comparte las
+ * demás con la versión anterior, de modo que su costo es proporcional a los
+ * cambios y no al tamaño del catálogo. Con un {@link CatalogoPorFilas} la
+ * posición es la fila del libro: la instantánea sólo guarda las copias
+ * disponibles y pide al catálogo los datos de cada libro al leerlo.
+ *
+ * @see Biblioteca#getInstantanea()
+ */
+public final class InstantaneaCatalogo implements Iterable<InstantaneaCatalogo.LibroInstantaneo> {
+    static final int BITS_PAGINA = 10;
+    static final int TAMANO_PAGINA = 1 << BITS_PAGINA;
+    static final int MASCARA_PAGINA = TAMANO_PAGINA - 1;
+
+    private final long version;
+    private final Instant publicada;
+    private final Libro[][] libros; // Posición -> Libro, por páginas; null con un catálogo por filas
+    private final CatalogoPorFilas catalogo; // Posición = fila; null si se guardan los libros
+    private final int[][] disponibles; // Posición -> Copias disponibles, por páginas
+    private final int tamano;
+    private final IndiceClaves<Integer> posiciones; // ISBN -> Posición, compartido entre versiones; null por filas
+    private final ResumenDisponibilidad resumen;
+
+    InstantaneaCatalogo(long version, Libro[][] libros, CatalogoPorFilas catalogo, int[][] disponibles, int tamano,
+            IndiceClaves<Integer> posiciones, long copias, long copiasDisponibles) {
+        assert (libros == null) == (catalogo != null) : "Los libros se guardan o se piden al catálogo.";
+        this.version = version;
+        this.publicada = Instant.now();
+        this.libros = libros;
+        this.catalogo = catalogo;
+        this.disponibles = disponibles;
+        this.tamano = tamano;
+        this.posiciones = posiciones;
+        this.resumen = new ResumenDisponibilidad(tamano, copias, copias - copiasDisponibles);
+    }
+
+    /**
+     * @return El número de versión; crece con cada publicación que tiene
+     *         cambios.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return El momento en que se publicó la instantánea.
+     */
+    public Instant getPublicada() {
+        return publicada;
+    }
+
+    /**
+     * @return El número de libros de la instantánea.
+     */
+    public int tamano() {
+        return tamano;
+    }
+
+    /**
+     * @param isbn El ISBN del libro.
+     * @return El libro con sus copias disponibles en esta versión, o null si
+     *         no está en la instantánea.
+     */
+    public LibroInstantaneo buscar(String isbn) {
+        int posicion = posicion(isbn);
+        return posicion < 0 ? null : libroEn(posicion);
+    }
+
+    /**
+     * @param isbn El ISBN del libro.
+     * @return Las copias disponibles del libro en esta versión, o -1 si no
+     *         está en la instantánea.
+     */
+    public int getCopiasDisponibles(String isbn) {
+        int posicion = posicion(isbn);
+        return posicion < 0 ? -1 : disponibles[posicion >>> BITS_PAGINA][posicion & MASCARA_PAGINA];
+    }
+
+    /**
+     * @return Los totales de disponibilidad de esta versión.
+     */
+    public ResumenDisponibilidad getResumen() {
+        return resumen;
+    }
+
+    /**
+     * @return Los libros de la instantánea, en el orden en que se publicaron.
+     */
+    @Override
+    public Iterator<LibroInstantaneo> iterator() {
+        return iterator(0);
+    }
+
+    /**
+     * @param desde La posición del primer libro, p. ej. el inicio de una página.
+     * @return Los libros desde esa posición, sin recorrer los anteriores.
+     */
+    public Iterator<LibroInstantaneo> iterator(int desde) {
+        assert desde >= 0 : "La posición no puede ser negativa.";
+        return new Iterator<LibroInstantaneo>() {
+            private int posicion = desde;
+
+            @Override
+            public boolean hasNext() {
+                return posicion < tamano;
+            }
+
+            @Override
+            public LibroInstantaneo next() {
+                if (posicion >= tamano) {
+                    throw new NoSuchElementException();
+                }
+                return libroEn(posicion++);
+            }
+        };
+    }
+
+    private LibroInstantaneo libroEn(int posicion) {
+        int pagina = posicion >>> BITS_PAGINA;
+        int casilla = posicion & MASCARA_PAGINA;
+        Libro libro = libros != null ? libros[pagina][casilla] : catalogo.libroEnFila(posicion);
+        return new LibroInstantaneo(libro, disponibles[pagina][casilla]);
+    }
+
+    private int posicion(String isbn) {
+        int posicion;
+        if (catalogo != null) {
+            Libro libro = catalogo.buscar(isbn);
+            posicion = libro == null ? -1 : catalogo.fila(libro);
+        } else {
+            Integer guardada = posiciones.buscar(isbn);
+            posicion = guardada == null ? -1 : guardada;
+        }
+        // Las posiciones crecen con las versiones; las posteriores no son de ésta
+        return posicion >= tamano ? -1 : posicion;
+    }
+
+    @Override
+    public String toString() {
+        return "InstantaneaCatalogo{" +
+               "version=" + version +
+               ", publicada=" + publicada +
+               ", libros=" + tamano +
+               '}';
+    }
+
+    /**
+     * Libro de una instantánea: los datos del libro y sus copias disponibles
+     * en esa versión. Es de sólo lectura; para prestar o devolver copias se
+     * usa la {@link Biblioteca}.
+     */
+    public static final class LibroInstantaneo {
+        private final Libro libro;
+        private final int copiasDisponibles;
+
+        private LibroInstantaneo(Libro libro, int copiasDisponibles) {
+            this.libro = libro;
+            this.copiasDisponibles = copiasDisponibles;
+        }
+
+        public String getIsbn() {
+            return libro.getIsbn();
+        }
+
+        public String getTitulo() {
+            return libro.getTitulo();
+        }
+
+        public String getAutor() {
+            return libro.getAutor();
+        }
+
+        public int getTotalCopias() {
+            return libro.getTotalCopias();
+        }
+
+        /**
+         * @return Las copias disponibles en la versión de la instantánea.
+         */
+        public int getCopiasDisponibles() {
+            return copiasDisponibles;
+        }
+
+        @Override
+        public String toString() {
+            return "LibroInstantaneo{" +
+                   "isbn='" + getIsbn() + "'" +
+                   ", titulo='" + getTitulo() + "'" +
+                   ", autor='" + getAutor() + "'" +
+                   ", totalCopias=" + getTotalCopias() +
+                   ", copiasDisponibles=" + copiasDisponibles +
+                   '}';
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package biblioteca;
+
+/**
+ * Normalización de ISBN a una clave numérica compacta.
+ * Un ISBN-13 se convierte en el número de sus trece dígitos, ignorando
+ * guiones y espacios, y un ISBN-10 válido se convierte primero a su ISBN-13
+ * equivalente (prefijo 978), de modo que las distintas formas de escribir el
+ * mismo libro dan la misma clave. La conversión no crea objetos.
+ *
+ * <p>
+ * El dígito de control de un ISBN-13 no se exige para obtener la clave, porque
+ * el catálogo acepta identificadores que no son ISBN reales. Un texto que no
+ * tiene forma de ISBN no tiene clave y se indexa por su texto.
+ */
+public final class Isbn {
+    /** Valor devuelto por {@link #clave(CharSequence)} si el texto no tiene forma de ISBN. */
+    public static final long SIN_CLAVE = -1L;
+
+    private Isbn() {
+    }
+
+    /**
+     * @param isbn El ISBN como texto, con o sin guiones o espacios.
+     * @return La clave del ISBN-13 correspondiente (de 0 a 9999999999999), o
+     *         {@link #SIN_CLAVE} si el texto no es un ISBN-13 ni un ISBN-10 válido.
+     */
+    public static long clave(CharSequence isbn) {
+        if (isbn == null) {
+            return SIN_CLAVE;
+        }
+        long valor = 0;
+        int digitos = 0;
+        boolean controlX = false;
+        for (int i = 0; i < isbn.length(); i++) {
+            char c = isbn.charAt(i);
+            if (c == '-' || c == ' ') {
+                continue;
+            }
+            if (controlX || digitos == 13) {
+                return SIN_CLAVE;
+            }
+            if (c >= '0' && c <= '9') {
+                valor = valor * 10 + (c - '0');
+                digitos++;
+            } else if ((c == 'X' || c == 'x') && digitos == 9) {
+                // Sólo el dígito de control de un ISBN-10 puede ser X
+                controlX = true;
+                digitos++;
+            } else {
+                return SIN_CLAVE;
+            }
+        }
+        if (digitos == 13) {
+            return valor;
+        }
+        if (digitos == 10) {
+            long cuerpo = controlX ? valor : valor / 10;
+            int control = controlX ? 10 : (int) (valor % 10);
+            if (control != controlIsbn10(cuerpo)) {
+                return SIN_CLAVE;
+            }
+            long sinControl = 978_000_000_000L + cuerpo;
+            return sinControl * 10 + controlIsbn13(sinControl);
+        }
+        return SIN_CLAVE;
+    }
+
+    /**
+     * @param clave Una clave devuelta por {@link #clave(CharSequence)}.
+     * @return El ISBN-13 de la clave, sin guiones.
+     */
+    public static String formatear(long clave) {
+        assert clave >= 0 && clave <= 9_999_999_999_999L : "La clave no corresponde a un ISBN-13.";
+        String digitos = Long.toString(clave);
+        return "0000000000000".substring(digitos.length()) + digitos;
+    }
+
+    /**
+     * @param cuerpo Los nueve primeros dígitos de un ISBN-10.
+     * @return El dígito de control, de 0 a 10 (10 se escribe X).
+     */
+    private static int controlIsbn10(long cuerpo) {
+        int suma = 0;
+        for (int peso = 2; peso <= 10; peso++) {
+            suma += peso * (int) (cuerpo % 10);
+            cuerpo /= 10;
+        }
+        return (11 - suma % 11) % 11;
+    }
+
+    /**
+     * @param cuerpo Los doce primeros dígitos de un ISBN-13.
+     * @return El dígito de control.
+     */
+    private static int controlIsbn13(long cuerpo) {
+        int suma = 0;
+        for (int i = 0; i < 12; i++) {
+            // Desde la derecha los pesos alternan 3, 1, 3...
+            suma += (i % 2 == 0 ? 3 : 1) * (int) (cuerpo % 10);
+            cuerpo /= 10;
+        }
+        return (10 - suma % 10) % 10;
+    }
+}
@@ -0,0 +1,135 @@
+package biblioteca;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Lector de líneas UTF-8 con una longitud máxima, para que un cliente que
+ * envía una línea sin fin no haga crecer sin límite la memoria del servidor.
+ * Las líneas terminan en {@code \n}; un {@code \r} antes del {@code \n} se
+ * descarta. No es seguro para uso concurrente.
+ */
+final class LectorLineas {
+
+    /**
+     * Una línea superó la longitud máxima. El resto de la línea no se lee.
+     */
+    static final class LineaDemasiadoLargaException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        private LineaDemasiadoLargaException(int longitudMaxima) {
+            super("La línea supera los " + longitudMaxima + " bytes.");
+        }
+    }
+
+    private final InputStream entrada;
+    private final int longitudMaxima;
+    private final byte[] bufer;
+    private int posicion;
+    private int limite;
+    private byte[] linea; // Bytes de la línea en curso que cruzan el búfer
+    private int longitud;
+
+    /**
+     * Constructor de la clase LectorLineas.
+     * @param entrada        El flujo de bytes.
+     * @param tamanoBufer    El tamaño del búfer de lectura.
+     * @param longitudMaxima El máximo de bytes de una línea, sin el fin de línea.
+     */
+    LectorLineas(InputStream entrada, int tamanoBufer, int longitudMaxima) {
+        assert entrada != null : "La entrada no puede ser nula.";
+        assert tamanoBufer > 0 && longitudMaxima > 0 : "Los tamaños deben ser positivos.";
+        this.entrada = entrada;
+        this.longitudMaxima = longitudMaxima;
+        this.bufer = new byte[tamanoBufer];
+        this.linea = new byte[Math.min(128, longitudMaxima)];
+    }
+
+    /**
+     * @return La siguiente línea sin el fin de línea, o null si la entrada
+     *         terminó. La última línea puede no tener fin de línea.
+     * @throws LineaDemasiadoLargaException Si la línea supera la longitud máxima.
+     * @throws IOException                  Si falla la lectura.
+     */
+    String leerLinea() throws IOException {
+        longitud = 0;
+        while (true) {
+            if (posicion == limite) {
+                int leidos = entrada.read(bufer);
+                if (leidos < 0) {
+                    return longitud == 0 ? null : cortar(longitud);
+                }
+                posicion = 0;
+                limite = leidos;
+            }
+            int inicio = posicion;
+            while (posicion < limite && bufer[posicion] != '\n') {
+                posicion++;
+            }
+            agregar(inicio, posicion - inicio);
+            if (posicion < limite) {
+                posicion++; // El '\n'
+                int fin = longitud > 0 && linea[longitud - 1] == '\r' ? longitud - 1 : longitud;
+                return cortar(fin);
+            }
+        }
+    }
+
+    /**
+     * @return true si hay datos que se pueden leer sin esperar a la red.
+     * @throws IOException Si falla la consulta al flujo.
+     */
+    boolean hayDatos() throws IOException {
+        return posicion < limite || entrada.available() > 0;
+    }
+
+    /**
+     * Comprueba, entre dos líneas, si el otro extremo cerró la entrada. Los
+     * datos que lleguen mientras tanto se guardan para la siguiente línea.
+     * Con un socket, la espera la acota su {@link java.net.Socket#setSoTimeout(int)}.
+     * @return true si la entrada terminó.
+     * @throws IOException Si falla la lectura.
+     */
+    boolean entradaTerminada() throws IOException {
+        if (posicion > 0) {
+            System.arraycopy(bufer, posicion, bufer, 0, limite - posicion);
+            limite -= posicion;
+            posicion = 0;
+        }
+        if (limite == bufer.length) {
+            return false; // El cliente sigue enviando
+        }
+        try {
+            int leidos = entrada.read(bufer, limite, bufer.length - limite);
+            if (leidos < 0) {
+                return true;
+            }
+            limite += leidos;
+            return false;
+        } catch (SocketTimeoutException e) {
+            return false;
+        }
+    }
+
+    private void agregar(int inicio, int cantidad) throws LineaDemasiadoLargaException {
+        // El '\r' final no cuenta para la longitud máxima
+        if (longitud + cantidad > longitudMaxima
+                && !(longitud + cantidad == longitudMaxima + 1 && bufer[inicio + cantidad - 1] == '\r')) {
+            throw new LineaDemasiadoLargaException(longitudMaxima);
+        }
+        if (longitud + cantidad > linea.length) {
+            linea = Arrays.copyOf(linea, Math.max(longitud + cantidad, linea.length * 2));
+        }
+        System.arraycopy(bufer, inicio, linea, longitud, cantidad);
+        longitud += cantidad;
+    }
+
+    private String cortar(int fin) {
+        String texto = new String(linea, 0, fin, StandardCharsets.UTF_8);
+        longitud = 0;
+        return texto;
+    }
+}
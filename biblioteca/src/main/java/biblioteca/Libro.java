@@ -0,0 +1,139 @@
+package biblioteca;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Clase que representa un libro en el sistema de gestión de préstamos.
+ * El contador de copias disponibles se actualiza de forma atómica (CAS), por lo
+ * que varios hilos pueden prestar o devolver copias del mismo libro sin
+ * sobrepasar el número de copias existentes.
+ */
+public class Libro {
+    private String isbn;
+    private String titulo;
+    private String autor;
+    private int totalCopias;
+    private final AtomicInteger copiasDisponibles;
+
+    /**
+     * Constructor para la clase Libro.
+     * @param isbn El ISBN único del libro.
+     * @param titulo El título del libro.
+     * @param autor El autor del libro.
+     * @param totalCopias El número total de copias de este libro.
+     */
+    public Libro(String isbn, String titulo, String autor, int totalCopias) {
+        // Assertions for initial data validity
+        assert isbn != null && !isbn.trim().isEmpty() : "ISBN no puede ser nulo o vacío.";
+        assert titulo != null && !titulo.trim().isEmpty() : "Título no puede ser nulo o vacío.";
+        assert autor != null && !autor.trim().isEmpty() : "Autor no puede ser nulo o vacío.";
+        assert totalCopias > 0 : "El número total de copias debe ser mayor que cero.";
+
+        this.isbn = isbn;
+        this.titulo = titulo;
+        this.autor = autor;
+        this.totalCopias = totalCopias;
+        this.copiasDisponibles = new AtomicInteger(totalCopias);
+    }
+
+    /**
+     * Constructor para subclases que guardan los datos del libro fuera del
+     * objeto (por ejemplo, vistas sobre un catálogo mapeado en memoria).
+     * Estas subclases deben sobrescribir todos los métodos públicos.
+     */
+    protected Libro() {
+        this.copiasDisponibles = null;
+    }
+
+    // Getters
+    public String getIsbn() {
+        return isbn;
+    }
+
+    public String getTitulo() {
+        return titulo;
+    }
+
+    public String getAutor() {
+        return autor;
+    }
+
+    public int getTotalCopias() {
+        return totalCopias;
+    }
+
+    public int getCopiasDisponibles() {
+        return copiasDisponibles.get();
+    }
+
+    /**
+     * Decrementa el número de copias disponibles.
+     * La comprobación y el decremento se hacen en una sola operación atómica,
+     * de modo que dos préstamos concurrentes no pueden llevarse la misma copia.
+     * @throws LibroNoDisponibleException Si no hay copias disponibles para prestar.
+     */
+    public void prestarCopia() throws LibroNoDisponibleException {
+        if (!intentarPrestarCopia()) {
+            throw new LibroNoDisponibleException("No hay copias disponibles del libro con ISBN: " + getIsbn(), false);
+        }
+    }
+
+    /**
+     * Variante de {@link #prestarCopia()} que no lanza excepciones.
+     * @return true si se reservó una copia, false si no había copias disponibles.
+     */
+    public boolean intentarPrestarCopia() {
+        int actuales;
+        do {
+            actuales = copiasDisponibles.get();
+            if (actuales <= 0) {
+                return false;
+            }
+        } while (!copiasDisponibles.compareAndSet(actuales, actuales - 1));
+        return true;
+    }
+
+    /**
+     * Reserva hasta {@code cantidad} copias en una sola operación atómica.
+     * Se usa en los préstamos por lote para tocar el contador una vez por libro.
+     * @param cantidad El número de copias solicitadas.
+     * @return El número de copias reservadas, entre 0 y {@code cantidad}.
+     */
+    public int reservarCopias(int cantidad) {
+        assert cantidad >= 0 : "La cantidad de copias no puede ser negativa.";
+        int actuales;
+        int reservadas;
+        do {
+            actuales = copiasDisponibles.get();
+            reservadas = Math.min(actuales, cantidad);
+            if (reservadas <= 0) {
+                return 0;
+            }
+        } while (!copiasDisponibles.compareAndSet(actuales, actuales - reservadas));
+        return reservadas;
+    }
+
+    /**
+     * Incrementa el número de copias disponibles, sin superar el total de copias.
+     */
+    public void devolverCopia() {
+        int actuales;
+        do {
+            actuales = copiasDisponibles.get();
+            if (actuales >= totalCopias) {
+                return;
+            }
+        } while (!copiasDisponibles.compareAndSet(actuales, actuales + 1));
+    }
+
+    @Override
+    public String toString() {
+        return "Libro{" +
+               "isbn='" + getIsbn() + "'" +
+               ", titulo='" + getTitulo() + "'" +
+               ", autor='" + getAutor() + "'" +
+               ", totalCopias=" + getTotalCopias() +
+               ", copiasDisponibles=" + getCopiasDisponibles() +
+               '}';
+    }
+}
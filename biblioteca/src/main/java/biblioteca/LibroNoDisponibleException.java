@@ -0,0 +1,26 @@
+package biblioteca;
+
+/**
+ * Excepción personalizada para indicar que un libro no está disponible para préstamo.
+ * Se lanza cuando no hay copias disponibles de un libro.
+ */
+public class LibroNoDisponibleException extends Exception {
+    /**
+     * Constructor para LibroNoDisponibleException.
+     * @param message Mensaje descriptivo de la excepción.
+     */
+    public LibroNoDisponibleException(String message) {
+        super(message);
+    }
+
+    /**
+     * Constructor para LibroNoDisponibleException que permite omitir la traza de pila.
+     * Cuando la excepción se usa como control de flujo, llenar la traza es
+     * la parte más costosa de crearla y no aporta información útil.
+     * @param message Mensaje descriptivo de la excepción.
+     * @param conTraza Si es false, no se captura la traza de pila.
+     */
+    public LibroNoDisponibleException(String message, boolean conTraza) {
+        super(message, null, false, conTraza);
+    }
+}
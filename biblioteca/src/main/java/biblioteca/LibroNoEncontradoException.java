@@ -0,0 +1,26 @@
+package biblioteca;
+
+/**
+ * Excepción personalizada para indicar que un libro no ha sido encontrado en el sistema.
+ * Se lanza cuando se busca un libro por ISBN y este no existe.
+ */
+public class LibroNoEncontradoException extends Exception {
+    /**
+     * Constructor para LibroNoEncontradoException.
+     * @param message Mensaje descriptivo de la excepción.
+     */
+    public LibroNoEncontradoException(String message) {
+        super(message);
+    }
+
+    /**
+     * Constructor para LibroNoEncontradoException que permite omitir la traza de pila.
+     * Cuando la excepción se usa como control de flujo, llenar la traza es
+     * la parte más costosa de crearla y no aporta información útil.
+     * @param message Mensaje descriptivo de la excepción.
+     * @param conTraza Si es false, no se captura la traza de pila.
+     */
+    public LibroNoEncontradoException(String message, boolean conTraza) {
+        super(message, null, false, conTraza);
+    }
+}
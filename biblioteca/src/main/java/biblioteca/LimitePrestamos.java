@@ -0,0 +1,68 @@
+package biblioteca;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Decide cuántos préstamos activos puede tener cada usuario a la vez.
+ * El límite se consulta en cada préstamo contra el contador atómico del
+ * usuario, así que cambiarlo se aplica de inmediato sin tocar los préstamos
+ * activos; un usuario por encima del nuevo límite sólo deja de recibir
+ * préstamos hasta devolver los que sobran.
+ * Las implementaciones deben ser seguras para uso concurrente.
+ */
+@FunctionalInterface
+public interface LimitePrestamos {
+    /** Límite de un usuario que puede tener cualquier número de préstamos. */
+    int SIN_LIMITE = Integer.MAX_VALUE;
+
+    /**
+     * @param usuario El usuario que solicita un préstamo.
+     * @return El número máximo de préstamos activos del usuario.
+     */
+    int maximoPrestamos(Usuario usuario);
+
+    /**
+     * @return Una política sin límite de préstamos.
+     */
+    static LimitePrestamos sinLimite() {
+        return usuario -> SIN_LIMITE;
+    }
+
+    /**
+     * @param maximo El máximo de préstamos activos de todos los usuarios.
+     * @return Una política con el mismo límite para todos los usuarios.
+     */
+    static LimitePrestamos fijo(int maximo) {
+        assert maximo >= 0 : "El límite de préstamos no puede ser negativo.";
+        return usuario -> maximo;
+    }
+
+    /**
+     * @param maximos Los límites por licenciatura.
+     * @param resto   La política para las licenciaturas que no aparecen.
+     * @return Una política con el límite propio de cada licenciatura.
+     */
+    static LimitePrestamos porLicenciatura(Map<String, Integer> maximos, LimitePrestamos resto) {
+        assert maximos != null && resto != null : "Los límites no pueden ser nulos.";
+        Map<String, Integer> copia = new HashMap<>(maximos);
+        return usuario -> {
+            Integer propio = copia.get(usuario.getLicenciatura());
+            return propio != null ? propio : resto.maximoPrestamos(usuario);
+        };
+    }
+
+    /**
+     * @param maximos Los límites por clave de usuario.
+     * @param resto   La política para los usuarios que no aparecen.
+     * @return Una política con límites propios para algunos usuarios.
+     */
+    static LimitePrestamos porUsuario(Map<String, Integer> maximos, LimitePrestamos resto) {
+        assert maximos != null && resto != null : "Los límites no pueden ser nulos.";
+        Map<String, Integer> copia = new HashMap<>(maximos);
+        return usuario -> {
+            Integer propio = copia.get(usuario.getClaveUsuario());
+            return propio != null ? propio : resto.maximoPrestamos(usuario);
+        };
+    }
+}
@@ -1,17 +1,20 @@
+package biblioteca;
+
 import java.time.LocalDate;
-import java.util.Scanner;
 
 /**
  * Clase principal para demostrar el funcionamiento del sistema de gestión de préstamos de la biblioteca.
  * Incluye la interacción con el usuario y pruebas de manejo de excepciones y aserciones.
+ * Para usar la biblioteca como servicio en red, ver {@link ServidorBiblioteca}.
  */
 public class Main {
     public static void main(String[] args) {
         // Para habilitar las aserciones, ejecutar el programa con la opción -ea:
         // java -ea Main
-        
-        Scanner scanner = new Scanner(System.in);
-        Biblioteca biblioteca = new Biblioteca();
+
+        // Receptor de consola síncrono para que los mensajes de la biblioteca
+        // aparezcan intercalados con los títulos de cada sección
+        Biblioteca biblioteca = new Biblioteca(new ReceptorEventosConsola());
 
         System.out.println("--- DEMOSTRACIÓN DEL SISTEMA DE GESTIÓN DE PRÉSTAMOS ---");
 
@@ -47,7 +50,7 @@ public class Main {
 
         // --- 3. Préstamo de Libros ---
         System.out.println("\n--- REALIZACIÓN DE PRÉSTAMOS ---");
-        String today = LocalDate.now().format(java.time.format.DateTimeFormatter.ofPattern("dd/MM/yyyy"));
+        String today = FormatoFecha.formatear(LocalDate.now());
 
         // Préstamo exitoso
         biblioteca.realizarPrestamo("U001", "978-0321765723", today); // Ana presta Effective Java
@@ -81,9 +84,17 @@ public class Main {
         biblioteca.realizarPrestamo("U001", null, today);
         biblioteca.realizarPrestamo("U001", "978-0134685991", null);
 
-        // --- 5. Reporte ---
-        biblioteca.mostrarReporte();
+        // --- 5. Devolución de Préstamos ---
+        System.out.println("\n--- DEVOLUCIÓN DE PRÉSTAMOS ---");
+        System.out.println("Préstamos activos de U001: " + biblioteca.contarPrestamosUsuario("U001"));
+        biblioteca.devolverPrestamo(2); // Pedro devuelve Clean Code
+
+        // Prueba: Préstamo inexistente o ya devuelto (IllegalArgumentException)
+        biblioteca.devolverPrestamo(2);
+        biblioteca.devolverPrestamo(99);
 
-        scanner.close();
+        // --- 6. Reporte ---
+        biblioteca.mostrarReporte();
+        biblioteca.cerrar();
     }
 }
@@ -0,0 +1,346 @@
+package biblioteca;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Métricas de las operaciones de la biblioteca: cuántas operaciones terminan
+ * con cada código de resultado (éxito o motivo del rechazo) y la distribución
+ * de sus latencias, más indicadores del estado actual como los préstamos
+ * activos.
+ *
+ * <p>
+ * Los contadores son {@link LongAdder}, repartidos entre hilos, y cada
+ * operación tiene su {@link HistogramaLatencia}; medir una operación cuesta
+ * dos lecturas del reloj y dos incrementos sin candados. Donde leer el reloj
+ * es caro (p. ej. en máquinas virtuales) las latencias se pueden muestrear
+ * con {@link #MetricasBiblioteca(int)}: los contadores siguen siendo exactos
+ * y sólo se mide una de cada N operaciones. La biblioteca usa por omisión
+ * {@link #MUESTREO_PREDETERMINADO}. Unas métricas creadas con
+ * {@link #desactivadas()} no leen el reloj ni cuentan nada.
+ *
+ * <p>
+ * Los datos se consultan con {@link #instantanea()} o se exportan en el
+ * formato de texto de Prometheus con {@link #escribirPrometheus(Writer, Iterable)}.
+ */
+public class MetricasBiblioteca {
+
+    /**
+     * Operaciones medidas.
+     */
+    public enum Operacion {
+        REGISTRAR_LIBRO, REGISTRAR_USUARIO, PRESTAMO, PRESTAMO_LOTE, DEVOLUCION, RESERVA;
+
+        private final String etiqueta = name().toLowerCase(Locale.ROOT);
+    }
+
+    private static final Operacion[] OPERACIONES = Operacion.values();
+    private static final ResultadoOperacion.Codigo[] CODIGOS = ResultadoOperacion.Codigo.values();
+    private static final double[] CUANTILES = { 0.5, 0.9, 0.99, 0.999 };
+
+    /**
+     * Muestreo de las métricas que crea {@link Biblioteca} cuando no recibe
+     * unas propias. En máquinas virtuales leer el reloj cuesta unos 50 ns,
+     * así que medir todas las operaciones encarece cada préstamo; midiendo
+     * una de cada 16 el costo baja a unos pocos ns ({@code MetricasBenchmark}).
+     */
+    public static final int MUESTREO_PREDETERMINADO = 16;
+
+    /** Valor de {@link #iniciar()} cuando la operación no se mide. */
+    private static final long SIN_MEDICION = 0;
+
+    private final boolean activas;
+    private final int mascaraMuestreo;
+    private final LongAdder[][] conteos; // [operación][código]
+    private final HistogramaLatencia[] latencias; // [operación]
+    private final CopyOnWriteArrayList<Indicador> indicadores;
+
+    /**
+     * Constructor de la clase MetricasBiblioteca, con las métricas activas y
+     * la latencia de todas las operaciones medida.
+     */
+    public MetricasBiblioteca() {
+        this(true, 1);
+    }
+
+    /**
+     * Constructor de la clase MetricasBiblioteca, con las latencias
+     * muestreadas.
+     * @param unaDeCada Cada cuántas operaciones se mide una, al azar; potencia de dos.
+     */
+    public MetricasBiblioteca(int unaDeCada) {
+        this(true, unaDeCada);
+    }
+
+    private MetricasBiblioteca(boolean activas, int unaDeCada) {
+        assert unaDeCada > 0 && Integer.bitCount(unaDeCada) == 1 : "El muestreo debe ser una potencia de dos.";
+        this.activas = activas;
+        this.mascaraMuestreo = unaDeCada - 1;
+        this.conteos = new LongAdder[OPERACIONES.length][];
+        this.latencias = new HistogramaLatencia[OPERACIONES.length];
+        this.indicadores = new CopyOnWriteArrayList<>();
+        if (activas) {
+            for (Operacion operacion : OPERACIONES) {
+                LongAdder[] porCodigo = new LongAdder[CODIGOS.length];
+                for (int i = 0; i < porCodigo.length; i++) {
+                    porCodigo[i] = new LongAdder();
+                }
+                conteos[operacion.ordinal()] = porCodigo;
+                latencias[operacion.ordinal()] = new HistogramaLatencia();
+            }
+        }
+    }
+
+    /**
+     * @return Unas métricas que no registran nada.
+     */
+    public static MetricasBiblioteca desactivadas() {
+        return new MetricasBiblioteca(false, 1);
+    }
+
+    /**
+     * @return true si las métricas registran las operaciones.
+     */
+    public boolean estanActivas() {
+        return activas;
+    }
+
+    /**
+     * Agrega un indicador que se lee en cada exportación (p. ej. los préstamos
+     * activos).
+     * @param nombre El nombre de la métrica en Prometheus.
+     * @param ayuda  La descripción de la métrica.
+     * @param valor  La función que lee el valor actual.
+     */
+    public void registrarIndicador(String nombre, String ayuda, LongSupplier valor) {
+        assert nombre != null && !nombre.isEmpty() : "El nombre del indicador no puede ser nulo o vacío.";
+        assert valor != null : "La función del indicador no puede ser nula.";
+        indicadores.add(new Indicador(nombre, ayuda, valor));
+    }
+
+    /**
+     * Marca el inicio de una operación.
+     * @return El instante de inicio, o {@link #SIN_MEDICION} si la operación
+     *         no se mide.
+     */
+    long iniciar() {
+        if (!activas || (mascaraMuestreo != 0 && (ThreadLocalRandom.current().nextInt() & mascaraMuestreo) != 0)) {
+            return SIN_MEDICION;
+        }
+        return System.nanoTime();
+    }
+
+    /**
+     * Cuenta una operación terminada y registra su latencia.
+     * @param operacion La operación.
+     * @param codigo    El código de su resultado.
+     * @param inicio    El valor devuelto por {@link #iniciar()}.
+     */
+    void registrar(Operacion operacion, ResultadoOperacion.Codigo codigo, long inicio) {
+        if (activas) {
+            if (inicio != SIN_MEDICION) {
+                latencias[operacion.ordinal()].registrar(System.nanoTime() - inicio);
+            }
+            conteos[operacion.ordinal()][codigo.ordinal()].increment();
+        }
+    }
+
+    /**
+     * Cuenta una operación terminada sin registrar su latencia, p. ej. cada
+     * solicitud de un lote.
+     */
+    void contar(Operacion operacion, ResultadoOperacion.Codigo codigo) {
+        if (activas) {
+            conteos[operacion.ordinal()][codigo.ordinal()].increment();
+        }
+    }
+
+    /**
+     * Cuenta de una vez varias operaciones terminadas con el mismo resultado,
+     * p. ej. las filas de una importación.
+     */
+    void contar(Operacion operacion, ResultadoOperacion.Codigo codigo, long cantidad) {
+        if (activas && cantidad > 0) {
+            conteos[operacion.ordinal()][codigo.ordinal()].add(cantidad);
+        }
+    }
+
+    /**
+     * Copia el estado actual de las métricas.
+     * @return La copia; vacía si las métricas están desactivadas.
+     */
+    public Instantanea instantanea() {
+        long[][] copiaConteos = new long[OPERACIONES.length][CODIGOS.length];
+        HistogramaLatencia.Instantanea[] copiaLatencias = new HistogramaLatencia.Instantanea[OPERACIONES.length];
+        Map<String, Long> valores = new LinkedHashMap<>();
+        if (activas) {
+            for (int o = 0; o < OPERACIONES.length; o++) {
+                for (int c = 0; c < CODIGOS.length; c++) {
+                    copiaConteos[o][c] = conteos[o][c].sum();
+                }
+                copiaLatencias[o] = latencias[o].instantanea();
+            }
+            for (Indicador indicador : indicadores) {
+                valores.put(indicador.nombre, indicador.valor.getAsLong());
+            }
+        }
+        return new Instantanea(copiaConteos, copiaLatencias, valores);
+    }
+
+    /**
+     * Escribe las métricas en el formato de texto de Prometheus: un contador
+     * por operación y resultado, un resumen de latencias en segundos por
+     * operación (con muestreo, sobre las operaciones medidas) y los
+     * indicadores. El destino no se cierra.
+     * @param destino El destino de la exportación.
+     * @param libros  Los libros cuya disponibilidad se exporta uno por uno, o
+     *                null para exportar sólo los totales.
+     * @throws IOException Si falla la escritura.
+     */
+    public void escribirPrometheus(Writer destino, Iterable<? extends Libro> libros) throws IOException {
+        Instantanea instantanea = instantanea();
+        StringBuilder linea = new StringBuilder(128);
+        if (activas) {
+            destino.write("# HELP biblioteca_operaciones_total Operaciones terminadas por resultado.\n");
+            destino.write("# TYPE biblioteca_operaciones_total counter\n");
+            for (Operacion operacion : OPERACIONES) {
+                for (ResultadoOperacion.Codigo codigo : CODIGOS) {
+                    long conteo = instantanea.getConteo(operacion, codigo);
+                    // Los rechazos que nunca ocurrieron se omiten; el éxito se escribe siempre
+                    if (conteo > 0 || codigo == ResultadoOperacion.Codigo.EXITO) {
+                        linea.setLength(0);
+                        linea.append("biblioteca_operaciones_total{operacion=\"").append(operacion.etiqueta)
+                                .append("\",resultado=\"").append(codigo.name().toLowerCase(Locale.ROOT))
+                                .append("\"} ").append(conteo).append('\n');
+                        destino.append(linea);
+                    }
+                }
+            }
+
+            destino.write("# HELP biblioteca_latencia_segundos Latencia de las operaciones.\n");
+            destino.write("# TYPE biblioteca_latencia_segundos summary\n");
+            for (Operacion operacion : OPERACIONES) {
+                HistogramaLatencia.Instantanea latencia = instantanea.getLatencias(operacion);
+                for (double cuantil : CUANTILES) {
+                    linea.setLength(0);
+                    linea.append("biblioteca_latencia_segundos{operacion=\"").append(operacion.etiqueta)
+                            .append("\",quantile=\"").append(cuantil).append("\"} ")
+                            .append(segundos(latencia.percentil(cuantil * 100))).append('\n');
+                    destino.append(linea);
+                }
+                linea.setLength(0);
+                linea.append("biblioteca_latencia_segundos_sum{operacion=\"").append(operacion.etiqueta)
+                        .append("\"} ").append(segundos(latencia.getSuma())).append('\n');
+                linea.append("biblioteca_latencia_segundos_count{operacion=\"").append(operacion.etiqueta)
+                        .append("\"} ").append(latencia.getConteo()).append('\n');
+                destino.append(linea);
+            }
+        }
+
+        for (Indicador indicador : indicadores) {
+            linea.setLength(0);
+            linea.append("# HELP ").append(indicador.nombre).append(' ').append(indicador.ayuda).append('\n');
+            linea.append("# TYPE ").append(indicador.nombre).append(" gauge\n");
+            linea.append(indicador.nombre).append(' ').append(indicador.valor.getAsLong()).append('\n');
+            destino.append(linea);
+        }
+
+        if (libros != null) {
+            destino.write("# HELP biblioteca_libro_copias_disponibles Copias disponibles de cada libro.\n");
+            destino.write("# TYPE biblioteca_libro_copias_disponibles gauge\n");
+            for (Libro libro : libros) {
+                linea.setLength(0);
+                linea.append("biblioteca_libro_copias_disponibles{isbn=\"");
+                escaparEtiqueta(libro.getIsbn(), linea);
+                linea.append("\"} ").append(libro.getCopiasDisponibles()).append('\n');
+                destino.append(linea);
+            }
+        }
+    }
+
+    private static double segundos(long nanos) {
+        return nanos / 1e9;
+    }
+
+    private static void escaparEtiqueta(String valor, StringBuilder destino) {
+        for (int i = 0; i < valor.length(); i++) {
+            char c = valor.charAt(i);
+            if (c == '\\' || c == '"') {
+                destino.append('\\').append(c);
+            } else if (c == '\n') {
+                destino.append("\\n");
+            } else {
+                destino.append(c);
+            }
+        }
+    }
+
+    private static final class Indicador {
+        private final String nombre;
+        private final String ayuda;
+        private final LongSupplier valor;
+
+        private Indicador(String nombre, String ayuda, LongSupplier valor) {
+            this.nombre = nombre;
+            this.ayuda = ayuda == null ? "" : ayuda;
+            this.valor = valor;
+        }
+    }
+
+    /**
+     * Copia inmutable de las métricas.
+     */
+    public static final class Instantanea {
+        private final long[][] conteos;
+        private final HistogramaLatencia.Instantanea[] latencias;
+        private final Map<String, Long> indicadores;
+
+        private Instantanea(long[][] conteos, HistogramaLatencia.Instantanea[] latencias,
+                Map<String, Long> indicadores) {
+            this.conteos = conteos;
+            this.latencias = latencias;
+            this.indicadores = indicadores;
+        }
+
+        /**
+         * @return El número de operaciones terminadas con el código.
+         */
+        public long getConteo(Operacion operacion, ResultadoOperacion.Codigo codigo) {
+            return conteos[operacion.ordinal()][codigo.ordinal()];
+        }
+
+        /**
+         * @return El número de operaciones terminadas con cualquier código.
+         */
+        public long getTotal(Operacion operacion) {
+            long total = 0;
+            for (long conteo : conteos[operacion.ordinal()]) {
+                total += conteo;
+            }
+            return total;
+        }
+
+        /**
+         * @return Las latencias de la operación, o null si las métricas están
+         *         desactivadas.
+         */
+        public HistogramaLatencia.Instantanea getLatencias(Operacion operacion) {
+            return latencias[operacion.ordinal()];
+        }
+
+        /**
+         * @return Los valores de los indicadores por nombre (sólo lectura).
+         */
+        public Map<String, Long> getIndicadores() {
+            return Collections.unmodifiableMap(indicadores);
+        }
+    }
+}
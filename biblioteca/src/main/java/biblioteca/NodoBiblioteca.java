@@ -0,0 +1,115 @@
+package biblioteca;
+
+import java.net.InetSocketAddress;
+
+/**
+ * Una partición de una {@link BibliotecaParticionada}: una {@link Biblioteca}
+ * en el mismo proceso ({@link #local(Biblioteca)}) o detrás de un
+ * {@link ServidorBiblioteca} ({@link #remoto(InetSocketAddress, int, String)}).
+ * Los rechazos se devuelven como {@link ResultadoOperacion.Codigo}, sin
+ * excepciones, igual en ambos casos. Las implementaciones deben ser seguras
+ * para uso concurrente.
+ */
+public interface NodoBiblioteca {
+
+    /**
+     * @see Biblioteca#intentarRegistrarLibro(String, String, String, String)
+     */
+    ResultadoOperacion.Codigo registrarLibro(String isbn, String titulo, String autor, String totalCopias);
+
+    /**
+     * @see Biblioteca#intentarRegistrarUsuario(String, String, String, String)
+     */
+    ResultadoOperacion.Codigo registrarUsuario(String claveUsuario, String nombre, String licenciatura,
+            String semestre);
+
+    /**
+     * Descuenta un préstamo del cupo de un usuario de este nodo, comprobando
+     * su límite, para un préstamo que se realiza en otro nodo.
+     * @param claveUsuario La clave del usuario.
+     * @return {@link ResultadoOperacion.Codigo#EXITO}, o el motivo del rechazo.
+     */
+    ResultadoOperacion.Codigo tomarCupo(String claveUsuario);
+
+    /**
+     * Devuelve un cupo de {@link #tomarCupo(String)}, sin bajar de cero.
+     * @param claveUsuario La clave del usuario.
+     * @return {@link ResultadoOperacion.Codigo#EXITO}, o
+     *         {@link ResultadoOperacion.Codigo#CUPO_NO_TOMADO} si el usuario no
+     *         tenía cupos tomados para otros nodos.
+     */
+    ResultadoOperacion.Codigo liberarCupo(String claveUsuario);
+
+    /**
+     * Realiza un préstamo de un libro de este nodo.
+     * @param claveUsuario     La clave del usuario.
+     * @param isbn             El ISBN del libro.
+     * @param fechaPrestamoStr La fecha del préstamo en formato "dd/MM/yyyy".
+     * @return El id del préstamo en este nodo, o un valor negativo con el
+     *         motivo del rechazo (ver {@link #codigo(long)}).
+     */
+    long prestar(String claveUsuario, String isbn, String fechaPrestamoStr);
+
+    /**
+     * Devuelve un préstamo de este nodo.
+     * @param idPrestamo El id del préstamo en este nodo.
+     * @return La clave del usuario del préstamo, o null si no hay un préstamo
+     *         activo con ese id.
+     */
+    String devolver(long idPrestamo);
+
+    /**
+     * @param isbn El ISBN del libro.
+     * @return Las copias disponibles del libro, o -1 si no está en este nodo.
+     */
+    int copiasDisponibles(String isbn);
+
+    /**
+     * Libera los recursos del nodo.
+     */
+    default void cerrar() {
+    }
+
+    /**
+     * @param codigo El motivo de un rechazo.
+     * @return El valor negativo que lo representa en {@link #prestar(String, String, String)}.
+     */
+    static long rechazo(ResultadoOperacion.Codigo codigo) {
+        assert codigo != ResultadoOperacion.Codigo.EXITO : "Un préstamo exitoso se representa con su id.";
+        return -1L - codigo.ordinal();
+    }
+
+    /**
+     * @param resultado El resultado de {@link #prestar(String, String, String)}.
+     * @return El código del resultado.
+     */
+    static ResultadoOperacion.Codigo codigo(long resultado) {
+        return resultado >= 0 ? ResultadoOperacion.Codigo.EXITO
+                : ResultadoOperacion.Codigo.values()[(int) (-1L - resultado)];
+    }
+
+    /**
+     * @param biblioteca La biblioteca del nodo, en este proceso.
+     * @return Un nodo que llama directamente a la biblioteca.
+     */
+    static NodoBiblioteca local(Biblioteca biblioteca) {
+        assert biblioteca != null : "La biblioteca no puede ser nula.";
+        return new NodoLocal(biblioteca);
+    }
+
+    /**
+     * @param direccion  La dirección del {@link ServidorBiblioteca} del nodo.
+     * @param conexiones El número de conexiones abiertas hacia el servidor;
+     *                   limita las solicitudes simultáneas al nodo.
+     * @param claveNodos La {@linkplain ServidorBiblioteca#setClaveNodos(String)
+     *                   clave de nodos} del servidor, que autoriza
+     *                   {@link #tomarCupo(String)} y {@link #liberarCupo(String)}.
+     * @return Un nodo que envía las operaciones por TCP.
+     */
+    static NodoBiblioteca remoto(InetSocketAddress direccion, int conexiones, String claveNodos) {
+        assert direccion != null : "La dirección no puede ser nula.";
+        assert conexiones > 0 : "Debe haber al menos una conexión.";
+        assert claveNodos != null && !claveNodos.isEmpty() : "La clave de nodos no puede ser nula o vacía.";
+        return new NodoRemoto(direccion, conexiones, claveNodos);
+    }
+}
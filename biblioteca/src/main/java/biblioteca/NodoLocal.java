@@ -0,0 +1,55 @@
+package biblioteca;
+
+/**
+ * Nodo de una {@link BibliotecaParticionada} que vive en el mismo proceso.
+ */
+final class NodoLocal implements NodoBiblioteca {
+    private final Biblioteca biblioteca;
+
+    NodoLocal(Biblioteca biblioteca) {
+        this.biblioteca = biblioteca;
+    }
+
+    @Override
+    public ResultadoOperacion.Codigo registrarLibro(String isbn, String titulo, String autor, String totalCopias) {
+        return biblioteca.intentarRegistrarLibro(isbn, titulo, autor, totalCopias).getCodigo();
+    }
+
+    @Override
+    public ResultadoOperacion.Codigo registrarUsuario(String claveUsuario, String nombre, String licenciatura,
+            String semestre) {
+        return biblioteca.intentarRegistrarUsuario(claveUsuario, nombre, licenciatura, semestre).getCodigo();
+    }
+
+    @Override
+    public ResultadoOperacion.Codigo tomarCupo(String claveUsuario) {
+        return biblioteca.tomarCupo(claveUsuario);
+    }
+
+    @Override
+    public ResultadoOperacion.Codigo liberarCupo(String claveUsuario) {
+        return biblioteca.liberarCupo(claveUsuario);
+    }
+
+    @Override
+    public long prestar(String claveUsuario, String isbn, String fechaPrestamoStr) {
+        ResultadoOperacion resultado = biblioteca.intentarPrestamo(claveUsuario, isbn, fechaPrestamoStr);
+        return resultado.esExitoso() ? resultado.getPrestamo().getId() : NodoBiblioteca.rechazo(resultado.getCodigo());
+    }
+
+    @Override
+    public String devolver(long idPrestamo) {
+        ResultadoOperacion resultado = biblioteca.intentarDevolucion(idPrestamo);
+        return resultado.esExitoso() ? resultado.getPrestamo().getUsuario().getClaveUsuario() : null;
+    }
+
+    @Override
+    public int copiasDisponibles(String isbn) {
+        return biblioteca.copiasDisponibles(isbn);
+    }
+
+    @Override
+    public void cerrar() {
+        biblioteca.cerrar();
+    }
+}
@@ -0,0 +1,228 @@
+package biblioteca;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Nodo de una {@link BibliotecaParticionada} detrás de un
+ * {@link ServidorBiblioteca}, con el protocolo de líneas del servidor.
+ *
+ * <p>
+ * Cada solicitud toma una conexión de un conjunto fijo, envía una línea y
+ * espera su respuesta; si todas están ocupadas espera a que se libere una.
+ * Las conexiones se abren al usarse por primera vez y se identifican con la
+ * clave de nodos; una conexión que falla se descarta y se vuelve a abrir en
+ * la siguiente solicitud. Un error de red, o una respuesta que tarda más de
+ * {@link #TIEMPO_ESPERA_MILIS}, se lanza como {@link UncheckedIOException}: la
+ * operación pudo o no aplicarse en el nodo. Cerrar el nodo cierra también
+ * las conexiones en uso, y sus solicitudes terminan con ese error.
+ */
+final class NodoRemoto implements NodoBiblioteca {
+    /** El máximo que se espera para conectar y para cada respuesta. */
+    static final int TIEMPO_ESPERA_MILIS = 30_000;
+
+    private final InetSocketAddress direccion;
+    private final String identificacion; // Línea NODO con la clave de nodos
+    private final Conexion[] todas;
+    private final BlockingQueue<Conexion> libres;
+    private volatile boolean cerrado;
+
+    NodoRemoto(InetSocketAddress direccion, int conexiones, String claveNodos) {
+        this.direccion = direccion;
+        this.identificacion = linea("NODO", claveNodos);
+        this.todas = new Conexion[conexiones];
+        this.libres = new ArrayBlockingQueue<>(conexiones);
+        for (int i = 0; i < conexiones; i++) {
+            todas[i] = new Conexion();
+            libres.add(todas[i]);
+        }
+    }
+
+    @Override
+    public ResultadoOperacion.Codigo registrarLibro(String isbn, String titulo, String autor, String totalCopias) {
+        return codigo(solicitar("LIBRO", isbn, titulo, autor, totalCopias));
+    }
+
+    @Override
+    public ResultadoOperacion.Codigo registrarUsuario(String claveUsuario, String nombre, String licenciatura,
+            String semestre) {
+        return codigo(solicitar("USUARIO", claveUsuario, nombre, licenciatura, semestre));
+    }
+
+    @Override
+    public ResultadoOperacion.Codigo tomarCupo(String claveUsuario) {
+        return codigo(solicitar("CUPO", claveUsuario));
+    }
+
+    @Override
+    public ResultadoOperacion.Codigo liberarCupo(String claveUsuario) {
+        return codigo(solicitar("LIBERAR", claveUsuario));
+    }
+
+    @Override
+    public long prestar(String claveUsuario, String isbn, String fechaPrestamoStr) {
+        String respuesta = solicitar("PRESTAMO", claveUsuario, isbn, fechaPrestamoStr);
+        ResultadoOperacion.Codigo codigo = codigo(respuesta);
+        return codigo == ResultadoOperacion.Codigo.EXITO ? Long.parseLong(dato(respuesta))
+                : NodoBiblioteca.rechazo(codigo);
+    }
+
+    @Override
+    public String devolver(long idPrestamo) {
+        String respuesta = solicitar("DEVOLUCION", Long.toString(idPrestamo));
+        return codigo(respuesta) == ResultadoOperacion.Codigo.EXITO ? dato(respuesta) : null;
+    }
+
+    @Override
+    public int copiasDisponibles(String isbn) {
+        String respuesta = solicitar("DISPONIBLES", isbn);
+        return codigo(respuesta) == ResultadoOperacion.Codigo.EXITO ? Integer.parseInt(dato(respuesta)) : -1;
+    }
+
+    @Override
+    public void cerrar() {
+        cerrado = true;
+        for (Conexion conexion : todas) {
+            conexion.cerrar();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "NodoRemoto{" + direccion + '}';
+    }
+
+    private static String linea(String comando, String... campos) {
+        StringBuilder linea = new StringBuilder(64).append(comando);
+        for (String campo : campos) {
+            String valor = campo == null ? "" : campo;
+            if (valor.indexOf('\t') >= 0 || valor.indexOf('\n') >= 0 || valor.indexOf('\r') >= 0) {
+                throw new IllegalArgumentException("Los campos no pueden contener tabuladores ni saltos de línea.");
+            }
+            linea.append('\t').append(valor);
+        }
+        return linea.append('\n').toString();
+    }
+
+    private String solicitar(String comando, String... campos) {
+        String linea = linea(comando, campos);
+        if (cerrado) {
+            throw new IllegalStateException("El nodo " + direccion + " está cerrado.");
+        }
+        Conexion conexion;
+        try {
+            conexion = libres.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrumpido mientras esperaba una conexión con " + direccion + ".", e);
+        }
+        try {
+            return conexion.solicitar(linea);
+        } catch (IOException e) {
+            conexion.cerrar();
+            throw new UncheckedIOException("Falló la solicitud " + comando + " al nodo " + direccion + ".", e);
+        } finally {
+            libres.add(conexion);
+        }
+    }
+
+    /**
+     * @return El código de una respuesta {@code OK} o {@code ERROR} con un
+     *         código de {@link ResultadoOperacion.Codigo}.
+     * @throws IllegalStateException Si el nodo respondió con un error del
+     *                               protocolo, p. ej. {@code OCUPADO}.
+     */
+    private ResultadoOperacion.Codigo codigo(String respuesta) {
+        if (respuesta.equals("OK") || respuesta.startsWith("OK\t")) {
+            return ResultadoOperacion.Codigo.EXITO;
+        }
+        String[] partes = respuesta.split("\t", 3);
+        if (partes.length == 3 && partes[0].equals("ERROR")) {
+            for (ResultadoOperacion.Codigo codigo : ResultadoOperacion.Codigo.values()) {
+                if (codigo.name().equals(partes[1])) {
+                    return codigo;
+                }
+            }
+            throw new IllegalStateException("El nodo " + direccion + " rechazó la solicitud: " + partes[1]
+                    + " (" + partes[2] + ").");
+        }
+        throw new IllegalStateException("Respuesta inesperada del nodo " + direccion + ": " + respuesta);
+    }
+
+    private static String dato(String respuesta) {
+        return respuesta.substring(3);
+    }
+
+    /**
+     * Conexión con el servidor del nodo; se abre al usarse y se usa por una
+     * solicitud a la vez. Sólo {@link #cerrar()} se puede llamar desde otro
+     * hilo.
+     */
+    private final class Conexion {
+        private volatile Socket socket;
+        private BufferedReader entrada;
+        private Writer salida;
+
+        String solicitar(CharSequence linea) throws IOException {
+            if (socket == null) {
+                Socket nuevo = new Socket();
+                try {
+                    nuevo.setTcpNoDelay(true);
+                    nuevo.connect(direccion, TIEMPO_ESPERA_MILIS);
+                    nuevo.setSoTimeout(TIEMPO_ESPERA_MILIS);
+                } catch (IOException e) {
+                    nuevo.close();
+                    throw e;
+                }
+                socket = nuevo;
+                // Un cierre del nodo durante la conexión no vio este socket
+                if (cerrado) {
+                    cerrar();
+                    throw new IOException("El nodo se cerró.");
+                }
+                entrada = new BufferedReader(new InputStreamReader(nuevo.getInputStream(), StandardCharsets.UTF_8));
+                salida = new BufferedWriter(new OutputStreamWriter(nuevo.getOutputStream(), StandardCharsets.UTF_8));
+                String respuesta = enviar(identificacion);
+                if (!respuesta.equals("OK")) {
+                    cerrar();
+                    throw new IllegalStateException("El nodo " + direccion + " rechazó la clave de nodos: "
+                            + respuesta);
+                }
+            }
+            return enviar(linea);
+        }
+
+        private String enviar(CharSequence linea) throws IOException {
+            salida.append(linea);
+            salida.flush();
+            String respuesta = entrada.readLine();
+            if (respuesta == null) {
+                throw new EOFException("El nodo cerró la conexión.");
+            }
+            return respuesta;
+        }
+
+        void cerrar() {
+            Socket actual = socket;
+            if (actual != null) {
+                try {
+                    actual.close();
+                } catch (IOException e) {
+                    // Ya no hay nada que liberar
+                }
+                socket = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package biblioteca;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Coordina la persistencia de una biblioteca en un directorio: el diario de
+ * operaciones ({@link DiarioBiblioteca}) y los puntos de control
+ * ({@link PuntoControl}).
+ *
+ * <p>
+ * Las operaciones que modifican la biblioteca toman el candado compartido
+ * mientras publican el cambio y lo anotan en el diario; el punto de control
+ * toma el candado exclusivo sólo para cambiar de segmento y copiar las
+ * referencias del estado, y escribe el archivo después de soltarlo. Así cada
+ * operación queda o bien dentro del punto de control o bien en los segmentos
+ * posteriores, nunca en ambos ni en ninguno.
+ */
+public class PersistenciaBiblioteca implements Closeable {
+    private final Path directorio;
+    private final DiarioBiblioteca diario;
+    private final ReentrantReadWriteLock candadoEstado;
+    private ScheduledExecutorService programador;
+
+    private PersistenciaBiblioteca(Path directorio, DiarioBiblioteca diario) {
+        this.directorio = directorio;
+        this.diario = diario;
+        this.candadoEstado = new ReentrantReadWriteLock();
+    }
+
+    /**
+     * Recupera el estado guardado en el directorio dentro de la biblioteca y
+     * abre el diario para seguir escribiendo. Primero carga el último punto de
+     * control y luego reproduce sólo los segmentos del diario posteriores a él.
+     * Un registro incompleto al final del último segmento (caída durante una
+     * escritura no confirmada) se descarta; un registro dañado seguido de
+     * registros válidos hace fallar la apertura.
+     * @param directorio El directorio de la biblioteca; se crea si no existe.
+     * @param biblioteca La biblioteca, vacía, donde se restaura el estado.
+     * @return La persistencia lista para usar.
+     * @throws IOException Si el estado guardado no se puede leer o el diario
+     *                     está dañado en medio de un segmento.
+     */
+    static PersistenciaBiblioteca abrir(Path directorio, Biblioteca biblioteca) throws IOException {
+        Files.createDirectories(directorio);
+        int desde = PuntoControl.cargar(directorio, biblioteca);
+
+        DiarioBiblioteca.Lector lector = new DiarioBiblioteca.Lector() {
+            @Override
+            public void libro(String isbn, String titulo, String autor, int totalCopias) {
+                biblioteca.restaurarLibro(isbn, titulo, autor, totalCopias);
+            }
+
+            @Override
+            public void usuario(String claveUsuario, String nombre, String licenciatura, int semestre) {
+                biblioteca.restaurarUsuario(claveUsuario, nombre, licenciatura, semestre);
+            }
+
+            @Override
+            public void prestamo(long id, String claveUsuario, String isbn, long diaPrestamo,
+                    long diaVencimiento) {
+                biblioteca.restaurarPrestamo(id, claveUsuario, isbn, diaPrestamo, diaVencimiento);
+            }
+
+            @Override
+            public void devolucion(long id) {
+                biblioteca.restaurarDevolucion(id);
+            }
+
+            @Override
+            public void cupo(String claveUsuario) {
+                biblioteca.restaurarCupo(claveUsuario);
+            }
+
+            @Override
+            public void liberacionCupo(String claveUsuario) {
+                biblioteca.restaurarLiberacionCupo(claveUsuario);
+            }
+        };
+
+        List<Integer> segmentos = DiarioBiblioteca.segmentos(directorio);
+        int ultimo = Math.max(desde, 1);
+        for (int i = 0; i < segmentos.size(); i++) {
+            int segmento = segmentos.get(i);
+            if (segmento < desde) {
+                continue;
+            }
+            boolean esUltimo = i == segmentos.size() - 1;
+            DiarioBiblioteca.reproducir(DiarioBiblioteca.rutaSegmento(directorio, segmento), lector, esUltimo);
+            ultimo = segmento;
+        }
+        return new PersistenciaBiblioteca(directorio, DiarioBiblioteca.abrir(directorio, ultimo, 0));
+    }
+
+    public Path getDirectorio() {
+        return directorio;
+    }
+
+    /**
+     * Toma el candado compartido antes de publicar y anotar un cambio.
+     */
+    void iniciarEscritura() {
+        candadoEstado.readLock().lock();
+    }
+
+    /**
+     * Suelta el candado tomado con {@link #iniciarEscritura()}.
+     */
+    void terminarEscritura() {
+        candadoEstado.readLock().unlock();
+    }
+
+    DiarioBiblioteca getDiario() {
+        return diario;
+    }
+
+    /**
+     * Espera a que el diario esté sincronizado con disco hasta la posición.
+     * @param posicion La posición devuelta al anotar la operación.
+     */
+    void confirmar(long posicion) {
+        diario.confirmar(posicion);
+    }
+
+    /**
+     * Guarda un punto de control y borra los segmentos del diario que quedan
+     * incluidos en él.
+     * @param biblioteca La biblioteca cuyo estado se guarda.
+     * @throws IOException Si falla la escritura.
+     */
+    synchronized void guardarPuntoControl(Biblioteca biblioteca) throws IOException {
+        PuntoControl punto;
+        candadoEstado.writeLock().lock();
+        try {
+            int segmento = diario.rotar();
+            punto = biblioteca.capturarPuntoControl(segmento);
+        } finally {
+            candadoEstado.writeLock().unlock();
+        }
+        punto.guardar(directorio);
+        for (int segmento : DiarioBiblioteca.segmentos(directorio)) {
+            if (segmento < punto.getSegmentoDiario()) {
+                Files.deleteIfExists(DiarioBiblioteca.rutaSegmento(directorio, segmento));
+            }
+        }
+    }
+
+    /**
+     * Programa puntos de control periódicos en un hilo en segundo plano.
+     * @param biblioteca La biblioteca cuyo estado se guarda.
+     * @param periodo El tiempo entre puntos de control.
+     * @param unidad La unidad del periodo.
+     */
+    synchronized void programarPuntosControl(Biblioteca biblioteca, long periodo, TimeUnit unidad) {
+        assert periodo > 0 : "El periodo debe ser mayor que cero.";
+        if (programador == null) {
+            programador = Executors.newSingleThreadScheduledExecutor(tarea -> {
+                Thread hilo = new Thread(tarea, "biblioteca-punto-control");
+                hilo.setDaemon(true);
+                return hilo;
+            });
+        }
+        programador.scheduleWithFixedDelay(() -> {
+            try {
+                guardarPuntoControl(biblioteca);
+            } catch (IOException e) {
+                // El diario sigue completo; se reintenta en el siguiente periodo
+                biblioteca.getEventos().operacionFallida("guardar punto de control", e.getMessage());
+            }
+        }, periodo, periodo, unidad);
+    }
+
+    /**
+     * Detiene los puntos de control periódicos y cierra el diario.
+     * @throws IOException Si falla la escritura de lo pendiente.
+     */
+    @Override
+    public void close() throws IOException {
+        ScheduledExecutorService detenido;
+        synchronized (this) {
+            detenido = programador;
+            programador = null;
+        }
+        if (detenido != null) {
+            // Sin interrupciones: interrumpir un hilo que escribe cerraría el canal
+            detenido.shutdown();
+            try {
+                detenido.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        diario.close();
+    }
+}
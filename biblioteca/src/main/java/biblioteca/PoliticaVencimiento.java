@@ -0,0 +1,56 @@
+package biblioteca;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Decide cuántos días dura un préstamo según el perfil del usuario.
+ * La fecha de vencimiento de cada préstamo se calcula una sola vez, al
+ * crearlo, así que cambiar la política no modifica los préstamos activos.
+ * Las implementaciones deben ser seguras para uso concurrente.
+ */
+@FunctionalInterface
+public interface PoliticaVencimiento {
+    /** Duración de un préstamo si no se configura otra política. */
+    int DIAS_PREDETERMINADOS = 14;
+
+    /**
+     * @param usuario El usuario que recibe el préstamo.
+     * @return El número de días del préstamo, mayor que cero.
+     */
+    int diasPrestamo(Usuario usuario);
+
+    /**
+     * @param dias Los días de todos los préstamos.
+     * @return Una política con la misma duración para todos los usuarios.
+     */
+    static PoliticaVencimiento fija(int dias) {
+        assert dias > 0 : "Los días de préstamo deben ser mayores que cero.";
+        return usuario -> dias;
+    }
+
+    /**
+     * @param dias           Los días de préstamo de los primeros semestres.
+     * @param semestreMinimo El primer semestre con préstamo extendido.
+     * @param diasExtendidos Los días de préstamo desde ese semestre.
+     * @return Una política que da más días a los alumnos avanzados.
+     */
+    static PoliticaVencimiento porSemestre(int dias, int semestreMinimo, int diasExtendidos) {
+        assert dias > 0 && diasExtendidos > 0 : "Los días de préstamo deben ser mayores que cero.";
+        return usuario -> usuario.getSemestre() >= semestreMinimo ? diasExtendidos : dias;
+    }
+
+    /**
+     * @param dias  Los días de préstamo por licenciatura.
+     * @param resto La política para las licenciaturas que no aparecen.
+     * @return Una política con la duración propia de cada licenciatura.
+     */
+    static PoliticaVencimiento porLicenciatura(Map<String, Integer> dias, PoliticaVencimiento resto) {
+        assert dias != null && resto != null : "Las duraciones no pueden ser nulas.";
+        Map<String, Integer> copia = new HashMap<>(dias);
+        return usuario -> {
+            Integer propios = copia.get(usuario.getLicenciatura());
+            return propios != null ? propios : resto.diasPrestamo(usuario);
+        };
+    }
+}
@@ -0,0 +1,109 @@
+package biblioteca;
+
+import java.time.LocalDate;
+
+/**
+ * Clase que representa un préstamo de un libro a un usuario.
+ */
+public class Prestamo {
+    private long id;
+    private Usuario usuario;
+    private Libro libro;
+    private long diaPrestamo; // Días desde 01/01/1970, ver FormatoFecha
+    private long diaVencimiento; // Último día para devolver el libro
+
+    /**
+     * Constructor para la clase Prestamo.
+     * @param id El identificador único del préstamo.
+     * @param usuario El usuario que realiza el préstamo.
+     * @param libro El libro que se presta.
+     * @param fechaPrestamo La fecha en que se realiza el préstamo.
+     */
+    public Prestamo(long id, Usuario usuario, Libro libro, LocalDate fechaPrestamo) {
+        this(id, usuario, libro, fechaPrestamo.toEpochDay());
+    }
+
+    /**
+     * Constructor para la clase Prestamo con la fecha ya codificada y la
+     * duración {@linkplain PoliticaVencimiento#DIAS_PREDETERMINADOS predeterminada}.
+     * @param id El identificador único del préstamo.
+     * @param usuario El usuario que realiza el préstamo.
+     * @param libro El libro que se presta.
+     * @param diaPrestamo La fecha del préstamo como días desde 01/01/1970.
+     */
+    public Prestamo(long id, Usuario usuario, Libro libro, long diaPrestamo) {
+        this(id, usuario, libro, diaPrestamo, diaPrestamo + PoliticaVencimiento.DIAS_PREDETERMINADOS);
+    }
+
+    /**
+     * Constructor para la clase Prestamo con las fechas ya codificadas.
+     * @param id El identificador único del préstamo.
+     * @param usuario El usuario que realiza el préstamo.
+     * @param libro El libro que se presta.
+     * @param diaPrestamo La fecha del préstamo como días desde 01/01/1970.
+     * @param diaVencimiento La fecha en que vence el préstamo, posterior a la del préstamo.
+     */
+    public Prestamo(long id, Usuario usuario, Libro libro, long diaPrestamo, long diaVencimiento) {
+        // Assertions for initial data validity
+        assert id > 0 : "El id del préstamo debe ser positivo.";
+        assert usuario != null : "El usuario no puede ser nulo.";
+        assert libro != null : "El libro no puede ser nulo.";
+        assert diaPrestamo != FormatoFecha.INVALIDA : "La fecha de préstamo no puede ser inválida.";
+        assert diaVencimiento > diaPrestamo : "El préstamo debe vencer después de realizarse.";
+
+        this.id = id;
+        this.usuario = usuario;
+        this.libro = libro;
+        this.diaPrestamo = diaPrestamo;
+        this.diaVencimiento = diaVencimiento;
+    }
+
+    // Getters
+    public long getId() {
+        return id;
+    }
+
+    public Usuario getUsuario() {
+        return usuario;
+    }
+
+    public Libro getLibro() {
+        return libro;
+    }
+
+    public LocalDate getFechaPrestamo() {
+        return LocalDate.ofEpochDay(diaPrestamo);
+    }
+
+    public long getDiaPrestamo() {
+        return diaPrestamo;
+    }
+
+    public LocalDate getFechaVencimiento() {
+        return LocalDate.ofEpochDay(diaVencimiento);
+    }
+
+    public long getDiaVencimiento() {
+        return diaVencimiento;
+    }
+
+    /**
+     * @param hoy El día actual, como días desde 01/01/1970.
+     * @return true si el día de vencimiento ya pasó.
+     */
+    public boolean estaVencido(long hoy) {
+        return diaVencimiento < hoy;
+    }
+
+    @Override
+    public String toString() {
+        return "Prestamo{" +
+               "id=" + id +
+               ", usuario=" + usuario.getNombre() +
+               ", libro=" + libro.getTitulo() +
+               ", isbn=" + libro.getIsbn() +
+               ", fechaPrestamo=" + FormatoFecha.formatear(diaPrestamo) +
+               ", fechaVencimiento=" + FormatoFecha.formatear(diaVencimiento) +
+               '}';
+    }
+}
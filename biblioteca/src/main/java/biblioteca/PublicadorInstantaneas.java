@@ -0,0 +1,222 @@
+package biblioteca;
+
+import static biblioteca.InstantaneaCatalogo.BITS_PAGINA;
+import static biblioteca.InstantaneaCatalogo.MASCARA_PAGINA;
+import static biblioteca.InstantaneaCatalogo.TAMANO_PAGINA;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Publica las {@link InstantaneaCatalogo} de una biblioteca.
+ *
+ * <p>
+ * Las operaciones anotan los libros registrados y los libros cuyas copias
+ * disponibles cambiaron, después de cambiarlas; cada publicación quita la
+ * anotación antes de leer el contador, así que un cambio que llega durante
+ * la publicación queda para la siguiente y ninguno se pierde. Hasta la
+ * primera publicación no se anota nada: la primera recorre el catálogo
+ * completo.
+ *
+ * <p>
+ * Con un {@link CatalogoPorFilas} la posición de cada libro es su fila: no
+ * se guardan los libros ni un índice de posiciones, y los libros nuevos se
+ * toman del catálogo a partir de la última fila publicada.
+ *
+ * <p>
+ * Las páginas de la instantánea anterior no se modifican en las posiciones
+ * que ésta puede leer. Los libros nuevos se escriben en posiciones que las
+ * versiones anteriores no leen; una página con libros que cambiaron se copia
+ * una vez por publicación.
+ */
+class PublicadorInstantaneas {
+    private final Catalogo catalogo;
+    private final CatalogoPorFilas porFilas; // El catálogo si es por filas, o null
+    private final IndiceClaves<Integer> posiciones; // ISBN -> Posición; null por filas
+    private final Queue<Libro> registrados;
+    private final Set<Libro> cambiados;
+    private volatile boolean activo;
+    private volatile InstantaneaCatalogo actual; // null hasta la primera publicación
+
+    // Estado de la siguiente versión, protegido por el candado del publicador
+    private Libro[][] libros; // null por filas
+    private int[][] disponibles;
+    private int tamano;
+    private long copias;
+    private long copiasDisponibles;
+    private long version;
+    private boolean paginasPropias; // El arreglo de páginas no es el de la versión anterior
+    private final BitSet paginasCopiadas; // En la publicación en curso
+
+    PublicadorInstantaneas(Catalogo catalogo) {
+        this.catalogo = catalogo;
+        this.porFilas = catalogo instanceof CatalogoPorFilas filas ? filas : null;
+        this.posiciones = porFilas == null ? IndiceClaves.porIsbn() : null;
+        this.registrados = new ConcurrentLinkedQueue<>();
+        this.cambiados = ConcurrentHashMap.newKeySet();
+        this.libros = porFilas == null ? new Libro[1][] : null;
+        this.disponibles = new int[1][];
+        this.paginasCopiadas = new BitSet();
+    }
+
+    /**
+     * Anota un libro recién registrado. Por filas no hace falta: el catálogo
+     * ya los tiene en orden.
+     */
+    void libroRegistrado(Libro libro) {
+        if (activo && porFilas == null) {
+            registrados.add(libro);
+        }
+    }
+
+    /**
+     * Anota varios libros recién registrados de una vez, p. ej. un trozo de
+     * una importación; la cola los enlaza con un solo cambio atómico.
+     */
+    void librosRegistrados(Libro[] libros, int cantidad) {
+        if (activo && porFilas == null && cantidad > 0) {
+            registrados.addAll(Arrays.asList(libros).subList(0, cantidad));
+        }
+    }
+
+    /**
+     * Anota un libro cuyas copias disponibles cambiaron. Se llama después de
+     * cambiar el contador.
+     */
+    void disponibilidadCambiada(Libro libro) {
+        if (activo) {
+            cambiados.add(libro);
+        }
+    }
+
+    /**
+     * @return La última instantánea publicada; si no hay ninguna, publica la
+     *         primera.
+     */
+    InstantaneaCatalogo actual() {
+        InstantaneaCatalogo instantanea = actual;
+        return instantanea != null ? instantanea : publicar();
+    }
+
+    /**
+     * Publica una versión con los cambios anotados desde la anterior. Si no
+     * hay cambios devuelve la misma instantánea.
+     * @return La instantánea publicada.
+     */
+    synchronized InstantaneaCatalogo publicar() {
+        boolean hayCambios = false;
+        if (!activo) {
+            // Se activa antes de recorrer: lo que el recorrido no ve, se anota
+            activo = true;
+            if (porFilas == null) {
+                for (Libro libro : catalogo) {
+                    incorporar(libro);
+                }
+            }
+            hayCambios = true;
+        }
+        Libro libro;
+        if (porFilas != null) {
+            // Las filas se publican en orden, así que la posición sigue siendo la fila
+            for (int fila = tamano, total = porFilas.tamano(); fila < total; fila++) {
+                hayCambios |= incorporar(porFilas.libroEnFila(fila));
+            }
+        }
+        while ((libro = registrados.poll()) != null) {
+            hayCambios |= incorporar(libro);
+        }
+        for (Iterator<Libro> iterador = cambiados.iterator(); iterador.hasNext();) {
+            libro = iterador.next();
+            iterador.remove();
+            hayCambios |= actualizar(libro);
+        }
+        if (hayCambios || actual == null) {
+            paginasCopiadas.clear();
+            paginasPropias = false;
+            actual = new InstantaneaCatalogo(++version, libros, porFilas, disponibles, tamano, posiciones, copias,
+                    copiasDisponibles);
+        }
+        return actual;
+    }
+
+    /**
+     * @return true si el libro no estaba en la instantánea.
+     */
+    private boolean incorporar(Libro libro) {
+        int posicion = tamano;
+        if (porFilas != null) {
+            assert porFilas.fila(libro) == posicion : "Las filas se incorporan en orden.";
+        } else if (posiciones.agregarSiAusente(libro.getIsbn(), posicion) != null) {
+            return false;
+        }
+        int pagina = posicion >>> BITS_PAGINA;
+        if (pagina == disponibles.length) {
+            // Las versiones anteriores no leen páginas nuevas ni las
+            // posiciones nuevas de las existentes
+            if (libros != null) {
+                libros = Arrays.copyOf(libros, pagina * 2);
+            }
+            disponibles = Arrays.copyOf(disponibles, pagina * 2);
+            paginasPropias = true;
+        }
+        if (disponibles[pagina] == null) {
+            if (libros != null) {
+                libros[pagina] = new Libro[TAMANO_PAGINA];
+            }
+            disponibles[pagina] = new int[TAMANO_PAGINA];
+            paginasCopiadas.set(pagina);
+        }
+        int valor = libro.getCopiasDisponibles();
+        if (libros != null) {
+            libros[pagina][posicion & MASCARA_PAGINA] = libro;
+        }
+        disponibles[pagina][posicion & MASCARA_PAGINA] = valor;
+        tamano = posicion + 1;
+        copias += libro.getTotalCopias();
+        copiasDisponibles += valor;
+        return true;
+    }
+
+    /**
+     * @return true si cambiaron las copias disponibles del libro.
+     */
+    private boolean actualizar(Libro libro) {
+        int posicion;
+        if (porFilas != null) {
+            posicion = porFilas.fila(libro);
+            if (posicion >= tamano) {
+                return false; // Fila posterior al recorrido; la siguiente publicación la incorpora
+            }
+        } else {
+            Integer guardada = posiciones.buscar(libro.getIsbn());
+            if (guardada == null) {
+                // Registrado después de vaciar la cola; llegará también por ella
+                return incorporar(libro);
+            }
+            posicion = guardada;
+        }
+        int pagina = posicion >>> BITS_PAGINA;
+        int casilla = posicion & MASCARA_PAGINA;
+        int valor = libro.getCopiasDisponibles();
+        int anterior = disponibles[pagina][casilla];
+        if (valor == anterior) {
+            return false;
+        }
+        if (!paginasCopiadas.get(pagina)) {
+            if (!paginasPropias) {
+                disponibles = disponibles.clone();
+                paginasPropias = true;
+            }
+            disponibles[pagina] = disponibles[pagina].clone();
+            paginasCopiadas.set(pagina);
+        }
+        disponibles[pagina][casilla] = valor;
+        copiasDisponibles += valor - anterior;
+        return true;
+    }
+}
@@ -0,0 +1,190 @@
+package biblioteca;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Instantánea compacta del estado de la biblioteca en disco.
+ * Guarda los libros, los usuarios y los préstamos activos junto con el número
+ * de segmento del diario a partir del cual hay que reproducir, de modo que
+ * al arrancar sólo se lee la cola del diario. Las copias disponibles no se
+ * guardan: se deducen de los préstamos activos. De cada usuario se guardan
+ * también los cupos tomados para préstamos de otros nodos, que no están en
+ * los préstamos activos de esta biblioteca.
+ * El archivo se escribe en uno temporal y se renombra de forma atómica, así
+ * que una caída durante la escritura conserva el punto de control anterior.
+ */
+public class PuntoControl {
+    static final String ARCHIVO = "punto-control.bin";
+
+    private static final int MAGICO = 0x42494250; // "BIBP"
+    private static final int VERSION = 3; // La 3 agrega los cupos de préstamos de otros nodos
+    private static final int VERSION_SIN_CUPOS = 2; // La 2 agrega el vencimiento de los préstamos
+    private static final int VERSION_SIN_VENCIMIENTOS = 1;
+
+    private final int segmentoDiario;
+    private final long siguienteIdPrestamo;
+    private final Libro[] libros;
+    private final Usuario[] usuarios;
+    private final int[] cuposRemotos;
+    private final Prestamo[] prestamos;
+
+    /**
+     * Constructor de la clase PuntoControl.
+     * @param segmentoDiario El primer segmento del diario que no está incluido.
+     * @param siguienteIdPrestamo El siguiente id de préstamo a asignar.
+     * @param libros Los libros registrados.
+     * @param usuarios Los usuarios registrados.
+     * @param cuposRemotos Los cupos de préstamos de otros nodos de cada
+     *                     usuario, en el mismo orden; se copian con el estado
+     *                     porque los contadores siguen cambiando.
+     * @param prestamos Los préstamos activos.
+     */
+    PuntoControl(int segmentoDiario, long siguienteIdPrestamo, Libro[] libros, Usuario[] usuarios,
+            int[] cuposRemotos, Prestamo[] prestamos) {
+        assert cuposRemotos.length == usuarios.length : "Debe haber un conteo de cupos por usuario.";
+        this.segmentoDiario = segmentoDiario;
+        this.siguienteIdPrestamo = siguienteIdPrestamo;
+        this.libros = libros;
+        this.usuarios = usuarios;
+        this.cuposRemotos = cuposRemotos;
+        this.prestamos = prestamos;
+    }
+
+    public int getSegmentoDiario() {
+        return segmentoDiario;
+    }
+
+    /**
+     * Escribe el punto de control en el directorio, reemplazando al anterior.
+     * @param directorio El directorio de la biblioteca.
+     * @throws IOException Si falla la escritura.
+     */
+    void guardar(Path directorio) throws IOException {
+        Path temporal = directorio.resolve(ARCHIVO + ".tmp");
+        CRC32 crc = new CRC32();
+        try (DataOutputStream salida = new DataOutputStream(new CheckedOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(temporal), 1 << 16), crc))) {
+            salida.writeInt(MAGICO);
+            salida.writeInt(VERSION);
+            salida.writeInt(segmentoDiario);
+            salida.writeLong(siguienteIdPrestamo);
+
+            salida.writeInt(libros.length);
+            for (Libro libro : libros) {
+                escribirTexto(salida, libro.getIsbn());
+                escribirTexto(salida, libro.getTitulo());
+                escribirTexto(salida, libro.getAutor());
+                salida.writeInt(libro.getTotalCopias());
+            }
+
+            salida.writeInt(usuarios.length);
+            for (int i = 0; i < usuarios.length; i++) {
+                Usuario usuario = usuarios[i];
+                escribirTexto(salida, usuario.getClaveUsuario());
+                escribirTexto(salida, usuario.getNombre());
+                escribirTexto(salida, usuario.getLicenciatura());
+                salida.writeInt(usuario.getSemestre());
+                salida.writeInt(cuposRemotos[i]);
+            }
+
+            salida.writeInt(prestamos.length);
+            for (Prestamo prestamo : prestamos) {
+                salida.writeLong(prestamo.getId());
+                escribirTexto(salida, prestamo.getUsuario().getClaveUsuario());
+                escribirTexto(salida, prestamo.getLibro().getIsbn());
+                salida.writeLong(prestamo.getDiaPrestamo());
+                salida.writeLong(prestamo.getDiaVencimiento());
+            }
+            // El crc cubre todo lo anterior
+            salida.writeLong(crc.getValue());
+        }
+        try (FileChannel canal = FileChannel.open(temporal, StandardOpenOption.WRITE)) {
+            canal.force(true);
+        }
+        Files.move(temporal, directorio.resolve(ARCHIVO), StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Carga el punto de control del directorio en la biblioteca.
+     * @param directorio El directorio de la biblioteca.
+     * @param biblioteca La biblioteca, vacía, donde se restaura el estado.
+     * @return El segmento del diario desde el que hay que reproducir, o 0 si
+     *         no hay punto de control.
+     * @throws IOException Si el archivo no se puede leer o está dañado.
+     */
+    static int cargar(Path directorio, Biblioteca biblioteca) throws IOException {
+        Path ruta = directorio.resolve(ARCHIVO);
+        if (!Files.exists(ruta)) {
+            return 0;
+        }
+        CRC32 crc = new CRC32();
+        try (DataInputStream entrada = new DataInputStream(new CheckedInputStream(
+                new BufferedInputStream(Files.newInputStream(ruta), 1 << 16), crc))) {
+            if (entrada.readInt() != MAGICO) {
+                throw new IOException("El archivo no es un punto de control de la biblioteca: " + ruta);
+            }
+            int version = entrada.readInt();
+            if (version != VERSION && version != VERSION_SIN_CUPOS && version != VERSION_SIN_VENCIMIENTOS) {
+                throw new IOException("Versión de punto de control no soportada: " + version);
+            }
+            int segmento = entrada.readInt();
+            long siguienteId = entrada.readLong();
+
+            int totalLibros = entrada.readInt();
+            for (int i = 0; i < totalLibros; i++) {
+                biblioteca.restaurarLibro(leerTexto(entrada), leerTexto(entrada), leerTexto(entrada),
+                        entrada.readInt());
+            }
+
+            int totalUsuarios = entrada.readInt();
+            for (int i = 0; i < totalUsuarios; i++) {
+                String clave = leerTexto(entrada);
+                biblioteca.restaurarUsuario(clave, leerTexto(entrada), leerTexto(entrada), entrada.readInt());
+                int cupos = version == VERSION ? entrada.readInt() : 0;
+                for (int j = 0; j < cupos; j++) {
+                    biblioteca.restaurarCupo(clave);
+                }
+            }
+
+            int totalPrestamos = entrada.readInt();
+            for (int i = 0; i < totalPrestamos; i++) {
+                biblioteca.restaurarPrestamo(entrada.readLong(), leerTexto(entrada), leerTexto(entrada),
+                        entrada.readLong(),
+                        version != VERSION_SIN_VENCIMIENTOS ? entrada.readLong() : FormatoFecha.INVALIDA);
+            }
+            biblioteca.restaurarSiguienteIdPrestamo(siguienteId);
+
+            long calculado = crc.getValue();
+            if (entrada.readLong() != calculado) {
+                throw new IOException("El punto de control está dañado: " + ruta);
+            }
+            return segmento;
+        }
+    }
+
+    private static void escribirTexto(DataOutputStream salida, String texto) throws IOException {
+        byte[] bytes = texto.getBytes(StandardCharsets.UTF_8);
+        salida.writeInt(bytes.length);
+        salida.write(bytes);
+    }
+
+    private static String leerTexto(DataInputStream entrada) throws IOException {
+        byte[] bytes = new byte[entrada.readInt()];
+        entrada.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
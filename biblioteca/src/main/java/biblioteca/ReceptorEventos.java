@@ -0,0 +1,73 @@
+package biblioteca;
+
+/**
+ * Receptor de los eventos que produce la biblioteca: registros, préstamos,
+ * devoluciones, vencimientos y operaciones fallidas.
+ * Permite decidir fuera de {@link Biblioteca} qué se hace con ellos
+ * (mostrarlos en consola, descartarlos, encolarlos, etc.), de modo que la
+ * lógica de préstamos no dependa de la entrada/salida.
+ * Las implementaciones deben ser seguras para uso concurrente.
+ */
+public interface ReceptorEventos {
+
+    /**
+     * @param libro El libro registrado.
+     */
+    void libroRegistrado(Libro libro);
+
+    /**
+     * @param usuario El usuario registrado.
+     */
+    void usuarioRegistrado(Usuario usuario);
+
+    /**
+     * @param prestamo El préstamo realizado.
+     */
+    void prestamoRealizado(Prestamo prestamo);
+
+    /**
+     * @param prestamo El préstamo devuelto.
+     */
+    void prestamoDevuelto(Prestamo prestamo);
+
+    /**
+     * Se emite una vez por préstamo, al revisar los vencimientos después de
+     * su día de vencimiento sin que se haya devuelto.
+     * @param prestamo El préstamo vencido.
+     */
+    void prestamoVencido(Prestamo prestamo);
+
+    /**
+     * @param operacion La operación que falló (p. ej. "realizar préstamo").
+     * @param mensaje El motivo del fallo.
+     */
+    void operacionFallida(String operacion, String mensaje);
+
+    /**
+     * Se emite al terminar cada intento de préstamo, haya tenido éxito o no.
+     * @param claveUsuario La clave del usuario que solicitó el préstamo.
+     * @param isbnLibro El ISBN del libro solicitado.
+     */
+    void intentoPrestamoProcesado(String claveUsuario, String isbnLibro);
+
+    /**
+     * Indica que los eventos siguientes, hasta {@link #terminarLote()}, se
+     * entregan juntos desde un mismo hilo, como hace
+     * {@link ReceptorEventosAsincrono}. El receptor puede acumularlos y
+     * escribirlos de una vez al terminar el lote.
+     */
+    default void iniciarLote() {
+    }
+
+    /**
+     * Termina el lote abierto con {@link #iniciarLote()}.
+     */
+    default void terminarLote() {
+    }
+
+    /**
+     * Libera los recursos del receptor, entregando antes los eventos pendientes.
+     */
+    default void cerrar() {
+    }
+}
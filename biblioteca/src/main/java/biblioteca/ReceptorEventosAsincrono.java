@@ -0,0 +1,295 @@
+package biblioteca;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Receptor de eventos asíncrono: encola los eventos en un búfer circular
+ * acotado y un hilo en segundo plano los entrega por lotes a otro receptor.
+ * Quien emite el evento nunca espera por la entrada/salida: si el búfer está
+ * lleno, el evento se descarta y se cuenta en {@link #getDescartados()}.
+ *
+ * <p>
+ * El búfer es un anillo de varios productores y un consumidor con las
+ * casillas reservadas de antemano: cada emisor toma una posición con una
+ * sola comparación e intercambio sobre {@code cola}, copia los campos del
+ * evento en su casilla y la publica con el número de secuencia de la casilla,
+ * sin crear objetos ni tomar candados. El hilo de entrega lee las casillas
+ * publicadas en orden y las devuelve a los emisores al avanzar su secuencia
+ * una vuelta. Cada lote se entrega entre {@link ReceptorEventos#iniciarLote()}
+ * y {@link ReceptorEventos#terminarLote()}, de modo que el destino puede
+ * escribirlo de una vez.
+ *
+ * <p>
+ * Al cerrar, cada evento emitido se entrega o se cuenta como descartado:
+ * el cierre es un bit de {@code cola}, así que una posición se toma antes
+ * del cierre (y el hilo la espera hasta entregarla) o el emisor ve el cierre
+ * y descarta el evento.
+ */
+public class ReceptorEventosAsincrono implements ReceptorEventos {
+    /** Capacidad del búfer cuando no se indica otra. */
+    public static final int CAPACIDAD_PREDETERMINADA = 8192;
+
+    private static final int TAMANO_LOTE = 256;
+    private static final long CERRADO = 1L << 62;
+    private static final long ESPERA_NANOS = 50_000_000L;
+
+    private static final int LIBRO_REGISTRADO = 0;
+    private static final int USUARIO_REGISTRADO = 1;
+    private static final int PRESTAMO_REALIZADO = 2;
+    private static final int PRESTAMO_DEVUELTO = 3;
+    private static final int OPERACION_FALLIDA = 4;
+    private static final int INTENTO_PRESTAMO = 5;
+    private static final int PRESTAMO_VENCIDO = 6;
+
+    private final ReceptorEventos destino;
+    private final int capacidad;
+    private final int mascara;
+    // Casillas del anillo: la secuencia indica si la casilla está libre para
+    // la posición p (p) o publicada con el evento de la posición p (p + 1)
+    private final AtomicLongArray secuencias;
+    private final int[] tipos;
+    private final Object[] objetos;
+    private final String[] textos1;
+    private final String[] textos2;
+    private final AtomicLong cola; // Siguiente posición a tomar, más el bit CERRADO
+    private final AtomicLong descartados;
+    private final Thread hilo;
+    private long cabeza; // Siguiente posición a entregar; sólo la usa el hilo
+    private volatile boolean esperando;
+
+    /**
+     * Constructor con la capacidad predeterminada.
+     * @param destino El receptor que recibe los eventos en segundo plano.
+     */
+    public ReceptorEventosAsincrono(ReceptorEventos destino) {
+        this(destino, CAPACIDAD_PREDETERMINADA);
+    }
+
+    /**
+     * Constructor de la clase ReceptorEventosAsincrono.
+     * @param destino El receptor que recibe los eventos en segundo plano.
+     * @param capacidad El número máximo de eventos pendientes; se redondea a
+     *                  la siguiente potencia de dos.
+     */
+    public ReceptorEventosAsincrono(ReceptorEventos destino, int capacidad) {
+        assert destino != null : "El receptor de destino no puede ser nulo.";
+        assert capacidad > 0 && capacidad <= 1 << 30 : "La capacidad debe estar entre 1 y 2^30.";
+
+        this.destino = destino;
+        this.capacidad = capacidad == 1 ? 1 : Integer.highestOneBit(capacidad - 1) << 1;
+        this.mascara = this.capacidad - 1;
+        this.secuencias = new AtomicLongArray(this.capacidad);
+        for (int i = 0; i < this.capacidad; i++) {
+            secuencias.set(i, i);
+        }
+        this.tipos = new int[this.capacidad];
+        this.objetos = new Object[this.capacidad];
+        this.textos1 = new String[this.capacidad];
+        this.textos2 = new String[this.capacidad];
+        this.cola = new AtomicLong();
+        this.descartados = new AtomicLong();
+        this.hilo = new Thread(this::entregar, "biblioteca-eventos");
+        this.hilo.setDaemon(true);
+        this.hilo.start();
+    }
+
+    @Override
+    public void libroRegistrado(Libro libro) {
+        encolar(LIBRO_REGISTRADO, libro, null, null);
+    }
+
+    @Override
+    public void usuarioRegistrado(Usuario usuario) {
+        encolar(USUARIO_REGISTRADO, usuario, null, null);
+    }
+
+    @Override
+    public void prestamoRealizado(Prestamo prestamo) {
+        encolar(PRESTAMO_REALIZADO, prestamo, null, null);
+    }
+
+    @Override
+    public void prestamoDevuelto(Prestamo prestamo) {
+        encolar(PRESTAMO_DEVUELTO, prestamo, null, null);
+    }
+
+    @Override
+    public void prestamoVencido(Prestamo prestamo) {
+        encolar(PRESTAMO_VENCIDO, prestamo, null, null);
+    }
+
+    @Override
+    public void operacionFallida(String operacion, String mensaje) {
+        encolar(OPERACION_FALLIDA, null, operacion, mensaje);
+    }
+
+    @Override
+    public void intentoPrestamoProcesado(String claveUsuario, String isbnLibro) {
+        encolar(INTENTO_PRESTAMO, null, claveUsuario, isbnLibro);
+    }
+
+    /**
+     * Deja de aceptar eventos, espera a que se entreguen los pendientes y
+     * cierra el receptor de destino.
+     */
+    @Override
+    public void cerrar() {
+        long estado = cola.get();
+        while ((estado & CERRADO) == 0 && !cola.compareAndSet(estado, estado | CERRADO)) {
+            estado = cola.get();
+        }
+        LockSupport.unpark(hilo);
+        try {
+            hilo.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        destino.cerrar();
+    }
+
+    /**
+     * @return El número de eventos descartados porque el búfer estaba lleno
+     *         o el receptor ya estaba cerrado.
+     */
+    public long getDescartados() {
+        return descartados.get();
+    }
+
+    private void encolar(int tipo, Object objeto, String texto1, String texto2) {
+        long posicion = cola.get();
+        int indice;
+        while (true) {
+            if ((posicion & CERRADO) != 0) {
+                descartados.incrementAndGet();
+                return;
+            }
+            indice = (int) posicion & mascara;
+            long diferencia = secuencias.get(indice) - posicion;
+            if (diferencia == 0) {
+                if (cola.compareAndSet(posicion, posicion + 1)) {
+                    break;
+                }
+            } else if (diferencia < 0) {
+                // La casilla aún guarda el evento de la vuelta anterior: búfer lleno
+                descartados.incrementAndGet();
+                return;
+            }
+            posicion = cola.get();
+        }
+        tipos[indice] = tipo;
+        objetos[indice] = objeto;
+        textos1[indice] = texto1;
+        textos2[indice] = texto2;
+        secuencias.set(indice, posicion + 1);
+        // La publicación se escribe antes de leer la espera, y el hilo anuncia
+        // la espera antes de volver a mirar la casilla: uno de los dos ve al otro
+        if (esperando) {
+            LockSupport.unpark(hilo);
+        }
+    }
+
+    /**
+     * Bucle del hilo en segundo plano: entrega juntos todos los eventos
+     * publicados, hasta un lote completo, y espera cuando no hay ninguno.
+     * Después del cierre sigue hasta entregar todas las posiciones tomadas.
+     */
+    private void entregar() {
+        while (true) {
+            if (entregarLote() > 0) {
+                continue;
+            }
+            long estado = cola.get();
+            if ((estado & CERRADO) != 0 && cabeza == (estado & ~CERRADO)) {
+                return;
+            }
+            esperando = true;
+            if (!publicado(cabeza) && (cola.get() & CERRADO) == 0) {
+                LockSupport.parkNanos(this, ESPERA_NANOS);
+            } else if (!publicado(cabeza)) {
+                // Cerrado con posiciones tomadas que aún no se publican
+                Thread.yield();
+            }
+            esperando = false;
+        }
+    }
+
+    private boolean publicado(long posicion) {
+        return secuencias.get((int) posicion & mascara) == posicion + 1;
+    }
+
+    /**
+     * Entrega en un lote los eventos publicados a partir de {@code cabeza}.
+     * Cada casilla se libera antes de despachar su evento.
+     * @return El número de eventos del lote.
+     */
+    private int entregarLote() {
+        int entregados = 0;
+        try {
+            while (entregados < TAMANO_LOTE && publicado(cabeza)) {
+                int indice = (int) cabeza & mascara;
+                int tipo = tipos[indice];
+                Object objeto = objetos[indice];
+                String texto1 = textos1[indice];
+                String texto2 = textos2[indice];
+                objetos[indice] = null;
+                textos1[indice] = null;
+                textos2[indice] = null;
+                secuencias.set(indice, cabeza + capacidad);
+                cabeza++;
+                if (entregados == 0) {
+                    destino.iniciarLote();
+                }
+                entregados++;
+                despachar(tipo, objeto, texto1, texto2);
+            }
+        } finally {
+            if (entregados > 0) {
+                cerrarLote();
+            }
+        }
+        return entregados;
+    }
+
+    private void cerrarLote() {
+        try {
+            destino.terminarLote();
+        } catch (RuntimeException e) {
+            // Se pierde la escritura del lote, pero no la entrega de los siguientes
+        }
+    }
+
+    private void despachar(int tipo, Object objeto, String texto1, String texto2) {
+        try {
+            switch (tipo) {
+                case LIBRO_REGISTRADO:
+                    destino.libroRegistrado((Libro) objeto);
+                    break;
+                case USUARIO_REGISTRADO:
+                    destino.usuarioRegistrado((Usuario) objeto);
+                    break;
+                case PRESTAMO_REALIZADO:
+                    destino.prestamoRealizado((Prestamo) objeto);
+                    break;
+                case PRESTAMO_DEVUELTO:
+                    destino.prestamoDevuelto((Prestamo) objeto);
+                    break;
+                case PRESTAMO_VENCIDO:
+                    destino.prestamoVencido((Prestamo) objeto);
+                    break;
+                case OPERACION_FALLIDA:
+                    destino.operacionFallida(texto1, texto2);
+                    break;
+                case INTENTO_PRESTAMO:
+                    destino.intentoPrestamoProcesado(texto1, texto2);
+                    break;
+                default:
+                    assert false : "Tipo de evento desconocido: " + tipo;
+            }
+        } catch (RuntimeException e) {
+            // Un receptor defectuoso no debe detener la entrega del resto
+            descartados.incrementAndGet();
+        }
+    }
+}
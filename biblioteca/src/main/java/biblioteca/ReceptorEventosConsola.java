@@ -0,0 +1,126 @@
+package biblioteca;
+
+import java.io.PrintStream;
+
+/**
+ * Receptor de eventos que escribe en consola con los mismos mensajes que la
+ * biblioteca mostraba originalmente: los eventos exitosos en la salida
+ * estándar y los fallos en la salida de error.
+ *
+ * <p>
+ * Fuera de un lote cada evento se escribe en cuanto llega. Dentro de un lote
+ * (ver {@link ReceptorEventos#iniciarLote()}) los mensajes se acumulan y se
+ * escriben con una sola escritura por flujo al terminarlo.
+ */
+public class ReceptorEventosConsola implements ReceptorEventos {
+    private static final String FIN_LINEA = System.lineSeparator();
+
+    private final PrintStream salida;
+    private final PrintStream error;
+    private final StringBuilder pendienteSalida;
+    private final StringBuilder pendienteError;
+    private boolean enLote;
+
+    /**
+     * Constructor que escribe en System.out y System.err.
+     */
+    public ReceptorEventosConsola() {
+        this(System.out, System.err);
+    }
+
+    /**
+     * Constructor de la clase ReceptorEventosConsola.
+     * @param salida Flujo para los eventos exitosos.
+     * @param error Flujo para los fallos.
+     */
+    public ReceptorEventosConsola(PrintStream salida, PrintStream error) {
+        assert salida != null && error != null : "Los flujos de salida no pueden ser nulos.";
+        this.salida = salida;
+        this.error = error;
+        this.pendienteSalida = new StringBuilder();
+        this.pendienteError = new StringBuilder();
+    }
+
+    @Override
+    public synchronized void libroRegistrado(Libro libro) {
+        pendienteSalida.append("Libro registrado exitosamente: ").append(libro.getTitulo())
+                .append(" (ISBN: ").append(libro.getIsbn()).append(')').append(FIN_LINEA);
+        escribirFueraDeLote();
+    }
+
+    @Override
+    public synchronized void usuarioRegistrado(Usuario usuario) {
+        pendienteSalida.append("Usuario registrado exitosamente: ").append(usuario.getNombre())
+                .append(" (Clave: ").append(usuario.getClaveUsuario()).append(')').append(FIN_LINEA);
+        escribirFueraDeLote();
+    }
+
+    @Override
+    public synchronized void prestamoRealizado(Prestamo prestamo) {
+        pendienteSalida.append("Préstamo realizado exitosamente:").append(FIN_LINEA)
+                .append(prestamo).append(FIN_LINEA);
+        escribirFueraDeLote();
+    }
+
+    @Override
+    public synchronized void prestamoDevuelto(Prestamo prestamo) {
+        pendienteSalida.append("Devolución realizada exitosamente:").append(FIN_LINEA)
+                .append(prestamo).append(FIN_LINEA);
+        escribirFueraDeLote();
+    }
+
+    @Override
+    public synchronized void prestamoVencido(Prestamo prestamo) {
+        pendienteSalida.append("Préstamo vencido:").append(FIN_LINEA)
+                .append(prestamo).append(FIN_LINEA);
+        escribirFueraDeLote();
+    }
+
+    @Override
+    public synchronized void operacionFallida(String operacion, String mensaje) {
+        pendienteError.append("Error al ").append(operacion).append(": ").append(mensaje).append(FIN_LINEA);
+        escribirFueraDeLote();
+    }
+
+    @Override
+    public synchronized void intentoPrestamoProcesado(String claveUsuario, String isbnLibro) {
+        pendienteSalida.append("Intento de préstamo procesado para usuario: ").append(claveUsuario)
+                .append(", libro: ").append(isbnLibro).append(FIN_LINEA);
+        escribirFueraDeLote();
+    }
+
+    @Override
+    public synchronized void iniciarLote() {
+        enLote = true;
+    }
+
+    @Override
+    public synchronized void terminarLote() {
+        enLote = false;
+        escribir();
+    }
+
+    @Override
+    public synchronized void cerrar() {
+        escribir();
+        salida.flush();
+        error.flush();
+    }
+
+    private void escribirFueraDeLote() {
+        if (!enLote) {
+            escribir();
+        }
+    }
+
+    private void escribir() {
+        if (pendienteSalida.length() > 0) {
+            salida.print(pendienteSalida);
+            pendienteSalida.setLength(0);
+        }
+        if (pendienteError.length() > 0) {
+            error.print(pendienteError);
+            pendienteError.setLength(0);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package biblioteca;
+
+/**
+ * Receptor de eventos que los descarta todos.
+ * Útil en pruebas de rendimiento, donde la salida sólo añadiría ruido.
+ */
+public class ReceptorEventosNulo implements ReceptorEventos {
+
+    @Override
+    public void libroRegistrado(Libro libro) {
+    }
+
+    @Override
+    public void usuarioRegistrado(Usuario usuario) {
+    }
+
+    @Override
+    public void prestamoRealizado(Prestamo prestamo) {
+    }
+
+    @Override
+    public void prestamoDevuelto(Prestamo prestamo) {
+    }
+
+    @Override
+    public void prestamoVencido(Prestamo prestamo) {
+    }
+
+    @Override
+    public void operacionFallida(String operacion, String mensaje) {
+    }
+
+    @Override
+    public void intentoPrestamoProcesado(String claveUsuario, String isbnLibro) {
+    }
+}
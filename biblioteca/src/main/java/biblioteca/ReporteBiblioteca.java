@@ -0,0 +1,390 @@
+package biblioteca;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Iterator;
+
+/**
+ * Escritor de reportes de la biblioteca que envía las filas a un
+ * {@link Writer} a medida que recorre los datos, sin construir el reporte
+ * completo en memoria. Cada fila se arma en un único {@link StringBuilder}
+ * reutilizado y se copia al destino sin crear cadenas intermedias.
+ *
+ * <p>
+ * Formatos:
+ * <ul>
+ * <li>{@link Formato#TEXTO}: el reporte legible de
+ * {@link Biblioteca#mostrarReporte()}.</li>
+ * <li>{@link Formato#CSV}: una fila por registro; la primera columna indica
+ * el tipo de fila ({@code resumen}, {@code libro} o {@code prestamo}) y cada
+ * sección empieza con su fila de encabezado.</li>
+ * <li>{@link Formato#JSONL}: un objeto JSON por línea, con un campo
+ * {@code tipo}.</li>
+ * </ul>
+ *
+ * <p>
+ * Las secciones de libros y préstamos se pueden paginar: los libros por
+ * posición y los préstamos por id, después del último de la página anterior.
+ * El título de la sección (o la fila de encabezado en CSV) sólo se escribe en
+ * la primera página.
+ */
+public class ReporteBiblioteca {
+
+    /**
+     * Formatos de salida del reporte.
+     */
+    public enum Formato {
+        TEXTO, CSV, JSONL
+    }
+
+    private final Writer destino;
+    private final Formato formato;
+    private final String finLinea;
+    private final StringBuilder linea;
+    private char[] copia;
+
+    /**
+     * Constructor de la clase ReporteBiblioteca.
+     * @param destino El destino de las filas; no se cierra.
+     * @param formato El formato de salida.
+     */
+    public ReporteBiblioteca(Writer destino, Formato formato) {
+        assert destino != null : "El destino no puede ser nulo.";
+        assert formato != null : "El formato no puede ser nulo.";
+
+        this.destino = destino;
+        this.formato = formato;
+        // El texto respeta el fin de línea de la plataforma, como println
+        this.finLinea = formato == Formato.TEXTO ? System.lineSeparator() : "\n";
+        this.linea = new StringBuilder(256);
+        this.copia = new char[256];
+    }
+
+    /**
+     * Escribe el título del reporte (sólo en formato texto).
+     * @throws IOException Si falla la escritura.
+     */
+    public void escribirEncabezado() throws IOException {
+        if (formato == Formato.TEXTO) {
+            linea.append(finLinea).append("--- Reporte de la Biblioteca ---");
+            terminarLinea();
+        }
+    }
+
+    /**
+     * Escribe la sección de totales. Los datos vienen de contadores
+     * incrementales, así que su costo no depende del tamaño del catálogo.
+     * @param resumen Los totales de disponibilidad.
+     * @param usuarios El número de usuarios registrados.
+     * @param prestamosActivos El número de préstamos activos.
+     * @throws IOException Si falla la escritura.
+     */
+    public void escribirResumen(ResumenDisponibilidad resumen, int usuarios, int prestamosActivos)
+            throws IOException {
+        switch (formato) {
+            case TEXTO:
+                linea.append(finLinea).append("Resumen:");
+                terminarLinea();
+                linea.append("  Libros: ").append(resumen.getLibros())
+                        .append(", Copias: ").append(resumen.getTotalCopias())
+                        .append(", Copias Disponibles: ").append(resumen.getCopiasDisponibles())
+                        .append(", Copias Prestadas: ").append(resumen.getCopiasPrestadas())
+                        .append(", Usuarios: ").append(usuarios)
+                        .append(", Préstamos Activos: ").append(prestamosActivos);
+                break;
+            case CSV:
+                linea.append("tipo,libros,copias,copiasDisponibles,copiasPrestadas,usuarios,prestamosActivos");
+                terminarLinea();
+                linea.append("resumen,").append(resumen.getLibros())
+                        .append(',').append(resumen.getTotalCopias())
+                        .append(',').append(resumen.getCopiasDisponibles())
+                        .append(',').append(resumen.getCopiasPrestadas())
+                        .append(',').append(usuarios)
+                        .append(',').append(prestamosActivos);
+                break;
+            default:
+                linea.append("{\"tipo\":\"resumen\",\"libros\":").append(resumen.getLibros())
+                        .append(",\"copias\":").append(resumen.getTotalCopias())
+                        .append(",\"copiasDisponibles\":").append(resumen.getCopiasDisponibles())
+                        .append(",\"copiasPrestadas\":").append(resumen.getCopiasPrestadas())
+                        .append(",\"usuarios\":").append(usuarios)
+                        .append(",\"prestamosActivos\":").append(prestamosActivos).append('}');
+                break;
+        }
+        terminarLinea();
+    }
+
+    /**
+     * Escribe una página de la sección de libros.
+     * @param libros Los libros, en el orden del catálogo.
+     * @param desde La posición del primer libro a escribir.
+     * @param cantidad El número máximo de libros a escribir.
+     * @return El número de libros escritos.
+     * @throws IOException Si falla la escritura.
+     */
+    public int escribirLibros(Iterator<? extends Libro> libros, int desde, int cantidad) throws IOException {
+        saltar(libros, desde);
+        return escribirLibrosDesde(libros, desde, cantidad);
+    }
+
+    /**
+     * Escribe una página de la sección de libros de una instantánea del
+     * catálogo. La página empieza en su posición sin recorrer los libros
+     * anteriores, y las páginas de una misma instantánea no se desplazan con
+     * los registros posteriores.
+     * @param instantanea La instantánea del catálogo.
+     * @param desde La posición del primer libro a escribir.
+     * @param cantidad El número máximo de libros a escribir.
+     * @return El número de libros escritos.
+     * @throws IOException Si falla la escritura.
+     */
+    public int escribirLibros(InstantaneaCatalogo instantanea, int desde, int cantidad) throws IOException {
+        assert desde >= 0 && cantidad >= 0 : "La página no puede tener posiciones negativas.";
+        iniciarLibros(desde);
+        Iterator<InstantaneaCatalogo.LibroInstantaneo> libros = instantanea.iterator(Math.min(desde,
+                instantanea.tamano()));
+        int escritos = 0;
+        while (escritos < cantidad && libros.hasNext()) {
+            InstantaneaCatalogo.LibroInstantaneo libro = libros.next();
+            escribirLibro(libro.getIsbn(), libro.getTitulo(), libro.getAutor(), libro.getCopiasDisponibles(),
+                    libro.getTotalCopias());
+            escritos++;
+        }
+        terminarLibros(desde, escritos);
+        return escritos;
+    }
+
+    private int escribirLibrosDesde(Iterator<? extends Libro> libros, int desde, int cantidad) throws IOException {
+        assert desde >= 0 && cantidad >= 0 : "La página no puede tener posiciones negativas.";
+        iniciarLibros(desde);
+        int escritos = 0;
+        while (escritos < cantidad && libros.hasNext()) {
+            Libro libro = libros.next();
+            escribirLibro(libro.getIsbn(), libro.getTitulo(), libro.getAutor(), libro.getCopiasDisponibles(),
+                    libro.getTotalCopias());
+            escritos++;
+        }
+        terminarLibros(desde, escritos);
+        return escritos;
+    }
+
+    private void iniciarLibros(int desde) throws IOException {
+        if (desde == 0) {
+            if (formato == Formato.TEXTO) {
+                linea.append(finLinea).append("Libros Disponibles:");
+                terminarLinea();
+            } else if (formato == Formato.CSV) {
+                linea.append("tipo,isbn,titulo,autor,copiasDisponibles,totalCopias,copiasPrestadas");
+                terminarLinea();
+            }
+        }
+    }
+
+    private void terminarLibros(int desde, int escritos) throws IOException {
+        if (escritos == 0 && desde == 0 && formato == Formato.TEXTO) {
+            linea.append("No hay libros registrados en el sistema.");
+            terminarLinea();
+        }
+    }
+
+    /**
+     * Escribe una página de la sección de préstamos activos.
+     * @param prestamos Los préstamos activos de la página en adelante, por id.
+     * @param despuesDe El id del último préstamo de la página anterior, o 0
+     *                  en la primera página, que lleva el encabezado.
+     * @param cantidad El número máximo de préstamos a escribir.
+     * @return El número de préstamos escritos.
+     * @throws IOException Si falla la escritura.
+     */
+    public int escribirPrestamos(Iterator<Prestamo> prestamos, long despuesDe, int cantidad) throws IOException {
+        assert despuesDe >= 0 && cantidad >= 0 : "La página no puede tener posiciones negativas.";
+        boolean primera = despuesDe == 0;
+        if (primera) {
+            if (formato == Formato.TEXTO) {
+                linea.append(finLinea).append("Libros Prestados (Activos):");
+                terminarLinea();
+            } else if (formato == Formato.CSV) {
+                linea.append("tipo,id,claveUsuario,nombre,isbn,titulo,fechaPrestamo,fechaVencimiento");
+                terminarLinea();
+            }
+        }
+        int escritos = 0;
+        while (escritos < cantidad && prestamos.hasNext()) {
+            escribirPrestamo(prestamos.next());
+            escritos++;
+        }
+        if (escritos == 0 && primera && formato == Formato.TEXTO) {
+            linea.append("No hay préstamos activos en este momento.");
+            terminarLinea();
+        }
+        return escritos;
+    }
+
+    /**
+     * Escribe el cierre del reporte (sólo en formato texto).
+     * @throws IOException Si falla la escritura.
+     */
+    public void escribirPie() throws IOException {
+        if (formato == Formato.TEXTO) {
+            linea.append("--------------------------------\n");
+            terminarLinea();
+        }
+    }
+
+    private void escribirLibro(String isbn, String titulo, String autor, int disponibles, int total)
+            throws IOException {
+        switch (formato) {
+            case TEXTO:
+                linea.append("  - Título: ").append(titulo)
+                        .append(", Autor: ").append(autor)
+                        .append(", ISBN: ").append(isbn)
+                        .append(", Copias Disponibles: ").append(disponibles)
+                        .append(" de ").append(total);
+                break;
+            case CSV:
+                linea.append("libro,");
+                csv(isbn);
+                linea.append(',');
+                csv(titulo);
+                linea.append(',');
+                csv(autor);
+                linea.append(',').append(disponibles).append(',').append(total).append(',').append(total - disponibles);
+                break;
+            default:
+                linea.append("{\"tipo\":\"libro\",\"isbn\":");
+                json(isbn);
+                linea.append(",\"titulo\":");
+                json(titulo);
+                linea.append(",\"autor\":");
+                json(autor);
+                linea.append(",\"copiasDisponibles\":").append(disponibles)
+                        .append(",\"totalCopias\":").append(total)
+                        .append(",\"copiasPrestadas\":").append(total - disponibles).append('}');
+                break;
+        }
+        terminarLinea();
+    }
+
+    private void escribirPrestamo(Prestamo prestamo) throws IOException {
+        Usuario usuario = prestamo.getUsuario();
+        Libro libro = prestamo.getLibro();
+        switch (formato) {
+            case TEXTO:
+                linea.append("  - Usuario: ").append(usuario.getNombre())
+                        .append(", Libro: ").append(libro.getTitulo())
+                        .append(", ISBN: ").append(libro.getIsbn())
+                        .append(", Fecha Préstamo: ");
+                FormatoFecha.formatear(prestamo.getDiaPrestamo(), linea);
+                linea.append(", Vence: ");
+                FormatoFecha.formatear(prestamo.getDiaVencimiento(), linea);
+                break;
+            case CSV:
+                linea.append("prestamo,").append(prestamo.getId()).append(',');
+                csv(usuario.getClaveUsuario());
+                linea.append(',');
+                csv(usuario.getNombre());
+                linea.append(',');
+                csv(libro.getIsbn());
+                linea.append(',');
+                csv(libro.getTitulo());
+                linea.append(',');
+                FormatoFecha.formatear(prestamo.getDiaPrestamo(), linea);
+                linea.append(',');
+                FormatoFecha.formatear(prestamo.getDiaVencimiento(), linea);
+                break;
+            default:
+                linea.append("{\"tipo\":\"prestamo\",\"id\":").append(prestamo.getId()).append(",\"claveUsuario\":");
+                json(usuario.getClaveUsuario());
+                linea.append(",\"nombre\":");
+                json(usuario.getNombre());
+                linea.append(",\"isbn\":");
+                json(libro.getIsbn());
+                linea.append(",\"titulo\":");
+                json(libro.getTitulo());
+                linea.append(",\"fechaPrestamo\":\"");
+                FormatoFecha.formatear(prestamo.getDiaPrestamo(), linea);
+                linea.append("\",\"fechaVencimiento\":\"");
+                FormatoFecha.formatear(prestamo.getDiaVencimiento(), linea);
+                linea.append("\"}");
+                break;
+        }
+        terminarLinea();
+    }
+
+    /**
+     * Agrega un campo CSV, entre comillas sólo si contiene separadores,
+     * comillas o saltos de línea.
+     */
+    private void csv(String campo) {
+        agregarCsv(linea, campo);
+    }
+
+    /**
+     * Variante de {@link #csv(String)} que escribe en otro destino, p. ej. el
+     * archivo de rechazos de una importación.
+     */
+    static void agregarCsv(StringBuilder destino, String campo) {
+        boolean comillas = false;
+        for (int i = 0; i < campo.length() && !comillas; i++) {
+            char c = campo.charAt(i);
+            comillas = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!comillas) {
+            destino.append(campo);
+            return;
+        }
+        destino.append('"');
+        for (int i = 0; i < campo.length(); i++) {
+            char c = campo.charAt(i);
+            if (c == '"') {
+                destino.append('"');
+            }
+            destino.append(c);
+        }
+        destino.append('"');
+    }
+
+    /**
+     * Agrega una cadena JSON con sus caracteres escapados.
+     */
+    private void json(String texto) {
+        linea.append('"');
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            if (c == '"' || c == '\\') {
+                linea.append('\\').append(c);
+            } else if (c == '\n') {
+                linea.append("\\n");
+            } else if (c == '\r') {
+                linea.append("\\r");
+            } else if (c == '\t') {
+                linea.append("\\t");
+            } else if (c < 0x20) {
+                linea.append("\\u00").append(Character.forDigit(c >> 4, 16)).append(Character.forDigit(c & 0xF, 16));
+            } else {
+                linea.append(c);
+            }
+        }
+        linea.append('"');
+    }
+
+    /**
+     * Termina la fila actual y la copia al destino.
+     */
+    private void terminarLinea() throws IOException {
+        linea.append(finLinea);
+        int longitud = linea.length();
+        if (copia.length < longitud) {
+            copia = new char[Math.max(longitud, copia.length * 2)];
+        }
+        linea.getChars(0, longitud, copia, 0);
+        destino.write(copia, 0, longitud);
+        linea.setLength(0);
+    }
+
+    private static void saltar(Iterator<?> iterador, int cantidad) {
+        for (int i = 0; i < cantidad && iterador.hasNext(); i++) {
+            iterador.next();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package biblioteca;
+
+/**
+ * Resultado de una importación masiva de libros o usuarios: cuántas filas
+ * se leyeron, cuántas se importaron y cuántas se rechazaron, por motivo. Las
+ * filas rechazadas se escriben en el archivo de rechazos de la importación.
+ */
+public class ResultadoImportacion {
+    private final long[] porCodigo; // Codigo -> filas
+    private final long malformadas;
+
+    ResultadoImportacion(long[] porCodigo, long malformadas) {
+        assert porCodigo.length == ResultadoOperacion.Codigo.values().length : "Falta el conteo de algún código.";
+        this.porCodigo = porCodigo;
+        this.malformadas = malformadas;
+    }
+
+    /**
+     * @return El número de filas leídas, sin contar el encabezado ni las
+     *         líneas vacías.
+     */
+    public long getFilas() {
+        long filas = malformadas;
+        for (long conteo : porCodigo) {
+            filas += conteo;
+        }
+        return filas;
+    }
+
+    public long getImportadas() {
+        return porCodigo[ResultadoOperacion.Codigo.EXITO.ordinal()];
+    }
+
+    public long getRechazadas() {
+        return getFilas() - getImportadas();
+    }
+
+    /**
+     * @param codigo El motivo del rechazo.
+     * @return El número de filas rechazadas por ese motivo, o importadas si
+     *         el código es {@link ResultadoOperacion.Codigo#EXITO}.
+     */
+    public long getFilas(ResultadoOperacion.Codigo codigo) {
+        return porCodigo[codigo.ordinal()];
+    }
+
+    /**
+     * @return El número de filas que no tienen los campos esperados.
+     */
+    public long getMalformadas() {
+        return malformadas;
+    }
+
+    @Override
+    public String toString() {
+        return "ResultadoImportacion{" +
+               "filas=" + getFilas() +
+               ", importadas=" + getImportadas() +
+               ", rechazadas=" + getRechazadas() +
+               '}';
+    }
+}
@@ -0,0 +1,198 @@
+package biblioteca;
+
+/**
+ * Resultado de una operación de la biblioteca (registro, préstamo o
+ * devolución).
+ * Sustituye a las excepciones en el camino rápido: los rechazos se representan
+ * con instancias compartidas e inmutables, una por código, de modo que
+ * rechazar una solicitud no reserva memoria ni captura trazas de pila.
+ * Sólo un préstamo exitoso crea un resultado nuevo, que lleva el préstamo.
+ */
+public class ResultadoOperacion {
+
+    /**
+     * Códigos de resultado con su motivo. Los códigos que necesitan
+     * identificar el libro o el usuario afectado marcan {@code incluyeDato}
+     * para que el mensaje completo se construya sólo cuando se pide.
+     */
+    public enum Codigo {
+        EXITO("Operación realizada exitosamente.", false),
+        ISBN_VACIO("El ISBN no puede ser nulo o vacío.", false),
+        TITULO_VACIO("El título no puede ser nulo o vacío.", false),
+        AUTOR_VACIO("El autor no puede ser nulo o vacío.", false),
+        COPIAS_VACIAS("El número de copias no puede ser nulo o vacío.", false),
+        COPIAS_NO_NUMERICAS("El número de copias debe ser un valor numérico entero.", false),
+        COPIAS_NO_POSITIVAS("El número total de copias debe ser mayor que cero.", false),
+        LIBRO_DUPLICADO("Ya existe un libro registrado con el ISBN", true),
+        CLAVE_VACIA("La clave de usuario no puede ser nula o vacía.", false),
+        NOMBRE_VACIO("El nombre del usuario no puede ser nulo o vacío.", false),
+        LICENCIATURA_VACIA("La licenciatura no puede ser nula o vacía.", false),
+        SEMESTRE_VACIO("El semestre no puede ser nulo o vacío.", false),
+        SEMESTRE_NO_NUMERICO("El semestre debe ser un valor numérico entero.", false),
+        SEMESTRE_NO_POSITIVO("El semestre debe ser un número positivo.", false),
+        USUARIO_DUPLICADO("Ya existe un usuario registrado con la clave", true),
+        ISBN_PRESTAMO_VACIO("El ISBN del libro no puede ser nulo o vacío.", false),
+        FECHA_VACIA("La fecha de préstamo no puede ser nula o vacía.", false),
+        FECHA_INVALIDA("Formato de fecha inválido. Use dd/MM/yyyy.", false),
+        USUARIO_NO_ENCONTRADO("Usuario no encontrado con la clave", true),
+        LIBRO_NO_ENCONTRADO("Libro no encontrado con el ISBN", true),
+        LIBRO_NO_DISPONIBLE("No hay copias disponibles del libro con ISBN", true),
+        PRESTAMO_NO_ENCONTRADO("No existe un préstamo activo con el id", true),
+        LIMITE_PRESTAMOS("Se alcanzó el límite de préstamos activos del usuario con la clave", true),
+        CUPO_NO_TOMADO("No hay préstamos de otros nodos que liberar del usuario con la clave", true),
+        TEXTO_DEMASIADO_LARGO("El ISBN, el título y el autor no pueden ocupar más de 65535 bytes en UTF-8.", false);
+
+        private final String motivo;
+        private final boolean incluyeDato;
+
+        Codigo(String motivo, boolean incluyeDato) {
+            this.motivo = motivo;
+            this.incluyeDato = incluyeDato;
+        }
+
+        public String getMotivo() {
+            return motivo;
+        }
+
+        public boolean incluyeDato() {
+            return incluyeDato;
+        }
+
+        /**
+         * @return true si el dato del mensaje es la clave del usuario en lugar
+         *         del ISBN del libro.
+         */
+        public boolean esDelUsuario() {
+            return this == USUARIO_NO_ENCONTRADO || this == LIMITE_PRESTAMOS;
+        }
+    }
+
+    private static final ResultadoOperacion[] COMPARTIDOS;
+
+    static {
+        Codigo[] codigos = Codigo.values();
+        COMPARTIDOS = new ResultadoOperacion[codigos.length];
+        for (Codigo codigo : codigos) {
+            COMPARTIDOS[codigo.ordinal()] = new ResultadoOperacion(codigo, null);
+        }
+    }
+
+    private final Codigo codigo;
+    private final Prestamo prestamo;
+
+    private ResultadoOperacion(Codigo codigo, Prestamo prestamo) {
+        this.codigo = codigo;
+        this.prestamo = prestamo;
+    }
+
+    /**
+     * Devuelve la instancia compartida para un código; no reserva memoria.
+     * @param codigo El código del resultado.
+     * @return El resultado compartido.
+     */
+    public static ResultadoOperacion de(Codigo codigo) {
+        return COMPARTIDOS[codigo.ordinal()];
+    }
+
+    /**
+     * @return El resultado compartido de una operación exitosa sin datos.
+     */
+    public static ResultadoOperacion exito() {
+        return COMPARTIDOS[Codigo.EXITO.ordinal()];
+    }
+
+    /**
+     * @param prestamo El préstamo realizado o devuelto.
+     * @return Un resultado exitoso que lleva el préstamo.
+     */
+    public static ResultadoOperacion exito(Prestamo prestamo) {
+        assert prestamo != null : "El préstamo no puede ser nulo.";
+        return new ResultadoOperacion(Codigo.EXITO, prestamo);
+    }
+
+    // Getters
+    public Codigo getCodigo() {
+        return codigo;
+    }
+
+    public String getMotivo() {
+        return codigo.getMotivo();
+    }
+
+    /**
+     * @return El préstamo realizado o devuelto, o null si la operación no
+     *         involucra uno.
+     */
+    public Prestamo getPrestamo() {
+        return prestamo;
+    }
+
+    public boolean esExitoso() {
+        return codigo == Codigo.EXITO;
+    }
+
+    /**
+     * Construye el mensaje completo del resultado.
+     * @param dato El ISBN, la clave de usuario o el id de préstamo afectados.
+     * @return El motivo, seguido del dato si el código lo requiere.
+     */
+    public String getMensaje(String dato) {
+        return codigo.incluyeDato() ? codigo.getMotivo() + ": " + dato : codigo.getMotivo();
+    }
+
+    /**
+     * Traduce un rechazo a la excepción que la API tradicional lanzaba para
+     * ese caso. Las excepciones propias se crean sin traza de pila, ya que
+     * sólo se usan para control de flujo.
+     * @param dato El ISBN, la clave de usuario o el id de préstamo afectados.
+     * @throws LibroNoEncontradoException Si el libro no existe.
+     * @throws LibroNoDisponibleException Si no hay copias disponibles.
+     * @throws IllegalStateException     Si el usuario alcanzó su límite de préstamos.
+     * @throws NumberFormatException      Si un valor numérico no es un entero.
+     * @throws IllegalArgumentException   Para el resto de datos inválidos.
+     */
+    public void lanzarSiFallo(String dato) throws LibroNoEncontradoException, LibroNoDisponibleException {
+        Exception excepcion = crearExcepcion(dato);
+        if (excepcion instanceof LibroNoEncontradoException noEncontrado) {
+            throw noEncontrado;
+        }
+        if (excepcion instanceof LibroNoDisponibleException noDisponible) {
+            throw noDisponible;
+        }
+        if (excepcion != null) {
+            throw (RuntimeException) excepcion;
+        }
+    }
+
+    /**
+     * Crea, sin lanzarla, la excepción de {@link #lanzarSiFallo(String)}; sirve
+     * para completar con error una operación asíncrona.
+     * @param dato El ISBN, la clave de usuario o el id de préstamo afectados.
+     * @return La excepción, o null si la operación fue exitosa.
+     */
+    public Exception crearExcepcion(String dato) {
+        switch (codigo) {
+            case EXITO:
+                return null;
+            case LIBRO_NO_ENCONTRADO:
+                return new LibroNoEncontradoException(getMensaje(dato), false);
+            case LIBRO_NO_DISPONIBLE:
+                return new LibroNoDisponibleException(getMensaje(dato), false);
+            case LIMITE_PRESTAMOS:
+                return new IllegalStateException(getMensaje(dato));
+            case COPIAS_NO_NUMERICAS:
+            case SEMESTRE_NO_NUMERICO:
+                return new NumberFormatException(getMensaje(dato));
+            default:
+                return new IllegalArgumentException(getMensaje(dato));
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ResultadoOperacion{" +
+               "codigo=" + codigo +
+               ", prestamo=" + prestamo +
+               '}';
+    }
+}
@@ -0,0 +1,83 @@
+package biblioteca;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Totales de disponibilidad del catálogo mantenidos de forma incremental:
+ * la biblioteca los actualiza en cada registro, préstamo y devolución, así
+ * que consultarlos no recorre el catálogo. Los contadores son
+ * {@link LongAdder}, de modo que los préstamos concurrentes no compiten por
+ * una misma variable. Los préstamos de cada libro se obtienen del propio
+ * libro como {@code getTotalCopias() - getCopiasDisponibles()}.
+ */
+public class ResumenDisponibilidad {
+    private final LongAdder libros;
+    private final LongAdder copias;
+    private final LongAdder prestadas;
+
+    /**
+     * Constructor de la clase ResumenDisponibilidad.
+     */
+    ResumenDisponibilidad() {
+        this.libros = new LongAdder();
+        this.copias = new LongAdder();
+        this.prestadas = new LongAdder();
+    }
+
+    /**
+     * Constructor de un resumen con totales fijos, p. ej. el de una
+     * {@link InstantaneaCatalogo}.
+     */
+    ResumenDisponibilidad(long libros, long copias, long prestadas) {
+        this();
+        this.libros.add(libros);
+        this.copias.add(copias);
+        this.prestadas.add(prestadas);
+    }
+
+    void libroRegistrado(int totalCopias) {
+        libros.increment();
+        copias.add(totalCopias);
+    }
+
+    void librosRegistrados(int cantidad, long totalCopias) {
+        libros.add(cantidad);
+        copias.add(totalCopias);
+    }
+
+    void copiasPrestadas(int cantidad) {
+        prestadas.add(cantidad);
+    }
+
+    void copiaDevuelta() {
+        prestadas.decrement();
+    }
+
+    /**
+     * @return El número de libros registrados.
+     */
+    public long getLibros() {
+        return libros.sum();
+    }
+
+    /**
+     * @return El total de copias de todos los libros.
+     */
+    public long getTotalCopias() {
+        return copias.sum();
+    }
+
+    /**
+     * @return Las copias prestadas en este momento.
+     */
+    public long getCopiasPrestadas() {
+        return prestadas.sum();
+    }
+
+    /**
+     * @return Las copias disponibles para préstamo.
+     */
+    public long getCopiasDisponibles() {
+        return getTotalCopias() - getCopiasPrestadas();
+    }
+}
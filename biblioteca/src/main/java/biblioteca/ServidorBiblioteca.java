@@ -0,0 +1,578 @@
+package biblioteca;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Servidor TCP que expone una {@link Biblioteca} como servicio, con un hilo
+ * virtual por conexión.
+ *
+ * <p>
+ * Protocolo: una solicitud por línea en UTF-8, con los campos separados por
+ * tabuladores. Las respuestas de una línea son {@code OK} (seguido de un dato
+ * si la operación lo produce) o {@code ERROR<tab>CODIGO<tab>mensaje}, donde
+ * el código es el de {@link ResultadoOperacion.Codigo} o uno del protocolo.
+ * Las respuestas de varias líneas empiezan con {@code OK} y terminan con una
+ * línea vacía.
+ * <ul>
+ * <li>{@code LIBRO isbn titulo autor copias}: registra un libro.</li>
+ * <li>{@code USUARIO clave nombre licenciatura semestre}: registra un
+ * usuario.</li>
+ * <li>{@code PRESTAMO clave isbn fecha}: responde {@code OK<tab>id}.</li>
+ * <li>{@code DEVOLUCION id}: devuelve un préstamo activo y responde
+ * {@code OK<tab>clave} con la clave del usuario.</li>
+ * <li>{@code RESERVA clave isbn}: reserva un libro y responde
+ * {@code OK<tab>id} cuando el préstamo se realiza, de inmediato o al
+ * devolverse una copia; mientras tanto la conexión no atiende otras
+ * solicitudes ni ocupa un lugar en proceso. Si el cliente cierra la conexión
+ * o el servidor se cierra antes, la reserva se cancela.</li>
+ * <li>{@code REPORTE}: el reporte completo en JSON Lines (varias
+ * líneas).</li>
+ * <li>{@code LIBROS desde cantidad}: una página del reporte en JSON Lines
+ * (varias líneas), desde una posición de la instantánea del catálogo.</li>
+ * <li>{@code PRESTAMOS despuesDe cantidad}: una página de los préstamos
+ * activos en JSON Lines (varias líneas), por id; {@code despuesDe} es el id
+ * del último préstamo de la página anterior, o 0 para la primera.</li>
+ * <li>{@code METRICAS}: las métricas en formato Prometheus (varias
+ * líneas).</li>
+ * <li>{@code DISPONIBLES isbn}: responde {@code OK<tab>copias} con las
+ * copias disponibles del libro.</li>
+ * <li>{@code CUPO clave} y {@code LIBERAR clave}: descuentan y devuelven un
+ * préstamo del cupo del usuario sin realizarlo ({@code LIBERAR} responde
+ * {@code CUPO_NO_TOMADO} si no hay cupo que devolver); los usa una
+ * {@link BibliotecaParticionada} cuando el usuario y el libro están en nodos
+ * distintos. Son comandos entre nodos: sólo se atienden en una conexión que
+ * se identificó con {@code NODO claveNodos}, y si el servidor no tiene
+ * {@linkplain #setClaveNodos(String) clave de nodos} se responden con
+ * {@code ERROR<tab>NO_AUTORIZADO}.</li>
+ * <li>{@code NODO claveNodos}: identifica la conexión como la de otro nodo;
+ * con una clave incorrecta se responde {@code ERROR<tab>NO_AUTORIZADO} y se
+ * cierra la conexión.</li>
+ * </ul>
+ * Un cliente puede enviar varias solicitudes sin esperar las respuestas; se
+ * atienden en orden y las respuestas se envían juntas. Una línea de más de
+ * {@link #LONGITUD_MAXIMA_LINEA} bytes se responde con
+ * {@code ERROR<tab>LINEA_DEMASIADO_LARGA} y se cierra la conexión.
+ *
+ * <p>
+ * La carga se limita en dos niveles. Las conexiones abiertas tienen un
+ * máximo: al alcanzarlo el servidor deja de aceptar y las nuevas esperan en
+ * la cola del sistema operativo. Las solicitudes en proceso también tienen un
+ * máximo: una solicitud que no obtiene lugar espera un tiempo acotado, durante
+ * el cual su conexión deja de leer y TCP frena al cliente, y si el tiempo se
+ * agota se responde {@code ERROR<tab>OCUPADO} en lugar de encolarla.
+ */
+public class ServidorBiblioteca implements AutoCloseable {
+    /** Puerto usado por {@link #main(String[])} si no se indica otro. */
+    public static final int PUERTO_PREDETERMINADO = 7070;
+    /** Máximo predeterminado de conexiones abiertas. */
+    public static final int MAX_CONEXIONES_PREDETERMINADO = 10_000;
+    /** Máximo predeterminado de solicitudes en proceso. */
+    public static final int MAX_EN_VUELO_PREDETERMINADO = 256;
+    /** Espera predeterminada por un lugar para procesar una solicitud. */
+    public static final long ESPERA_PREDETERMINADA_MILIS = 100;
+    /** Variable de entorno con la clave de nodos para {@link #main(String[])}. */
+    public static final String VARIABLE_CLAVE_NODOS = "BIBLIOTECA_CLAVE_NODOS";
+    /** Máximo de bytes de una solicitud, sin el fin de línea. */
+    public static final int LONGITUD_MAXIMA_LINEA = 64 * 1024;
+
+    // Búferes chicos: con miles de conexiones dominan la memoria del servidor
+    private static final int TAMANO_BUFER = 1024;
+    // Cada cuánto una reserva en espera comprueba si el cliente sigue conectado
+    private static final long SONDEO_RESERVA_MILIS = 1000;
+
+    private final Biblioteca biblioteca;
+    private final int puerto;
+    private final int maxConexiones;
+    private final Semaphore conexiones;
+    private final Semaphore enVuelo;
+    private final long esperaNanos;
+    private final Set<Socket> abiertas;
+    private final ExecutorService hilos;
+    private final LongAdder rechazadasPorCarga;
+    private volatile byte[] claveNodos; // null: sin comandos entre nodos
+    private volatile ServerSocket servidor;
+    private volatile boolean cerrado;
+
+    /**
+     * Constructor de la clase ServidorBiblioteca con los límites
+     * predeterminados.
+     * @param biblioteca La biblioteca a exponer.
+     * @param puerto     El puerto TCP, o 0 para elegir uno libre.
+     */
+    public ServidorBiblioteca(Biblioteca biblioteca, int puerto) {
+        this(biblioteca, puerto, MAX_CONEXIONES_PREDETERMINADO, MAX_EN_VUELO_PREDETERMINADO,
+                ESPERA_PREDETERMINADA_MILIS);
+    }
+
+    /**
+     * Constructor de la clase ServidorBiblioteca.
+     * @param biblioteca    La biblioteca a exponer.
+     * @param puerto        El puerto TCP, o 0 para elegir uno libre.
+     * @param maxConexiones El máximo de conexiones abiertas a la vez.
+     * @param maxEnVuelo    El máximo de solicitudes en proceso a la vez.
+     * @param esperaMilis   Cuánto espera una solicitud por un lugar antes de
+     *                      rechazarse por carga.
+     */
+    public ServidorBiblioteca(Biblioteca biblioteca, int puerto, int maxConexiones, int maxEnVuelo,
+            long esperaMilis) {
+        assert biblioteca != null : "La biblioteca no puede ser nula.";
+        assert puerto >= 0 && puerto <= 0xFFFF : "El puerto debe estar entre 0 y 65535.";
+        assert maxConexiones > 0 && maxEnVuelo > 0 : "Los límites deben ser positivos.";
+        assert esperaMilis >= 0 : "La espera no puede ser negativa.";
+
+        this.biblioteca = biblioteca;
+        this.puerto = puerto;
+        this.maxConexiones = maxConexiones;
+        this.conexiones = new Semaphore(maxConexiones);
+        this.enVuelo = new Semaphore(maxEnVuelo);
+        this.esperaNanos = TimeUnit.MILLISECONDS.toNanos(esperaMilis);
+        this.abiertas = ConcurrentHashMap.newKeySet();
+        this.hilos = Executors.newVirtualThreadPerTaskExecutor();
+        this.rechazadasPorCarga = new LongAdder();
+
+        MetricasBiblioteca metricas = biblioteca.getMetricas();
+        metricas.registrarIndicador("biblioteca_servidor_conexiones", "Conexiones abiertas.", abiertas::size);
+        metricas.registrarIndicador("biblioteca_servidor_rechazadas_por_carga",
+                "Solicitudes rechazadas por falta de lugar.", rechazadasPorCarga::sum);
+    }
+
+    /**
+     * Habilita los comandos entre nodos ({@code CUPO} y {@code LIBERAR}) para
+     * las conexiones que se identifiquen con la clave; debe ser la misma que
+     * reciben los {@linkplain NodoBiblioteca#remoto(InetSocketAddress, int, String) nodos remotos}.
+     * @param clave La clave compartida por los nodos, o null para deshabilitarlos.
+     */
+    public void setClaveNodos(String clave) {
+        assert clave == null || !clave.isEmpty() : "La clave de nodos no puede ser vacía.";
+        this.claveNodos = clave == null ? null : clave.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Abre el puerto y empieza a aceptar conexiones en un hilo propio.
+     * @throws IOException           Si no se puede abrir el puerto.
+     * @throws IllegalStateException Si el servidor ya se inició.
+     */
+    public synchronized void iniciar() throws IOException {
+        if (servidor != null) {
+            throw new IllegalStateException("El servidor ya está iniciado.");
+        }
+        ServerSocket socket = new ServerSocket();
+        socket.setReuseAddress(true);
+        socket.bind(new InetSocketAddress(puerto), maxConexiones);
+        servidor = socket;
+        // Hilo de plataforma: a diferencia de los virtuales, mantiene viva la JVM
+        Thread.ofPlatform().name("servidor-biblioteca-" + socket.getLocalPort()).start(this::aceptar);
+    }
+
+    /**
+     * @return El puerto en el que escucha el servidor.
+     * @throws IllegalStateException Si el servidor no se ha iniciado.
+     */
+    public int getPuerto() {
+        ServerSocket socket = servidor;
+        if (socket == null) {
+            throw new IllegalStateException("El servidor no está iniciado.");
+        }
+        return socket.getLocalPort();
+    }
+
+    /**
+     * @return El número de conexiones abiertas.
+     */
+    public int getConexionesAbiertas() {
+        return abiertas.size();
+    }
+
+    /**
+     * @return El número de solicitudes rechazadas por falta de lugar.
+     */
+    public long getRechazadasPorCarga() {
+        return rechazadasPorCarga.sum();
+    }
+
+    /**
+     * Deja de aceptar conexiones, cierra las abiertas y espera a que terminen
+     * sus hilos. La biblioteca no se cierra.
+     */
+    @Override
+    public void close() {
+        cerrado = true;
+        try {
+            if (servidor != null) {
+                servidor.close();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo cerrar el puerto del servidor.", e);
+        } finally {
+            conexiones.release(); // Despierta al hilo que acepta si espera un lugar
+            for (Socket socket : abiertas) {
+                cerrarSinError(socket);
+            }
+            hilos.shutdownNow(); // Interrumpe las reservas que siguen esperando
+            try {
+                hilos.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void aceptar() {
+        while (!cerrado) {
+            conexiones.acquireUninterruptibly();
+            Socket socket;
+            try {
+                socket = servidor.accept();
+            } catch (IOException e) {
+                conexiones.release();
+                if (cerrado) {
+                    return;
+                }
+                continue;
+            }
+            abiertas.add(socket);
+            try {
+                hilos.execute(() -> atender(socket));
+            } catch (RejectedExecutionException e) { // Cerrado mientras aceptaba
+                abiertas.remove(socket);
+                cerrarSinError(socket);
+                conexiones.release();
+                return;
+            }
+        }
+    }
+
+    private void atender(Socket socket) {
+        try (socket;
+                Writer escritor = new BufferedWriter(
+                        new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8), TAMANO_BUFER)) {
+            socket.setTcpNoDelay(true);
+            LectorLineas lector = new LectorLineas(socket.getInputStream(), TAMANO_BUFER, LONGITUD_MAXIMA_LINEA);
+            boolean nodo = false; // La conexión se identificó como otro nodo
+            String linea;
+            while ((linea = leerLinea(lector, escritor)) != null) {
+                if (linea.isEmpty()) {
+                    continue;
+                }
+                if (linea.startsWith("NODO\t")) {
+                    nodo = identificarNodo(linea.substring(5), escritor);
+                    if (!nodo) {
+                        escritor.flush();
+                        break;
+                    }
+                } else if (!enVuelo.tryAcquire(esperaNanos, TimeUnit.NANOSECONDS)) {
+                    rechazadasPorCarga.increment();
+                    escritor.write("ERROR\tOCUPADO\tEl servidor está saturado, intente más tarde.\n");
+                } else {
+                    CompletableFuture<Prestamo> reserva;
+                    try {
+                        reserva = procesar(linea, nodo, escritor);
+                    } finally {
+                        enVuelo.release();
+                    }
+                    if (reserva != null) {
+                        escritor.flush();
+                        responderReserva(reserva, socket, lector, escritor);
+                    }
+                }
+                // Las solicitudes ya recibidas se responden en un solo envío
+                if (!lector.hayDatos()) {
+                    escritor.flush();
+                }
+            }
+        } catch (IOException e) {
+            // El cliente cerró la conexión o el servidor se está cerrando
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            abiertas.remove(socket);
+            conexiones.release();
+        }
+    }
+
+    /**
+     * @return La siguiente solicitud, o null si el cliente cerró la conexión o
+     *         envió una línea demasiado larga, que se responde con un error.
+     */
+    private static String leerLinea(LectorLineas lector, Writer escritor) throws IOException {
+        try {
+            return lector.leerLinea();
+        } catch (LectorLineas.LineaDemasiadoLargaException e) {
+            error("LINEA_DEMASIADO_LARGA", e.getMessage(), escritor);
+            escritor.flush();
+            return null;
+        }
+    }
+
+    /**
+     * @return true si la clave es la de los nodos; si no, responde el error.
+     */
+    private boolean identificarNodo(String clave, Writer escritor) throws IOException {
+        byte[] esperada = claveNodos;
+        // Comparación en tiempo constante: el tiempo no revela la clave
+        if (esperada == null || !MessageDigest.isEqual(esperada, clave.getBytes(StandardCharsets.UTF_8))) {
+            error("NO_AUTORIZADO", "Clave de nodos incorrecta.", escritor);
+            return false;
+        }
+        escritor.write("OK\n");
+        return true;
+    }
+
+    /**
+     * @param nodo true si la conexión se identificó como otro nodo.
+     * @return La reserva pendiente si la solicitud fue una reserva, o null si
+     *         ya se respondió.
+     */
+    private CompletableFuture<Prestamo> procesar(String linea, boolean nodo, Writer escritor) throws IOException {
+        String[] campos = linea.split("\t", -1);
+        switch (campos[0]) {
+            case "LIBRO":
+                if (tieneCampos(campos, 5, escritor)) {
+                    responder(biblioteca.intentarRegistrarLibro(campos[1], campos[2], campos[3], campos[4]),
+                            campos[1], escritor);
+                }
+                break;
+            case "USUARIO":
+                if (tieneCampos(campos, 5, escritor)) {
+                    responder(biblioteca.intentarRegistrarUsuario(campos[1], campos[2], campos[3], campos[4]),
+                            campos[1], escritor);
+                }
+                break;
+            case "PRESTAMO":
+                if (tieneCampos(campos, 4, escritor)) {
+                    ResultadoOperacion resultado = biblioteca.intentarPrestamo(campos[1], campos[2], campos[3]);
+                    if (resultado.esExitoso()) {
+                        escritor.write("OK\t");
+                        escritor.write(Long.toString(resultado.getPrestamo().getId()));
+                        escritor.write('\n');
+                    } else {
+                        responder(resultado, resultado.getCodigo().esDelUsuario() ? campos[1] : campos[2], escritor);
+                    }
+                }
+                break;
+            case "DEVOLUCION":
+                if (tieneCampos(campos, 2, escritor)) {
+                    long id = parsearNumero(campos[1]);
+                    if (id < 0) {
+                        error("ID_INVALIDO", "El id del préstamo debe ser un número entero.", escritor);
+                    } else {
+                        ResultadoOperacion resultado = biblioteca.intentarDevolucion(id);
+                        if (resultado.esExitoso()) {
+                            escritor.write("OK\t");
+                            escritor.write(resultado.getPrestamo().getUsuario().getClaveUsuario());
+                            escritor.write('\n');
+                        } else {
+                            responder(resultado, campos[1], escritor);
+                        }
+                    }
+                }
+                break;
+            case "CUPO":
+                if (!nodo) {
+                    error("NO_AUTORIZADO", "CUPO es un comando entre nodos.", escritor);
+                } else if (tieneCampos(campos, 2, escritor)) {
+                    responder(ResultadoOperacion.de(biblioteca.tomarCupo(campos[1])), campos[1], escritor);
+                }
+                break;
+            case "LIBERAR":
+                if (!nodo) {
+                    error("NO_AUTORIZADO", "LIBERAR es un comando entre nodos.", escritor);
+                } else if (tieneCampos(campos, 2, escritor)) {
+                    responder(ResultadoOperacion.de(biblioteca.liberarCupo(campos[1])), campos[1], escritor);
+                }
+                break;
+            case "DISPONIBLES":
+                if (tieneCampos(campos, 2, escritor)) {
+                    int disponibles = biblioteca.copiasDisponibles(campos[1]);
+                    if (disponibles < 0) {
+                        responder(ResultadoOperacion.de(ResultadoOperacion.Codigo.LIBRO_NO_ENCONTRADO), campos[1],
+                                escritor);
+                    } else {
+                        escritor.write("OK\t");
+                        escritor.write(Integer.toString(disponibles));
+                        escritor.write('\n');
+                    }
+                }
+                break;
+            case "RESERVA":
+                if (tieneCampos(campos, 3, escritor)) {
+                    return biblioteca.reservar(campos[1], campos[2]);
+                }
+                break;
+            case "REPORTE":
+                escritor.write("OK\n");
+                biblioteca.generarReporte(escritor, ReporteBiblioteca.Formato.JSONL);
+                escritor.write('\n');
+                break;
+            case "LIBROS":
+            case "PRESTAMOS":
+                if (tieneCampos(campos, 3, escritor)) {
+                    long desde = parsearNumero(campos[1]);
+                    long cantidad = parsearNumero(campos[2]);
+                    boolean libros = campos[0].equals("LIBROS");
+                    if (desde < 0 || (libros && desde > Integer.MAX_VALUE) || cantidad < 0
+                            || cantidad > Integer.MAX_VALUE) {
+                        error("PAGINA_INVALIDA", "La página debe indicarse con dos enteros no negativos.", escritor);
+                        break;
+                    }
+                    escritor.write("OK\n");
+                    if (libros) {
+                        biblioteca.escribirPaginaLibros(escritor, ReporteBiblioteca.Formato.JSONL, (int) desde,
+                                (int) cantidad);
+                    } else {
+                        biblioteca.escribirPaginaPrestamos(escritor, ReporteBiblioteca.Formato.JSONL, desde,
+                                (int) cantidad);
+                    }
+                    escritor.write('\n');
+                }
+                break;
+            case "METRICAS":
+                escritor.write("OK\n");
+                biblioteca.exportarMetricas(escritor, false);
+                escritor.write('\n');
+                break;
+            default:
+                error("COMANDO_DESCONOCIDO", "Comando desconocido: " + campos[0], escritor);
+                break;
+        }
+        return null;
+    }
+
+    /**
+     * Espera el préstamo de una reserva y lo responde. Si la espera termina
+     * sin préstamo (el cliente cerró la conexión o el servidor se cierra), la
+     * reserva se cancela.
+     */
+    private static void responderReserva(CompletableFuture<Prestamo> reserva, Socket socket, LectorLineas lector,
+            Writer escritor) throws IOException, InterruptedException {
+        try {
+            Prestamo prestamo = null;
+            while (prestamo == null) {
+                try {
+                    prestamo = reserva.get(SONDEO_RESERVA_MILIS, TimeUnit.MILLISECONDS);
+                } catch (TimeoutException e) {
+                    if (clienteDesconectado(socket, lector)) {
+                        return;
+                    }
+                }
+            }
+            escritor.write("OK\t");
+            escritor.write(Long.toString(prestamo.getId()));
+            escritor.write('\n');
+        } catch (ExecutionException e) {
+            // El rechazo trae su código; otro error es un fallo de la biblioteca
+            ResultadoOperacion.Codigo rechazo = reserva instanceof ColaReservas.Promesa promesa
+                    ? promesa.getRechazo()
+                    : null;
+            error(rechazo != null ? rechazo.name() : "RESERVA_FALLIDA", e.getCause().getMessage(), escritor);
+        } finally {
+            reserva.cancel(false); // Sin efecto si ya tiene préstamo o rechazo
+        }
+    }
+
+    private static boolean clienteDesconectado(Socket socket, LectorLineas lector) throws IOException {
+        socket.setSoTimeout(1);
+        try {
+            return lector.entradaTerminada();
+        } finally {
+            socket.setSoTimeout(0);
+        }
+    }
+
+    private static boolean tieneCampos(String[] campos, int esperados, Writer escritor) throws IOException {
+        if (campos.length != esperados) {
+            error("CAMPOS_INVALIDOS", campos[0] + " espera " + (esperados - 1) + " campos separados por tabuladores.",
+                    escritor);
+            return false;
+        }
+        return true;
+    }
+
+    private static void responder(ResultadoOperacion resultado, String dato, Writer escritor) throws IOException {
+        if (resultado.esExitoso()) {
+            escritor.write("OK\n");
+        } else {
+            error(resultado.getCodigo().name(), resultado.getMensaje(dato), escritor);
+        }
+    }
+
+    private static void error(String codigo, String mensaje, Writer escritor) throws IOException {
+        escritor.write("ERROR\t");
+        escritor.write(codigo);
+        escritor.write('\t');
+        escritor.write(mensaje);
+        escritor.write('\n');
+    }
+
+    /**
+     * @return El número decimal sin signo, o -1 si el texto no lo es.
+     */
+    private static long parsearNumero(String s) {
+        if (s.isEmpty() || s.length() > 18) {
+            return -1;
+        }
+        long valor = 0;
+        for (int i = 0; i < s.length(); i++) {
+            int digito = s.charAt(i) - '0';
+            if (digito < 0 || digito > 9) {
+                return -1;
+            }
+            valor = valor * 10 + digito;
+        }
+        return valor;
+    }
+
+    private static void cerrarSinError(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // Ya no hay nada que liberar
+        }
+    }
+
+    /**
+     * Inicia un servidor sobre una biblioteca nueva.
+     * Uso: {@code ServidorBiblioteca [puerto] [directorio]}; con un directorio
+     * la biblioteca es persistente. La clave de nodos se toma de la variable
+     * de entorno {@value #VARIABLE_CLAVE_NODOS}; sin ella el servidor no
+     * atiende comandos entre nodos.
+     * @param args El puerto y, opcionalmente, el directorio de datos.
+     * @throws IOException Si no se puede abrir el puerto o el directorio.
+     */
+    public static void main(String[] args) throws IOException {
+        int puerto = args.length > 0 ? Integer.parseInt(args[0]) : PUERTO_PREDETERMINADO;
+        Biblioteca biblioteca = args.length > 1
+                ? Biblioteca.abrir(Path.of(args[1]), new ReceptorEventosNulo())
+                : new Biblioteca(new ReceptorEventosNulo());
+        ServidorBiblioteca servidor = new ServidorBiblioteca(biblioteca, puerto);
+        String claveNodos = System.getenv(VARIABLE_CLAVE_NODOS);
+        servidor.setClaveNodos(claveNodos == null || claveNodos.isEmpty() ? null : claveNodos);
+        servidor.iniciar();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            servidor.close();
+            biblioteca.cerrar();
+        }));
+        System.out.println("Servidor de la biblioteca escuchando en el puerto " + servidor.getPuerto());
+    }
+}
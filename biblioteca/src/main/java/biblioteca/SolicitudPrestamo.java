@@ -0,0 +1,45 @@
+package biblioteca;
+
+/**
+ * Clase que representa una solicitud de préstamo dentro de un lote.
+ * Contiene los mismos datos que recibe {@link Biblioteca#realizarPrestamo}.
+ */
+public class SolicitudPrestamo {
+    private String claveUsuario;
+    private String isbnLibro;
+    private String fechaPrestamo;
+
+    /**
+     * Constructor para la clase SolicitudPrestamo.
+     * @param claveUsuario La clave del usuario que solicita el préstamo.
+     * @param isbnLibro El ISBN del libro a prestar.
+     * @param fechaPrestamo La fecha del préstamo en formato "dd/MM/yyyy".
+     */
+    public SolicitudPrestamo(String claveUsuario, String isbnLibro, String fechaPrestamo) {
+        this.claveUsuario = claveUsuario;
+        this.isbnLibro = isbnLibro;
+        this.fechaPrestamo = fechaPrestamo;
+    }
+
+    // Getters
+    public String getClaveUsuario() {
+        return claveUsuario;
+    }
+
+    public String getIsbnLibro() {
+        return isbnLibro;
+    }
+
+    public String getFechaPrestamo() {
+        return fechaPrestamo;
+    }
+
+    @Override
+    public String toString() {
+        return "SolicitudPrestamo{" +
+               "claveUsuario='" + claveUsuario + "'" +
+               ", isbnLibro='" + isbnLibro + "'" +
+               ", fechaPrestamo='" + fechaPrestamo + "'" +
+               '}';
+    }
+}
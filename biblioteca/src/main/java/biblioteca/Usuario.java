@@ -0,0 +1,135 @@
+package biblioteca;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Clase que representa un usuario en el sistema de gestión de préstamos.
+ * El contador de préstamos activos se actualiza de forma atómica (CAS), por
+ * lo que varios préstamos simultáneos del mismo usuario no sobrepasan su
+ * límite.
+ */
+public class Usuario {
+    private String claveUsuario;
+    private String nombre;
+    private String licenciatura;
+    private int semestre;
+    private final AtomicInteger prestamosActivos;
+    private final AtomicInteger cuposRemotos; // Parte de prestamosActivos de préstamos en otros nodos
+
+    /**
+     * Constructor para la clase Usuario.
+     * @param claveUsuario La clave única del usuario.
+     * @param nombre El nombre completo del usuario.
+     * @param licenciatura La licenciatura que cursa el usuario.
+     * @param semestre El semestre que cursa el usuario.
+     */
+    public Usuario(String claveUsuario, String nombre, String licenciatura, int semestre) {
+        // Assertions for initial data validity
+        assert claveUsuario != null && !claveUsuario.trim().isEmpty() : "Clave de usuario no puede ser nula o vacía.";
+        assert nombre != null && !nombre.trim().isEmpty() : "Nombre no puede ser nulo o vacío.";
+        assert licenciatura != null && !licenciatura.trim().isEmpty() : "Licenciatura no puede ser nula o vacía.";
+        assert semestre > 0 : "El semestre debe ser un número positivo.";
+
+        this.claveUsuario = claveUsuario;
+        this.nombre = nombre;
+        this.licenciatura = licenciatura;
+        this.semestre = semestre;
+        this.prestamosActivos = new AtomicInteger();
+        this.cuposRemotos = new AtomicInteger();
+    }
+
+    // Getters
+    public String getClaveUsuario() {
+        return claveUsuario;
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+
+    public String getLicenciatura() {
+        return licenciatura;
+    }
+
+    public int getSemestre() {
+        return semestre;
+    }
+
+    public int getPrestamosActivos() {
+        return prestamosActivos.get();
+    }
+
+    /**
+     * Cuenta un préstamo nuevo si el usuario no alcanzó su límite.
+     * @param limite El máximo de préstamos activos del usuario.
+     * @return true si se contó el préstamo, false si ya tenía el máximo.
+     */
+    boolean intentarTomarPrestamo(int limite) {
+        int actuales;
+        do {
+            actuales = prestamosActivos.get();
+            if (actuales >= limite) {
+                return false;
+            }
+        } while (!prestamosActivos.compareAndSet(actuales, actuales + 1));
+        return true;
+    }
+
+    /**
+     * Descuenta un préstamo devuelto o que no llegó a realizarse.
+     */
+    void liberarPrestamo() {
+        int restantes = prestamosActivos.decrementAndGet();
+        assert restantes >= 0 : "El usuario no puede tener préstamos negativos.";
+    }
+
+    /**
+     * @return Los préstamos contados para préstamos realizados en otros nodos
+     *         de una {@link BibliotecaParticionada}.
+     */
+    int getCuposRemotos() {
+        return cuposRemotos.get();
+    }
+
+    /**
+     * Cuenta un préstamo que se realiza en otro nodo, si el usuario no
+     * alcanzó su límite.
+     * @param limite El máximo de préstamos activos del usuario.
+     * @return true si se contó el préstamo.
+     */
+    boolean intentarTomarCupoRemoto(int limite) {
+        if (!intentarTomarPrestamo(limite)) {
+            return false;
+        }
+        cuposRemotos.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Descuenta un préstamo de otro nodo sin bajar de cero, de modo que una
+     * liberación repetida o sin préstamo no descuenta los préstamos de este
+     * nodo.
+     * @return true si había un préstamo de otro nodo que descontar.
+     */
+    boolean intentarLiberarCupoRemoto() {
+        int actuales;
+        do {
+            actuales = cuposRemotos.get();
+            if (actuales == 0) {
+                return false;
+            }
+        } while (!cuposRemotos.compareAndSet(actuales, actuales - 1));
+        liberarPrestamo();
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "Usuario{" +
+               "claveUsuario='" + claveUsuario + "'" +
+               ", nombre='" + nombre + "'" +
+               ", licenciatura='" + licenciatura + "'" +
+               ", semestre=" + semestre +
+               '}';
+    }
+}
@@ -0,0 +1,370 @@
+package biblioteca;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Cupos, registros y préstamos de una {@link BibliotecaParticionada} cuando
+ * usuario y libro están en nodos distintos.
+ */
+class BibliotecaParticionadaTest {
+    private static final String FECHA = "01/01/2024";
+
+    @Test
+    void liberarUnCupoNoBajaDeCeroNiDescuentaPrestamosLocales() {
+        Biblioteca biblioteca = new Biblioteca(new ReceptorEventosNulo());
+        try {
+            biblioteca.intentarRegistrarLibro("978-1", "Título", "Autor", "2");
+            biblioteca.intentarRegistrarUsuario("U1", "Usuario", "Licenciatura", "1");
+            biblioteca.setLimitePrestamos(LimitePrestamos.fijo(2));
+            assertEquals(ResultadoOperacion.Codigo.EXITO,
+                    biblioteca.intentarPrestamo("U1", "978-1", FECHA).getCodigo());
+
+            // El préstamo local no es un cupo de otro nodo
+            assertEquals(ResultadoOperacion.Codigo.CUPO_NO_TOMADO, biblioteca.liberarCupo("U1"));
+            assertEquals(ResultadoOperacion.Codigo.EXITO, biblioteca.tomarCupo("U1"));
+            assertEquals(ResultadoOperacion.Codigo.LIMITE_PRESTAMOS, biblioteca.tomarCupo("U1"));
+            assertEquals(ResultadoOperacion.Codigo.EXITO, biblioteca.liberarCupo("U1"));
+            assertEquals(ResultadoOperacion.Codigo.CUPO_NO_TOMADO, biblioteca.liberarCupo("U1"));
+            assertEquals(ResultadoOperacion.Codigo.USUARIO_NO_ENCONTRADO, biblioteca.liberarCupo("U9"));
+
+            // El límite sigue contando el préstamo local
+            assertEquals(ResultadoOperacion.Codigo.EXITO, biblioteca.tomarCupo("U1"));
+            assertEquals(ResultadoOperacion.Codigo.LIMITE_PRESTAMOS,
+                    biblioteca.intentarPrestamo("U1", "978-1", FECHA).getCodigo());
+        } finally {
+            biblioteca.cerrar();
+        }
+    }
+
+    @Test
+    void losComandosEntreNodosExigenLaClave() throws IOException {
+        Biblioteca biblioteca = new Biblioteca(new ReceptorEventosNulo());
+        biblioteca.intentarRegistrarUsuario("U1", "Usuario", "Licenciatura", "1");
+        try (ServidorBiblioteca servidor = new ServidorBiblioteca(biblioteca, 0)) {
+            servidor.iniciar();
+            // Sin clave configurada nadie los usa
+            try (Cliente cliente = new Cliente(servidor)) {
+                assertTrue(cliente.enviar("CUPO\tU1").startsWith("ERROR\tNO_AUTORIZADO\t"));
+                assertTrue(cliente.enviar("NODO\tcualquiera").startsWith("ERROR\tNO_AUTORIZADO\t"));
+                assertNull(cliente.entrada.readLine());
+            }
+            servidor.setClaveNodos("secreta");
+            try (Cliente cliente = new Cliente(servidor)) {
+                assertTrue(cliente.enviar("LIBERAR\tU1").startsWith("ERROR\tNO_AUTORIZADO\t"));
+                assertTrue(cliente.enviar("NODO\totra").startsWith("ERROR\tNO_AUTORIZADO\t"));
+                assertNull(cliente.entrada.readLine());
+            }
+            try (Cliente cliente = new Cliente(servidor)) {
+                assertEquals("OK", cliente.enviar("NODO\tsecreta"));
+                assertEquals("OK", cliente.enviar("CUPO\tU1"));
+                assertEquals("OK", cliente.enviar("LIBERAR\tU1"));
+                assertTrue(cliente.enviar("LIBERAR\tU1").startsWith("ERROR\tCUPO_NO_TOMADO\t"));
+            }
+        } finally {
+            biblioteca.cerrar();
+        }
+    }
+
+    @Test
+    void unNodoRemotoConOtraClaveNoSeUsa() throws IOException {
+        Biblioteca biblioteca = new Biblioteca(new ReceptorEventosNulo());
+        try (ServidorBiblioteca servidor = new ServidorBiblioteca(biblioteca, 0)) {
+            servidor.setClaveNodos("secreta");
+            servidor.iniciar();
+            NodoBiblioteca nodo = NodoBiblioteca.remoto(new InetSocketAddress("localhost", servidor.getPuerto()), 1,
+                    "otra");
+            try {
+                assertThrows(IllegalStateException.class, () -> nodo.tomarCupo("U1"));
+            } finally {
+                nodo.cerrar();
+            }
+        } finally {
+            biblioteca.cerrar();
+        }
+    }
+
+    @Test
+    void cerrarUnNodoRemotoCortaLasSolicitudesEnCurso() throws Exception {
+        // Servidor que acepta la clave de nodos y después no responde
+        try (ServerSocket servidor = new ServerSocket(0)) {
+            CountDownLatch recibida = new CountDownLatch(1);
+            Thread atencion = new Thread(() -> {
+                try (Socket socket = servidor.accept()) {
+                    BufferedReader entrada = new BufferedReader(
+                            new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                    entrada.readLine();
+                    socket.getOutputStream().write("OK\n".getBytes(StandardCharsets.UTF_8));
+                    socket.getOutputStream().flush();
+                    entrada.readLine();
+                    recibida.countDown();
+                    while (entrada.readLine() != null) {
+                        // Sin respuesta hasta que el cliente cierre
+                    }
+                } catch (IOException e) {
+                    // El cliente cerró
+                }
+            });
+            atencion.start();
+            NodoBiblioteca nodo = NodoBiblioteca.remoto(new InetSocketAddress("localhost", servidor.getLocalPort()),
+                    1, "secreta");
+            CompletableFuture<ResultadoOperacion.Codigo> solicitud = CompletableFuture
+                    .supplyAsync(() -> nodo.tomarCupo("U1"));
+            // La conexión queda en uso esperando la respuesta
+            assertTrue(recibida.await(5, TimeUnit.SECONDS));
+            nodo.cerrar();
+            ExecutionException error = assertThrows(ExecutionException.class,
+                    () -> solicitud.get(5, TimeUnit.SECONDS));
+            assertTrue(error.getCause() instanceof UncheckedIOException, error.getCause().toString());
+            assertThrows(IllegalStateException.class, () -> nodo.tomarCupo("U1"));
+            atencion.join(5_000);
+        }
+    }
+
+    @Test
+    void unPrestamoEntreNodosRemotosUsaElCupoDelUsuario() throws IOException {
+        List<ServidorBiblioteca> servidores = new ArrayList<>();
+        List<NodoBiblioteca> nodos = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            ServidorBiblioteca servidor = new ServidorBiblioteca(new Biblioteca(new ReceptorEventosNulo()), 0);
+            servidor.setClaveNodos("secreta");
+            servidor.iniciar();
+            servidores.add(servidor);
+            nodos.add(NodoBiblioteca.remoto(new InetSocketAddress("localhost", servidor.getPuerto()), 2, "secreta"));
+        }
+        BibliotecaParticionada biblioteca = new BibliotecaParticionada(nodos);
+        try {
+            String isbn = "978-1";
+            String clave = claveEnOtroNodo(biblioteca, isbn);
+            biblioteca.intentarRegistrarLibro(isbn, "Título", "Autor", "2");
+            biblioteca.intentarRegistrarUsuario(clave, "Usuario", "Licenciatura", "1");
+
+            long id = biblioteca.intentarPrestamo(clave, isbn, FECHA);
+            assertTrue(id >= 0, "Rechazo: " + NodoBiblioteca.codigo(id));
+            assertEquals(ResultadoOperacion.Codigo.EXITO, biblioteca.intentarDevolucion(id));
+            // La devolución ya liberó el cupo
+            assertEquals(ResultadoOperacion.Codigo.CUPO_NO_TOMADO,
+                    nodos.get(biblioteca.particionDeUsuario(clave)).liberarCupo(clave));
+        } finally {
+            biblioteca.cerrar();
+            for (ServidorBiblioteca servidor : servidores) {
+                servidor.close();
+            }
+        }
+    }
+
+    @Test
+    void repetirUnRegistroCompletaLasCopiasQueFallaron() {
+        Biblioteca biblioteca0 = new Biblioteca(new ReceptorEventosNulo());
+        Biblioteca biblioteca1 = new Biblioteca(new ReceptorEventosNulo());
+        NodoFallido fallido1 = new NodoFallido(biblioteca1);
+        List<NodoBiblioteca> nodos = List.of(NodoBiblioteca.local(biblioteca0), fallido1);
+        BibliotecaParticionada biblioteca = new BibliotecaParticionada(nodos);
+        try {
+            // El usuario pertenece al nodo 0 y la copia en el nodo 1 falla
+            String clave = claveEnNodo(biblioteca, 0);
+            String isbn = isbnEnNodo(biblioteca, 1);
+            biblioteca.intentarRegistrarLibro(isbn, "Título", "Autor", "1");
+            fallido1.fallarRegistro = true;
+            assertThrows(UncheckedIOException.class,
+                    () -> biblioteca.intentarRegistrarUsuario(clave, "Usuario", "Licenciatura", "1"));
+            assertEquals(ResultadoOperacion.Codigo.USUARIO_NO_ENCONTRADO,
+                    NodoBiblioteca.codigo(biblioteca.intentarPrestamo(clave, isbn, FECHA)));
+
+            // El reintento responde que ya existe, pero completa la copia
+            assertEquals(ResultadoOperacion.Codigo.USUARIO_DUPLICADO,
+                    biblioteca.intentarRegistrarUsuario(clave, "Usuario", "Licenciatura", "1"));
+            assertTrue(biblioteca.intentarPrestamo(clave, isbn, FECHA) >= 0);
+        } finally {
+            biblioteca.cerrar();
+        }
+    }
+
+    @Test
+    void unFalloDeRedAlPrestarNoDevuelveElCupo() {
+        Biblioteca biblioteca0 = new Biblioteca(new ReceptorEventosNulo());
+        NodoFallido fallido1 = new NodoFallido(new Biblioteca(new ReceptorEventosNulo()));
+        NodoBiblioteca nodo0 = NodoBiblioteca.local(biblioteca0);
+        BibliotecaParticionada biblioteca = new BibliotecaParticionada(List.of(nodo0, fallido1));
+        try {
+            String clave = claveEnNodo(biblioteca, 0);
+            String isbn = isbnEnNodo(biblioteca, 1);
+            biblioteca.intentarRegistrarLibro(isbn, "Título", "Autor", "1");
+            biblioteca.intentarRegistrarUsuario(clave, "Usuario", "Licenciatura", "1");
+            fallido1.fallarPrestamo = true;
+            assertThrows(UncheckedIOException.class, () -> biblioteca.intentarPrestamo(clave, isbn, FECHA));
+            // El préstamo pudo hacerse: el cupo sigue tomado
+            assertEquals(ResultadoOperacion.Codigo.EXITO, nodo0.liberarCupo(clave));
+        } finally {
+            biblioteca.cerrar();
+        }
+    }
+
+    @Test
+    void losCuposDeOtrosNodosSobrevivenAlReabrir(@TempDir Path directorio) throws IOException {
+        Biblioteca biblioteca = Biblioteca.abrir(directorio, new ReceptorEventosNulo());
+        biblioteca.intentarRegistrarUsuario("U1", "Usuario", "Licenciatura", "1");
+        assertEquals(ResultadoOperacion.Codigo.EXITO, biblioteca.tomarCupo("U1"));
+        assertEquals(ResultadoOperacion.Codigo.EXITO, biblioteca.tomarCupo("U1"));
+        assertEquals(ResultadoOperacion.Codigo.EXITO, biblioteca.tomarCupo("U1"));
+        biblioteca.guardarPuntoControl();
+        // Después del punto de control, sólo en el diario
+        assertEquals(ResultadoOperacion.Codigo.EXITO, biblioteca.liberarCupo("U1"));
+        biblioteca.cerrar();
+
+        biblioteca = Biblioteca.abrir(directorio, new ReceptorEventosNulo());
+        try {
+            biblioteca.setLimitePrestamos(LimitePrestamos.fijo(3));
+            assertEquals(ResultadoOperacion.Codigo.EXITO, biblioteca.tomarCupo("U1"));
+            assertEquals(ResultadoOperacion.Codigo.LIMITE_PRESTAMOS, biblioteca.tomarCupo("U1"));
+            for (int i = 0; i < 3; i++) {
+                assertEquals(ResultadoOperacion.Codigo.EXITO, biblioteca.liberarCupo("U1"));
+            }
+            assertEquals(ResultadoOperacion.Codigo.CUPO_NO_TOMADO, biblioteca.liberarCupo("U1"));
+        } finally {
+            biblioteca.cerrar();
+        }
+    }
+
+    private static String claveEnNodo(BibliotecaParticionada biblioteca, int nodo) {
+        for (int i = 0;; i++) {
+            if (biblioteca.particionDeUsuario("U" + i) == nodo) {
+                return "U" + i;
+            }
+        }
+    }
+
+    private static String isbnEnNodo(BibliotecaParticionada biblioteca, int nodo) {
+        for (int i = 1;; i++) {
+            if (biblioteca.particionDeLibro("978-" + i) == nodo) {
+                return "978-" + i;
+            }
+        }
+    }
+
+    /**
+     * Nodo local cuyo siguiente registro de usuario o préstamo falla como si
+     * se cortara la red; el préstamo falla después de hacerse.
+     */
+    private static final class NodoFallido implements NodoBiblioteca {
+        private final NodoBiblioteca nodo;
+        private boolean fallarRegistro;
+        private boolean fallarPrestamo;
+
+        NodoFallido(Biblioteca biblioteca) {
+            this.nodo = NodoBiblioteca.local(biblioteca);
+        }
+
+        @Override
+        public ResultadoOperacion.Codigo registrarLibro(String isbn, String titulo, String autor,
+                String totalCopias) {
+            return nodo.registrarLibro(isbn, titulo, autor, totalCopias);
+        }
+
+        @Override
+        public ResultadoOperacion.Codigo registrarUsuario(String claveUsuario, String nombre, String licenciatura,
+                String semestre) {
+            if (fallarRegistro) {
+                fallarRegistro = false;
+                throw new UncheckedIOException(new IOException("Conexión cortada."));
+            }
+            return nodo.registrarUsuario(claveUsuario, nombre, licenciatura, semestre);
+        }
+
+        @Override
+        public ResultadoOperacion.Codigo tomarCupo(String claveUsuario) {
+            return nodo.tomarCupo(claveUsuario);
+        }
+
+        @Override
+        public ResultadoOperacion.Codigo liberarCupo(String claveUsuario) {
+            return nodo.liberarCupo(claveUsuario);
+        }
+
+        @Override
+        public long prestar(String claveUsuario, String isbn, String fechaPrestamoStr) {
+            long id = nodo.prestar(claveUsuario, isbn, fechaPrestamoStr);
+            if (fallarPrestamo) {
+                fallarPrestamo = false;
+                throw new UncheckedIOException(new IOException("Conexión cortada."));
+            }
+            return id;
+        }
+
+        @Override
+        public String devolver(long idPrestamo) {
+            return nodo.devolver(idPrestamo);
+        }
+
+        @Override
+        public int copiasDisponibles(String isbn) {
+            return nodo.copiasDisponibles(isbn);
+        }
+
+        @Override
+        public void cerrar() {
+            nodo.cerrar();
+        }
+    }
+
+    /**
+     * @return Una clave de usuario que pertenece a un nodo distinto del libro.
+     */
+    private static String claveEnOtroNodo(BibliotecaParticionada biblioteca, String isbn) {
+        for (int i = 0;; i++) {
+            if (biblioteca.particionDeUsuario("U" + i) != biblioteca.particionDeLibro(isbn)) {
+                return "U" + i;
+            }
+        }
+    }
+
+    /**
+     * Cliente del protocolo de líneas del servidor.
+     */
+    private static final class Cliente implements AutoCloseable {
+        private final Socket socket;
+        private final BufferedReader entrada;
+        private final Writer salida;
+
+        Cliente(ServidorBiblioteca servidor) throws IOException {
+            socket = new Socket("localhost", servidor.getPuerto());
+            entrada = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            salida = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+        }
+
+        String enviar(String linea) throws IOException {
+            salida.write(linea);
+            salida.write('\n');
+            salida.flush();
+            return entrada.readLine();
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+}
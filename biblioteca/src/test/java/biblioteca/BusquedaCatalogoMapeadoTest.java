@@ -0,0 +1,90 @@
+package biblioteca;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Las búsquedas por texto y el historial de préstamos dan los mismos libros
+ * con el catálogo en memoria y con el catálogo mapeado, cuyos índices guardan
+ * números de fila.
+ */
+class BusquedaCatalogoMapeadoTest {
+    @TempDir
+    Path directorio;
+
+    @Test
+    void elCatalogoMapeadoEncuentraLosMismosLibros() throws IOException {
+        Biblioteca enMemoria = new Biblioteca(new ReceptorEventosNulo());
+        Biblioteca mapeada = new Biblioteca(new ReceptorEventosNulo(), CatalogoMapeado.crear(directorio, 0));
+        try {
+            for (int i = 0; i < 500; i++) {
+                String titulo = (i % 3 == 0 ? "Diseño de algoritmos " : "Estructuras de datos ") + i;
+                String autor = i % 2 == 0 ? "Núñez" : "Cormen";
+                enMemoria.intentarRegistrarLibro("978-" + i, titulo, autor, "1");
+                mapeada.intentarRegistrarLibro("978-" + i, titulo, autor, "1");
+            }
+            for (String consulta : new String[] { "diseno", "ALGORITMOS nunez", "datos cormen", "17", "inexistente" }) {
+                assertEquals(isbns(enMemoria.buscarLibros(consulta, IndiceTexto.Campo.CUALQUIERA, 1000)),
+                        isbns(mapeada.buscarLibros(consulta, IndiceTexto.Campo.CUALQUIERA, 1000)), consulta);
+            }
+            for (String prefijo : new String[] { "dis", "e", "1", "cor alg" }) {
+                List<String> esperados = isbns(enMemoria.buscarLibrosPorPrefijo(prefijo, IndiceTexto.Campo.CUALQUIERA, 50));
+                assertEquals(esperados,
+                        isbns(mapeada.buscarLibrosPorPrefijo(prefijo, IndiceTexto.Campo.CUALQUIERA, 50)), prefijo);
+            }
+            assertEquals(167, mapeada.buscarLibros("diseño", IndiceTexto.Campo.TITULO, 1000).size());
+        } finally {
+            enMemoria.cerrar();
+            mapeada.cerrar();
+        }
+    }
+
+    @Test
+    void elHistorialCuentaLosMismosPrestamos() throws IOException {
+        Biblioteca enMemoria = new Biblioteca(new ReceptorEventosNulo());
+        Biblioteca mapeada = new Biblioteca(new ReceptorEventosNulo(),
+                CatalogoMapeado.crear(directorio.resolve("historial"), 0));
+        try {
+            for (Biblioteca biblioteca : List.of(enMemoria, mapeada)) {
+                biblioteca.intentarRegistrarUsuario("U1", "Usuario", "Licenciatura", "1");
+                for (int i = 0; i < 40; i++) {
+                    biblioteca.intentarRegistrarLibro("978-" + i, "Título " + i, "Autor", "1");
+                }
+                // Cada libro i se presta i % 5 + 1 veces; cada préstamo busca el libro de nuevo
+                for (int i = 0; i < 40; i++) {
+                    for (int vez = 0; vez <= i % 5; vez++) {
+                        Prestamo prestamo = biblioteca.intentarPrestamo("U1", "978-" + i, "01/01/2024").getPrestamo();
+                        biblioteca.intentarDevolucion(prestamo.getId());
+                    }
+                }
+            }
+            LocalDate desde = LocalDate.of(2024, 1, 1);
+            LocalDate hasta = LocalDate.of(2024, 1, 2);
+            Map<Libro, Long> esperados = enMemoria.getHistorial().librosMasPrestados(10, desde, hasta);
+            Map<Libro, Long> obtenidos = mapeada.getHistorial().librosMasPrestados(10, desde, hasta);
+            assertEquals(isbns(new ArrayList<>(esperados.keySet())), isbns(new ArrayList<>(obtenidos.keySet())));
+            assertEquals(new ArrayList<>(esperados.values()), new ArrayList<>(obtenidos.values()));
+            assertEquals(5L, obtenidos.values().iterator().next());
+        } finally {
+            enMemoria.cerrar();
+            mapeada.cerrar();
+        }
+    }
+
+    private static List<String> isbns(List<Libro> libros) {
+        List<String> isbns = new ArrayList<>();
+        for (Libro libro : libros) {
+            isbns.add(libro.getIsbn());
+        }
+        return isbns;
+    }
+}
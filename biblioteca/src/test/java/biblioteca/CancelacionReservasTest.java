@@ -0,0 +1,144 @@
+package biblioteca;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * La cancelación de una reserva y la entrega de una copia devuelta no pueden
+ * ganar las dos: o la reserva se cancela sin préstamo, o recibe el préstamo.
+ */
+class CancelacionReservasTest {
+    private static final String FECHA = "01/01/2024";
+    private static final int RONDAS = 2000;
+
+    @Test
+    void cancelarYDevolverALaVezNoCreaPrestamosFantasma() throws Exception {
+        ContadorPrestamos eventos = new ContadorPrestamos();
+        Biblioteca biblioteca = new Biblioteca(eventos);
+        biblioteca.intentarRegistrarLibro("978-1", "Título", "Autor", "1");
+        biblioteca.intentarRegistrarUsuario("U1", "Usuario 1", "Licenciatura", "1");
+        biblioteca.intentarRegistrarUsuario("U2", "Usuario 2", "Licenciatura", "1");
+        ExecutorService hilos = Executors.newFixedThreadPool(2);
+        try {
+            int canceladas = 0;
+            for (int ronda = 0; ronda < RONDAS; ronda++) {
+                long id = biblioteca.intentarPrestamo("U1", "978-1", FECHA).getPrestamo().getId();
+                CompletableFuture<Prestamo> reserva = biblioteca.reservar("U2", "978-1");
+                assertFalse(reserva.isDone());
+                int realizados = eventos.realizados.get();
+
+                CyclicBarrier salida = new CyclicBarrier(2);
+                Future<?> devolucion = hilos.submit(() -> {
+                    salida.await();
+                    return biblioteca.intentarDevolucion(id);
+                });
+                Future<Boolean> cancelacion = hilos.submit(() -> {
+                    salida.await();
+                    return reserva.cancel(false);
+                });
+                devolucion.get();
+                boolean cancelada = cancelacion.get();
+
+                assertEquals(cancelada, reserva.isCancelled());
+                assertEquals(cancelada ? 0 : 1, biblioteca.getResumen().getCopiasPrestadas());
+                if (cancelada) {
+                    canceladas++;
+                    assertEquals(1, biblioteca.copiasDisponibles("978-1"));
+                    assertEquals(0, biblioteca.contarPrestamosActivos());
+                    assertEquals(0, biblioteca.contarPrestamosUsuario("U2"));
+                    assertEquals(realizados, eventos.realizados.get(), "Préstamo fantasma en la ronda " + ronda);
+                } else {
+                    Prestamo prestamo = reserva.join();
+                    assertEquals("U2", prestamo.getUsuario().getClaveUsuario());
+                    assertEquals(0, biblioteca.copiasDisponibles("978-1"));
+                    assertEquals(1, biblioteca.contarPrestamosUsuario("U2"));
+                    assertEquals(realizados + 1, eventos.realizados.get());
+                    assertTrue(biblioteca.intentarDevolucion(prestamo.getId()).esExitoso());
+                }
+                assertEquals(0, biblioteca.contarPrestamosUsuario("U1"));
+            }
+            assertTrue(canceladas > 0 && canceladas < RONDAS, "Canceladas: " + canceladas);
+        } finally {
+            hilos.shutdownNow();
+            biblioteca.cerrar();
+        }
+    }
+
+    @Test
+    void elServidorRespondeElCodigoDelRechazoYCancelaAlDesconectarse() throws Exception {
+        Biblioteca biblioteca = new Biblioteca(new ReceptorEventosNulo());
+        biblioteca.intentarRegistrarLibro("978-1", "Título", "Autor", "1");
+        biblioteca.intentarRegistrarUsuario("U1", "Usuario 1", "Licenciatura", "1");
+        biblioteca.intentarRegistrarUsuario("U2", "Usuario 2", "Licenciatura", "1");
+        long id = biblioteca.intentarPrestamo("U1", "978-1", FECHA).getPrestamo().getId();
+        biblioteca.setLimitePrestamos(LimitePrestamos.fijo(1));
+        try (ServidorBiblioteca servidor = new ServidorBiblioteca(biblioteca, 0)) {
+            servidor.iniciar();
+            try (Socket socket = new Socket("localhost", servidor.getPuerto())) {
+                BufferedReader lector = new BufferedReader(
+                        new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                OutputStream salida = socket.getOutputStream();
+                salida.write("RESERVA\tU9\t978-1\nRESERVA\tU2\t978-1\n".getBytes(StandardCharsets.UTF_8));
+                salida.flush();
+                assertTrue(lector.readLine().startsWith("ERROR\tUSUARIO_NO_ENCONTRADO\t"));
+                esperar(() -> !cupoLibre(biblioteca, "U2")); // La reserva espera con el cupo tomado
+            }
+            // El cliente se fue: la reserva se cancela, libera el cupo y la
+            // copia devuelta queda libre
+            esperar(() -> cupoLibre(biblioteca, "U2"));
+            assertTrue(biblioteca.intentarDevolucion(id).esExitoso());
+            assertEquals(1, biblioteca.copiasDisponibles("978-1"));
+            assertEquals(0, biblioteca.contarPrestamosActivos());
+        } finally {
+            biblioteca.cerrar();
+        }
+    }
+
+    private static boolean cupoLibre(Biblioteca biblioteca, String claveUsuario) {
+        if (biblioteca.tomarCupo(claveUsuario) != ResultadoOperacion.Codigo.EXITO) {
+            return false;
+        }
+        biblioteca.liberarCupo(claveUsuario);
+        return true;
+    }
+
+    private interface Condicion {
+        boolean cumplida();
+    }
+
+    private static void esperar(Condicion condicion) throws InterruptedException {
+        long limite = System.nanoTime() + 10_000_000_000L;
+        while (!condicion.cumplida()) {
+            assertTrue(System.nanoTime() < limite, "La condición no se cumplió a tiempo.");
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * Cuenta los préstamos realizados.
+     */
+    private static final class ContadorPrestamos extends ReceptorEventosNulo {
+        private final AtomicInteger realizados = new AtomicInteger();
+
+        @Override
+        public void prestamoRealizado(Prestamo prestamo) {
+            realizados.incrementAndGet();
+        }
+    }
+}
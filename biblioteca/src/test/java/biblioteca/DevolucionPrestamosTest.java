@@ -0,0 +1,145 @@
+package biblioteca;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * La devolución y las consultas del índice de préstamos activos (por id, por
+ * usuario y por libro), y los resultados compartidos con que se rechazan las
+ * operaciones.
+ */
+class DevolucionPrestamosTest {
+    private static final String FECHA = "01/01/2024";
+
+    private final List<String> fallos = new ArrayList<>();
+    private Biblioteca biblioteca;
+
+    @BeforeEach
+    void preparar() {
+        biblioteca = new Biblioteca(new ReceptorEventosNulo() {
+            @Override
+            public void operacionFallida(String operacion, String mensaje) {
+                fallos.add(operacion + ": " + mensaje);
+            }
+        });
+        biblioteca.intentarRegistrarLibro("978-0-306-40615-7", "Título", "Autor", "2");
+        biblioteca.intentarRegistrarLibro("978-2", "Otro", "Autor", "1");
+        biblioteca.intentarRegistrarUsuario("U1", "Ana", "Licenciatura", "1");
+        biblioteca.intentarRegistrarUsuario("U2", "Beto", "Licenciatura", "2");
+    }
+
+    @AfterEach
+    void cerrar() {
+        biblioteca.cerrar();
+    }
+
+    @Test
+    void laDevolucionQuitaElPrestamoDeTodasLasVistas() {
+        Prestamo primero = biblioteca.intentarPrestamo("U1", "9780306406157", FECHA).getPrestamo();
+        Prestamo segundo = biblioteca.intentarPrestamo("U2", "978-0-306-40615-7", FECHA).getPrestamo();
+        Prestamo tercero = biblioteca.intentarPrestamo("U1", "978-2", FECHA).getPrestamo();
+
+        assertSame(primero, biblioteca.buscarPrestamo(primero.getId()));
+        assertEquals(Set.of(primero, tercero), Set.copyOf(biblioteca.obtenerPrestamosUsuario("U1")));
+        // El libro se consulta con cualquiera de las formas de su ISBN
+        assertEquals(Set.of(primero, segundo), Set.copyOf(biblioteca.obtenerPrestamosLibro("0-306-40615-2")));
+        assertEquals(2, biblioteca.contarPrestamosUsuario("U1"));
+        assertEquals(3, biblioteca.contarPrestamosActivos());
+        assertEquals(0, biblioteca.copiasDisponibles("978-0-306-40615-7"));
+
+        ResultadoOperacion devolucion = biblioteca.intentarDevolucion(primero.getId());
+        assertTrue(devolucion.esExitoso());
+        assertSame(primero, devolucion.getPrestamo());
+        assertNull(biblioteca.buscarPrestamo(primero.getId()));
+        assertEquals(Set.of(tercero), Set.copyOf(biblioteca.obtenerPrestamosUsuario("U1")));
+        assertEquals(Set.of(segundo), Set.copyOf(biblioteca.obtenerPrestamosLibro("978-0-306-40615-7")));
+        assertEquals(1, biblioteca.contarPrestamosUsuario("U1"));
+        assertEquals(2, biblioteca.contarPrestamosActivos());
+        assertEquals(1, biblioteca.copiasDisponibles("978-0-306-40615-7"));
+
+        // La copia liberada se puede volver a prestar
+        assertTrue(biblioteca.intentarPrestamo("U2", "978-0-306-40615-7", FECHA).esExitoso());
+        assertTrue(biblioteca.obtenerPrestamosUsuario("U9").isEmpty());
+        assertEquals(0, biblioteca.contarPrestamosUsuario("U9"));
+    }
+
+    @Test
+    void unaDevolucionRepetidaSeRechazaSinLiberarOtraCopia() {
+        Prestamo prestamo = biblioteca.intentarPrestamo("U1", "978-2", FECHA).getPrestamo();
+        assertTrue(biblioteca.intentarDevolucion(prestamo.getId()).esExitoso());
+
+        ResultadoOperacion repetida = biblioteca.intentarDevolucion(prestamo.getId());
+        assertSame(ResultadoOperacion.de(ResultadoOperacion.Codigo.PRESTAMO_NO_ENCONTRADO), repetida);
+        assertNull(repetida.getPrestamo());
+        assertEquals(1, biblioteca.copiasDisponibles("978-2"));
+        assertEquals(0, biblioteca.contarPrestamosUsuario("U1"));
+
+        biblioteca.devolverPrestamo(prestamo.getId());
+        assertEquals(List.of("devolver préstamo: No existe un préstamo activo con el id: " + prestamo.getId()),
+                fallos);
+    }
+
+    @Test
+    void losRechazosSonResultadosCompartidos() {
+        biblioteca.intentarPrestamo("U1", "978-2", FECHA);
+        Object[][] casos = {
+                { ResultadoOperacion.Codigo.LIBRO_NO_DISPONIBLE, "U2", "978-2", FECHA },
+                { ResultadoOperacion.Codigo.LIBRO_NO_ENCONTRADO, "U2", "978-9", FECHA },
+                { ResultadoOperacion.Codigo.USUARIO_NO_ENCONTRADO, "U9", "978-2", FECHA },
+                { ResultadoOperacion.Codigo.FECHA_INVALIDA, "U2", "978-2", "2024-01-01" },
+                { ResultadoOperacion.Codigo.FECHA_VACIA, "U2", "978-2", " " },
+                { ResultadoOperacion.Codigo.ISBN_PRESTAMO_VACIO, "U2", "", FECHA },
+        };
+        for (Object[] caso : casos) {
+            ResultadoOperacion resultado = biblioteca.intentarPrestamo((String) caso[1], (String) caso[2],
+                    (String) caso[3]);
+            assertSame(ResultadoOperacion.de((ResultadoOperacion.Codigo) caso[0]), resultado, caso[0].toString());
+            assertNull(resultado.getPrestamo());
+        }
+        assertSame(ResultadoOperacion.exito(), ResultadoOperacion.de(ResultadoOperacion.Codigo.EXITO));
+        assertSame(ResultadoOperacion.de(ResultadoOperacion.Codigo.LIBRO_DUPLICADO),
+                biblioteca.intentarRegistrarLibro("978-2", "Otro", "Autor", "1"));
+
+        // Sólo un préstamo exitoso crea un resultado nuevo, con su préstamo
+        ResultadoOperacion uno = biblioteca.intentarPrestamo("U2", "978-0-306-40615-7", FECHA);
+        ResultadoOperacion otro = biblioteca.intentarPrestamo("U2", "978-0-306-40615-7", FECHA);
+        assertNotSame(uno, otro);
+        assertNotSame(uno.getPrestamo(), otro.getPrestamo());
+    }
+
+    @Test
+    void elMensajeYLaExcepcionDependenDelCodigo() {
+        ResultadoOperacion noDisponible = ResultadoOperacion.de(ResultadoOperacion.Codigo.LIBRO_NO_DISPONIBLE);
+        assertEquals("No hay copias disponibles del libro con ISBN: 978-2", noDisponible.getMensaje("978-2"));
+        assertInstanceOf(LibroNoDisponibleException.class, noDisponible.crearExcepcion("978-2"));
+        assertInstanceOf(LibroNoEncontradoException.class,
+                ResultadoOperacion.de(ResultadoOperacion.Codigo.LIBRO_NO_ENCONTRADO).crearExcepcion("978-9"));
+        assertInstanceOf(IllegalStateException.class,
+                ResultadoOperacion.de(ResultadoOperacion.Codigo.LIMITE_PRESTAMOS).crearExcepcion("U1"));
+        assertInstanceOf(NumberFormatException.class,
+                ResultadoOperacion.de(ResultadoOperacion.Codigo.COPIAS_NO_NUMERICAS).crearExcepcion(null));
+        ResultadoOperacion tituloVacio = ResultadoOperacion.de(ResultadoOperacion.Codigo.TITULO_VACIO);
+        assertEquals("El título no puede ser nulo o vacío.", tituloVacio.getMensaje("978-2"));
+        assertInstanceOf(IllegalArgumentException.class, tituloVacio.crearExcepcion(null));
+        assertNull(ResultadoOperacion.exito().crearExcepcion(null));
+
+        // La API que lanza excepciones informa el rechazo al receptor
+        biblioteca.intentarPrestamo("U1", "978-2", FECHA);
+        biblioteca.realizarPrestamo("U2", "978-2", FECHA);
+        biblioteca.realizarPrestamo("U9", "978-2", FECHA);
+        assertEquals(List.of("realizar préstamo: No hay copias disponibles del libro con ISBN: 978-2",
+                "realizar préstamo: Usuario no encontrado con la clave: U9"), fallos);
+    }
+}
@@ -0,0 +1,82 @@
+package biblioteca;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Un préstamo cuyo registro en el diario falla no deja la copia, el cupo del
+ * usuario ni el resumen descontados.
+ */
+class FalloDiarioTest {
+    @TempDir
+    Path directorio;
+
+    private Biblioteca biblioteca;
+
+    @BeforeEach
+    void preparar() throws IOException {
+        biblioteca = Biblioteca.abrir(directorio, new ReceptorEventosNulo());
+        biblioteca.intentarRegistrarLibro("978-1", "Título", "Autor", "2");
+        for (String clave : new String[] { "U1", "U2", "U3" }) {
+            biblioteca.intentarRegistrarUsuario(clave, "Usuario", "Licenciatura", "2");
+        }
+        biblioteca.setLimitePrestamos(LimitePrestamos.fijo(1));
+        // Con el diario cerrado las escrituras siguientes fallan, como con un
+        // disco que deja de responder
+        biblioteca.cerrar();
+    }
+
+    @Test
+    void unPrestamoSinDiarioSeDeshace() {
+        assertThrows(UncheckedIOException.class, () -> biblioteca.intentarPrestamo("U1", "978-1", "01/01/2024"));
+        comprobarSinPrestamo();
+    }
+
+    @Test
+    void unaReservaSinDiarioTerminaConElError() {
+        CompletableFuture<Prestamo> reserva = biblioteca.reservar("U1", "978-1");
+        assertTrue(reserva.isCompletedExceptionally());
+        comprobarSinPrestamo();
+    }
+
+    @Test
+    void unLoteSinDiarioSeDeshace() {
+        // Dos préstamos publicados, uno sin copia y uno rechazado al validar
+        List<SolicitudPrestamo> lote = List.of(
+                new SolicitudPrestamo("U1", "978-1", "01/01/2024"),
+                new SolicitudPrestamo("U9", "978-1", "01/01/2024"),
+                new SolicitudPrestamo("U2", "978-1", "01/01/2024"),
+                new SolicitudPrestamo("U3", "978-1", "01/01/2024"));
+        assertThrows(UncheckedIOException.class, () -> biblioteca.realizarPrestamosLote(lote));
+        assertEquals(2, biblioteca.copiasDisponibles("978-1"));
+        assertEquals(0, biblioteca.contarPrestamosActivos());
+        assertEquals(0, biblioteca.getResumen().getCopiasPrestadas());
+        for (String clave : new String[] { "U1", "U2", "U3" }) {
+            assertCupoLibre(clave);
+        }
+    }
+
+    private void comprobarSinPrestamo() {
+        assertEquals(2, biblioteca.copiasDisponibles("978-1"));
+        assertEquals(0, biblioteca.contarPrestamosActivos());
+        assertEquals(0, biblioteca.getResumen().getCopiasPrestadas());
+        assertCupoLibre("U1");
+    }
+
+    private void assertCupoLibre(String clave) {
+        // Con límite 1, tomar el cupo sólo llega a anotarlo en el diario (y
+        // falla por eso, no por LIMITE_PRESTAMOS) si se liberó
+        assertThrows(UncheckedIOException.class, () -> biblioteca.tomarCupo(clave), clave);
+    }
+}
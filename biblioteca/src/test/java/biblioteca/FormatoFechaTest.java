@@ -0,0 +1,52 @@
+package biblioteca;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * El codificador de fechas acepta y produce lo mismo que
+ * {@link FormatoFecha#FORMATEADOR}.
+ */
+class FormatoFechaTest {
+
+    @Test
+    void interpretaIgualQueElFormateador() {
+        String[] textos = {
+            "01/01/2024", "29/02/2024", "29/02/2023", "31/04/2024", "00/01/2024", "01/13/2024", "01/01/0000",
+            "01/01/0001", "31/12/9999", "1/01/2024", "01/01/202", "01/01/-2024", "01/01/+2024", "01/01/12345",
+            "01/01/+12345", "01/01/+09999", "01/01/+012345", "29/02/+10400", "29/02/+10100", "31/04/+12345",
+            "31/12/+999999999", "01/01/+1000000000", "01/01/+0000000000000012345", "01/01/+00000000000000012345",
+            "01/01/+1234a", "01-01-2024", "aa/bb/cccc"
+        };
+        for (String texto : textos) {
+            assertEquals(esperado(texto), FormatoFecha.parsearDiaEpoca(texto), texto);
+        }
+    }
+
+    @Test
+    void formateaIgualQueElFormateador() {
+        SplittableRandom aleatorio = new SplittableRandom(1);
+        long maximo = LocalDate.of(999_999_999, 12, 31).toEpochDay();
+        long minimo = LocalDate.of(1, 1, 1).toEpochDay();
+        for (int i = 0; i < 100_000; i++) {
+            long dia = i % 2 == 0 ? aleatorio.nextLong(minimo, maximo + 1)
+                    : aleatorio.nextLong(LocalDate.of(1900, 1, 1).toEpochDay(), LocalDate.of(12000, 1, 1).toEpochDay());
+            String texto = FormatoFecha.FORMATEADOR.format(LocalDate.ofEpochDay(dia));
+            assertEquals(texto, FormatoFecha.formatear(dia));
+            assertEquals(dia, FormatoFecha.parsearDiaEpoca(texto), texto);
+        }
+    }
+
+    private static long esperado(String texto) {
+        try {
+            return LocalDate.parse(texto, FormatoFecha.FORMATEADOR).toEpochDay();
+        } catch (DateTimeParseException e) {
+            return FormatoFecha.INVALIDA;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package biblioteca;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Las cubetas del histograma son exactas hasta 63 ns y después guardan cada
+ * valor con un error relativo menor al 3 %; los percentiles se leen del
+ * límite superior de la cubeta.
+ */
+class HistogramaLatenciaTest {
+
+    @Test
+    void losValoresPequenosTienenCubetaPropia() {
+        for (int valor = 0; valor < 64; valor++) {
+            assertEquals(valor, HistogramaLatencia.cubeta(valor));
+            assertEquals(valor, HistogramaLatencia.limiteSuperior(valor));
+        }
+        // Desde 64 las cubetas cubren dos valores, desde 128 cuatro, etc.
+        assertEquals(64, HistogramaLatencia.cubeta(64));
+        assertEquals(64, HistogramaLatencia.cubeta(65));
+        assertEquals(65, HistogramaLatencia.cubeta(66));
+        assertEquals(65, HistogramaLatencia.limiteSuperior(64));
+        assertEquals(HistogramaLatencia.cubeta(127) + 1, HistogramaLatencia.cubeta(128));
+        assertEquals(131, HistogramaLatencia.limiteSuperior(HistogramaLatencia.cubeta(128)));
+    }
+
+    @Test
+    void cadaValorCaeEnLaCubetaQueLoContieneConErrorAcotado() {
+        int anterior = -1;
+        for (int bits = 6; bits < 44; bits++) {
+            long base = 1L << bits;
+            for (long valor : new long[] { base - 1, base, base + 1, base + base / 3, base * 2 - 1 }) {
+                int cubeta = HistogramaLatencia.cubeta(valor);
+                assertTrue(cubeta >= anterior, "cubetas no monótonas en " + valor);
+                anterior = cubeta;
+                long limite = HistogramaLatencia.limiteSuperior(cubeta);
+                assertTrue(limite >= valor, valor + " excede su cubeta");
+                assertTrue(HistogramaLatencia.limiteSuperior(cubeta - 1) < valor, valor + " cabe en la cubeta anterior");
+                assertTrue(limite - valor < valor / 32.0, valor + " con error relativo de " + (limite - valor));
+            }
+        }
+        // Los valores fuera de rango (desde 2^44 ns) se cuentan en la última cubeta
+        int ultima = HistogramaLatencia.cubeta((1L << 44) - 1);
+        assertEquals((1L << 44) - 1, HistogramaLatencia.limiteSuperior(ultima));
+        assertEquals(ultima, HistogramaLatencia.cubeta(1L << 44));
+        assertEquals(ultima, HistogramaLatencia.cubeta(Long.MAX_VALUE));
+    }
+
+    @Test
+    void losPercentilesSeLeenDeLasCubetas() {
+        HistogramaLatencia histograma = new HistogramaLatencia();
+        assertEquals(0, histograma.instantanea().percentil(99));
+        assertEquals(0, histograma.instantanea().getConteo());
+
+        for (int valor = 1; valor <= 1000; valor++) {
+            histograma.registrar(valor);
+        }
+        histograma.registrar(-5); // Cuenta como 0
+        HistogramaLatencia.Instantanea instantanea = histograma.instantanea();
+        assertEquals(1001, instantanea.getConteo());
+        assertEquals(500_500, instantanea.getSuma());
+        assertEquals(0, instantanea.percentil(0));
+        assertEquals(10, instantanea.percentil(1));
+        long mediana = instantanea.percentil(50);
+        assertTrue(mediana >= 500 && mediana < 500 * 1.04, "mediana " + mediana);
+        long p99 = instantanea.percentil(99);
+        assertTrue(p99 >= 990 && p99 < 990 * 1.04, "p99 " + p99);
+        assertEquals(HistogramaLatencia.limiteSuperior(HistogramaLatencia.cubeta(1000)), instantanea.getMaximo());
+    }
+
+    @Test
+    void losRegistrosConcurrentesNoSePierden() throws InterruptedException {
+        HistogramaLatencia histograma = new HistogramaLatencia();
+        Thread[] hilos = new Thread[4];
+        for (int h = 0; h < hilos.length; h++) {
+            hilos[h] = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    histograma.registrar(100);
+                }
+            });
+            hilos[h].start();
+        }
+        for (Thread hilo : hilos) {
+            hilo.join();
+        }
+        HistogramaLatencia.Instantanea instantanea = histograma.instantanea();
+        assertEquals(40_000, instantanea.getConteo());
+        assertEquals(4_000_000, instantanea.getSuma());
+        assertEquals(HistogramaLatencia.limiteSuperior(HistogramaLatencia.cubeta(100)), instantanea.percentil(1));
+    }
+}
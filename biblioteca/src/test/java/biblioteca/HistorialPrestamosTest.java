@@ -0,0 +1,88 @@
+package biblioteca;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * El historial anota cada préstamo y devolución y los cuenta por libro, por
+ * licenciatura, por semestre y por día, con el catálogo en memoria y con el
+ * catálogo mapeado, aunque el mismo libro o usuario llegue escrito de otra
+ * forma o con una clave sin codificación numérica.
+ */
+class HistorialPrestamosTest {
+    private static final LocalDate DIA_1 = LocalDate.of(2024, 3, 1);
+    private static final LocalDate DIA_2 = LocalDate.of(2024, 3, 2);
+    private static final LocalDate DIA_3 = LocalDate.of(2024, 3, 3);
+
+    @TempDir
+    Path directorio;
+
+    @ParameterizedTest
+    @ValueSource(booleans = { false, true })
+    void lasConsultasCuentanLosPrestamosAnotados(boolean mapeada) throws IOException {
+        Biblioteca biblioteca = mapeada
+                ? new Biblioteca(new ReceptorEventosNulo(), CatalogoMapeado.crear(directorio, 0))
+                : new Biblioteca(new ReceptorEventosNulo());
+        try {
+            biblioteca.intentarRegistrarLibro("978-0-306-40615-7", "Cálculo", "Autor", "5");
+            biblioteca.intentarRegistrarLibro("0-19-853453-1", "Álgebra", "Autor", "5"); // ISBN-10
+            biblioteca.intentarRegistrarLibro("SIN-ISBN-1", "Física", "Autor", "5");
+            biblioteca.intentarRegistrarUsuario("A1", "Ana", "Matemáticas", "1");
+            biblioteca.intentarRegistrarUsuario("B2", "Beto", "Matemáticas", "3");
+            biblioteca.intentarRegistrarUsuario("c-3", "Carla", "Física", "3"); // Sin codificación base 37
+
+            List<Long> ids = new ArrayList<>();
+            ids.add(prestar(biblioteca, "A1", "9780306406157", "01/03/2024"));
+            ids.add(prestar(biblioteca, "B2", "978-0-306-40615-7", "01/03/2024"));
+            ids.add(prestar(biblioteca, "c-3", "978 0 306 40615 7", "02/03/2024"));
+            ids.add(prestar(biblioteca, "A1", "0198534531", "02/03/2024"));
+            ids.add(prestar(biblioteca, "c-3", "SIN-ISBN-1", "02/03/2024"));
+            ids.add(prestar(biblioteca, "c-3", "978-0-19-853453-2", "03/03/2024"));
+            for (long id : ids) {
+                assertTrue(biblioteca.intentarDevolucion(id).esExitoso());
+            }
+
+            HistorialPrestamos historial = biblioteca.getHistorial();
+            assertEquals(6, historial.getPrestamos());
+            assertEquals(6, historial.getDevoluciones());
+
+            Map<Libro, Long> masPrestados = historial.librosMasPrestados(10, DIA_1, DIA_3.plusDays(1));
+            List<String> titulos = new ArrayList<>();
+            for (Libro libro : masPrestados.keySet()) {
+                titulos.add(libro.getTitulo());
+            }
+            assertEquals(List.of("Cálculo", "Álgebra", "Física"), titulos);
+            assertEquals(List.of(3L, 2L, 1L), new ArrayList<>(masPrestados.values()));
+            assertEquals(1, historial.librosMasPrestados(1, DIA_1, DIA_3.plusDays(1)).size());
+
+            assertEquals(Map.of("Matemáticas", 3L, "Física", 3L),
+                    historial.prestamosPorLicenciatura(DIA_1, DIA_3.plusDays(1)));
+            assertEquals(Map.of("Física", 3L, "Matemáticas", 1L),
+                    historial.prestamosPorLicenciatura(DIA_2, DIA_3.plusDays(1)));
+            assertEquals(Map.of(1, 2L, 3, 4L), historial.prestamosPorSemestre(DIA_1, DIA_3.plusDays(1)));
+            assertEquals(Map.of(DIA_1, 2L, DIA_2, 3L, DIA_3, 1L),
+                    historial.prestamosPorDia(LocalDate.MIN, LocalDate.MAX));
+            assertEquals(Map.of(DIA_2, 3L), historial.prestamosPorDia(DIA_2, DIA_3));
+            assertTrue(historial.prestamosPorDia(DIA_3, DIA_1).isEmpty());
+        } finally {
+            biblioteca.cerrar();
+        }
+    }
+
+    private static long prestar(Biblioteca biblioteca, String clave, String isbn, String fecha) {
+        ResultadoOperacion resultado = biblioteca.intentarPrestamo(clave, isbn, fecha);
+        assertTrue(resultado.esExitoso(), clave + " " + isbn + ": " + resultado.getCodigo());
+        return resultado.getPrestamo().getId();
+    }
+}
@@ -0,0 +1,239 @@
+package biblioteca;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * La importación CSV acepta un encabezado opcional, campos entre comillas y
+ * finales de línea CRLF; rechaza las líneas malformadas, las filas inválidas
+ * y las repetidas, dentro del archivo o contra lo ya registrado, y escribe
+ * cada rechazo con su número de línea, también cuando el archivo se divide
+ * en varios trozos. Lo importado se puede buscar, prestar y, en una
+ * biblioteca persistente, recuperar del diario.
+ */
+class ImportacionCsvTest {
+    private static final String FECHA = "01/01/2024";
+
+    @TempDir
+    Path directorio;
+
+    private Biblioteca crear(boolean mapeada) throws IOException {
+        return mapeada
+                ? new Biblioteca(new ReceptorEventosNulo(), CatalogoMapeado.crear(directorio.resolve("catalogo"), 0))
+                : new Biblioteca(new ReceptorEventosNulo());
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = { false, true })
+    void importaLasFilasValidasConComillasYEncabezado(boolean mapeada) throws IOException {
+        Path archivo = escribir("libros.csv",
+                "isbn,titulo,autor,copias\r\n"
+                + "978-1,\"Guerra, y paz\",Tolstói,3\r\n"
+                + "\r\n"
+                + "978-2,\"El \"\"último\"\" libro\",\"Autor, Uno\",1\n"
+                + "978-3,Cálculo,Spivak,\"2\"\n");
+        Path rechazos = directorio.resolve("rechazos.csv");
+        Biblioteca biblioteca = crear(mapeada);
+        try {
+            ResultadoImportacion resultado = biblioteca.importarLibros(archivo, rechazos);
+            assertEquals(3, resultado.getFilas());
+            assertEquals(3, resultado.getImportadas());
+            assertEquals(0, resultado.getRechazadas());
+            assertEquals(List.of(ImportadorCsv.ENCABEZADO_RECHAZOS), Files.readAllLines(rechazos));
+
+            assertEquals(3, biblioteca.copiasDisponibles("978-1"));
+            assertEquals(1, biblioteca.copiasDisponibles("978-2"));
+            assertEquals(2, biblioteca.copiasDisponibles("978-3"));
+            assertEquals(3, biblioteca.getResumen().getLibros());
+            assertEquals(6, biblioteca.getResumen().getTotalCopias());
+            assertEquals("Guerra, y paz", unico(biblioteca.buscarLibros("guerra", IndiceTexto.Campo.TITULO, 10)));
+            assertEquals("El \"último\" libro",
+                    unico(biblioteca.buscarLibros("uno", IndiceTexto.Campo.AUTOR, 10)));
+            assertEquals("Cálculo", unico(biblioteca.buscarLibrosPorPrefijo("calc", IndiceTexto.Campo.CUALQUIERA, 10)));
+            assertEquals(3, biblioteca.publicarInstantanea().tamano());
+
+            biblioteca.intentarRegistrarUsuario("U1", "Ana", "Licenciatura", "1");
+            assertTrue(biblioteca.intentarPrestamo("U1", "978-2", FECHA).esExitoso());
+            assertEquals(0, biblioteca.copiasDisponibles("978-2"));
+        } finally {
+            biblioteca.cerrar();
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = { false, true })
+    void rechazaLasLineasMalformadasInvalidasYRepetidas(boolean mapeada) throws IOException {
+        Path archivo = escribir("libros.csv",
+                "978-1,Uno,Autor,1\n"                  // 1
+                + "978-2,Dos,Autor\n"                  // 2: faltan campos
+                + "978-3,Tres,Autor,1,extra\n"         // 3: sobran campos
+                + "978-4,\"Cuatro,Autor,1\n"           // 4: comillas sin cerrar
+                + "978-5,\"Cinco\"x,Autor,1\n"         // 5: texto tras las comillas
+                + "978-6,Seis,Autor,muchas\n"          // 6
+                + "978-7,Siete,Autor,0\n"              // 7
+                + "978-8,,Autor,1\n"                   // 8
+                + "978-0-306-40615-7,Cero,Autor,2\n"   // 9: ya registrado
+                + "978-1,Otra vez uno,Autor,5\n"       // 10: repetido en el archivo
+                + "9780306406157,Sin guiones,Autor,5\n" // 11: el ISBN 9 sin guiones
+                + "978-9,Nueve,Autor,4\n");            // 12
+        Path rechazos = directorio.resolve("rechazos.csv");
+        Biblioteca biblioteca = crear(mapeada);
+        try {
+            biblioteca.intentarRegistrarLibro("978-0-306-40615-7", "Cero", "Autor", "1");
+            ResultadoImportacion resultado = biblioteca.importarLibros(archivo, rechazos);
+
+            assertEquals(12, resultado.getFilas());
+            assertEquals(2, resultado.getImportadas());
+            assertEquals(10, resultado.getRechazadas());
+            assertEquals(4, resultado.getMalformadas());
+            assertEquals(1, resultado.getFilas(ResultadoOperacion.Codigo.COPIAS_NO_NUMERICAS));
+            assertEquals(1, resultado.getFilas(ResultadoOperacion.Codigo.COPIAS_NO_POSITIVAS));
+            assertEquals(1, resultado.getFilas(ResultadoOperacion.Codigo.TITULO_VACIO));
+            assertEquals(3, resultado.getFilas(ResultadoOperacion.Codigo.LIBRO_DUPLICADO));
+
+            List<String> lineas = Files.readAllLines(rechazos);
+            assertEquals(ImportadorCsv.ENCABEZADO_RECHAZOS, lineas.get(0));
+            assertEquals(List.of("2", "3", "4", "5", "6", "7", "8", "9", "10", "11"),
+                    lineas.subList(1, lineas.size()).stream().map(l -> l.substring(0, l.indexOf(','))).toList());
+            assertTrue(lineas.get(1).startsWith("2," + ImportadorCsv.CAMPOS_INVALIDOS + ","));
+            assertTrue(lineas.get(3).endsWith(",\"978-4,\"\"Cuatro,Autor,1\""), lineas.get(3));
+            assertTrue(lineas.get(5).startsWith("6,COPIAS_NO_NUMERICAS,"), lineas.get(5));
+            assertTrue(lineas.get(8).startsWith("9,LIBRO_DUPLICADO,"), lineas.get(8));
+            // El registro rechazado se reescribe desde la fila validada
+            assertTrue(lineas.get(9).endsWith(",\"978-1,Otra vez uno,Autor,5\""), lineas.get(9));
+
+            // Entre filas repetidas gana la primera; lo ya registrado no cambia
+            assertEquals(1, biblioteca.copiasDisponibles("978-1"));
+            assertEquals(1, biblioteca.copiasDisponibles("978-0-306-40615-7"));
+            assertEquals(4, biblioteca.copiasDisponibles("978-9"));
+            assertEquals(-1, biblioteca.copiasDisponibles("978-6"));
+            assertEquals(3, biblioteca.getResumen().getLibros());
+            assertEquals(6, biblioteca.getResumen().getTotalCopias());
+            assertTrue(biblioteca.buscarLibros("otra", IndiceTexto.Campo.TITULO, 10).isEmpty());
+        } finally {
+            biblioteca.cerrar();
+        }
+    }
+
+    @Test
+    void importaUsuariosYRechazaLasClavesRepetidas() throws IOException {
+        Path archivo = escribir("usuarios.csv",
+                "claveUsuario,nombre,licenciatura,semestre\n"
+                + "U1,Ana,\"Física, Matemáticas\",1\n"
+                + "U2,Beto,Física,cero\n"
+                + "U3,Carla,Física,3\n"
+                + "U1,Otra Ana,Física,2\n"
+                + "u-4,Dora,Física,4\n"
+                + "U0,Cero,Física,1\n");
+        Path rechazos = directorio.resolve("rechazos.csv");
+        Biblioteca biblioteca = new Biblioteca(new ReceptorEventosNulo());
+        try {
+            biblioteca.intentarRegistrarUsuario("U0", "Cero", "Física", "1");
+            biblioteca.intentarRegistrarLibro("978-1", "Uno", "Autor", "5");
+            ResultadoImportacion resultado = biblioteca.importarUsuarios(archivo, rechazos);
+
+            assertEquals(6, resultado.getFilas());
+            assertEquals(3, resultado.getImportadas());
+            assertEquals(1, resultado.getFilas(ResultadoOperacion.Codigo.SEMESTRE_NO_NUMERICO));
+            assertEquals(2, resultado.getFilas(ResultadoOperacion.Codigo.USUARIO_DUPLICADO));
+            List<String> lineas = Files.readAllLines(rechazos);
+            assertEquals(4, lineas.size());
+            assertTrue(lineas.get(1).startsWith("3,SEMESTRE_NO_NUMERICO,"), lineas.get(1));
+            assertTrue(lineas.get(2).startsWith("5,USUARIO_DUPLICADO,"), lineas.get(2));
+            assertTrue(lineas.get(3).startsWith("7,USUARIO_DUPLICADO,"), lineas.get(3));
+
+            for (String clave : List.of("U1", "U3", "u-4")) {
+                assertTrue(biblioteca.intentarPrestamo(clave, "978-1", FECHA).esExitoso(), clave);
+            }
+            assertEquals("Física, Matemáticas",
+                    biblioteca.obtenerPrestamosUsuario("U1").iterator().next().getUsuario().getLicenciatura());
+            assertEquals(ResultadoOperacion.Codigo.USUARIO_NO_ENCONTRADO,
+                    biblioteca.intentarPrestamo("U2", "978-1", FECHA).getCodigo());
+        } finally {
+            biblioteca.cerrar();
+        }
+    }
+
+    @Test
+    void losNumerosDeLineaSiguenEntreTrozos() throws IOException {
+        // Filas de más de 60 bytes: el archivo ocupa al menos tres trozos
+        int filas = 3 * ImportadorCsv.TAMANO_TROZO / 60;
+        Path archivo = directorio.resolve("libros.csv");
+        try (Writer salida = Files.newBufferedWriter(archivo, StandardCharsets.UTF_8)) {
+            salida.write("isbn,titulo,autor,copias\n");
+            for (int i = 0; i < filas; i++) {
+                if (i % 50_000 == 49_999) {
+                    salida.write("978-0,Repetido,Autor,1\n");
+                } else {
+                    salida.write("978-" + i + ",Un título bastante largo número " + i + ",Autor,1\n");
+                }
+            }
+        }
+        assertTrue(Files.size(archivo) > 2L * ImportadorCsv.TAMANO_TROZO);
+        Path rechazos = directorio.resolve("rechazos.csv");
+        Biblioteca biblioteca = new Biblioteca(new ReceptorEventosNulo());
+        try {
+            ResultadoImportacion resultado = biblioteca.importarLibros(archivo, rechazos);
+            int repetidas = filas / 50_000;
+            assertEquals(filas, resultado.getFilas());
+            assertEquals(repetidas, resultado.getFilas(ResultadoOperacion.Codigo.LIBRO_DUPLICADO));
+            assertEquals(filas - repetidas, resultado.getImportadas());
+            assertEquals(filas - repetidas, biblioteca.getResumen().getLibros());
+
+            List<String> lineas = Files.readAllLines(rechazos);
+            assertEquals(repetidas + 1, lineas.size());
+            for (int r = 1; r <= repetidas; r++) {
+                // La fila i está en la línea i + 2, tras el encabezado
+                assertTrue(lineas.get(r).startsWith((r * 50_000 + 1) + ",LIBRO_DUPLICADO,"), lineas.get(r));
+            }
+        } finally {
+            biblioteca.cerrar();
+        }
+    }
+
+    @Test
+    void loImportadoSeRecuperaDelDiario() throws IOException {
+        Path archivo = escribir("libros.csv", "978-1,Uno,Autor,2\n978-2,Dos,Autor,1\n978-1,Repetido,Autor,9\n");
+        Path usuarios = escribir("usuarios.csv", "U1,Ana,Licenciatura,1\nU2,Beto,Licenciatura,2\n");
+        Path persistente = directorio.resolve("persistente");
+        Biblioteca biblioteca = Biblioteca.abrir(persistente, new ReceptorEventosNulo());
+        try {
+            assertEquals(2, biblioteca.importarLibros(archivo, directorio.resolve("rechazos.csv")).getImportadas());
+            assertEquals(2,
+                    biblioteca.importarUsuarios(usuarios, directorio.resolve("rechazos.csv")).getImportadas());
+        } finally {
+            biblioteca.cerrar();
+        }
+
+        biblioteca = Biblioteca.abrir(persistente, new ReceptorEventosNulo());
+        try {
+            assertEquals(2, biblioteca.copiasDisponibles("978-1"));
+            assertEquals(1, biblioteca.copiasDisponibles("978-2"));
+            assertEquals("Uno", unico(biblioteca.buscarLibros("uno", IndiceTexto.Campo.TITULO, 10)));
+            assertTrue(biblioteca.intentarPrestamo("U2", "978-2", FECHA).esExitoso());
+        } finally {
+            biblioteca.cerrar();
+        }
+    }
+
+    private Path escribir(String nombre, String contenido) throws IOException {
+        return Files.writeString(directorio.resolve(nombre), contenido, StandardCharsets.UTF_8);
+    }
+
+    private static String unico(List<Libro> libros) {
+        assertEquals(1, libros.size(), libros.toString());
+        return libros.get(0).getTitulo();
+    }
+}
@@ -0,0 +1,133 @@
+package biblioteca;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Las claves de usuario se codifican en base 37 sólo si siguen el patrón de
+ * dígitos y mayúsculas; las demás se guardan por su texto, y ambas conviven
+ * en el mismo índice.
+ */
+class IndiceClavesTest {
+
+    @Test
+    void laCodificacionBase37DistingueLosCerosALaIzquierda() {
+        assertEquals(1, IndiceClaves.codificarClaveUsuario("0"));
+        assertEquals(1 * 37 + 1, IndiceClaves.codificarClaveUsuario("00"));
+        assertEquals(11, IndiceClaves.codificarClaveUsuario("A"));
+        assertEquals(36, IndiceClaves.codificarClaveUsuario("Z"));
+        assertNotEquals(IndiceClaves.codificarClaveUsuario("U01"), IndiceClaves.codificarClaveUsuario("U001"));
+        assertNotEquals(IndiceClaves.codificarClaveUsuario("U1"), IndiceClaves.codificarClaveUsuario("1U"));
+    }
+
+    @Test
+    void lasClavesFueraDelPatronNoSeCodifican() {
+        // Doce caracteres es el máximo que cabe en un long
+        long maximo = IndiceClaves.codificarClaveUsuario("ZZZZZZZZZZZZ");
+        assertTrue(maximo > 0);
+        assertEquals(IndiceClaves.SIN_CODIGO, IndiceClaves.codificarClaveUsuario("ZZZZZZZZZZZZZ"));
+        assertEquals(IndiceClaves.SIN_CODIGO, IndiceClaves.codificarClaveUsuario(""));
+        assertEquals(IndiceClaves.SIN_CODIGO, IndiceClaves.codificarClaveUsuario(null));
+        assertEquals(IndiceClaves.SIN_CODIGO, IndiceClaves.codificarClaveUsuario("u001"));
+        assertEquals(IndiceClaves.SIN_CODIGO, IndiceClaves.codificarClaveUsuario("U-001"));
+        assertEquals(IndiceClaves.SIN_CODIGO, IndiceClaves.codificarClaveUsuario("Ñ1"));
+        assertEquals(IndiceClaves.SIN_CODIGO, IndiceClaves.codificarClaveUsuario("U 1"));
+    }
+
+    @Test
+    void lasClavesCodificadasYLasDeTextoConviven() {
+        IndiceClaves<String> indice = IndiceClaves.porClaveUsuario();
+        assertTrue(indice.estaVacio());
+        assertNull(indice.agregarSiAusente("U001", "codificada"));
+        assertNull(indice.agregarSiAusente("u001", "texto"));
+        assertNull(indice.agregarSiAusente("U01", "otra"));
+        assertNull(indice.agregarSiAusente("ZZZZZZZZZZZZZ", "larga"));
+
+        assertEquals("codificada", indice.buscar("U001"));
+        assertEquals("texto", indice.buscar("u001"));
+        assertEquals("otra", indice.buscar("U01"));
+        assertEquals("larga", indice.buscar("ZZZZZZZZZZZZZ"));
+        assertNull(indice.buscar("U0001"));
+        assertNull(indice.buscar("u01"));
+
+        // Una clave repetida conserva su valor, en las dos partes del índice
+        assertEquals("codificada", indice.agregarSiAusente("U001", "nueva"));
+        assertEquals("texto", indice.agregarSiAusente("u001", "nueva"));
+        assertEquals(4, indice.tamano());
+
+        Set<String> valores = new HashSet<>();
+        indice.forEach(valores::add);
+        assertEquals(Set.of("codificada", "texto", "otra", "larga"), valores);
+    }
+
+    @Test
+    void elIndiceCreceSinPerderClaves() {
+        IndiceClaves<Integer> indice = IndiceClaves.porClaveUsuario();
+        indice.reservar(100);
+        for (int i = 0; i < 10_000; i++) {
+            assertNull(indice.agregarSiAusente("U" + i, i));
+            if (i % 10 == 0) {
+                assertNull(indice.agregarSiAusente("u" + i, -i));
+            }
+        }
+        assertEquals(11_000, indice.tamano());
+        for (int i = 0; i < 10_000; i++) {
+            assertEquals(i, indice.buscar("U" + i));
+        }
+        assertEquals(-990, indice.buscar("u990"));
+        int[] recorridos = new int[1];
+        indice.paraCada(valor -> recorridos[0]++);
+        assertEquals(11_000, recorridos[0]);
+    }
+
+    @Test
+    void agregarTodosConservaLaPrimeraDeCadaClave() {
+        IndiceClaves<String> indice = IndiceClaves.porClaveUsuario();
+        indice.agregarSiAusente("U1", "existente");
+        indice.agregarSiAusente("u-1", "existente texto");
+        String[] claves = { "U1", "U2", "u-1", "U2", "u-2", "u-2", "U3", "X" };
+        String[] valores = { "a", "b", "c", "d", "e", "f", "g", "sin usar" };
+
+        assertEquals(3, indice.agregarTodos(claves, valores, 7));
+        assertEquals(Arrays.asList(null, "b", null, null, "e", null, "g", "sin usar"),
+                Arrays.asList(valores));
+        assertEquals(5, indice.tamano());
+        assertEquals("existente", indice.buscar("U1"));
+        assertEquals("b", indice.buscar("U2"));
+        assertEquals("e", indice.buscar("u-2"));
+        assertNull(indice.buscar("X"));
+
+        // Un trozo grande amplía la tabla una vez y no pierde claves
+        String[] muchas = new String[5_000];
+        Integer[] numeros = new Integer[muchas.length];
+        for (int i = 0; i < muchas.length; i++) {
+            muchas[i] = "V" + i;
+            numeros[i] = i;
+        }
+        IndiceClaves<Integer> grande = IndiceClaves.porClaveUsuario();
+        assertEquals(muchas.length, grande.agregarTodos(muchas, numeros, muchas.length));
+        for (int i = 0; i < muchas.length; i++) {
+            assertEquals(i, grande.buscar("V" + i));
+        }
+    }
+
+    @Test
+    void elIndicePorIsbnUsaLaClaveNormalizada() {
+        IndiceClaves<String> indice = IndiceClaves.porIsbn();
+        assertNull(indice.agregarSiAusente("978-0-306-40615-7", "libro"));
+        assertEquals("libro", indice.buscar("0-306-40615-2"));
+        assertEquals("libro", indice.agregarSiAusente("9780306406157", "otro"));
+        // Sin forma de ISBN se guarda por su texto exacto
+        assertNull(indice.agregarSiAusente("978-1", "corto"));
+        assertNull(indice.buscar("9781"));
+        assertEquals(2, indice.tamano());
+    }
+}
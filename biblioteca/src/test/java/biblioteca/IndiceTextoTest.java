@@ -0,0 +1,74 @@
+package biblioteca;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Búsquedas por palabras y por prefijos en el índice de títulos y autores:
+ * sin distinguir mayúsculas ni acentos, exigiendo todas las palabras y en
+ * orden de registro.
+ */
+class IndiceTextoTest {
+    private IndiceTexto indice;
+
+    @BeforeEach
+    void preparar() {
+        indice = new IndiceTexto();
+        indice.agregar(new Libro("978-1", "Diseño de Algoritmos", "Jon Kleinberg", 1));
+        indice.agregar(new Libro("978-2", "Estructuras de datos", "Núñez", 1));
+        indice.agregar(new Libro("978-3", "Algoritmos y estructuras", "Niklaus Wirth", 1));
+        indice.agregar(new Libro("978-4", "Introducción a los algoritmos", "Cormen, Leiserson", 1));
+    }
+
+    @Test
+    void losTextosSeNormalizanSinAcentosNiMayusculas() {
+        assertEquals("diseno de algoritmos", IndiceTexto.normalizar("DISEÑO de Algoritmos"));
+        assertEquals("nunez", IndiceTexto.normalizar("Núñez"));
+        assertArrayEquals(new String[] { "cormen", "leiserson" }, IndiceTexto.terminos("Cormen, Leiserson; cormen"));
+        assertArrayEquals(new String[0], IndiceTexto.terminos(" -- "));
+    }
+
+    @Test
+    void unaConsultaExigeTodasSusPalabras() {
+        assertEquals(List.of("978-1", "978-3", "978-4"), isbns(indice.buscar("ALGORITMOS", IndiceTexto.Campo.TITULO, 10)));
+        assertEquals(List.of("978-3"), isbns(indice.buscar("estructuras algoritmos", IndiceTexto.Campo.TITULO, 10)));
+        assertEquals(List.of("978-1"), isbns(indice.buscar("diseno", IndiceTexto.Campo.TITULO, 10)));
+        assertTrue(indice.buscar("algoritmos inexistente", IndiceTexto.Campo.TITULO, 10).isEmpty());
+        assertTrue(indice.buscar("", IndiceTexto.Campo.TITULO, 10).isEmpty());
+    }
+
+    @Test
+    void elCampoYElLimiteRestringenLosResultados() {
+        assertEquals(List.of("978-2"), isbns(indice.buscar("nunez", IndiceTexto.Campo.AUTOR, 10)));
+        assertTrue(indice.buscar("nunez", IndiceTexto.Campo.TITULO, 10).isEmpty());
+        // Una palabra en el título y otra en el autor
+        assertEquals(List.of("978-3"), isbns(indice.buscar("wirth algoritmos", IndiceTexto.Campo.CUALQUIERA, 10)));
+        assertEquals(List.of("978-1", "978-3"), isbns(indice.buscar("algoritmos", IndiceTexto.Campo.CUALQUIERA, 2)));
+        assertTrue(indice.buscar("algoritmos", IndiceTexto.Campo.CUALQUIERA, 0).isEmpty());
+        assertEquals(4, indice.tamano());
+    }
+
+    @Test
+    void losPrefijosEncuentranLosTerminosQueEmpiezanPorEllos() {
+        assertEquals(List.of("978-1"), isbns(indice.buscarPorPrefijo("dis alg", IndiceTexto.Campo.TITULO, 10)));
+        assertEquals(List.of("978-2", "978-3"), isbns(indice.buscarPorPrefijo("estruc", IndiceTexto.Campo.TITULO, 10)));
+        assertEquals(List.of("978-2", "978-3"), isbns(indice.buscarPorPrefijo("n", IndiceTexto.Campo.AUTOR, 10)));
+        assertEquals(List.of("978-4"), isbns(indice.buscarPorPrefijo("LEIS intro", IndiceTexto.Campo.CUALQUIERA, 10)));
+        assertTrue(indice.buscarPorPrefijo("zz", IndiceTexto.Campo.CUALQUIERA, 10).isEmpty());
+    }
+
+    private static List<String> isbns(List<Libro> libros) {
+        List<String> isbns = new ArrayList<>();
+        for (Libro libro : libros) {
+            isbns.add(libro.getIsbn());
+        }
+        return isbns;
+    }
+}
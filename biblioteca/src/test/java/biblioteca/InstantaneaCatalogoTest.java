@@ -0,0 +1,120 @@
+package biblioteca;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Una instantánea no cambia después de publicarse, su resumen coincide con
+ * sus libros y las páginas no se desplazan entre versiones, con el catálogo
+ * en memoria y con el catálogo mapeado.
+ */
+class InstantaneaCatalogoTest {
+    private static final String FECHA = "01/01/2024";
+    private static final int LIBROS = 2500; // Más de dos páginas de la instantánea
+
+    @TempDir
+    Path directorio;
+
+    private Biblioteca crear(boolean mapeada) throws IOException {
+        Biblioteca biblioteca = mapeada
+                ? new Biblioteca(new ReceptorEventosNulo(), CatalogoMapeado.crear(directorio, 0))
+                : new Biblioteca(new ReceptorEventosNulo());
+        for (int i = 0; i < LIBROS; i++) {
+            biblioteca.intentarRegistrarLibro("978-" + i, "Título " + i, "Autor", "2");
+        }
+        biblioteca.intentarRegistrarUsuario("U1", "Usuario", "Licenciatura", "1");
+        return biblioteca;
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = { false, true })
+    void unaVersionPublicadaNoCambia(boolean mapeada) throws IOException {
+        Biblioteca biblioteca = crear(mapeada);
+        try {
+            InstantaneaCatalogo antes = biblioteca.publicarInstantanea();
+            assertTrue(biblioteca.intentarPrestamo("U1", "978-1500", FECHA).esExitoso());
+            biblioteca.intentarRegistrarLibro("978-nuevo", "Nuevo", "Autor", "3");
+            InstantaneaCatalogo despues = biblioteca.publicarInstantanea();
+
+            assertTrue(despues.getVersion() > antes.getVersion());
+            assertEquals(2, antes.getCopiasDisponibles("978-1500"));
+            assertEquals(2, antes.buscar("978-1500").getCopiasDisponibles());
+            assertEquals(-1, antes.getCopiasDisponibles("978-nuevo"));
+            assertNull(antes.buscar("978-nuevo"));
+            assertEquals(LIBROS, antes.tamano());
+
+            assertEquals(1, despues.getCopiasDisponibles("978-1500"));
+            assertEquals("Título 1500", despues.buscar("978-1500").getTitulo());
+            assertEquals(3, despues.getCopiasDisponibles("978-nuevo"));
+            assertEquals(LIBROS + 1, despues.tamano());
+
+            // Sin cambios se devuelve la misma versión
+            assertEquals(despues.getVersion(), biblioteca.publicarInstantanea().getVersion());
+            comprobarResumen(antes);
+            comprobarResumen(despues);
+        } finally {
+            biblioteca.cerrar();
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = { false, true })
+    void lasPaginasNoSeDesplazanEntreVersiones(boolean mapeada) throws IOException {
+        Biblioteca biblioteca = crear(mapeada);
+        try {
+            InstantaneaCatalogo primera = biblioteca.publicarInstantanea();
+            List<String> pagina = isbns(primera.iterator(1020), 10);
+            for (int i = 0; i < 100; i++) {
+                biblioteca.intentarRegistrarLibro("978-extra-" + i, "Extra", "Autor", "1");
+            }
+            assertTrue(biblioteca.intentarPrestamo("U1", pagina.get(1), FECHA).esExitoso());
+            InstantaneaCatalogo segunda = biblioteca.publicarInstantanea();
+
+            assertEquals(pagina, isbns(primera.iterator(1020), 10));
+            assertEquals(pagina, isbns(segunda.iterator(1020), 10));
+            // Los libros nuevos van al final
+            assertEquals(List.of("978-extra-0"), isbns(segunda.iterator(LIBROS), 1));
+
+            StringWriter csv = new StringWriter();
+            assertEquals(10, biblioteca.escribirPaginaLibros(csv, ReporteBiblioteca.Formato.CSV, 1020, 10));
+            String[] lineas = csv.toString().split("\n");
+            assertEquals(10, lineas.length);
+            assertTrue(lineas[1].startsWith("libro," + pagina.get(1) + ","));
+            assertTrue(lineas[1].strip().endsWith(",Autor,1,2,1"));
+        } finally {
+            biblioteca.cerrar();
+        }
+    }
+
+    private static void comprobarResumen(InstantaneaCatalogo instantanea) {
+        long copias = 0;
+        long disponibles = 0;
+        for (InstantaneaCatalogo.LibroInstantaneo libro : instantanea) {
+            copias += libro.getTotalCopias();
+            disponibles += libro.getCopiasDisponibles();
+        }
+        assertEquals(instantanea.tamano(), instantanea.getResumen().getLibros());
+        assertEquals(copias, instantanea.getResumen().getTotalCopias());
+        assertEquals(disponibles, instantanea.getResumen().getCopiasDisponibles());
+    }
+
+    private static List<String> isbns(Iterator<InstantaneaCatalogo.LibroInstantaneo> libros, int cantidad) {
+        List<String> isbns = new ArrayList<>();
+        while (isbns.size() < cantidad && libros.hasNext()) {
+            isbns.add(libros.next().getIsbn());
+        }
+        return isbns;
+    }
+}
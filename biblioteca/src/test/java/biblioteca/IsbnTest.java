@@ -0,0 +1,86 @@
+package biblioteca;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Normalización de ISBN: las formas de escribir el mismo libro dan la misma
+ * clave, un ISBN-10 se convierte a su ISBN-13 con prefijo 978, y el catálogo
+ * trata como duplicado el mismo ISBN escrito de otra forma.
+ */
+class IsbnTest {
+    private static final long CLAVE = 9_780_306_406_157L;
+
+    @TempDir
+    Path directorio;
+
+    @Test
+    void losGuionesYEspaciosNoCambianLaClave() {
+        assertEquals(CLAVE, Isbn.clave("9780306406157"));
+        assertEquals(CLAVE, Isbn.clave("978-0-306-40615-7"));
+        assertEquals(CLAVE, Isbn.clave("978 0 306 40615 7"));
+        assertEquals(CLAVE, Isbn.clave("-978-0306406157 "));
+        // El dígito de control de un ISBN-13 no se exige
+        assertEquals(9_780_306_406_158L, Isbn.clave("978-0-306-40615-8"));
+        assertEquals("0000000000123", Isbn.formatear(123));
+        assertEquals("9780306406157", Isbn.formatear(CLAVE));
+    }
+
+    @Test
+    void unIsbn10SeConvierteA978() {
+        assertEquals(CLAVE, Isbn.clave("0-306-40615-2"));
+        assertEquals(CLAVE, Isbn.clave("0306406152"));
+        // Dígito de control X
+        assertEquals(9_780_804_429_573L, Isbn.clave("0-8044-2957-X"));
+        assertEquals(9_780_804_429_573L, Isbn.clave("080442957x"));
+        // Un ISBN-10 con dígito de control incorrecto no tiene clave
+        assertEquals(Isbn.SIN_CLAVE, Isbn.clave("0-306-40615-3"));
+    }
+
+    @Test
+    void losTextosSinFormaDeIsbnNoTienenClave() {
+        assertEquals(Isbn.SIN_CLAVE, Isbn.clave(null));
+        assertEquals(Isbn.SIN_CLAVE, Isbn.clave(""));
+        assertEquals(Isbn.SIN_CLAVE, Isbn.clave("978-1"));
+        assertEquals(Isbn.SIN_CLAVE, Isbn.clave("97803064061570")); // Catorce dígitos
+        assertEquals(Isbn.SIN_CLAVE, Isbn.clave("978030640615X")); // X sólo en un ISBN-10
+        assertEquals(Isbn.SIN_CLAVE, Isbn.clave("X306406152"));
+        assertEquals(Isbn.SIN_CLAVE, Isbn.clave("978-0-306-40615-7a"));
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = { false, true })
+    void elMismoIsbnEscritoDeOtraFormaEsDuplicado(boolean mapeada) throws IOException {
+        Biblioteca biblioteca = mapeada
+                ? new Biblioteca(new ReceptorEventosNulo(), CatalogoMapeado.crear(directorio, 0))
+                : new Biblioteca(new ReceptorEventosNulo());
+        try {
+            assertTrue(biblioteca.intentarRegistrarLibro("978-0-306-40615-7", "Título", "Autor", "1").esExitoso());
+            for (String otraForma : new String[] { "9780306406157", "978 0 306 40615 7", "0-306-40615-2" }) {
+                assertEquals(ResultadoOperacion.Codigo.LIBRO_DUPLICADO,
+                        biblioteca.intentarRegistrarLibro(otraForma, "Otro", "Autor", "1").getCodigo(), otraForma);
+            }
+            // Un identificador sin clave sólo coincide con su mismo texto
+            assertTrue(biblioteca.intentarRegistrarLibro("978-1", "Título", "Autor", "1").esExitoso());
+            assertTrue(biblioteca.intentarRegistrarLibro("9781", "Título", "Autor", "1").esExitoso());
+
+            InstantaneaCatalogo instantanea = biblioteca.publicarInstantanea();
+            assertEquals(3, instantanea.tamano());
+            assertNotNull(instantanea.buscar("0306406152"));
+            assertEquals("978-0-306-40615-7", instantanea.buscar("9780306406157").getIsbn());
+            assertNull(instantanea.buscar("978-0-306-40615-8"));
+        } finally {
+            biblioteca.cerrar();
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package biblioteca;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * El límite de préstamos activos de cada usuario se aplica desde el
+ * siguiente préstamo, por usuario, por licenciatura o para todos, y se
+ * respeta aunque el mismo usuario pida varios préstamos a la vez.
+ */
+class LimitePrestamosTest {
+    private static final String FECHA = "01/01/2024";
+    private static final ResultadoOperacion LIMITE = ResultadoOperacion.de(ResultadoOperacion.Codigo.LIMITE_PRESTAMOS);
+
+    private Biblioteca biblioteca;
+
+    @BeforeEach
+    void preparar() {
+        biblioteca = new Biblioteca(new ReceptorEventosNulo());
+        biblioteca.intentarRegistrarLibro("978-1", "Uno", "Autor", "100");
+        biblioteca.intentarRegistrarUsuario("U1", "Ana", "Matemáticas", "1");
+        biblioteca.intentarRegistrarUsuario("U2", "Beto", "Matemáticas", "1");
+        biblioteca.intentarRegistrarUsuario("U3", "Carla", "Física", "1");
+    }
+
+    @AfterEach
+    void cerrar() {
+        biblioteca.cerrar();
+    }
+
+    @Test
+    void sinConfigurarNoHayLimite() {
+        for (int i = 0; i < 50; i++) {
+            assertTrue(biblioteca.intentarPrestamo("U1", "978-1", FECHA).esExitoso());
+        }
+        assertEquals(50, biblioteca.contarPrestamosUsuario("U1"));
+    }
+
+    @Test
+    void elLimiteDelUsuarioTienePrioridadSobreElDeSuLicenciatura() {
+        biblioteca.setLimitePrestamos(LimitePrestamos.porUsuario(Map.of("U1", 3),
+                LimitePrestamos.porLicenciatura(Map.of("Matemáticas", 1), LimitePrestamos.fijo(2))));
+        assertEquals(3, prestarHastaElLimite("U1"));
+        assertEquals(1, prestarHastaElLimite("U2"));
+        assertEquals(2, prestarHastaElLimite("U3"));
+        assertEquals(6, biblioteca.contarPrestamosActivos());
+    }
+
+    @Test
+    void unaDevolucionLiberaElCupo() {
+        biblioteca.setLimitePrestamos(LimitePrestamos.fijo(1));
+        Prestamo prestamo = biblioteca.intentarPrestamo("U1", "978-1", FECHA).getPrestamo();
+        assertSame(LIMITE, biblioteca.intentarPrestamo("U1", "978-1", FECHA));
+        assertTrue(biblioteca.intentarDevolucion(prestamo.getId()).esExitoso());
+        assertTrue(biblioteca.intentarPrestamo("U1", "978-1", FECHA).esExitoso());
+        // Un rechazo por otro motivo no consume el cupo
+        biblioteca.setLimitePrestamos(LimitePrestamos.fijo(2));
+        assertSame(ResultadoOperacion.de(ResultadoOperacion.Codigo.LIBRO_NO_ENCONTRADO),
+                biblioteca.intentarPrestamo("U1", "978-9", FECHA));
+        assertTrue(biblioteca.intentarPrestamo("U1", "978-1", FECHA).esExitoso());
+    }
+
+    @Test
+    void bajarElLimiteNoTocaLosPrestamosActivos() {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            ids.add(biblioteca.intentarPrestamo("U1", "978-1", FECHA).getPrestamo().getId());
+        }
+        biblioteca.setLimitePrestamos(LimitePrestamos.fijo(2));
+        assertEquals(3, biblioteca.contarPrestamosUsuario("U1"));
+        assertSame(LIMITE, biblioteca.intentarPrestamo("U1", "978-1", FECHA));
+        biblioteca.intentarDevolucion(ids.get(0));
+        assertSame(LIMITE, biblioteca.intentarPrestamo("U1", "978-1", FECHA));
+        biblioteca.intentarDevolucion(ids.get(1));
+        assertTrue(biblioteca.intentarPrestamo("U1", "978-1", FECHA).esExitoso());
+    }
+
+    @Test
+    void losPrestamosSimultaneosDelMismoUsuarioRespetanElLimite() throws Exception {
+        int hilos = 8;
+        int limite = 3;
+        biblioteca.setLimitePrestamos(LimitePrestamos.fijo(limite));
+        ExecutorService ejecutor = Executors.newFixedThreadPool(hilos);
+        try {
+            for (int ronda = 0; ronda < 100; ronda++) {
+                CyclicBarrier salida = new CyclicBarrier(hilos);
+                List<Future<ResultadoOperacion>> resultados = new ArrayList<>();
+                for (int h = 0; h < hilos; h++) {
+                    resultados.add(ejecutor.submit(() -> {
+                        salida.await();
+                        return biblioteca.intentarPrestamo("U1", "978-1", FECHA);
+                    }));
+                }
+                int exitosos = 0;
+                for (Future<ResultadoOperacion> resultado : resultados) {
+                    if (resultado.get().esExitoso()) {
+                        exitosos++;
+                    } else {
+                        assertSame(LIMITE, resultado.get());
+                    }
+                }
+                assertEquals(limite, exitosos, "Ronda " + ronda);
+                assertEquals(limite, biblioteca.contarPrestamosUsuario("U1"));
+                for (Prestamo prestamo : List.copyOf(biblioteca.obtenerPrestamosUsuario("U1"))) {
+                    assertTrue(biblioteca.intentarDevolucion(prestamo.getId()).esExitoso());
+                }
+            }
+        } finally {
+            ejecutor.shutdownNow();
+        }
+    }
+
+    private int prestarHastaElLimite(String clave) {
+        int prestados = 0;
+        ResultadoOperacion resultado;
+        while ((resultado = biblioteca.intentarPrestamo(clave, "978-1", FECHA)).esExitoso()) {
+            prestados++;
+        }
+        assertSame(LIMITE, resultado);
+        return prestados;
+    }
+}
@@ -0,0 +1,78 @@
+package biblioteca;
+
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * El servidor no acumula líneas sin fin: una solicitud de más de
+ * {@link ServidorBiblioteca#LONGITUD_MAXIMA_LINEA} bytes recibe un error y
+ * la conexión se cierra.
+ */
+class LineaLargaServidorTest {
+    private Biblioteca biblioteca;
+    private ServidorBiblioteca servidor;
+
+    @BeforeEach
+    void iniciar() throws IOException {
+        biblioteca = new Biblioteca(new ReceptorEventosNulo());
+        servidor = new ServidorBiblioteca(biblioteca, 0);
+        servidor.iniciar();
+    }
+
+    @AfterEach
+    void cerrar() {
+        servidor.close();
+        biblioteca.cerrar();
+    }
+
+    @Test
+    void unaLineaDemasiadoLargaCierraLaConexion() throws IOException {
+        try (Socket socket = new Socket("localhost", servidor.getPuerto())) {
+            BufferedReader lector = new BufferedReader(
+                    new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            OutputStream salida = socket.getOutputStream();
+            salida.write("DISPONIBLES\t978-1\n".getBytes(StandardCharsets.UTF_8));
+            byte[] larga = new byte[ServidorBiblioteca.LONGITUD_MAXIMA_LINEA + 1];
+            Arrays.fill(larga, (byte) 'A');
+            salida.write(larga);
+            salida.flush();
+
+            assertTrue(lector.readLine().startsWith("ERROR\tLIBRO_NO_ENCONTRADO\t"));
+            assertTrue(lector.readLine().startsWith("ERROR\tLINEA_DEMASIADO_LARGA\t"));
+            assertNull(lector.readLine());
+        }
+    }
+
+    @Test
+    void unaLineaDelMaximoSeAtiende() throws IOException {
+        try (Socket socket = new Socket("localhost", servidor.getPuerto())) {
+            BufferedReader lector = new BufferedReader(
+                    new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            OutputStream salida = socket.getOutputStream();
+            String prefijo = "DISPONIBLES\t";
+            byte[] linea = new byte[ServidorBiblioteca.LONGITUD_MAXIMA_LINEA + 2];
+            Arrays.fill(linea, (byte) '9');
+            System.arraycopy(prefijo.getBytes(StandardCharsets.UTF_8), 0, linea, 0, prefijo.length());
+            linea[linea.length - 2] = '\r';
+            linea[linea.length - 1] = '\n';
+            salida.write(linea);
+            salida.write("DISPONIBLES\t978-1\n".getBytes(StandardCharsets.UTF_8));
+            salida.flush();
+
+            assertTrue(lector.readLine().startsWith("ERROR\tLIBRO_NO_ENCONTRADO\t"));
+            assertTrue(lector.readLine().startsWith("ERROR\tLIBRO_NO_ENCONTRADO\t"));
+        }
+    }
+}
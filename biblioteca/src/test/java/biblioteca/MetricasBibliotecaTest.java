@@ -0,0 +1,154 @@
+package biblioteca;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Las métricas cuentan cada operación por su resultado, miden sus latencias
+ * (todas o una muestra), leen los indicadores al consultarse y se exportan
+ * en el formato de texto de Prometheus; desactivadas no registran nada.
+ */
+class MetricasBibliotecaTest {
+    private static final String FECHA = "01/01/2024";
+
+    private static Biblioteca crear(MetricasBiblioteca metricas) {
+        Biblioteca biblioteca = new Biblioteca(new ReceptorEventosNulo(), new CatalogoEnMemoria(), metricas);
+        biblioteca.intentarRegistrarLibro("978-1", "Uno", "Autor", "1");
+        biblioteca.intentarRegistrarLibro("978-\"2\"", "Dos", "Autor", "3");
+        biblioteca.intentarRegistrarUsuario("U1", "Ana", "Licenciatura", "1");
+        return biblioteca;
+    }
+
+    private static void operar(Biblioteca biblioteca) {
+        biblioteca.intentarPrestamo("U1", "978-1", FECHA);
+        biblioteca.intentarPrestamo("U1", "978-1", FECHA);
+        biblioteca.intentarPrestamo("U1", "978-9", FECHA);
+        biblioteca.intentarPrestamo("U9", "978-1", FECHA);
+        biblioteca.intentarPrestamo("U1", "978-1", "2024-01-01");
+        long id = biblioteca.intentarPrestamo("U1", "978-\"2\"", FECHA).getPrestamo().getId();
+        biblioteca.intentarDevolucion(id);
+        biblioteca.intentarDevolucion(id);
+        biblioteca.realizarPrestamosLote(List.of(new SolicitudPrestamo("U1", "978-\"2\"", FECHA),
+                new SolicitudPrestamo("U1", "978-1", FECHA)));
+    }
+
+    @Test
+    void seCuentaCadaOperacionPorSuResultado() {
+        Biblioteca biblioteca = crear(new MetricasBiblioteca());
+        try {
+            operar(biblioteca);
+            MetricasBiblioteca.Instantanea instantanea = biblioteca.getMetricas().instantanea();
+            MetricasBiblioteca.Operacion prestamo = MetricasBiblioteca.Operacion.PRESTAMO;
+            // Las solicitudes del lote cuentan como préstamos
+            assertEquals(3, instantanea.getConteo(prestamo, ResultadoOperacion.Codigo.EXITO));
+            assertEquals(2, instantanea.getConteo(prestamo, ResultadoOperacion.Codigo.LIBRO_NO_DISPONIBLE));
+            assertEquals(1, instantanea.getConteo(prestamo, ResultadoOperacion.Codigo.LIBRO_NO_ENCONTRADO));
+            assertEquals(1, instantanea.getConteo(prestamo, ResultadoOperacion.Codigo.USUARIO_NO_ENCONTRADO));
+            assertEquals(1, instantanea.getConteo(prestamo, ResultadoOperacion.Codigo.FECHA_INVALIDA));
+            assertEquals(8, instantanea.getTotal(prestamo));
+            assertEquals(1, instantanea.getConteo(MetricasBiblioteca.Operacion.DEVOLUCION,
+                    ResultadoOperacion.Codigo.EXITO));
+            assertEquals(1, instantanea.getConteo(MetricasBiblioteca.Operacion.DEVOLUCION,
+                    ResultadoOperacion.Codigo.PRESTAMO_NO_ENCONTRADO));
+            assertEquals(2, instantanea.getTotal(MetricasBiblioteca.Operacion.REGISTRAR_LIBRO));
+            assertEquals(1, instantanea.getTotal(MetricasBiblioteca.Operacion.PRESTAMO_LOTE));
+
+            // Sin muestreo se mide cada operación individual, no cada solicitud del lote
+            assertEquals(6, instantanea.getLatencias(prestamo).getConteo());
+            assertEquals(2, instantanea.getLatencias(MetricasBiblioteca.Operacion.DEVOLUCION).getConteo());
+            assertEquals(1, instantanea.getLatencias(MetricasBiblioteca.Operacion.PRESTAMO_LOTE).getConteo());
+
+            assertEquals(2L, instantanea.getIndicadores().get("biblioteca_prestamos_activos"));
+            assertEquals(2L, instantanea.getIndicadores().get("biblioteca_copias_prestadas"));
+            assertEquals(2L, instantanea.getIndicadores().get("biblioteca_copias_disponibles"));
+            assertEquals(0L, instantanea.getIndicadores().get("biblioteca_reservas_en_espera"));
+        } finally {
+            biblioteca.cerrar();
+        }
+    }
+
+    @Test
+    void elMuestreoMideSoloAlgunasOperacionesPeroCuentaTodas() {
+        MetricasBiblioteca metricas = new MetricasBiblioteca(16);
+        Biblioteca biblioteca = crear(metricas);
+        try {
+            for (int i = 0; i < 1600; i++) {
+                biblioteca.intentarPrestamo("U1", "978-9", FECHA);
+            }
+            MetricasBiblioteca.Instantanea instantanea = metricas.instantanea();
+            assertEquals(1600, instantanea.getConteo(MetricasBiblioteca.Operacion.PRESTAMO,
+                    ResultadoOperacion.Codigo.LIBRO_NO_ENCONTRADO));
+            long medidas = instantanea.getLatencias(MetricasBiblioteca.Operacion.PRESTAMO).getConteo();
+            // En promedio 100; la cota es holgada para que la prueba no falle por azar
+            assertTrue(medidas > 20 && medidas < 300, "operaciones medidas: " + medidas);
+        } finally {
+            biblioteca.cerrar();
+        }
+    }
+
+    @Test
+    void lasMetricasDesactivadasNoRegistranNada() throws IOException {
+        MetricasBiblioteca metricas = MetricasBiblioteca.desactivadas();
+        assertFalse(metricas.estanActivas());
+        Biblioteca biblioteca = crear(metricas);
+        try {
+            operar(biblioteca);
+            MetricasBiblioteca.Instantanea instantanea = metricas.instantanea();
+            assertEquals(0, instantanea.getTotal(MetricasBiblioteca.Operacion.PRESTAMO));
+            assertNull(instantanea.getLatencias(MetricasBiblioteca.Operacion.PRESTAMO));
+            assertTrue(instantanea.getIndicadores().isEmpty());
+
+            StringWriter texto = new StringWriter();
+            biblioteca.exportarMetricas(texto, false);
+            assertFalse(texto.toString().contains("biblioteca_operaciones_total"));
+            assertFalse(texto.toString().contains("biblioteca_latencia_segundos"));
+        } finally {
+            biblioteca.cerrar();
+        }
+    }
+
+    @Test
+    void laExportacionSigueElFormatoDePrometheus() throws IOException {
+        Biblioteca biblioteca = crear(new MetricasBiblioteca());
+        try {
+            operar(biblioteca);
+            StringWriter texto = new StringWriter();
+            biblioteca.exportarMetricas(texto, true);
+            List<String> lineas = texto.toString().lines().toList();
+
+            assertTrue(lineas.contains("# TYPE biblioteca_operaciones_total counter"));
+            assertTrue(lineas.contains("biblioteca_operaciones_total{operacion=\"prestamo\",resultado=\"exito\"} 3"));
+            assertTrue(lineas.contains(
+                    "biblioteca_operaciones_total{operacion=\"prestamo\",resultado=\"libro_no_disponible\"} 2"));
+            // El éxito se escribe aunque sea 0; los rechazos que no ocurrieron se omiten
+            assertTrue(lineas.contains("biblioteca_operaciones_total{operacion=\"reserva\",resultado=\"exito\"} 0"));
+            assertFalse(texto.toString().contains("operacion=\"reserva\",resultado=\"libro_no_encontrado\""));
+
+            assertTrue(lineas.contains("# TYPE biblioteca_latencia_segundos summary"));
+            assertTrue(lineas.contains("biblioteca_latencia_segundos_count{operacion=\"prestamo\"} 6"));
+            assertTrue(lineas.stream().anyMatch(
+                    linea -> linea.startsWith("biblioteca_latencia_segundos{operacion=\"prestamo\",quantile=\"0.99\"} ")));
+
+            assertTrue(lineas.contains("# TYPE biblioteca_prestamos_activos gauge"));
+            assertTrue(lineas.contains("biblioteca_prestamos_activos 2"));
+            // La disponibilidad por libro escapa las comillas del ISBN
+            assertTrue(lineas.contains("biblioteca_libro_copias_disponibles{isbn=\"978-1\"} 0"));
+            assertTrue(lineas.contains("biblioteca_libro_copias_disponibles{isbn=\"978-\\\"2\\\"\"} 2"));
+
+            for (String linea : lineas) {
+                assertTrue(linea.startsWith("# HELP ") || linea.startsWith("# TYPE ")
+                        || linea.matches("[a-z_]+(\\{[^}]*\\})? [0-9.E-]+"), linea);
+            }
+        } finally {
+            biblioteca.cerrar();
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package biblioteca;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Las páginas de préstamos salen por id y cada una sigue al último id de la
+ * anterior, así que los préstamos que se realizan o devuelven entre páginas
+ * no hacen que otros se repitan o se salten.
+ */
+class PaginacionPrestamosTest {
+    private static final int PAGINA = 7;
+
+    @Test
+    void lasPaginasSalenEnOrdenDeIdSinRepetirNiSaltar() throws IOException {
+        Biblioteca biblioteca = new Biblioteca(new ReceptorEventosNulo());
+        try {
+            biblioteca.intentarRegistrarUsuario("U1", "Usuario", "Licenciatura", "1");
+            biblioteca.intentarRegistrarLibro("978-1", "Título", "Autor", "100");
+            List<Long> activos = new ArrayList<>();
+            for (int i = 0; i < 40; i++) {
+                activos.add(biblioteca.intentarPrestamo("U1", "978-1", "01/01/2024").getPrestamo().getId());
+            }
+
+            List<Long> leidos = new ArrayList<>();
+            long despuesDe = 0;
+            int pagina = 0;
+            while (true) {
+                StringWriter destino = new StringWriter();
+                int escritos = biblioteca.escribirPaginaPrestamos(destino, ReporteBiblioteca.Formato.CSV,
+                        despuesDe, PAGINA);
+                List<Long> ids = ids(destino.toString());
+                assertEquals(escritos, ids.size());
+                leidos.addAll(ids);
+                if (escritos < PAGINA) {
+                    break;
+                }
+                despuesDe = ids.get(ids.size() - 1);
+                // Entre páginas se devuelve uno ya leído y otro aún no leído,
+                // y se realiza un préstamo nuevo
+                pagina++;
+                assertTrue(biblioteca.intentarDevolucion(activos.remove(0)).esExitoso());
+                long pendiente = activos.remove(activos.size() - 1);
+                assertTrue(biblioteca.intentarDevolucion(pendiente).esExitoso());
+                activos.add(biblioteca.intentarPrestamo("U1", "978-1", "01/01/2024").getPrestamo().getId());
+                assertTrue(pagina < 100, "La paginación no termina");
+            }
+
+            for (int i = 1; i < leidos.size(); i++) {
+                assertTrue(leidos.get(i) > leidos.get(i - 1), "Fuera de orden en " + i + ": " + leidos);
+            }
+            // Todo préstamo activo al terminar se leyó, y los devueltos
+            // después de leerse son los únicos que sobran
+            assertTrue(leidos.containsAll(activos), "Faltan préstamos: " + activos + " en " + leidos);
+        } finally {
+            biblioteca.cerrar();
+        }
+    }
+
+    @Test
+    void laPrimeraPaginaLlevaElEncabezado() throws IOException {
+        Biblioteca biblioteca = new Biblioteca(new ReceptorEventosNulo());
+        try {
+            biblioteca.intentarRegistrarUsuario("U1", "Usuario", "Licenciatura", "1");
+            biblioteca.intentarRegistrarLibro("978-1", "Título", "Autor", "3");
+            for (int i = 0; i < 3; i++) {
+                biblioteca.intentarPrestamo("U1", "978-1", "01/01/2024");
+            }
+            StringWriter primera = new StringWriter();
+            assertEquals(2, biblioteca.escribirPaginaPrestamos(primera, ReporteBiblioteca.Formato.CSV, 0, 2));
+            assertTrue(primera.toString().startsWith("tipo,id,"));
+            assertEquals(List.of(1L, 2L), ids(primera.toString()));
+
+            StringWriter segunda = new StringWriter();
+            assertEquals(1, biblioteca.escribirPaginaPrestamos(segunda, ReporteBiblioteca.Formato.CSV, 2, 2));
+            assertTrue(segunda.toString().startsWith("prestamo,3,"));
+        } finally {
+            biblioteca.cerrar();
+        }
+    }
+
+    private static List<Long> ids(String csv) {
+        List<Long> ids = new ArrayList<>();
+        for (String linea : csv.split("\n")) {
+            if (linea.startsWith("prestamo,")) {
+                ids.add(Long.parseLong(linea.split(",")[1]));
+            }
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,58 @@
+package biblioteca;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * La duración del préstamo depende del perfil del usuario: de su semestre o
+ * de su licenciatura, con una política de respaldo para el resto.
+ */
+class PoliticaVencimientoTest {
+
+    @Test
+    void lasPoliticasDecidenSegunElPerfil() {
+        Usuario primero = new Usuario("U1", "Ana", "Matemáticas", 1);
+        Usuario septimo = new Usuario("U2", "Beto", "Matemáticas", 7);
+        Usuario fisica = new Usuario("U3", "Carla", "Física", 2);
+
+        assertEquals(PoliticaVencimiento.DIAS_PREDETERMINADOS, PoliticaVencimiento
+                .fija(PoliticaVencimiento.DIAS_PREDETERMINADOS).diasPrestamo(primero));
+
+        PoliticaVencimiento porSemestre = PoliticaVencimiento.porSemestre(7, 7, 21);
+        assertEquals(7, porSemestre.diasPrestamo(primero));
+        assertEquals(21, porSemestre.diasPrestamo(septimo));
+
+        PoliticaVencimiento porLicenciatura = PoliticaVencimiento.porLicenciatura(Map.of("Física", 30), porSemestre);
+        assertEquals(30, porLicenciatura.diasPrestamo(fisica));
+        assertEquals(7, porLicenciatura.diasPrestamo(primero));
+        assertEquals(21, porLicenciatura.diasPrestamo(septimo));
+    }
+
+    @Test
+    void elVencimientoDelPrestamoUsaLaPoliticaDelUsuario() {
+        Biblioteca biblioteca = new Biblioteca(new ReceptorEventosNulo());
+        try {
+            biblioteca.intentarRegistrarLibro("978-1", "Uno", "Autor", "5");
+            biblioteca.intentarRegistrarUsuario("U1", "Ana", "Matemáticas", "1");
+            biblioteca.intentarRegistrarUsuario("U2", "Beto", "Matemáticas", "8");
+            biblioteca.intentarRegistrarUsuario("U3", "Carla", "Física", "2");
+            biblioteca.setPoliticaVencimiento(PoliticaVencimiento.porLicenciatura(Map.of("Física", 30),
+                    PoliticaVencimiento.porSemestre(7, 7, 21)));
+
+            // Cruza fin de mes y año bisiesto
+            Prestamo primero = biblioteca.intentarPrestamo("U1", "978-1", "25/02/2024").getPrestamo();
+            Prestamo octavo = biblioteca.intentarPrestamo("U2", "978-1", "25/02/2024").getPrestamo();
+            Prestamo fisica = biblioteca.intentarPrestamo("U3", "978-1", "15/12/2024").getPrestamo();
+            assertEquals(LocalDate.of(2024, 3, 3), primero.getFechaVencimiento());
+            assertEquals(LocalDate.of(2024, 3, 17), octavo.getFechaVencimiento());
+            assertEquals(LocalDate.of(2025, 1, 14), fisica.getFechaVencimiento());
+            assertEquals(primero.getDiaPrestamo() + 7, primero.getDiaVencimiento());
+        } finally {
+            biblioteca.cerrar();
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package biblioteca;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Prueba de estrés de los préstamos concurrentes: muchos hilos piden más
+ * copias de las que existen y ningún libro se presta de más, y cuando todos
+ * piden a la vez la última copia de un libro sólo uno la obtiene.
+ */
+class PrestamosConcurrentesTest {
+    private static final int HILOS = 16;
+    private static final int PRESTAMOS_POR_HILO = 2000;
+    private static final int LIBROS = 50;
+    private static final int COPIAS = 7;
+    private static final int USUARIOS = 100;
+    private static final String FECHA = "01/01/2024";
+
+    private static final int RONDAS = 200;
+
+    @TempDir
+    Path directorio;
+
+    private Biblioteca biblioteca;
+    private ExecutorService hilos;
+
+    @BeforeEach
+    void preparar() {
+        biblioteca = new Biblioteca(new ReceptorEventosNulo());
+        for (int i = 0; i < LIBROS; i++) {
+            biblioteca.intentarRegistrarLibro(isbn(i), "Título " + i, "Autor " + i, Integer.toString(COPIAS));
+        }
+        for (int i = 0; i < USUARIOS; i++) {
+            biblioteca.intentarRegistrarUsuario(clave(i), "Usuario " + i, "Ingeniería de Software", "3");
+        }
+        hilos = Executors.newFixedThreadPool(HILOS + 1);
+    }
+
+    @AfterEach
+    void cerrar() {
+        hilos.shutdownNow();
+        biblioteca.cerrar();
+    }
+
+    @Test
+    void sinDevolucionesSePrestanExactamenteLasCopiasExistentes() throws Exception {
+        Vigilante vigilante = ejecutar((aleatorio) -> {
+            biblioteca.intentarPrestamo(clave(aleatorio.nextInt(USUARIOS)), isbn(aleatorio.nextInt(LIBROS)), FECHA);
+        });
+
+        assertEquals(LIBROS * COPIAS, biblioteca.contarPrestamosActivos());
+        assertEquals(LIBROS * COPIAS, biblioteca.getResumen().getCopiasPrestadas());
+        assertEquals(0, biblioteca.getResumen().getCopiasDisponibles());
+        for (int i = 0; i < LIBROS; i++) {
+            assertEquals(0, biblioteca.copiasDisponibles(isbn(i)), "Copias disponibles de " + isbn(i));
+            assertEquals(COPIAS, biblioteca.obtenerPrestamosLibro(isbn(i)).size(), "Préstamos de " + isbn(i));
+        }
+        assertEquals(LIBROS * COPIAS, prestamosDeUsuarios());
+        vigilante.comprobar();
+    }
+
+    @Test
+    void conDevolucionesLasCopiasPrestadasYLibresSiempreSumanElTotal() throws Exception {
+        Vigilante vigilante = ejecutar((aleatorio) -> {
+            ResultadoOperacion resultado = biblioteca.intentarPrestamo(clave(aleatorio.nextInt(USUARIOS)),
+                    isbn(aleatorio.nextInt(LIBROS)), FECHA);
+            if (resultado.esExitoso() && aleatorio.nextBoolean()) {
+                biblioteca.intentarDevolucion(resultado.getPrestamo().getId());
+            }
+        });
+
+        int disponibles = 0;
+        for (int i = 0; i < LIBROS; i++) {
+            int copias = biblioteca.copiasDisponibles(isbn(i));
+            assertTrue(copias >= 0 && copias <= COPIAS, "Copias disponibles de " + isbn(i) + ": " + copias);
+            assertEquals(COPIAS - copias, biblioteca.obtenerPrestamosLibro(isbn(i)).size(), "Préstamos de " + isbn(i));
+            disponibles += copias;
+        }
+        assertEquals(LIBROS * COPIAS, disponibles + biblioteca.contarPrestamosActivos());
+        assertEquals(biblioteca.contarPrestamosActivos(), biblioteca.getResumen().getCopiasPrestadas());
+        assertEquals(biblioteca.contarPrestamosActivos(), prestamosDeUsuarios());
+        vigilante.comprobar();
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = { false, true })
+    void laUltimaCopiaLaObtieneUnSoloHilo(boolean mapeada) throws Exception {
+        Biblioteca otra = crear(mapeada);
+        try {
+            for (int i = 0; i < HILOS; i++) {
+                otra.intentarRegistrarUsuario(clave(i), "Usuario " + i, "Ingeniería de Software", "3");
+            }
+            for (int ronda = 0; ronda < RONDAS; ronda++) {
+                otra.intentarRegistrarLibro(isbn(ronda), "Título " + ronda, "Autor", "1");
+            }
+            CyclicBarrier salida = new CyclicBarrier(HILOS);
+            AtomicInteger[] ganadores = new AtomicInteger[RONDAS];
+            for (int ronda = 0; ronda < RONDAS; ronda++) {
+                ganadores[ronda] = new AtomicInteger();
+            }
+            AtomicInteger otrosCodigos = new AtomicInteger();
+            List<Future<?>> tareas = new ArrayList<>();
+            for (int h = 0; h < HILOS; h++) {
+                String clave = clave(h);
+                tareas.add(hilos.submit(() -> {
+                    for (int ronda = 0; ronda < RONDAS; ronda++) {
+                        // Todos los hilos empiezan cada ronda a la vez
+                        salida.await();
+                        ResultadoOperacion resultado = otra.intentarPrestamo(clave, isbn(ronda), FECHA);
+                        if (resultado.esExitoso()) {
+                            ganadores[ronda].incrementAndGet();
+                        } else if (resultado.getCodigo() != ResultadoOperacion.Codigo.LIBRO_NO_DISPONIBLE) {
+                            otrosCodigos.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> tarea : tareas) {
+                tarea.get();
+            }
+
+            for (int ronda = 0; ronda < RONDAS; ronda++) {
+                assertEquals(1, ganadores[ronda].get(), "Préstamos de la última copia de " + isbn(ronda));
+                assertEquals(0, otra.copiasDisponibles(isbn(ronda)), "Copias disponibles de " + isbn(ronda));
+                assertEquals(1, otra.obtenerPrestamosLibro(isbn(ronda)).size(), "Préstamos de " + isbn(ronda));
+            }
+            assertEquals(0, otrosCodigos.get());
+            assertEquals(RONDAS, otra.contarPrestamosActivos());
+            assertEquals(RONDAS, otra.getResumen().getCopiasPrestadas());
+            assertEquals(0, otra.getResumen().getCopiasDisponibles());
+        } finally {
+            otra.cerrar();
+        }
+    }
+
+    private Biblioteca crear(boolean mapeada) throws IOException {
+        return mapeada ? new Biblioteca(new ReceptorEventosNulo(), CatalogoMapeado.crear(directorio, 0))
+                : new Biblioteca(new ReceptorEventosNulo());
+    }
+
+    private interface Operacion {
+        void ejecutar(ThreadLocalRandom aleatorio);
+    }
+
+    /**
+     * Ejecuta la operación {@link #PRESTAMOS_POR_HILO} veces en cada hilo,
+     * todos a la vez, mientras otro hilo revisa los contadores.
+     */
+    private Vigilante ejecutar(Operacion operacion) throws Exception {
+        CountDownLatch salida = new CountDownLatch(1);
+        Vigilante vigilante = new Vigilante();
+        Future<?> revision = hilos.submit(vigilante);
+        List<Future<?>> tareas = new ArrayList<>();
+        for (int h = 0; h < HILOS; h++) {
+            tareas.add(hilos.submit(() -> {
+                salida.await();
+                ThreadLocalRandom aleatorio = ThreadLocalRandom.current();
+                for (int i = 0; i < PRESTAMOS_POR_HILO; i++) {
+                    operacion.ejecutar(aleatorio);
+                }
+                return null;
+            }));
+        }
+        salida.countDown();
+        for (Future<?> tarea : tareas) {
+            tarea.get();
+        }
+        vigilante.terminar.set(true);
+        revision.get();
+        return vigilante;
+    }
+
+    private int prestamosDeUsuarios() {
+        int total = 0;
+        for (int i = 0; i < USUARIOS; i++) {
+            int activos = biblioteca.contarPrestamosUsuario(clave(i));
+            assertTrue(activos >= 0, "Préstamos de " + clave(i) + ": " + activos);
+            total += activos;
+        }
+        return total;
+    }
+
+    /**
+     * Revisa sin pausa que ningún contador de copias sea negativo ni supere
+     * el total mientras los hilos prestan.
+     */
+    private final class Vigilante implements Runnable {
+        private final AtomicBoolean terminar = new AtomicBoolean();
+        private final AtomicInteger fuera = new AtomicInteger();
+        private volatile String ejemplo;
+
+        @Override
+        public void run() {
+            while (!terminar.get()) {
+                for (int i = 0; i < LIBROS; i++) {
+                    int copias = biblioteca.copiasDisponibles(isbn(i));
+                    if (copias < 0 || copias > COPIAS) {
+                        fuera.incrementAndGet();
+                        ejemplo = isbn(i) + ": " + copias;
+                    }
+                }
+                long prestadas = biblioteca.getResumen().getCopiasPrestadas();
+                if (prestadas < 0 || prestadas > LIBROS * COPIAS) {
+                    fuera.incrementAndGet();
+                    ejemplo = "copias prestadas: " + prestadas;
+                }
+            }
+        }
+
+        void comprobar() {
+            assertEquals(0, fuera.get(), "Contador fuera de rango, p. ej. " + ejemplo);
+        }
+    }
+
+    private static String isbn(int n) {
+        return "978-" + n;
+    }
+
+    private static String clave(int n) {
+        return "U" + n;
+    }
+}
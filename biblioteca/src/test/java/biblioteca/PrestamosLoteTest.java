@@ -0,0 +1,135 @@
+package biblioteca;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Un lote de préstamos da un resultado por solicitud, en orden: las copias
+ * de cada libro se entregan a las primeras solicitudes del lote, las
+ * solicitudes inválidas no afectan a las demás y un libro con reservas en
+ * espera no se presta a las solicitudes del lote.
+ */
+class PrestamosLoteTest {
+    private static final String FECHA = "01/01/2024";
+
+    private final List<Prestamo> realizados = new ArrayList<>();
+    private Biblioteca biblioteca;
+
+    @BeforeEach
+    void preparar() {
+        biblioteca = new Biblioteca(new ReceptorEventosNulo() {
+            @Override
+            public void prestamoRealizado(Prestamo prestamo) {
+                realizados.add(prestamo);
+            }
+        });
+        biblioteca.intentarRegistrarLibro("978-1", "Uno", "Autor", "2");
+        biblioteca.intentarRegistrarLibro("978-2", "Dos", "Autor", "1");
+        biblioteca.intentarRegistrarLibro("978-3", "Tres", "Autor", "5");
+        for (int i = 1; i <= 5; i++) {
+            biblioteca.intentarRegistrarUsuario("U" + i, "Usuario " + i, "Licenciatura", "1");
+        }
+    }
+
+    @AfterEach
+    void cerrar() {
+        biblioteca.cerrar();
+    }
+
+    @Test
+    void unLoteParcialEntregaLasCopiasEnElOrdenDelLote() {
+        ResultadoOperacion[] resultados = biblioteca.realizarPrestamosLote(List.of(
+                new SolicitudPrestamo("U1", "978-1", FECHA),
+                new SolicitudPrestamo("U2", "978-9", FECHA),
+                new SolicitudPrestamo("U2", "978-1", FECHA),
+                new SolicitudPrestamo("U9", "978-3", FECHA),
+                new SolicitudPrestamo("U3", "978-1", FECHA),
+                new SolicitudPrestamo("U4", "978-3", "fecha"),
+                new SolicitudPrestamo("U4", "9781", FECHA),
+                new SolicitudPrestamo("U5", "978-3", FECHA)));
+
+        assertEquals(8, resultados.length);
+        assertTrue(resultados[0].esExitoso());
+        assertSame(ResultadoOperacion.de(ResultadoOperacion.Codigo.LIBRO_NO_ENCONTRADO), resultados[1]);
+        assertTrue(resultados[2].esExitoso());
+        assertSame(ResultadoOperacion.de(ResultadoOperacion.Codigo.USUARIO_NO_ENCONTRADO), resultados[3]);
+        assertSame(ResultadoOperacion.de(ResultadoOperacion.Codigo.LIBRO_NO_DISPONIBLE), resultados[4]);
+        assertSame(ResultadoOperacion.de(ResultadoOperacion.Codigo.FECHA_INVALIDA), resultados[5]);
+        assertSame(ResultadoOperacion.de(ResultadoOperacion.Codigo.LIBRO_NO_ENCONTRADO), resultados[6]);
+        assertTrue(resultados[7].esExitoso());
+
+        assertEquals("U1", resultados[0].getPrestamo().getUsuario().getClaveUsuario());
+        assertEquals("U2", resultados[2].getPrestamo().getUsuario().getClaveUsuario());
+        // Los ids del lote son contiguos
+        assertEquals(resultados[0].getPrestamo().getId() + 1, resultados[2].getPrestamo().getId());
+        assertEquals(resultados[2].getPrestamo().getId() + 1, resultados[7].getPrestamo().getId());
+
+        assertEquals(0, biblioteca.copiasDisponibles("978-1"));
+        assertEquals(4, biblioteca.copiasDisponibles("978-3"));
+        assertEquals(3, biblioteca.contarPrestamosActivos());
+        assertEquals(3, biblioteca.getResumen().getCopiasPrestadas());
+        // El rechazo por falta de copias devuelve el cupo del usuario
+        assertEquals(0, biblioteca.contarPrestamosUsuario("U3"));
+        assertEquals(0, biblioteca.contarPrestamosUsuario("U4"));
+        // Sólo se emiten los préstamos realizados
+        assertEquals(List.of(resultados[0].getPrestamo(), resultados[2].getPrestamo(), resultados[7].getPrestamo()),
+                realizados);
+    }
+
+    @Test
+    void elLimiteDeCadaUsuarioCuentaLasSolicitudesAnterioresDelLote() {
+        biblioteca.setLimitePrestamos(LimitePrestamos.fijo(2));
+        ResultadoOperacion[] resultados = biblioteca.realizarPrestamosLote(List.of(
+                new SolicitudPrestamo("U1", "978-3", FECHA),
+                new SolicitudPrestamo("U1", "978-3", FECHA),
+                new SolicitudPrestamo("U1", "978-1", FECHA),
+                new SolicitudPrestamo("U2", "978-3", FECHA)));
+
+        assertTrue(resultados[0].esExitoso());
+        assertTrue(resultados[1].esExitoso());
+        assertSame(ResultadoOperacion.de(ResultadoOperacion.Codigo.LIMITE_PRESTAMOS), resultados[2]);
+        assertTrue(resultados[3].esExitoso());
+        assertEquals(2, biblioteca.contarPrestamosUsuario("U1"));
+        assertEquals(2, biblioteca.copiasDisponibles("978-1"));
+        assertEquals(2, biblioteca.copiasDisponibles("978-3"));
+    }
+
+    @Test
+    void unLibroConReservasEnEsperaNoSePrestaAlLote() throws Exception {
+        long id = biblioteca.intentarPrestamo("U1", "978-2", FECHA).getPrestamo().getId();
+        CompletableFuture<Prestamo> reserva = biblioteca.reservar("U2", "978-2");
+        assertFalse(reserva.isDone());
+
+        ResultadoOperacion[] resultados = biblioteca.realizarPrestamosLote(List.of(
+                new SolicitudPrestamo("U3", "978-2", FECHA),
+                new SolicitudPrestamo("U4", "978-1", FECHA)));
+        assertSame(ResultadoOperacion.de(ResultadoOperacion.Codigo.LIBRO_NO_DISPONIBLE), resultados[0]);
+        assertTrue(resultados[1].esExitoso());
+        assertEquals(0, biblioteca.contarPrestamosUsuario("U3"));
+
+        // La copia devuelta es para la reserva, no para un lote posterior
+        assertTrue(biblioteca.intentarDevolucion(id).esExitoso());
+        assertTrue(reserva.isDone());
+        assertEquals("U2", reserva.get().getUsuario().getClaveUsuario());
+        resultados = biblioteca.realizarPrestamosLote(List.of(new SolicitudPrestamo("U3", "978-2", FECHA)));
+        assertSame(ResultadoOperacion.de(ResultadoOperacion.Codigo.LIBRO_NO_DISPONIBLE), resultados[0]);
+        assertEquals(0, biblioteca.copiasDisponibles("978-2"));
+    }
+
+    @Test
+    void unLoteVacioNoHaceNada() {
+        assertEquals(0, biblioteca.realizarPrestamosLote(List.of()).length);
+        assertEquals(0, biblioteca.contarPrestamosActivos());
+        assertTrue(realizados.isEmpty());
+    }
+}
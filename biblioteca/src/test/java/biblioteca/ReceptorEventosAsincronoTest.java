@@ -0,0 +1,169 @@
+package biblioteca;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Cerrar el receptor mientras otros hilos emiten no pierde eventos: cada
+ * evento emitido se entrega o se cuenta como descartado. Con muchos emisores
+ * los eventos de cada uno llegan en orden, y el receptor de consola escribe
+ * cada lote de una vez.
+ */
+class ReceptorEventosAsincronoTest {
+    private static final int HILOS = 8;
+    private static final int RONDAS = 50;
+
+    @Test
+    void cadaEventoSeEntregaOSeDescartaAlCerrar() throws Exception {
+        for (int ronda = 0; ronda < RONDAS; ronda++) {
+            AtomicLong entregados = new AtomicLong();
+            ReceptorEventosAsincrono receptor = new ReceptorEventosAsincrono(new ReceptorEventosNulo() {
+                @Override
+                public void operacionFallida(String operacion, String mensaje) {
+                    entregados.incrementAndGet();
+                }
+            }, 64);
+            AtomicLong emitidos = new AtomicLong();
+            List<Thread> emisores = new ArrayList<>();
+            for (int h = 0; h < HILOS; h++) {
+                Thread emisor = new Thread(() -> {
+                    // Sigue emitiendo después del cierre, que descarta el resto
+                    for (int i = 0; i < 20_000; i++) {
+                        receptor.operacionFallida("prueba", "evento");
+                        emitidos.incrementAndGet();
+                    }
+                });
+                emisor.start();
+                emisores.add(emisor);
+            }
+            Thread.sleep(ronda % 5);
+            receptor.cerrar();
+            for (Thread emisor : emisores) {
+                emisor.join();
+            }
+            assertEquals(emitidos.get(), entregados.get() + receptor.getDescartados(), "Ronda " + ronda);
+        }
+    }
+
+    @Test
+    void muchosEmisoresEntreganCadaUnoEnOrden() throws Exception {
+        int emisores = 32;
+        int eventos = 20_000;
+        long[] ultimo = new long[emisores];
+        AtomicLong entregados = new AtomicLong();
+        AtomicLong fueraDeOrden = new AtomicLong();
+        ReceptorEventosAsincrono receptor = new ReceptorEventosAsincrono(new ReceptorEventosNulo() {
+            @Override
+            public void intentoPrestamoProcesado(String claveUsuario, String isbnLibro) {
+                // Sólo el hilo de entrega llama al destino
+                int emisor = Integer.parseInt(claveUsuario);
+                long numero = Long.parseLong(isbnLibro);
+                if (numero <= ultimo[emisor]) {
+                    fueraDeOrden.incrementAndGet();
+                }
+                ultimo[emisor] = numero;
+                entregados.incrementAndGet();
+            }
+        }, 1024);
+        List<Thread> hilos = new ArrayList<>();
+        for (int h = 0; h < emisores; h++) {
+            String clave = Integer.toString(h);
+            Thread emisor = new Thread(() -> {
+                for (int i = 1; i <= eventos; i++) {
+                    receptor.intentoPrestamoProcesado(clave, Integer.toString(i));
+                }
+            });
+            emisor.start();
+            hilos.add(emisor);
+        }
+        for (Thread emisor : hilos) {
+            emisor.join();
+        }
+        receptor.cerrar();
+
+        assertEquals(0, fueraDeOrden.get());
+        assertEquals((long) emisores * eventos, entregados.get() + receptor.getDescartados());
+        assertTrue(entregados.get() > 0);
+    }
+
+    @Test
+    void laConsolaEscribeCadaLoteDeUnaVez() {
+        EscriturasContadas salida = new EscriturasContadas();
+        ReceptorEventosConsola consola = new ReceptorEventosConsola(
+                new PrintStream(salida, false, StandardCharsets.UTF_8), System.err);
+
+        consola.iniciarLote();
+        for (int i = 0; i < 3; i++) {
+            consola.intentoPrestamoProcesado("U" + i, "978-" + i);
+        }
+        assertEquals(0, salida.escrituras);
+        consola.terminarLote();
+        assertEquals(1, salida.escrituras);
+
+        // Fuera de un lote cada evento se escribe al momento
+        consola.intentoPrestamoProcesado("U3", "978-3");
+        assertEquals(2, salida.escrituras);
+        consola.cerrar();
+
+        String texto = salida.bytes.toString(StandardCharsets.UTF_8);
+        assertEquals(4, texto.lines().count());
+        assertEquals("Intento de préstamo procesado para usuario: U0, libro: 978-0", texto.lines().findFirst().get());
+    }
+
+    @Test
+    void elReceptorAsincronoEntregaLotesALaConsola() throws Exception {
+        EscriturasContadas salida = new EscriturasContadas();
+        ReceptorEventosAsincrono receptor = new ReceptorEventosAsincrono(new ReceptorEventosConsola(
+                new PrintStream(salida, false, StandardCharsets.UTF_8), System.err));
+        List<Thread> hilos = new ArrayList<>();
+        for (int h = 0; h < 8; h++) {
+            String clave = "U" + h;
+            Thread emisor = new Thread(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    receptor.intentoPrestamoProcesado(clave, "978-" + i);
+                }
+            });
+            emisor.start();
+            hilos.add(emisor);
+        }
+        for (Thread emisor : hilos) {
+            emisor.join();
+        }
+        receptor.cerrar();
+
+        String texto = salida.bytes.toString(StandardCharsets.UTF_8);
+        assertEquals(8000 - receptor.getDescartados(), texto.lines().count());
+        assertTrue(texto.lines().allMatch(l -> l.startsWith("Intento de préstamo procesado para usuario: U")));
+        assertTrue(salida.escrituras <= texto.lines().count());
+    }
+
+    /**
+     * Flujo que guarda lo escrito y cuenta las escrituras que le llegan.
+     */
+    private static final class EscriturasContadas extends OutputStream {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private int escrituras;
+
+        @Override
+        public void write(int b) {
+            escrituras++;
+            bytes.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int desde, int cantidad) {
+            escrituras++;
+            bytes.write(b, desde, cantidad);
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package biblioteca;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Recuperación del diario después de una caída: con el diario cortado o con
+ * basura en cualquier punto de la cola, ningún préstamo confirmado antes de
+ * ese punto se pierde; un daño en medio del segmento hace fallar la apertura.
+ */
+class RecuperacionDiarioTest {
+    private static final String FECHA = "01/01/2024";
+    private static final int OPERACIONES = 40;
+
+    @TempDir
+    Path temporal;
+
+    private byte[] segmento;
+    /** Operaciones confirmadas, en orden: {id, 1 si es préstamo o 0 si es devolución, fin en el segmento}. */
+    private final List<long[]> confirmadas = new ArrayList<>();
+    private final List<Long> todos = new ArrayList<>();
+
+    @BeforeEach
+    void escribirDiario() throws IOException {
+        Path directorio = temporal.resolve("original");
+        Biblioteca biblioteca = Biblioteca.abrir(directorio, new ReceptorEventosNulo());
+        for (int i = 0; i < 3; i++) {
+            biblioteca.intentarRegistrarLibro("978-" + i, "Título " + i, "Autor " + i, "3");
+            biblioteca.intentarRegistrarUsuario("U" + i, "Usuario " + i, "Licenciatura", "2");
+        }
+        Path archivo = DiarioBiblioteca.rutaSegmento(directorio, DiarioBiblioteca.segmentos(directorio).get(0));
+        Random aleatorio = new Random(7);
+        List<Long> activos = new ArrayList<>();
+        for (int i = 0; i < OPERACIONES; i++) {
+            if (!activos.isEmpty() && aleatorio.nextInt(3) == 0) {
+                long id = activos.remove(aleatorio.nextInt(activos.size()));
+                assertTrue(biblioteca.intentarDevolucion(id).esExitoso());
+                // Devuelto el control, la operación ya es durable
+                confirmadas.add(new long[] { id, 0, Files.size(archivo) });
+            } else {
+                ResultadoOperacion resultado = biblioteca.intentarPrestamo("U" + aleatorio.nextInt(3),
+                        "978-" + aleatorio.nextInt(3), FECHA);
+                if (resultado.esExitoso()) {
+                    long id = resultado.getPrestamo().getId();
+                    activos.add(id);
+                    todos.add(id);
+                    confirmadas.add(new long[] { id, 1, Files.size(archivo) });
+                }
+            }
+        }
+        biblioteca.cerrar();
+        segmento = Files.readAllBytes(archivo);
+        assertTrue(todos.size() > 10, "Muy pocos préstamos para la prueba: " + todos.size());
+    }
+
+    @Test
+    void cortarElDiarioEnCualquierPosicionConservaLoConfirmado() throws IOException {
+        for (int corte = DiarioBiblioteca.TAMANO_CABECERA; corte <= segmento.length; corte++) {
+            comprobarRecuperacion(Arrays.copyOf(segmento, corte), corte);
+        }
+    }
+
+    @Test
+    void unaColaDeCerosOBasuraSeDescarta() throws IOException {
+        Random aleatorio = new Random(11);
+        for (int corte = DiarioBiblioteca.TAMANO_CABECERA; corte < segmento.length; corte++) {
+            // Bloques reservados pero sin escribir, o escritos a medias
+            byte[] ceros = Arrays.copyOf(segmento, segmento.length);
+            Arrays.fill(ceros, corte, ceros.length, (byte) 0);
+            comprobarRecuperacion(ceros, corte);
+
+            byte[] basura = Arrays.copyOf(segmento, segmento.length);
+            for (int i = corte; i < basura.length; i++) {
+                basura[i] = (byte) aleatorio.nextInt(256);
+            }
+            comprobarRecuperacion(basura, corte);
+        }
+    }
+
+    @Test
+    void unCrcDanadoEnMedioDelSegmentoFallaSinDescartarRegistros() throws IOException {
+        // El crc es la última palabra del registro; se daña el de una operación intermedia
+        long[] intermedia = confirmadas.get(confirmadas.size() / 2);
+        byte[] danado = segmento.clone();
+        danado[(int) intermedia[2] - 1] ^= 0x5A;
+        Path directorio = escribir(danado);
+        IOException error = assertThrows(IOException.class,
+                () -> Biblioteca.abrir(directorio, new ReceptorEventosNulo()));
+        assertTrue(error.getMessage().contains("registros válidos"), error.getMessage());
+        // El archivo no se recortó
+        assertEquals(danado.length, Files.size(DiarioBiblioteca.rutaSegmento(directorio, 1)));
+    }
+
+    @Test
+    void unDatoDanadoEnMedioDelSegmentoFalla() throws IOException {
+        byte[] danado = segmento.clone();
+        danado[DiarioBiblioteca.TAMANO_CABECERA + 10] ^= 0x01; // Dentro del primer libro
+        Path directorio = escribir(danado);
+        assertThrows(IOException.class, () -> Biblioteca.abrir(directorio, new ReceptorEventosNulo()));
+    }
+
+    @Test
+    void unCrcDanadoEnElUltimoRegistroSeDescarta() throws IOException {
+        byte[] danado = segmento.clone();
+        danado[danado.length - 1] ^= 0x5A;
+        long anterior = confirmadas.get(confirmadas.size() - 2)[2];
+        comprobarRecuperacion(danado, anterior);
+    }
+
+    /**
+     * Abre una biblioteca sobre el segmento y comprueba que tiene exactamente
+     * los préstamos activos según las operaciones confirmadas hasta {@code corte}.
+     */
+    private void comprobarRecuperacion(byte[] contenido, long corte) throws IOException {
+        Set<Long> esperados = new HashSet<>();
+        for (long[] operacion : confirmadas) {
+            if (operacion[2] > corte) {
+                break;
+            }
+            if (operacion[1] == 1) {
+                esperados.add(operacion[0]);
+            } else {
+                esperados.remove(operacion[0]);
+            }
+        }
+        Biblioteca recuperada = Biblioteca.abrir(escribir(contenido), new ReceptorEventosNulo());
+        try {
+            for (long id : todos) {
+                if (esperados.contains(id)) {
+                    assertNotNull(recuperada.buscarPrestamo(id), "Préstamo " + id + " perdido con corte " + corte);
+                } else {
+                    assertNull(recuperada.buscarPrestamo(id), "Préstamo " + id + " presente con corte " + corte);
+                }
+            }
+            assertEquals(esperados.size(), recuperada.contarPrestamosActivos(), "Corte " + corte);
+        } finally {
+            recuperada.cerrar();
+        }
+    }
+
+    private Path escribir(byte[] contenido) throws IOException {
+        Path directorio = Files.createTempDirectory(temporal, "recuperada");
+        Files.write(DiarioBiblioteca.rutaSegmento(directorio, 1), contenido);
+        return directorio;
+    }
+}
@@ -0,0 +1,122 @@
+package biblioteca;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Las reservas de un libro agotado esperan en orden de llegada y cada copia
+ * devuelta se entrega a la primera que sigue en espera, antes que a
+ * cualquier préstamo directo.
+ */
+class ReservasTest {
+    private static final String FECHA = "01/01/2024";
+
+    private Biblioteca biblioteca;
+
+    @BeforeEach
+    void preparar() {
+        biblioteca = new Biblioteca(new ReceptorEventosNulo());
+        biblioteca.intentarRegistrarLibro("978-1", "Uno", "Autor", "1");
+        biblioteca.intentarRegistrarLibro("978-2", "Dos", "Autor", "1");
+        for (int i = 1; i <= 5; i++) {
+            biblioteca.intentarRegistrarUsuario("U" + i, "Usuario " + i, "Licenciatura", "1");
+        }
+    }
+
+    @AfterEach
+    void cerrar() {
+        biblioteca.cerrar();
+    }
+
+    @Test
+    void lasCopiasDevueltasSeEntreganEnOrdenDeLlegada() {
+        long id = biblioteca.intentarPrestamo("U1", "978-1", FECHA).getPrestamo().getId();
+        CompletableFuture<Prestamo> segunda = biblioteca.reservar("U2", "978-1");
+        CompletableFuture<Prestamo> tercera = biblioteca.reservar("U3", "978-1");
+        CompletableFuture<Prestamo> cuarta = biblioteca.reservar("U4", "978-1");
+        assertFalse(segunda.isDone() || tercera.isDone() || cuarta.isDone());
+        assertEquals(3, enEspera());
+
+        // Un préstamo directo no se adelanta a las reservas
+        assertSame(ResultadoOperacion.de(ResultadoOperacion.Codigo.LIBRO_NO_DISPONIBLE),
+                biblioteca.intentarPrestamo("U5", "978-1", FECHA));
+
+        assertTrue(biblioteca.intentarDevolucion(id).esExitoso());
+        assertTrue(segunda.isDone());
+        assertFalse(tercera.isDone() || cuarta.isDone());
+        Prestamo prestamo = segunda.join();
+        assertEquals("U2", prestamo.getUsuario().getClaveUsuario());
+        assertEquals(LocalDate.now(), prestamo.getFechaPrestamo());
+        assertSame(prestamo, biblioteca.buscarPrestamo(prestamo.getId()));
+        assertEquals(0, biblioteca.copiasDisponibles("978-1"));
+        assertEquals(2, enEspera());
+
+        // Una reserva cancelada se salta sin tomar la copia
+        assertTrue(tercera.cancel(false));
+        assertEquals(0, biblioteca.contarPrestamosUsuario("U3"));
+        assertTrue(biblioteca.intentarDevolucion(prestamo.getId()).esExitoso());
+        assertEquals("U4", cuarta.join().getUsuario().getClaveUsuario());
+        assertEquals(0, enEspera());
+        assertEquals(0, biblioteca.copiasDisponibles("978-1"));
+
+        // Sin reservas en espera la copia devuelta vuelve al libro
+        assertTrue(biblioteca.intentarDevolucion(cuarta.join().getId()).esExitoso());
+        assertEquals(1, biblioteca.copiasDisponibles("978-1"));
+        assertTrue(biblioteca.intentarPrestamo("U5", "978-1", FECHA).esExitoso());
+    }
+
+    @Test
+    void unaReservaConCopiaLibreSeRealizaDeInmediato() {
+        CompletableFuture<Prestamo> reserva = biblioteca.reservar("U1", "978-2");
+        assertTrue(reserva.isDone());
+        assertEquals("U1", reserva.join().getUsuario().getClaveUsuario());
+        assertEquals(0, biblioteca.copiasDisponibles("978-2"));
+        assertFalse(reserva.cancel(false));
+        assertEquals(1, biblioteca.contarPrestamosActivos());
+        assertEquals(0, enEspera());
+    }
+
+    @Test
+    void unaReservaEnEsperaOcupaElCupoDelUsuarioHastaCancelarse() {
+        biblioteca.setLimitePrestamos(LimitePrestamos.fijo(1));
+        biblioteca.intentarPrestamo("U1", "978-1", FECHA);
+        CompletableFuture<Prestamo> reserva = biblioteca.reservar("U2", "978-1");
+        assertSame(ResultadoOperacion.de(ResultadoOperacion.Codigo.LIMITE_PRESTAMOS),
+                biblioteca.intentarPrestamo("U2", "978-2", FECHA));
+
+        assertTrue(reserva.cancel(false));
+        assertTrue(biblioteca.intentarPrestamo("U2", "978-2", FECHA).esExitoso());
+        // El cupo de una reserva entregada pasa a su préstamo
+        CompletableFuture<Prestamo> otra = biblioteca.reservar("U3", "978-1");
+        biblioteca.intentarDevolucion(biblioteca.obtenerPrestamosUsuario("U1").iterator().next().getId());
+        assertEquals("U3", otra.join().getUsuario().getClaveUsuario());
+        assertSame(ResultadoOperacion.de(ResultadoOperacion.Codigo.LIMITE_PRESTAMOS),
+                biblioteca.intentarPrestamo("U3", "978-2", FECHA));
+    }
+
+    @Test
+    void unaReservaInvalidaSeRechazaSinEsperar() {
+        ExecutionException error = assertThrows(ExecutionException.class,
+                () -> biblioteca.reservar("U1", "978-9").get());
+        assertInstanceOf(LibroNoEncontradoException.class, error.getCause());
+        assertTrue(biblioteca.reservar("U9", "978-1").isCompletedExceptionally());
+        assertEquals(0, biblioteca.contarPrestamosUsuario("U1"));
+        assertEquals(0, enEspera());
+    }
+
+    private long enEspera() {
+        return biblioteca.getMetricas().instantanea().getIndicadores().get("biblioteca_reservas_en_espera");
+    }
+}
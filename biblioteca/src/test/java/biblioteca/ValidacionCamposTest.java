@@ -0,0 +1,73 @@
+package biblioteca;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Códigos de la validación de campos numéricos en los extremos de int, y de
+ * los textos de un libro que no caben en una fila del catálogo mapeado.
+ */
+class ValidacionCamposTest {
+
+    @Test
+    void elMinimoDeIntEsNoPositivoYNoNoNumerico() {
+        assertEquals(ResultadoOperacion.Codigo.COPIAS_NO_POSITIVAS,
+                Biblioteca.validarCamposLibro("978-1", "Título", "Autor", "-2147483648"));
+        assertEquals(ResultadoOperacion.Codigo.SEMESTRE_NO_POSITIVO,
+                Biblioteca.validarCamposUsuario("U1", "Nombre", "Licenciatura", "-2147483648"));
+    }
+
+    @Test
+    void fueraDeRangoEsNoNumerico() {
+        assertEquals(ResultadoOperacion.Codigo.COPIAS_NO_NUMERICAS,
+                Biblioteca.validarCamposLibro("978-1", "Título", "Autor", "-2147483649"));
+        assertEquals(ResultadoOperacion.Codigo.COPIAS_NO_NUMERICAS,
+                Biblioteca.validarCamposLibro("978-1", "Título", "Autor", "2147483648"));
+        assertEquals(ResultadoOperacion.Codigo.SEMESTRE_NO_NUMERICO,
+                Biblioteca.validarCamposUsuario("U1", "Nombre", "Licenciatura", "3a"));
+    }
+
+    @Test
+    void elMaximoDeIntEsValido() {
+        assertNull(Biblioteca.validarCamposLibro("978-1", "Título", "Autor", "2147483647"));
+        assertEquals(Integer.MIN_VALUE, Biblioteca.parsearEntero("-2147483648"));
+        assertEquals(Integer.MAX_VALUE, Biblioteca.parsearEntero("+2147483647"));
+    }
+
+    @Test
+    void losTextosSeMidenEnBytesUtf8() {
+        assertNull(Biblioteca.validarCamposLibro("978-1", "a".repeat(0xFFFF), "Autor", "1"));
+        assertEquals(ResultadoOperacion.Codigo.TEXTO_DEMASIADO_LARGO,
+                Biblioteca.validarCamposLibro("978-1", "a".repeat(0x10000), "Autor", "1"));
+        // Dos bytes por carácter: la mitad de caracteres ya no cabe
+        assertNull(Biblioteca.validarCamposLibro("978-1", "Título", "ñ".repeat(0x7FFF), "1"));
+        assertEquals(ResultadoOperacion.Codigo.TEXTO_DEMASIADO_LARGO,
+                Biblioteca.validarCamposLibro("978-1", "Título", "ñ".repeat(0x8000), "1"));
+        // Cuatro bytes por par sustituto
+        assertEquals(ResultadoOperacion.Codigo.TEXTO_DEMASIADO_LARGO,
+                Biblioteca.validarCamposLibro("978-1", "\uD83D\uDCDA".repeat(0x4000), "Autor", "1"));
+        assertNull(Biblioteca.validarCamposLibro("978-1", "\uD83D\uDCDA".repeat(0x3FFF) + "abc", "Autor", "1"));
+    }
+
+    @Test
+    void unTextoDemasiadoLargoSeRechazaSinExcepcionEnElCatalogoMapeado(@TempDir Path directorio)
+            throws IOException {
+        Biblioteca biblioteca = new Biblioteca(new ReceptorEventosNulo(), CatalogoMapeado.crear(directorio, 0));
+        try {
+            ResultadoOperacion resultado = biblioteca.intentarRegistrarLibro("978-1", "é".repeat(0x8000), "Autor", "1");
+            assertEquals(ResultadoOperacion.Codigo.TEXTO_DEMASIADO_LARGO, resultado.getCodigo());
+            assertNull(biblioteca.publicarInstantanea().buscar("978-1"));
+            assertTrue(biblioteca.intentarRegistrarLibro("978-1", "é".repeat(0x7FFF), "Autor", "1").esExitoso());
+            assertEquals(0x7FFF, biblioteca.publicarInstantanea().buscar("978-1").getTitulo().length());
+        } finally {
+            biblioteca.cerrar();
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package biblioteca;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Cada préstamo vence a los días de la política vigente al crearlo; los que
+ * vencen un día y los vencidos se consultan por día de vencimiento, y cada
+ * vencimiento se avisa una sola vez.
+ */
+class VencimientosTest {
+    private final List<Prestamo> avisados = new ArrayList<>();
+    private Biblioteca biblioteca;
+
+    @BeforeEach
+    void preparar() {
+        biblioteca = new Biblioteca(new ReceptorEventosNulo() {
+            @Override
+            public void prestamoVencido(Prestamo prestamo) {
+                avisados.add(prestamo);
+            }
+        });
+        biblioteca.intentarRegistrarLibro("978-1", "Uno", "Autor", "10");
+        biblioteca.intentarRegistrarUsuario("U1", "Ana", "Licenciatura", "1");
+    }
+
+    @AfterEach
+    void cerrar() {
+        biblioteca.cerrar();
+    }
+
+    @Test
+    void losVencidosSeObtienenPorDiaDeVencimiento() {
+        Prestamo tercero = prestar("10/01/2024");
+        Prestamo primero = prestar("01/01/2024");
+        Prestamo segundo = prestar("05/01/2024");
+        assertEquals(LocalDate.of(2024, 1, 15), primero.getFechaVencimiento());
+        assertEquals(LocalDate.of(2024, 1, 24), tercero.getFechaVencimiento());
+
+        assertEquals(Set.of(primero), Set.copyOf(biblioteca.obtenerPrestamosQueVencen(LocalDate.of(2024, 1, 15))));
+        assertTrue(biblioteca.obtenerPrestamosQueVencen(LocalDate.of(2024, 1, 16)).isEmpty());
+        // El día del vencimiento todavía no está vencido
+        assertTrue(biblioteca.obtenerPrestamosVencidos(LocalDate.of(2024, 1, 15)).isEmpty());
+        assertFalse(primero.estaVencido(LocalDate.of(2024, 1, 15).toEpochDay()));
+        assertTrue(primero.estaVencido(LocalDate.of(2024, 1, 16).toEpochDay()));
+        assertEquals(List.of(primero), biblioteca.obtenerPrestamosVencidos(LocalDate.of(2024, 1, 16)));
+        assertEquals(List.of(primero, segundo, tercero),
+                biblioteca.obtenerPrestamosVencidos(LocalDate.of(2024, 2, 1)));
+
+        // Un préstamo devuelto deja de aparecer
+        assertTrue(biblioteca.intentarDevolucion(segundo.getId()).esExitoso());
+        assertEquals(List.of(primero, tercero), biblioteca.obtenerPrestamosVencidos(LocalDate.of(2024, 2, 1)));
+        assertTrue(biblioteca.obtenerPrestamosQueVencen(LocalDate.of(2024, 1, 19)).isEmpty());
+    }
+
+    @Test
+    void cadaVencimientoSeAvisaUnaSolaVez() {
+        Prestamo primero = prestar("01/01/2024");
+        Prestamo segundo = prestar("05/01/2024");
+        Prestamo tercero = prestar("10/01/2024");
+
+        assertEquals(2, biblioteca.avisarVencimientos(LocalDate.of(2024, 1, 20)));
+        assertEquals(List.of(primero, segundo), avisados);
+        assertEquals(0, biblioteca.avisarVencimientos(LocalDate.of(2024, 1, 20)));
+        assertEquals(0, biblioteca.avisarVencimientos(LocalDate.of(2024, 1, 18)));
+
+        // Un préstamo que vence en un día ya revisado no se avisa, pero está vencido
+        Prestamo atrasado = prestar("01/12/2023");
+        assertEquals(1, biblioteca.avisarVencimientos(LocalDate.of(2024, 1, 25)));
+        assertEquals(List.of(primero, segundo, tercero), avisados);
+        assertEquals(List.of(atrasado, primero, segundo, tercero),
+                biblioteca.obtenerPrestamosVencidos(LocalDate.of(2024, 1, 25)));
+    }
+
+    @Test
+    void cambiarLaPoliticaNoModificaLosPrestamosActivos() {
+        Prestamo antes = prestar("01/01/2024");
+        biblioteca.setPoliticaVencimiento(PoliticaVencimiento.fija(3));
+        Prestamo despues = prestar("01/01/2024");
+        assertEquals(LocalDate.of(2024, 1, 15), antes.getFechaVencimiento());
+        assertEquals(LocalDate.of(2024, 1, 4), despues.getFechaVencimiento());
+        assertEquals(List.of(despues), biblioteca.obtenerPrestamosVencidos(LocalDate.of(2024, 1, 10)));
+    }
+
+    private Prestamo prestar(String fecha) {
+        ResultadoOperacion resultado = biblioteca.intentarPrestamo("U1", "978-1", fecha);
+        assertTrue(resultado.esExitoso(), resultado.getCodigo().toString());
+        return resultado.getPrestamo();
+    }
+}